@@ -41,6 +41,8 @@ dependencies {
     // 仅保留 OkHttp 核心库（用于 WebSocket 客户端）
     implementation(libs.okhttp)
     testImplementation(libs.junit)
+    // 本地单元测试中 android.jar 的 org.json 只是桩实现，换成真实实现
+    testImplementation(libs.org.json)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,581 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.binary.BinaryProtocol;
+import com.devicedata.messagesend.binary.VitalsBinaryCodec;
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.metrics.SampleTrace;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长度前缀二进制 TCP 通道（协议见 {@link BinaryProtocol}），用于局域网/有线部署：
+ * - 没有 WebSocket 掩码与 STOMP 文本头。采集管线经 {@link #send} 发 JSON 帧（与其他通道负载一致）；
+ *   {@link #sendSample} 的 SAMPLE 帧连 JSON 序列化也省掉，但只带基础字段，供压测与基准使用
+ * - 非阻塞 SocketChannel + IO 循环（{@link BinaryTcpIoLoop}，默认每个客户端自带一个，压测时多台共用）；
+ *   无积压时发送线程直接写 socket，不经线程切换
+ * - 帧写入池化的直接缓冲区，出现积压时用 gathering write 一次写出多帧
+ * - 每秒 PING/PONG 测往返时延，3 秒收不到 PONG 视为断链并重连
+ * 断线时尚未完整写出的帧会在新连接上从头重发，服务端按帧边界丢弃残帧，不会重复。
+ * 待发队列有上限（默认 60 秒的 250Hz 帧），满时丢弃最旧的未写出帧并计入 drops，长时间断线不会无限占用直接内存。
+ */
+public class BinaryTcpClient implements Transport {
+
+    public interface Listener extends Transport.Listener {
+    }
+
+    private static final PipelineMetrics.TransportCounters METRICS = PipelineMetrics.transport("TCP");
+    private static final int POOL_BUFFER_BYTES = 256;
+    private static final int MAX_POOLED = 512;
+    private static final int MAX_GATHER = 64;
+    /** 60 秒的 250Hz 帧，与 {@link SendLanes#DEFAULT_WAVEFORM_CAPACITY} 相同 */
+    static final int DEFAULT_MAX_PENDING = SendLanes.DEFAULT_WAVEFORM_CAPACITY;
+    private static final long PING_INTERVAL_MS = 1_000L;
+    private static final long PONG_TIMEOUT_MS = 3_000L;
+    private static final long CONNECT_TIMEOUT_MS = 5_000L;
+
+    private final String host;
+    private final int port;
+    private final String deviceId;
+    private final Transport.Listener listener;
+    private final BinaryTcpIoLoop loop;
+    private final boolean ownsLoop;
+
+    // 以下字段由 this 保护
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    // 与 outbound 逐项对应的优先级通道：TCP 按序写出不分道，记下通道只为切换时按原通道转移
+    private final ArrayDeque<SendLane> outboundLanes = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private final ArrayDeque<Runnable> events = new ArrayDeque<>();
+    private byte[] scratch = new byte[POOL_BUFFER_BYTES];
+    @Nullable private SocketChannel channel;
+    @Nullable private SelectionKey key;
+    private boolean registered;
+    private int maxPending = DEFAULT_MAX_PENDING;
+    private boolean wantConnect;
+    private boolean handshakeDone;
+    private boolean shuttingDown;
+    private int retryAttempt;
+    private long nextConnectAtMs;
+    private long connectStartedMs;
+    private long lastPingSentMs;
+    private long lastPongMs;
+    private double rttEwmaMs = -1;
+    private long sendCount;
+    private long sentBytes;
+    private long ackedCount;
+    private long lastLogTime;
+
+    // 仅 IO 线程访问
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096);
+
+    public BinaryTcpClient(@NonNull String host,
+                           int port,
+                           @NonNull String deviceId,
+                           @NonNull Transport.Listener listener) {
+        this(host, port, deviceId, listener, null);
+    }
+
+    /**
+     * @param loop 共用的 IO 循环（压测时多台设备共用，由调用方关闭）；null 时自带一个，shutdown 时一并关闭
+     */
+    public BinaryTcpClient(@NonNull String host,
+                           int port,
+                           @NonNull String deviceId,
+                           @NonNull Transport.Listener listener,
+                           @Nullable BinaryTcpIoLoop loop) {
+        this.host = host;
+        this.port = port;
+        this.deviceId = deviceId;
+        this.listener = listener;
+        this.ownsLoop = loop == null;
+        this.loop = loop != null ? loop : new BinaryTcpIoLoop("binary-tcp-io");
+    }
+
+    @NonNull
+    @Override
+    public String name() {
+        return "TCP";
+    }
+
+    /** 待发队列上限（帧）；超出时丢弃最旧的未写出帧 */
+    public synchronized void setMaxPending(int frames) {
+        if (frames < 1) {
+            throw new IllegalArgumentException("maxPending 须为正数: " + frames);
+        }
+        maxPending = frames;
+    }
+
+    @Override
+    public synchronized void connect() {
+        if (shuttingDown) return;
+        wantConnect = true;
+        if (!registered) {
+            try {
+                loop.register(this);
+            } catch (IOException e) {
+                error("TCP selector open failed: " + e.getMessage());
+                return;
+            }
+            registered = true;
+        } else {
+            loop.wakeup();
+        }
+    }
+
+    /** 发送一条 JSON（帧类型 JSON），与其他通道的数据结构一致 */
+    @Override
+    public void send(@NonNull String json) {
+        sendJson(json, SendLane.WAVEFORM);
+    }
+
+    @Override
+    public void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+        if (trace != null) trace.markEnqueued();
+        sendJson(json, lane);
+        if (trace != null) trace.markWritten();
+    }
+
+    private synchronized void sendJson(String json, SendLane lane) {
+        if (shuttingDown) {
+            METRICS.drops.inc();
+            return;
+        }
+        int len = json.length();
+        byte[] bytes = null;
+        for (int i = 0; i < len; i++) {
+            if (json.charAt(i) >= 0x80) {
+                bytes = json.getBytes(StandardCharsets.UTF_8);
+                break;
+            }
+        }
+        int payloadLength = bytes != null ? bytes.length : len;
+        if (payloadLength > BinaryProtocol.MAX_PAYLOAD_BYTES) {
+            METRICS.drops.inc();
+            error("TCP payload too large, dropped: " + payloadLength + " bytes");
+            return;
+        }
+        ByteBuffer frame = acquire(BinaryProtocol.HEADER_BYTES + payloadLength);
+        BinaryProtocol.putHeader(frame, BinaryProtocol.TYPE_JSON, payloadLength);
+        if (bytes != null) {
+            frame.put(bytes);
+        } else {
+            // 绝大多数数据是 ASCII：先拷到复用数组再整块写入直接缓冲区
+            if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+            for (int i = 0; i < len; i++) {
+                scratch[i] = (byte) json.charAt(i);
+            }
+            frame.put(scratch, 0, len);
+        }
+        frame.flip();
+        enqueue(frame, lane);
+    }
+
+    /**
+     * 直接以二进制发送单点采样（帧类型 SAMPLE），省去 JSON 构造与解析。
+     * 只编码 {@link VitalsBinaryCodec} 支持的基础字段，不含 userId、R 峰/RR、推算心率、压缩波形顶点与时延追踪，
+     * 因此采集管线不走这里（统一发 JSON 帧），用于 loadgen 压测与 TransportFramingBenchmark。
+     */
+    public synchronized void sendSample(@NonNull VitalsReading reading, @Nullable Integer spo2WavePoint) {
+        if (shuttingDown) {
+            METRICS.drops.inc();
+            return;
+        }
+        ByteBuffer frame = acquire(BinaryProtocol.HEADER_BYTES + VitalsBinaryCodec.MAX_BYTES);
+        BinaryProtocol.putHeader(frame, BinaryProtocol.TYPE_SAMPLE, 0);
+        int n = VitalsBinaryCodec.encode(reading, spo2WavePoint, frame);
+        frame.putInt(0, n + 1);
+        frame.flip();
+        enqueue(frame, SendLane.WAVEFORM);
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            shuttingDown = true;
+            wantConnect = false;
+            closeChannel();
+            for (ByteBuffer frame : outbound) {
+                if (frame.get(4) != BinaryProtocol.TYPE_PING) METRICS.drops.inc();
+            }
+            outbound.clear();
+            outboundLanes.clear();
+        }
+        loop.unregister(this);
+        if (ownsLoop) loop.shutdown();
+    }
+
+    @Override
+    public synchronized boolean isReady() {
+        return handshakeDone;
+    }
+
+    /** PING/PONG 往返时延的指数平均；有未回应的 PING 且已等待更久时以等待时间为下限 */
+    @Override
+    public synchronized long latencyMillis() {
+        if (rttEwmaMs < 0) return -1;
+        long rtt = Math.round(rttEwmaMs);
+        if (handshakeDone && lastPingSentMs > lastPongMs) {
+            rtt = Math.max(rtt, nowMillis() - lastPingSentMs);
+        }
+        return rtt;
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return outbound.size();
+    }
+
+    /** 取出尚未开始写出的数据帧并还原为 JSON；PING 帧直接丢弃，已写出一半的队首帧保留 */
+    @NonNull
+    @Override
+    public synchronized List<Transport.Pending> drainPending() {
+        List<Transport.Pending> drained = new ArrayList<>(outbound.size());
+        Iterator<ByteBuffer> it = outbound.iterator();
+        Iterator<SendLane> lanes = outboundLanes.iterator();
+        while (it.hasNext()) {
+            ByteBuffer frame = it.next();
+            SendLane lane = lanes.next();
+            if (frame.position() > 0) continue;
+            byte type = frame.get(4);
+            if (type == BinaryProtocol.TYPE_JSON) {
+                byte[] body = new byte[frame.limit() - BinaryProtocol.HEADER_BYTES];
+                ByteBuffer dup = frame.duplicate();
+                dup.position(BinaryProtocol.HEADER_BYTES);
+                dup.get(body);
+                drained.add(new Transport.Pending(new String(body, StandardCharsets.UTF_8), lane));
+            } else if (type == BinaryProtocol.TYPE_SAMPLE) {
+                ByteBuffer dup = frame.duplicate();
+                dup.position(BinaryProtocol.HEADER_BYTES);
+                VitalsBinaryCodec.Decoded d = VitalsBinaryCodec.decode(dup);
+                drained.add(new Transport.Pending(
+                        PayloadFactory.buildPayload(d.reading, null, deviceId, d.spo2WavePoint).toString(), lane));
+            }
+            it.remove();
+            lanes.remove();
+            recycle(frame);
+        }
+        return drained;
+    }
+
+    public synchronized long sentCount() {
+        return sendCount;
+    }
+
+    public synchronized long sentBytes() {
+        return sentBytes;
+    }
+
+    /** 服务端 ACK 帧报告的累计接收条数 */
+    public synchronized long ackedCount() {
+        return ackedCount;
+    }
+
+    // ---- IO 线程（由 BinaryTcpIoLoop 调用） ----
+
+    /** 每轮 select 之前：到点重连、心跳，并按积压设置关注的事件 */
+    synchronized void beforeSelect(long now) {
+        if (shuttingDown) return;
+        if (channel == null && wantConnect && now >= nextConnectAtMs) {
+            openChannel(now);
+        }
+        tick(now);
+        if (key != null && key.isValid()) {
+            int ops = (key.interestOps() & SelectionKey.OP_CONNECT) != 0
+                    ? SelectionKey.OP_CONNECT
+                    : SelectionKey.OP_READ | (handshakeDone && !outbound.isEmpty() ? SelectionKey.OP_WRITE : 0);
+            key.interestOps(ops);
+        }
+    }
+
+    synchronized void onSelected(SelectionKey k) {
+        if (k != key || !k.isValid()) return;
+        try {
+            if (k.isConnectable()) {
+                channel.finishConnect();
+                onTcpConnected();
+            }
+            if (k.isValid() && k.isReadable()) {
+                readFrames();
+            }
+            if (k.isValid() && k.isWritable() && handshakeDone) {
+                flushOutbound();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail("TCP connection error: " + e.getMessage());
+        }
+    }
+
+    synchronized void onLoopFailed(String reason) {
+        wantConnect = false;
+        closeChannel();
+        error(reason);
+    }
+
+    private void openChannel(long now) {
+        try {
+            SocketChannel ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel = ch;
+            connectStartedMs = now;
+            log("TCP connecting to " + host + ":" + port);
+            if (ch.connect(new InetSocketAddress(host, port))) {
+                key = ch.register(loop.selector(), SelectionKey.OP_READ, this);
+                onTcpConnected();
+            } else {
+                key = ch.register(loop.selector(), SelectionKey.OP_CONNECT, this);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail("TCP connect failed: " + e.getMessage());
+        }
+    }
+
+    private void onTcpConnected() throws IOException {
+        key.interestOps(SelectionKey.OP_READ);
+        readBuffer.clear();
+        // HELLO 只有几十字节，新连接的发送缓冲区必然一次写完
+        ByteBuffer hello = BinaryProtocol.hello(deviceId);
+        channel.write(hello);
+        if (hello.hasRemaining()) throw new IOException("HELLO not fully written");
+    }
+
+    private void readFrames() throws IOException {
+        int n = channel.read(readBuffer);
+        if (n < 0) throw new IOException("closed by server");
+        readBuffer.flip();
+        while (readBuffer.remaining() >= 4) {
+            int start = readBuffer.position();
+            int length = readBuffer.getInt(start);
+            if (length < 1 || length > readBuffer.capacity() - 4) {
+                throw new IOException("invalid frame length " + length);
+            }
+            if (readBuffer.remaining() < 4 + length) break;
+            int end = start + 4 + length;
+            readBuffer.position(start + 4);
+            handleFrame(readBuffer.get());
+            readBuffer.position(end);
+        }
+        readBuffer.compact();
+    }
+
+    private void handleFrame(byte type) throws IOException {
+        long now = nowMillis();
+        switch (type) {
+            case BinaryProtocol.TYPE_WELCOME: {
+                int status = readBuffer.get() & 0xFF;
+                if (status != BinaryProtocol.STATUS_OK) {
+                    throw new IOException("rejected by server, status " + status);
+                }
+                handshakeDone = true;
+                retryAttempt = 0;
+                lastPongMs = now;
+                lastPingSentMs = 0;
+                log("TCP connected, pending " + outbound.size());
+                events.add(listener::onConnected);
+                flushOutbound();
+                break;
+            }
+            case BinaryProtocol.TYPE_PONG: {
+                long sentNanos = readBuffer.getLong();
+                double rtt = (System.nanoTime() - sentNanos) / 1_000_000.0;
+                rttEwmaMs = rttEwmaMs < 0 ? rtt : rttEwmaMs * 0.8 + rtt * 0.2;
+                lastPongMs = now;
+                break;
+            }
+            case BinaryProtocol.TYPE_ACK:
+                ackedCount = readBuffer.getInt() & 0xFFFFFFFFL;
+                break;
+            default:
+                // 未知类型按长度跳过，便于服务端扩展
+                break;
+        }
+    }
+
+    private void tick(long now) {
+        if (channel == null) return;
+        if (!handshakeDone) {
+            if (now - connectStartedMs > CONNECT_TIMEOUT_MS) {
+                fail("TCP connect timeout after " + CONNECT_TIMEOUT_MS + "ms");
+            }
+            return;
+        }
+        if (now - lastPongMs > PONG_TIMEOUT_MS) {
+            fail("TCP 心跳超时，" + (now - lastPongMs) + "ms 未收到 PONG，立即重连");
+            return;
+        }
+        if (now - lastPingSentMs >= PING_INTERVAL_MS) {
+            ByteBuffer ping = acquire(BinaryProtocol.HEADER_BYTES + 8);
+            BinaryProtocol.putHeader(ping, BinaryProtocol.TYPE_PING, 8);
+            ping.putLong(System.nanoTime());
+            ping.flip();
+            lastPingSentMs = now;
+            enqueue(ping, SendLane.URGENT);
+        }
+    }
+
+    // ---- 发送队列（持锁调用） ----
+
+    private void enqueue(ByteBuffer frame, SendLane lane) {
+        if (outbound.size() >= maxPending) {
+            dropOldest();
+        }
+        outbound.add(frame);
+        outboundLanes.add(lane);
+        if (handshakeDone) {
+            flushOutbound();
+        } else if (channel == null && !wantConnect) {
+            connect();
+        }
+    }
+
+    /** 队列已满：丢弃最旧的一个未开始写出的帧（队首可能已写出一半，保留） */
+    private void dropOldest() {
+        Iterator<ByteBuffer> it = outbound.iterator();
+        Iterator<SendLane> lanes = outboundLanes.iterator();
+        while (it.hasNext()) {
+            ByteBuffer frame = it.next();
+            lanes.next();
+            if (frame.position() > 0) continue;
+            it.remove();
+            lanes.remove();
+            if (frame.get(4) != BinaryProtocol.TYPE_PING) METRICS.drops.inc();
+            recycle(frame);
+            return;
+        }
+    }
+
+    private void flushOutbound() {
+        try {
+            while (!outbound.isEmpty()) {
+                int n = 0;
+                for (ByteBuffer b : outbound) {
+                    gather[n++] = b;
+                    if (n == MAX_GATHER) break;
+                }
+                channel.write(gather, 0, n);
+                Arrays.fill(gather, 0, n, null);
+                int completed = 0;
+                while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) {
+                    ByteBuffer done = outbound.pollFirst();
+                    outboundLanes.pollFirst();
+                    onFrameWritten(done);
+                    recycle(done);
+                    completed++;
+                }
+                if (completed < n) break; // socket 发送缓冲区已满，等 OP_WRITE
+            }
+        } catch (IOException e) {
+            fail("TCP write failed: " + e.getMessage());
+            return;
+        }
+        if (!outbound.isEmpty() && !loop.inLoopThread()) {
+            loop.wakeup(); // 让 IO 线程注册 OP_WRITE
+        }
+    }
+
+    private void onFrameWritten(ByteBuffer frame) {
+        byte type = frame.get(4);
+        if (type != BinaryProtocol.TYPE_JSON && type != BinaryProtocol.TYPE_SAMPLE) return;
+        sendCount++;
+        sentBytes += frame.limit();
+        METRICS.sent.inc();
+        METRICS.bytes.add(frame.limit());
+        // 每5秒最多打印一次发送统计
+        long now = System.currentTimeMillis();
+        if (now - lastLogTime > 5000) {
+            log("TCP -> " + sendCount + " messages, acked " + ackedCount + ", rtt " + latencyMillis() + "ms");
+            lastLogTime = now;
+        }
+    }
+
+    private ByteBuffer acquire(int size) {
+        if (size > POOL_BUFFER_BYTES) return ByteBuffer.allocateDirect(size);
+        ByteBuffer buf = pool.pollFirst();
+        if (buf == null) return ByteBuffer.allocateDirect(POOL_BUFFER_BYTES);
+        buf.clear();
+        return buf;
+    }
+
+    private void recycle(ByteBuffer buf) {
+        if (buf.capacity() == POOL_BUFFER_BYTES && pool.size() < MAX_POOLED) {
+            pool.addFirst(buf);
+        }
+    }
+
+    private void fail(String reason) {
+        boolean wasReady = handshakeDone;
+        closeChannel();
+        // 队首帧可能只写出一半：新连接上整帧重发；旧 PING 已无意义，直接丢弃
+        Iterator<ByteBuffer> it = outbound.iterator();
+        Iterator<SendLane> lanes = outboundLanes.iterator();
+        while (it.hasNext()) {
+            ByteBuffer frame = it.next();
+            lanes.next();
+            if (frame.get(4) == BinaryProtocol.TYPE_PING) {
+                it.remove();
+                lanes.remove();
+                recycle(frame);
+            } else {
+                frame.position(0);
+            }
+        }
+        if (shuttingDown) return;
+        METRICS.reconnects.inc();
+        error(reason);
+        if (wasReady) events.add(listener::onDisconnected);
+        retryAttempt++;
+        int delaySec = Math.min(30, 1 << Math.min(5, retryAttempt - 1));
+        nextConnectAtMs = nowMillis() + delaySec * 1000L;
+        log("TCP reconnect in " + delaySec + "s (attempt " + retryAttempt + ")");
+    }
+
+    private void closeChannel() {
+        handshakeDone = false;
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+
+    void dispatchEvents() {
+        while (true) {
+            Runnable event;
+            synchronized (this) {
+                event = events.pollFirst();
+            }
+            if (event == null) return;
+            event.run();
+        }
+    }
+
+    private static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void log(String line) { listener.onLog(line); }
+    private void error(String err) { listener.onError(err); }
+}
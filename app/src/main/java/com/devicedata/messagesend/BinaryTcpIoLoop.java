@@ -0,0 +1,113 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二进制 TCP 通道的 IO 循环：一个 Selector + 一个线程，可服务任意多个 {@link BinaryTcpClient}。
+ * - 单台设备时每个客户端自带一个，随客户端 shutdown 关闭
+ * - 压测上千台设备时共用少数几个（见 BinaryTcpClient 带 loop 的构造），线程与 Selector 数不随设备数增长，
+ *   由创建方在所有客户端 shutdown 之后调用 {@link #shutdown}
+ * 首个客户端注册时才打开 Selector 并启动线程。
+ */
+public final class BinaryTcpIoLoop {
+
+    private static final long SELECT_TIMEOUT_MS = 100L;
+
+    private final String threadName;
+    private final CopyOnWriteArrayList<BinaryTcpClient> clients = new CopyOnWriteArrayList<>();
+    // 以下字段由 this 保护
+    @Nullable private Selector selector;
+    @Nullable private Thread thread;
+    private boolean closed;
+
+    public BinaryTcpIoLoop(@NonNull String threadName) {
+        this.threadName = threadName;
+    }
+
+    /** 注册客户端，必要时打开 Selector 并启动 IO 线程 */
+    synchronized void register(@NonNull BinaryTcpClient client) throws IOException {
+        if (closed) {
+            throw new IOException("io loop closed");
+        }
+        if (selector == null) {
+            selector = Selector.open();
+            thread = new Thread(this::run, threadName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        clients.addIfAbsent(client);
+        selector.wakeup();
+    }
+
+    void unregister(@NonNull BinaryTcpClient client) {
+        clients.remove(client);
+        wakeup();
+    }
+
+    /** 仅在 IO 线程上调用（客户端在此注册 SocketChannel） */
+    @NonNull
+    synchronized Selector selector() {
+        return selector;
+    }
+
+    synchronized void wakeup() {
+        if (selector != null) selector.wakeup();
+    }
+
+    boolean inLoopThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** 停止 IO 线程并关闭 Selector；仍注册的客户端不再收发 */
+    public void shutdown() {
+        synchronized (this) {
+            closed = true;
+        }
+        wakeup();
+    }
+
+    private void run() {
+        Selector s = selector();
+        while (true) {
+            synchronized (this) {
+                if (closed) break;
+            }
+            long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            for (BinaryTcpClient c : clients) {
+                c.beforeSelect(now);
+            }
+            for (BinaryTcpClient c : clients) {
+                c.dispatchEvents();
+            }
+            try {
+                s.select(SELECT_TIMEOUT_MS);
+            } catch (IOException e) {
+                synchronized (this) {
+                    closed = true;
+                }
+                for (BinaryTcpClient c : clients) {
+                    c.onLoopFailed("TCP select failed: " + e.getMessage());
+                }
+                break;
+            }
+            for (SelectionKey k : s.selectedKeys()) {
+                ((BinaryTcpClient) k.attachment()).onSelected(k);
+            }
+            s.selectedKeys().clear();
+            for (BinaryTcpClient c : clients) {
+                c.dispatchEvents();
+            }
+        }
+        try {
+            s.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -3,8 +3,13 @@ package com.devicedata.messagesend;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.metrics.SampleTrace;
+
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -19,31 +24,37 @@ import okhttp3.Response;
 /**
  * 简单的 HTTP 发送客户端：将 JSON 以 POST 方式发送到 http://host:port/data/{deviceId}
  * 模拟 WebSocket 客户端的行为：提供 connect()/send()/shutdown() 与日志回调。
+ * 往返时延取 POST 请求耗时；最近一次请求失败后 {@link #RETRY_AFTER_MS} 内视为未就绪，
+ * 之后重新视为就绪，作为备用通道时切换器可以再次尝试（备用时不发请求，无法靠成功请求恢复）。
  */
-public class DataHttpClient {
+public class DataHttpClient implements Transport {
 
-    public interface Listener {
-        void onLog(String line);
-        void onConnected();
-        void onDisconnected();
-        void onError(String error);
+    public interface Listener extends Transport.Listener {
     }
 
+    private static final PipelineMetrics.TransportCounters METRICS = PipelineMetrics.transport("HTTP");
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    static final long RETRY_AFTER_MS = 10_000L;
 
     private final String baseHttpUrl;
     private final String deviceIdPath;
-    private final Listener listener;
+    private final Transport.Listener listener;
 
     private final OkHttpClient client;
-    private final Queue<String> pending = new ArrayDeque<>();
+    private final Queue<Transport.Pending> pending = new ArrayDeque<>();
     private final ExecutorService worker = Executors.newSingleThreadExecutor();
     private volatile boolean running = false;
     private volatile boolean shuttingDown = false;
+    // 最近一次请求失败的时刻（nanoTime），0 表示最近一次成功
+    private volatile long lastFailureNanos = 0;
+    private volatile long inFlightSinceNanos = 0;
+    private volatile long rttMillis = -1;
+    private long okCount = 0;
+    private long lastLogTime = 0;
 
     public DataHttpClient(@NonNull String baseHttpUrl,
                           @NonNull String deviceId,
-                          @NonNull Listener listener) {
+                          @NonNull Transport.Listener listener) {
         this.baseHttpUrl = ensureNoTrailingSlash(baseHttpUrl);
         this.deviceIdPath = "/data/" + deviceId; // 与 WS 路径保持一致
         this.listener = listener;
@@ -53,6 +64,7 @@ public class DataHttpClient {
                 .build();
     }
 
+    @Override
     public synchronized void connect() {
         if (running) return;
         running = true;
@@ -62,6 +74,7 @@ public class DataHttpClient {
         worker.execute(this::drainLoop);
     }
 
+    @Override
     public synchronized void shutdown() {
         shuttingDown = true;
         running = false;
@@ -69,14 +82,67 @@ public class DataHttpClient {
         listener.onDisconnected();
     }
 
-    public synchronized void send(@NonNull String json) {
-        if (shuttingDown) return;
-        pending.add(json);
+    @Override
+    public void send(@NonNull String json) {
+        enqueue(json, SendLane.WAVEFORM);
+    }
+
+    /** HTTP 逐条串行提交，不分道；记下通道只为切换时按原通道转移 */
+    @Override
+    public void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+        if (trace != null) trace.markEnqueued();
+        enqueue(json, lane);
+        if (trace != null) trace.markWritten();
+    }
+
+    private synchronized void enqueue(String json, SendLane lane) {
+        if (shuttingDown) {
+            METRICS.drops.inc();
+            return;
+        }
+        pending.add(new Transport.Pending(json, lane));
+    }
+
+    @NonNull
+    @Override
+    public String name() {
+        return "HTTP";
+    }
+
+    @Override
+    public boolean isReady() {
+        long failedAt = lastFailureNanos;
+        return running && (failedAt == 0
+                || System.nanoTime() - failedAt >= TimeUnit.MILLISECONDS.toNanos(RETRY_AFTER_MS));
+    }
+
+    /** 请求进行中时以已等待时长作为下限 */
+    @Override
+    public long latencyMillis() {
+        long since = inFlightSinceNanos;
+        long rtt = rttMillis;
+        if (since != 0) {
+            return Math.max(rtt, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since));
+        }
+        return rtt;
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Transport.Pending> drainPending() {
+        List<Transport.Pending> drained = new ArrayList<>(pending);
+        pending.clear();
+        return drained;
     }
 
     private void drainLoop() {
         while (running && !Thread.currentThread().isInterrupted()) {
-            String next;
+            Transport.Pending next;
             synchronized (this) {
                 next = pending.poll();
             }
@@ -84,7 +150,7 @@ public class DataHttpClient {
                 try { Thread.sleep(1); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
                 continue;
             }
-            postJson(next);
+            postJson(next.json);
         }
     }
 
@@ -95,20 +161,44 @@ public class DataHttpClient {
                 .url(url)
                 .post(body)
                 .build();
+        long start = System.nanoTime();
+        inFlightSinceNanos = start;
         try (Response resp = client.newCall(req).execute()) {
             int code = resp.code();
+            long sample = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            rttMillis = rttMillis < 0 ? sample : (rttMillis * 3 + sample) / 4;
             if (code >= 200 && code < 300) {
-                log("HTTP -> 2xx ok (" + json.length() + " bytes)");
+                lastFailureNanos = 0;
+                okCount++;
+                METRICS.sent.inc();
+                METRICS.bytes.add(json.length());
+                // 每 5 秒汇总一次，避免高频发送时刷屏
+                long now = System.currentTimeMillis();
+                if (now - lastLogTime > 5000) {
+                    log("HTTP -> " + okCount + " ok (last " + json.length() + " bytes, " + sample + "ms)");
+                    lastLogTime = now;
+                }
             } else {
+                markFailed();
+                METRICS.drops.inc();
                 String snippet = null;
                 try { snippet = resp.body() != null ? resp.body().string() : null; } catch (Exception ignored) {}
                 error("HTTP non-2xx: " + code + (snippet != null ? (" | body: " + truncate(snippet, 256)) : ""));
             }
         } catch (IOException e) {
+            markFailed();
+            METRICS.drops.inc();
             error("HTTP failure: " + e.getMessage());
+        } finally {
+            inFlightSinceNanos = 0;
         }
     }
 
+    private void markFailed() {
+        long now = System.nanoTime();
+        lastFailureNanos = now == 0 ? 1 : now;
+    }
+
     private static String ensureNoTrailingSlash(String base) {
         if (base.endsWith("/")) return base.substring(0, base.length() - 1);
         return base;
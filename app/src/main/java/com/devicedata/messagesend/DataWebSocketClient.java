@@ -3,7 +3,12 @@ package com.devicedata.messagesend;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.metrics.SampleTrace;
+
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 
@@ -15,30 +20,31 @@ import okhttp3.WebSocketListener;
 import okio.ByteString;
 // WebSocket 客户端：负责连接 ws://host:port/data/{deviceId}，
 // 维护一个发送队列，连接就绪后会自动 flush。
-public class DataWebSocketClient {
+// 该协议没有逐条回执，无法测量往返时延，latencyMillis() 恒为 -1。
+public class DataWebSocketClient implements Transport {
 
-    public interface Listener {
-        void onLog(String line);
-        void onConnected();
-        void onDisconnected();
-        void onError(String error);
+    public interface Listener extends Transport.Listener {
     }
 
+    private static final PipelineMetrics.TransportCounters METRICS = PipelineMetrics.transport("WS");
+
     private final String baseWsUrl;
     private final String deviceIdPath;
-    private final Listener listener;
+    private final Transport.Listener listener;
 
     private final OkHttpClient client;
     @Nullable private WebSocket webSocket;
     private boolean connected;
     private boolean shuttingDown;
 
-    private final Queue<String> pending = new ArrayDeque<>();
+    private final Queue<Transport.Pending> pending = new ArrayDeque<>();
     private int retryAttempt = 0;
+    private long sendCount = 0;
+    private long lastLogTime = 0;
 
     public DataWebSocketClient(@NonNull String baseWsUrl,
                                @NonNull String deviceId,
-                               @NonNull Listener listener) {
+                               @NonNull Transport.Listener listener) {
     this.baseWsUrl = ensureNoTrailingSlash(baseWsUrl);
         // 使用设备真实 ID 作为路径段（服务端将按原始 ID 识别，例如 MAC 地址包含冒号）
         this.deviceIdPath = "/data/" + deviceId;
@@ -49,6 +55,7 @@ public class DataWebSocketClient {
                 .build();
     }
 
+    @Override
     public synchronized void connect() {
         if (shuttingDown) return;
         if (connected || webSocket != null) return;
@@ -112,6 +119,7 @@ public class DataWebSocketClient {
         });
     }
 
+    @Override
     public synchronized void shutdown() {
         shuttingDown = true;
         if (webSocket != null) {
@@ -119,30 +127,89 @@ public class DataWebSocketClient {
             webSocket = null;
         }
         connected = false;
+        METRICS.drops.add(pending.size());
         pending.clear();
     }
 
-    public synchronized void send(String json) {
-        if (shuttingDown) return;
+    @NonNull
+    @Override
+    public String name() {
+        return "WS";
+    }
+
+    @Override
+    public synchronized boolean isReady() {
+        return connected && webSocket != null;
+    }
+
+    @Override
+    public long latencyMillis() {
+        return -1;
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Transport.Pending> drainPending() {
+        List<Transport.Pending> drained = new ArrayList<>(pending);
+        pending.clear();
+        return drained;
+    }
+
+    @Override
+    public void send(@NonNull String json) {
+        enqueue(json, SendLane.WAVEFORM);
+    }
+
+    /** 不分道，按序写出；记下通道只为切换时按原通道转移 */
+    @Override
+    public void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+        if (trace != null) trace.markEnqueued();
+        enqueue(json, lane);
+        if (trace != null) trace.markWritten();
+    }
+
+    private synchronized void enqueue(String json, SendLane lane) {
+        if (shuttingDown) {
+            METRICS.drops.inc();
+            return;
+        }
         if (connected && webSocket != null) {
             boolean ok = webSocket.send(json);
             if (ok) {
-                log("WS -> (" + json.length() + " bytes)");
+                sendCount++;
+                METRICS.sent.inc();
+                METRICS.bytes.add(json.length());
+                // 250Hz 下逐条打印会拖垮日志区，改为每 5 秒汇总一次
+                long now = System.currentTimeMillis();
+                if (now - lastLogTime > 5000) {
+                    log("WS -> " + sendCount + " messages (last " + json.length() + " bytes)");
+                    lastLogTime = now;
+                }
             } else {
                 error("WS send returned false, queueing");
-                pending.add(json);
+                pending.add(new Transport.Pending(json, lane));
             }
         } else {
-            pending.add(json);
+            pending.add(new Transport.Pending(json, lane));
             connect();
         }
     }
 
     private synchronized void flushPending() {
         while (!pending.isEmpty() && connected && webSocket != null) {
-            String next = pending.poll();
+            Transport.Pending next = pending.poll();
             if (next == null) break;
-            webSocket.send(next);
+            if (webSocket.send(next.json)) {
+                METRICS.sent.inc();
+                METRICS.bytes.add(next.json.length());
+            } else {
+                METRICS.drops.inc();
+            }
         }
         if (!pending.isEmpty()) {
             log("WS pending queue size: " + pending.size());
@@ -151,6 +218,7 @@ public class DataWebSocketClient {
 
     private synchronized void scheduleReconnect() {
         if (shuttingDown) return;
+        METRICS.reconnects.inc();
         retryAttempt++;
         int delaySec = Math.min(30, (1 << Math.min(5, retryAttempt)));
         // 这里只提示重连间隔；如需自动重连，可结合 Handler/定时任务在 delaySec 后调用 connect()
@@ -2,12 +2,18 @@ package com.devicedata.messagesend;
 
 import android.Manifest;
 import android.bluetooth.BluetoothDevice;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
-import android.text.method.ScrollingMovementMethod;
+import android.os.SystemClock;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -22,62 +28,112 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import com.devicedata.messagesend.PayloadFactory;
-import com.devicedata.messagesend.ble.BleManager;
+import com.devicedata.messagesend.ble.DiscoveredDevices;
+import com.devicedata.messagesend.log.LogLineAdapter;
+import com.devicedata.messagesend.metrics.MetricsRegistry;
+import com.devicedata.messagesend.metrics.PipelineMetrics;
 import com.devicedata.messagesend.model.VitalsReading;
 
-import org.json.JSONObject;
-
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 // 主页：
 // - 扫描并手动选择蓝牙设备
-// - 以 250Hz 频率逐点发送（4ms 周期），低频字段保持最近值重复，直到更新
-// - 通过 WebSocket 发送到网关 ws://host:port/data/{deviceId}
+// - 采集与 250Hz 上送在前台服务 StreamingService 中运行，息屏不中断；页面只绑定服务展示状态、日志与指标
 public class MainActivity extends AppCompatActivity {
 
     private static final int REQUEST_CODE_PERMISSIONS = 100;
-    private static final String TARGET_NAME_PREFIX = "";
-    private static final String TARGET_DEVICE_ADDRESS = "34:81:F4:75:20:70";
-    private static final String DEFAULT_USER_ID = "demo-001";
-    private static final String TARGET_USER_ID = "";
-
-    private final ExecutorService networkExecutor = Executors.newSingleThreadExecutor();
-    private ScheduledExecutorService streamExecutor;
-    private ScheduledFuture<?> streamTask;
+    private static final int REQUEST_CODE_NOTIFICATIONS = 101;
+    private static final String[] TRANSPORT_NAMES = {"stomp", "ws", "http", "tcp"};
+    // 指标区每 5 秒刷新；line protocol 由服务导出
+    private static final long METRICS_INTERVAL_MS = 5_000L;
+    // 日志界面最多每 100ms（10Hz）刷新一次
+    private static final long LOG_REFRESH_INTERVAL_MS = 100L;
+
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-    private BleManager bleManager;
+    @Nullable
+    private StreamingService service;
     private TextView statusText;
-    private TextView logText;
-    // 切换为 STOMP over WebSocket 客户端
-    private StompWebSocketClient stompClient;
-    private String currentDeviceId;
-    private ArrayAdapter<BluetoothDevice> deviceAdapter;
-    private final List<BluetoothDevice> nearbyDevices = new ArrayList<>();
-    private final StringBuilder logBuffer = new StringBuilder();
-    private final SimpleDateFormat logTimeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-
-    // 最新值缓存（流式发送每 4ms 复用）
-    private volatile Integer latestEcgWave;
-    private volatile Integer latestRespWave;
-    private volatile Integer latestBoWave;
-    private volatile Integer latestEcgHr;
-    private volatile Integer latestRespRate;
-    private volatile Integer latestSystolic;
-    private volatile Integer latestDiastolic;
-    private volatile Integer latestMap;
-    private volatile Integer latestBoPercent;
-    private volatile Integer latestPulseRate;
-    private volatile Double latestTemp;
+    private final AtomicBoolean logRefreshScheduled = new AtomicBoolean();
+    private volatile long lastLogRefreshUptime;
+    private LogLineAdapter logAdapter;
+    private final Runnable logRefresher = this::refreshLog;
+    // 帧间隔超过 1.5 个刷新周期记为慢帧，用于对比日志刷屏时的掉帧
+    private long slowFrameNanos = 25_000_000L;
+    private long lastFrameNanos;
+    private final Choreographer.FrameCallback frameMonitor = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (lastFrameNanos != 0) {
+                PipelineMetrics.UI_FRAMES.inc();
+                if (frameTimeNanos - lastFrameNanos > slowFrameNanos) {
+                    PipelineMetrics.UI_SLOW_FRAMES.inc();
+                }
+            }
+            lastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+    private TextView vitalsText;
+    private TextView metricsText;
+    private MetricsRegistry.Snapshot lastMetrics;
+    private final Runnable metricsReporter = new Runnable() {
+        @Override
+        public void run() {
+            reportMetrics();
+            mainHandler.postDelayed(this, METRICS_INTERVAL_MS);
+        }
+    };
+    private ArrayAdapter<DiscoveredDevices.Device<BluetoothDevice>> deviceAdapter;
+    private final List<DiscoveredDevices.Device<BluetoothDevice>> nearbyDevices = new ArrayList<>();
+
+    private final StreamingService.UiListener uiListener = new StreamingService.UiListener() {
+        @Override
+        public void onStatus(@NonNull String message) {
+            statusText.setText(message);
+        }
+
+        @Override
+        public void onError(@NonNull String error) {
+            statusText.setText(error);
+            Toast.makeText(MainActivity.this, error, Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onDevicesChanged(@NonNull List<DiscoveredDevices.Device<BluetoothDevice>> devices) {
+            showDevices(devices);
+        }
+
+        @Override
+        public void onVitals(@NonNull VitalsReading reading) {
+            showVitals(reading);
+        }
+
+        @Override
+        public void onLogAppended() {
+            scheduleLogRefresh();
+        }
+    };
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((StreamingService.LocalBinder) binder).service();
+            service.setUiListener(uiListener);
+            String deviceId = service.currentDeviceId();
+            if (deviceId != null) {
+                statusText.setText(getString(R.string.status_connected, deviceId));
+            }
+            scheduleLogRefresh();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -85,184 +141,76 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         statusText = findViewById(R.id.statusText);
-        logText = findViewById(R.id.logText);
-        logText.setMovementMethod(new ScrollingMovementMethod());
+        ListView logList = findViewById(R.id.logList);
+        logAdapter = new LogLineAdapter(getLayoutInflater(), StreamingService.LOG_CAPACITY,
+                ContextCompat.getColor(this, R.color.log_timestamp));
+        logList.setAdapter(logAdapter);
+        vitalsText = findViewById(R.id.vitalsText);
+        metricsText = findViewById(R.id.metricsText);
+        // 点击指标区把完整快照打印到日志
+        metricsText.setOnClickListener(v -> {
+            MetricsRegistry.Snapshot now = PipelineMetrics.REGISTRY.snapshot();
+            appendLog("管线指标\n" + now.format(lastMetrics != null ? lastMetrics : now));
+        });
+        metricsText.setOnLongClickListener(v -> {
+            if (service != null) service.requestHistoryTrend();
+            return true;
+        });
         Button scanButton = findViewById(R.id.scanButton);
         Button disconnectButton = findViewById(R.id.disconnectButton);
         ListView deviceList = findViewById(R.id.deviceList);
         TextView emptyView = findViewById(R.id.emptyView);
         deviceList.setEmptyView(emptyView);
 
-        appendLog("应用已启动，等待操作");
+        // 服务随页面绑定创建；连接设备后转为前台服务，页面销毁后继续采集
+        bindService(new Intent(this, StreamingService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+        lastMetrics = PipelineMetrics.REGISTRY.snapshot();
+        mainHandler.postDelayed(metricsReporter, METRICS_INTERVAL_MS);
+        requestNotificationPermission();
 
         // 适配器用于展示附近扫描到的蓝牙设备
-        deviceAdapter = new ArrayAdapter<BluetoothDevice>(this, android.R.layout.simple_list_item_2, android.R.id.text1, nearbyDevices) {
+        deviceAdapter = new ArrayAdapter<DiscoveredDevices.Device<BluetoothDevice>>(this, android.R.layout.simple_list_item_2, android.R.id.text1, nearbyDevices) {
             @NonNull
             @Override
             public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
                 View view = super.getView(position, convertView, parent);
                 TextView nameView = view.findViewById(android.R.id.text1);
                 TextView addressView = view.findViewById(android.R.id.text2);
-                BluetoothDevice device = getItem(position);
+                DiscoveredDevices.Device<BluetoothDevice> device = getItem(position);
                 if (device != null) {
-                    String name = device.getName();
-                    nameView.setText(name != null ? name : getString(R.string.device_unknown));
-                    addressView.setText(device.getAddress());
+                    nameView.setText(device.name != null ? device.name : getString(R.string.device_unknown));
+                    addressView.setText(String.format(Locale.US, "%s  %d dBm", device.address, device.rssi));
                 }
                 return view;
             }
         };
         deviceList.setAdapter(deviceAdapter);
         deviceList.setOnItemClickListener((parent, view, position, id) -> {
-            BluetoothDevice device = nearbyDevices.get(position);
+            if (service == null) return;
+            BluetoothDevice device = nearbyDevices.get(position).device;
             statusText.setText(getString(R.string.status_connecting, displayName(device)));
             appendLog(getString(R.string.status_connecting, displayName(device)));
-            bleManager.connectTo(device);
-        });
-
-    bleManager = new BleManager(this, new BleManager.Listener() {
-            @Override
-            public void onStatus(String message) {
-                statusText.setText(message);
-                appendLog(message);
-            }
-
-            @Override
-            public void onConnected(@NonNull android.bluetooth.BluetoothDevice device) {
-                String label = device.getName() != null ? device.getName() : device.getAddress();
-                statusText.setText(getString(R.string.status_connected, label));
-                appendLog(getString(R.string.status_connected, label));
-                    // 建立 STOMP over WebSocket：握手地址 ws://host:port/ws
-                    String deviceId = device.getAddress();
-                    String baseWs = "ws://10.242.98.103:8080"; // 服务器地址
-                    stompClient = new StompWebSocketClient(baseWs, deviceId, new StompWebSocketClient.Listener() {
-                        @Override public void onLog(String line) { appendLog(line); }
-                        @Override public void onConnected() { appendLog("STOMP 已连接"); }
-                        @Override public void onDisconnected() { appendLog("STOMP 已断开"); }
-                        @Override public void onError(String error) { appendLog("错误: " + error); }
-                        @Override public void onAck(String message) { /* 不打印ACK，减少日志 */ }
-                        @Override public void onSendCountUpdate(long count) {
-                            mainHandler.post(() -> statusText.setText("已发送 " + count + " 条数据"));
-                        }
-                    });
-                    stompClient.connect();
-                    currentDeviceId = deviceId;
-                    startStreaming();
-            }
-
-            @Override
-            public void onDisconnected() {
-                statusText.setText(R.string.status_disconnected);
-                appendLog(getString(R.string.status_disconnected));
-                    if (stompClient != null) {
-                        stompClient.shutdown();
-                        stompClient = null;
-                    }
-                    stopStreaming();
-            }
-
-            @Override
-            public void onVitals(@NonNull android.bluetooth.BluetoothDevice device, @NonNull VitalsReading reading) {
-                // 只更新“最新值缓存”，真正的上传由 250Hz 调度器统一完成
-                updateLatestValues(reading);
-            }
-
-            @Override
-            public void onError(String error) {
-                statusText.setText(error);
-                Toast.makeText(MainActivity.this, error, Toast.LENGTH_SHORT).show();
-                appendLog(error);
-            }
-
-            @Override
-            public void onDeviceFound(@NonNull BluetoothDevice device) {
-                addDevice(device);
-            }
+            service.connectTo(device);
         });
 
-        if (!TARGET_NAME_PREFIX.isEmpty()) {
-            bleManager.setTargetNamePrefix(TARGET_NAME_PREFIX);
-        }
-        if (!TARGET_DEVICE_ADDRESS.isEmpty()) {
-            bleManager.setTargetAddress(TARGET_DEVICE_ADDRESS);
-        }
-
         scanButton.setOnClickListener(v -> {
+            if (service == null) return;
             nearbyDevices.clear();
             deviceAdapter.notifyDataSetChanged();
             statusText.setText(R.string.status_scanning);
             appendLog(getString(R.string.status_scanning));
             if (hasAllPermissions()) {
-                bleManager.startScan();
+                service.startScan();
             } else {
                 requestBlePermissions();
             }
         });
 
         disconnectButton.setOnClickListener(v -> {
-            bleManager.disconnect();
-            statusText.setText(R.string.status_disconnected);
-            appendLog(getString(R.string.status_disconnected));
+            if (service != null) service.disconnect();
         });
     }
 
-    // 更新最新值缓存
-    private void updateLatestValues(VitalsReading reading) {
-        if (reading.ecgWave != null) latestEcgWave = reading.ecgWave;
-        if (reading.respWave != null) latestRespWave = reading.respWave;
-        if (reading.spo2Waveform != null && !reading.spo2Waveform.isEmpty()) {
-            latestBoWave = reading.spo2Waveform.get(reading.spo2Waveform.size() - 1);
-        }
-        if (reading.ecgHeartRate != null) latestEcgHr = reading.ecgHeartRate;
-        if (reading.respirationRate != null) latestRespRate = reading.respirationRate;
-        if (reading.systolic != null) latestSystolic = reading.systolic;
-        if (reading.diastolic != null) latestDiastolic = reading.diastolic;
-        if (reading.meanArterialPressure != null) latestMap = reading.meanArterialPressure;
-        if (reading.bloodOxygen != null) latestBoPercent = reading.bloodOxygen;
-        if (reading.pulseRate != null) latestPulseRate = reading.pulseRate;
-        if (reading.temperature != null) latestTemp = reading.temperature;
-    }
-
-    private void startStreaming() {
-        stopStreaming();
-        streamExecutor = Executors.newSingleThreadScheduledExecutor();
-        streamTask = streamExecutor.scheduleAtFixedRate(() -> {
-            // 以固定 4ms 周期发送：复用低频字段的最近值
-            String userId = TARGET_USER_ID.isEmpty() ? DEFAULT_USER_ID : TARGET_USER_ID;
-            String deviceId = currentDeviceId;
-            if (deviceId == null || stompClient == null) return;
-            VitalsReading snapshot = new VitalsReading(
-                    System.currentTimeMillis(),
-                    latestEcgWave,
-                    latestEcgHr,
-                    latestRespRate,
-                    latestSystolic,
-                    latestDiastolic,
-                    latestMap,
-                    latestBoPercent,
-                    latestPulseRate,
-                    latestTemp,
-                    null,
-                    latestRespWave
-            );
-            Integer spo2Point = latestBoWave; // 若低频未更新，则保留上次值
-            JSONObject payload = PayloadFactory.buildPayload(snapshot, userId, deviceId, spo2Point);
-            stompClient.send(payload.toString());
-        }, 0, 4, TimeUnit.MILLISECONDS);
-        appendLog("开始数据发送（250Hz）");
-    }
-
-    private void stopStreaming() {
-        if (streamTask != null) {
-            try { streamTask.cancel(false); } catch (Exception ignored) {}
-            streamTask = null;
-        }
-        if (streamExecutor != null) {
-            try { streamExecutor.shutdownNow(); } catch (Exception ignored) {}
-            streamExecutor = null;
-        }
-    }
-
     private boolean hasAllPermissions() {
         for (String permission : requiredPermissions()) {
             if (ContextCompat.checkSelfPermission(this, permission) != PackageManager.PERMISSION_GRANTED) {
@@ -300,12 +248,22 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // 前台服务的常驻通知需要该权限（Android 13+）；拒绝不影响采集，只是通知不显示
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_CODE_NOTIFICATIONS);
+        }
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == REQUEST_CODE_PERMISSIONS) {
             if (hasAllPermissions()) {
-                bleManager.startScan();
+                if (service != null) service.startScan();
                 appendLog("权限已授予，继续扫描设备");
             } else {
                 Toast.makeText(this, R.string.toast_permission_denied, Toast.LENGTH_SHORT).show();
@@ -314,26 +272,89 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        float refreshRate = getWindowManager().getDefaultDisplay().getRefreshRate();
+        slowFrameNanos = (long) (1.5e9 / (refreshRate > 0 ? refreshRate : 60f));
+        lastFrameNanos = 0;
+        Choreographer.getInstance().postFrameCallback(frameMonitor);
+    }
+
+    @Override
+    protected void onPause() {
+        Choreographer.getInstance().removeFrameCallback(frameMonitor);
+        super.onPause();
+    }
+
     @Override
     protected void onDestroy() {
-        bleManager.shutdown();
-        networkExecutor.shutdownNow();
-        stopStreaming();
-        if (stompClient != null) { stompClient.shutdown(); }
+        mainHandler.removeCallbacks(metricsReporter);
+        mainHandler.removeCallbacks(logRefresher);
+        if (service != null) {
+            service.setUiListener(null);
+            service = null;
+        }
+        // 未在采集时服务随解绑销毁；采集中的前台服务继续运行
+        unbindService(serviceConnection);
         super.onDestroy();
     }
 
-    private void addDevice(@NonNull BluetoothDevice device) {
-            if (stompClient != null) stompClient.shutdown();
-        for (BluetoothDevice existing : nearbyDevices) {
-            if (existing.getAddress().equals(device.getAddress())) {
-                return;
-            }
+    // 主线程：刷新体征行，缺失的字段显示 --
+    private void showVitals(VitalsReading reading) {
+        vitalsText.setText(String.format(Locale.US, "心率 %s  血氧 %s%%  脉率 %s  呼吸 %s  血压 %s/%s  体温 %s",
+                orDash(reading.ecgHeartRate), orDash(reading.bloodOxygen), orDash(reading.pulseRate),
+                orDash(reading.respirationRate), orDash(reading.systolic), orDash(reading.diastolic),
+                reading.temperature != null ? String.format(Locale.US, "%.1f", reading.temperature) : "--"));
+    }
+
+    private static String orDash(@Nullable Integer value) {
+        return value != null ? value.toString() : "--";
+    }
+
+    // 主线程：刷新指标区
+    private void reportMetrics() {
+        MetricsRegistry.Snapshot now = PipelineMetrics.REGISTRY.snapshot();
+        MetricsRegistry.Snapshot prev = lastMetrics;
+        lastMetrics = now;
+        double seconds = Math.max(1, now.timeMillis - prev.timeMillis) / 1000.0;
+        long drops = 0;
+        long reconnects = 0;
+        double sentRate = 0;
+        for (String name : TRANSPORT_NAMES) {
+            drops += now.value("tx_" + name + "_drops");
+            reconnects += now.value("tx_" + name + "_reconnects");
+            sentRate += (now.value("tx_" + name + "_sent") - prev.value("tx_" + name + "_sent")) / seconds;
         }
-        nearbyDevices.add(device);
+        long clockUncertaintyUs = now.value("clock_uncertainty_us");
+        String clock = clockUncertaintyUs < 0 ? "对时 未完成" : String.format(Locale.US, "对时 %+dms ±%.1fms",
+                now.value("clock_offset_ms"), clockUncertaintyUs / 1000.0);
+        metricsText.setText(String.format(Locale.US,
+                "BLE %.0f/s 包 %.0f/s 校验失败 %d 读数 %.0f/s\n发送 %.0f/s send p99 %dus 队列 %d 丢弃 %d 重连 %d\n"
+                        + "节拍滞后 p99 亮屏 %dus 息屏 %dus 停顿 %d/%d UI 慢帧 %d/%d %s",
+                (now.value("ble_notify") - prev.value("ble_notify")) / seconds,
+                (now.value("ble_frames") - prev.value("ble_frames")) / seconds,
+                now.value("ble_checksum_fail"),
+                (now.value("ble_readings") - prev.value("ble_readings")) / seconds,
+                sentRate,
+                now.histogram("send_us").valueAtPercentile(99),
+                now.value("tx_queue"),
+                drops,
+                reconnects,
+                now.histogram("tick_lag_on_us").valueAtPercentile(99),
+                now.histogram("tick_lag_off_us").valueAtPercentile(99),
+                now.value("tick_stalls_on"),
+                now.value("tick_stalls_off"),
+                now.value("ui_slow_frames") - prev.value("ui_slow_frames"),
+                now.value("ui_frames") - prev.value("ui_frames"),
+                clock));
+    }
+
+    // 主线程：整表替换为服务给出的快照，一次刷新；去重与 RSSI 更新已在扫描线程完成
+    private void showDevices(@NonNull List<DiscoveredDevices.Device<BluetoothDevice>> devices) {
+        nearbyDevices.clear();
+        nearbyDevices.addAll(devices);
         deviceAdapter.notifyDataSetChanged();
-        statusText.setText(getString(R.string.status_device_found, displayName(device)));
-        appendLog(getString(R.string.status_device_found, displayName(device)));
     }
 
     private String displayName(@NonNull BluetoothDevice device) {
@@ -341,31 +362,27 @@ public class MainActivity extends AppCompatActivity {
         return name != null ? name : device.getAddress();
     }
 
+    // 日志写入服务的环形缓冲（服务未绑定时丢弃），界面刷新由回调合并
     private void appendLog(String message) {
-        mainHandler.post(() -> {
-            if (logText == null) {
-                return;
-            }
-            String line = "[" + logTimeFormat.format(new Date()) + "] " + message;
-            logBuffer.append(line).append('\n');
-            final int maxLength = 10_000;
-            if (logBuffer.length() > maxLength) {
-                int excess = logBuffer.length() - maxLength;
-                int cutIndex = logBuffer.indexOf("\n", excess);
-                if (cutIndex >= 0) {
-                    logBuffer.delete(0, cutIndex + 1);
-                } else {
-                    logBuffer.delete(0, excess);
-                }
-            }
-            logText.setText(logBuffer.toString());
-            logText.post(() -> {
-                if (logText.getLayout() == null) {
-                    return;
-                }
-                int scrollAmount = logText.getLayout().getLineTop(logText.getLineCount()) - logText.getHeight();
-                logText.scrollTo(0, Math.max(scrollAmount, 0));
-            });
-        });
+        StreamingService s = service;
+        if (s != null) s.appendLog(message);
+    }
+
+    // 任意线程调用：刷新合并到下一个 100ms 节拍
+    private void scheduleLogRefresh() {
+        if (logRefreshScheduled.compareAndSet(false, true)) {
+            long at = Math.max(SystemClock.uptimeMillis(), lastLogRefreshUptime + LOG_REFRESH_INTERVAL_MS);
+            mainHandler.postAtTime(logRefresher, at);
+        }
+    }
+
+    private void refreshLog() {
+        // 先清标记：刷新期间写入的日志会再排一次
+        logRefreshScheduled.set(false);
+        lastLogRefreshUptime = SystemClock.uptimeMillis();
+        StreamingService s = service;
+        if (logAdapter != null && s != null) {
+            logAdapter.refreshFrom(s.logRing());
+        }
     }
-}
\ No newline at end of file
+}
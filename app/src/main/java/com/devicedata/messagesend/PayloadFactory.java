@@ -1,7 +1,12 @@
 package com.devicedata.messagesend;
 
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.metrics.SampleTrace;
+import com.devicedata.messagesend.model.VitalsChannel;
 import com.devicedata.messagesend.model.VitalsReading;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -37,6 +42,18 @@ public final class PayloadFactory {
                                           String userId,
                                           String deviceId,
                                           Integer spo2WavePoint) {
+        return buildPayload(reading, userId, deviceId, spo2WavePoint, null);
+    }
+
+    /**
+     * 同上；被抽样追踪的读数额外附带 "traceId" 与 "tNotify"（BLE 通知到达时的墙钟毫秒），
+     * 服务端用收到时刻减去 tNotify 即得端到端时延。
+     */
+    public static JSONObject buildPayload(VitalsReading reading,
+                                          String userId,
+                                          String deviceId,
+                                          Integer spo2WavePoint,
+                                          @Nullable SampleTrace trace) {
         JSONObject root = new JSONObject();
         try {
             root.put("timestamp", reading.timestamp); // 时间戳（毫秒）
@@ -59,12 +76,59 @@ public final class PayloadFactory {
             if (reading.respWave != null) {
                 root.put("respWave", reading.respWave); // 呼吸波形点
             }
+            if (reading.rPeakTimestamp != null) {
+                root.put("rPeak", reading.rPeakTimestamp); // 本地检出的 R 峰时间（毫秒）
+            }
+            if (reading.rrInterval != null) {
+                root.put("rr", reading.rrInterval); // RR 间期（毫秒）
+            }
+            if (reading.derivedHeartRate != null) {
+                root.put("hrEcg", reading.derivedHeartRate); // 由 RR 推算的心率
+            }
             if (spo2WavePoint != null) {
                 root.put("boWave", spo2WavePoint); // 血氧波形单点
             }
+            if (trace != null) {
+                root.put("traceId", trace.id);
+                root.put("tNotify", trace.notifyEpochMillis);
+            }
         } catch (JSONException e) {
             throw new IllegalStateException("Unable to build payload", e);
         }
         return root;
     }
+
+    /**
+     * 报警事件：{"alarm": "spo2_low", "channel": "BLOOD_OXYGEN", "active": true, "value": 86, "timestamp": ...}，
+     * active 为 false 表示解除；value 已按通道 scale 还原（体温为摄氏度）。
+     */
+    public static JSONObject buildAlarm(String name, VitalsChannel channel, boolean active, int value, long timeMillis) {
+        JSONObject root = new JSONObject();
+        try {
+            root.put("timestamp", timeMillis);
+            root.put("alarm", name);
+            root.put("channel", channel.name());
+            root.put("active", active);
+            if (channel.scale == 1) {
+                root.put("value", value);
+            } else {
+                root.put("value", (double) value / channel.scale);
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException("Unable to build payload", e);
+        }
+        return root;
+    }
+
+    /**
+     * 有损压缩模式下的波形顶点，如 "ecgZ": [run, value]：run 为距上一顶点的点数（首个为 0），
+     * 服务端对相邻顶点线性插值还原（见 FanDecoder / server.py fan_decode）。
+     */
+    public static void putWaveVertex(JSONObject root, String key, int run, int value) {
+        try {
+            root.put(key, new JSONArray().put(run).put(value));
+        } catch (JSONException e) {
+            throw new IllegalStateException("Unable to build payload", e);
+        }
+    }
 }
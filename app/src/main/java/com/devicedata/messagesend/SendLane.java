@@ -0,0 +1,13 @@
+package com.devicedata.messagesend;
+
+/**
+ * 出站消息的优先级通道，声明顺序即优先级（靠前的先发）。
+ */
+public enum SendLane {
+    /** 报警等紧急事件 */
+    URGENT,
+    /** 低频体征有更新、检出心搏的帧；积压时新的先发 */
+    VITALS,
+    /** 其余 250Hz 波形帧，按序补发 */
+    WAVEFORM
+}
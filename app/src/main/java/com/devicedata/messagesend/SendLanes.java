@@ -0,0 +1,235 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按 {@link SendLane} 分道的待发队列：每道一个定长环形数组，写满后丢弃最旧的一条；
+ * URGENT、WAVEFORM 先进先出，VITALS 新的先出（积压后恢复时先把最新的体征发出去）。
+ * 取出顺序默认严格按优先级；设置权重后按加权轮转，低优先级通道不会被完全饿死。
+ * 每条记录入队时刻，取出后由调用方统计各通道的排队时延。入队与取出不分配内存。
+ * 非线程安全，由所属通道的锁保护。
+ */
+final class SendLanes {
+
+    static final int DEFAULT_URGENT_CAPACITY = 256;
+    static final int DEFAULT_VITALS_CAPACITY = 64;
+    /** 60 秒的 250Hz 波形 */
+    static final int DEFAULT_WAVEFORM_CAPACITY = 15_000;
+
+    private static final SendLane[] LANES = SendLane.values();
+
+    private final Ring[] rings = new Ring[LANES.length];
+    @Nullable
+    private int[] weights;
+    private final int[] credits = new int[LANES.length];
+
+    private SendLane polledLane;
+    private long polledEnqueuedNanos;
+
+    SendLanes() {
+        this(DEFAULT_URGENT_CAPACITY, DEFAULT_VITALS_CAPACITY, DEFAULT_WAVEFORM_CAPACITY);
+    }
+
+    SendLanes(int urgentCapacity, int vitalsCapacity, int waveformCapacity) {
+        rings[SendLane.URGENT.ordinal()] = new Ring(urgentCapacity, false);
+        rings[SendLane.VITALS.ordinal()] = new Ring(vitalsCapacity, true);
+        rings[SendLane.WAVEFORM.ordinal()] = new Ring(waveformCapacity, false);
+    }
+
+    /**
+     * 设置加权轮转的权重（按 URGENT、VITALS、WAVEFORM 顺序，每项 >= 1）；
+     * 每轮各通道最多取出权重条，同一轮内仍按优先级先后。传 null 恢复严格优先级。
+     */
+    void setWeights(@Nullable int[] weights) {
+        if (weights != null) {
+            if (weights.length != LANES.length) {
+                throw new IllegalArgumentException("需要 " + LANES.length + " 个权重");
+            }
+            for (int w : weights) {
+                if (w < 1) throw new IllegalArgumentException("权重必须 >= 1");
+            }
+            weights = weights.clone();
+            System.arraycopy(weights, 0, credits, 0, credits.length);
+        }
+        this.weights = weights;
+    }
+
+    /** 入队；通道已满时挤掉其中最旧的一条并返回它，否则返回 null */
+    @Nullable
+    String offer(@NonNull String json, @NonNull SendLane lane, long nowNanos) {
+        return rings[lane.ordinal()].offer(json, nowNanos);
+    }
+
+    /** 按调度策略取出下一条；全部为空时返回 null。取出的通道与入队时刻由 polled* 读取 */
+    @Nullable
+    String poll() {
+        if (weights == null) {
+            for (int i = 0; i < rings.length; i++) {
+                if (rings[i].size > 0) return take(i);
+            }
+            return null;
+        }
+        for (int round = 0; round < 2; round++) {
+            boolean any = false;
+            for (int i = 0; i < rings.length; i++) {
+                if (rings[i].size == 0) continue;
+                any = true;
+                if (credits[i] > 0) {
+                    credits[i]--;
+                    return take(i);
+                }
+            }
+            if (!any) return null;
+            System.arraycopy(weights, 0, credits, 0, credits.length);
+        }
+        return null;
+    }
+
+    private String take(int lane) {
+        Ring ring = rings[lane];
+        polledLane = LANES[lane];
+        String json = ring.poll();
+        polledEnqueuedNanos = ring.polledNanos;
+        return json;
+    }
+
+    @NonNull
+    SendLane polledLane() {
+        return polledLane;
+    }
+
+    long polledEnqueuedNanos() {
+        return polledEnqueuedNanos;
+    }
+
+    /** 把刚取出却没能写出的一条放回原位（保留入队时刻），下次仍先取到它 */
+    void unpoll(@NonNull String json) {
+        int lane = polledLane.ordinal();
+        rings[lane].unpoll(json, polledEnqueuedNanos);
+        if (weights != null) credits[lane]++;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int size() {
+        int n = 0;
+        for (Ring ring : rings) n += ring.size;
+        return n;
+    }
+
+    int size(@NonNull SendLane lane) {
+        return rings[lane.ordinal()].size;
+    }
+
+    /** lane 及更高优先级的通道都为空，此时 lane 的新消息可以直接写出 */
+    boolean isEmptyThrough(@NonNull SendLane lane) {
+        for (int i = 0; i <= lane.ordinal(); i++) {
+            if (rings[i].size > 0) return false;
+        }
+        return true;
+    }
+
+    /** 清空并返回清掉的条数 */
+    int clear() {
+        int n = 0;
+        for (Ring ring : rings) {
+            n += ring.size;
+            ring.clear();
+        }
+        return n;
+    }
+
+    /**
+     * 按优先级顺序取出全部，各通道内按入队先后（VITALS 也是旧的在前），
+     * 逐条按原通道重新入队到另一个 SendLanes 后出队顺序不变。
+     */
+    @NonNull
+    List<Transport.Pending> drainAll() {
+        List<Transport.Pending> drained = new ArrayList<>(size());
+        for (int lane = 0; lane < rings.length; lane++) {
+            Ring ring = rings[lane];
+            while (ring.size > 0) drained.add(new Transport.Pending(ring.pollOldest(), LANES[lane]));
+        }
+        return drained;
+    }
+
+    private static final class Ring {
+        final String[] items;
+        final long[] enqueuedNanos;
+        final boolean newestFirst;
+        int head;
+        int size;
+        long polledNanos;
+
+        Ring(int capacity, boolean newestFirst) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+            this.items = new String[capacity];
+            this.enqueuedNanos = new long[capacity];
+            this.newestFirst = newestFirst;
+        }
+
+        String offer(String json, long nowNanos) {
+            String evicted = null;
+            if (size == items.length) {
+                evicted = items[head];
+                items[head] = null;
+                head = (head + 1) % items.length;
+                size--;
+            }
+            int i = (head + size) % items.length;
+            items[i] = json;
+            enqueuedNanos[i] = nowNanos;
+            size++;
+            return evicted;
+        }
+
+        String poll() {
+            int i;
+            if (newestFirst) {
+                i = (head + size - 1) % items.length;
+            } else {
+                i = head;
+                head = (head + 1) % items.length;
+            }
+            size--;
+            String json = items[i];
+            items[i] = null;
+            polledNanos = enqueuedNanos[i];
+            return json;
+        }
+
+        String pollOldest() {
+            String json = items[head];
+            items[head] = null;
+            head = (head + 1) % items.length;
+            size--;
+            return json;
+        }
+
+        void unpoll(String json, long nanos) {
+            int i;
+            if (newestFirst) {
+                i = (head + size) % items.length;
+            } else {
+                head = (head - 1 + items.length) % items.length;
+                i = head;
+            }
+            items[i] = json;
+            enqueuedNanos[i] = nanos;
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(items, null);
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,772 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.metrics.MetricsRegistry;
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.stomp.ClockOffsetEstimator;
+import com.devicedata.messagesend.stomp.StompFrame;
+import com.devicedata.messagesend.stomp.StompFrameParser;
+import com.devicedata.messagesend.stomp.StompFrameWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * 一条 STOMP over WebSocket 物理连接，可被多个设备通道（{@link StompWebSocketClient}）共享。
+ * 握手地址：ws://host:port/ws，订阅路径：/data/pub/response
+ * - 心跳：CONNECT 时协商 STOMP heart-beat，接收超时立即断开重连；有数据发送时不额外发心跳
+ * - 时延：每隔 PROBE_INTERVAL_MS 在一条 SEND 上附带 receipt 头，按 RECEIPT 到达时间估计往返时延
+ * - 公平发送：socket 写队列积压超过 MAX_SOCKET_QUEUE_BYTES 时数据留在各设备队列，按轮询逐条写出，
+ *   某台设备的补发积压不会挡住其他设备的实时数据；轮询任务只在有积压时运行
+ * - 优先级：每台设备的队列按 {@link SendLane} 分道，轮到该设备时按其调度方式取出一条；
+ *   各通道从入队到写出的等待时间记入 tx_stomp_wait_{lane}_us（直接写出的记 0）
+ * - 上千条连接（压测）时可共用 OkHttpClient 与定时线程，见带 OkHttpClient 的构造与 {@link #setIoExecutor}
+ * - 预热：没有设备通道时也可先 connect()，TCP、WebSocket 升级与 STOMP 握手与 BLE 扫描/服务发现并行完成；
+ *   每个设备通道的第一条 SEND 附带 receipt，RECEIPT（或其后首条 ACK 消息）到达时回调首个样本已确认
+ * - 对时：设置 {@link ClockOffsetEstimator} 后，握手成功即连发 4 个时间探测（间隔 250ms），之后按设定间隔发送；
+ *   回复经 /data/pub/response 订阅到达（头 type:time），不计入 ACK
+ */
+public class StompConnection {
+
+    private static final String NULL_CHAR = "\u0000";
+    private static final String LF = "\n";
+    /** 默认心跳间隔（毫秒），0 表示不发送/不要求 */
+    public static final long DEFAULT_HEARTBEAT_OUTGOING_MS = 5_000L;
+    public static final long DEFAULT_HEARTBEAT_INCOMING_MS = 5_000L;
+    /** 接收超时 = 协商间隔 * 该系数，容忍网络抖动 */
+    private static final double HEARTBEAT_TOLERANCE = 1.5;
+    private static final long PROBE_INTERVAL_MS = 1_000L;
+    private static final String PROBE_RECEIPT_PREFIX = "probe-";
+    private static final String FIRST_RECEIPT_PREFIX = "first-";
+    private static final int CLOCK_SYNC_BURST = 4;
+    private static final long CLOCK_SYNC_BURST_INTERVAL_MS = 250L;
+    // 探测超过该时长未回复视为丢失，可以发下一个
+    private static final long CLOCK_SYNC_TIMEOUT_MS = 2_000L;
+    /** OkHttp 写队列上限，超过后改为由轮询任务逐条写出 */
+    private static final long MAX_SOCKET_QUEUE_BYTES = 256 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 10L;
+
+    private static final PipelineMetrics.TransportCounters METRICS = PipelineMetrics.transport("STOMP");
+    private static final MetricsRegistry.Histogram[] LANE_WAIT_MICROS = laneWaitHistograms();
+
+    private final String wsUrl;
+    private final Transport.Listener listener;
+    private final OkHttpClient client;
+    private final List<StompWebSocketClient> channels = new ArrayList<>();
+    private int nextChannel;
+    private final StringBuilder frameBuilder = new StringBuilder(256);
+
+    // volatile：onMessage 在读线程上不加锁比对当前连接；其余读写仍在锁内
+    @Nullable private volatile WebSocket webSocket;
+    private boolean connected;
+    private boolean stompConnected;
+    private boolean shuttingDown;
+    private int retryAttempt = 0;
+    private int subscriptionId = 0;
+
+    // 心跳配置与协商结果（毫秒）
+    private long heartBeatOutgoingMs = DEFAULT_HEARTBEAT_OUTGOING_MS;
+    private long heartBeatIncomingMs = DEFAULT_HEARTBEAT_INCOMING_MS;
+    private long negotiatedOutgoingMs;
+    private long negotiatedIncomingMs;
+    private volatile long lastSendNanos;
+    private volatile long lastReceiveNanos;
+    @Nullable private ScheduledExecutorService ioExecutor;
+    @Nullable private ScheduledExecutorService sharedExecutor;
+    @Nullable private ScheduledFuture<?> outgoingTask;
+    @Nullable private ScheduledFuture<?> incomingTask;
+    @Nullable private ScheduledFuture<?> flushTask;
+    @Nullable private ScheduledFuture<?> reconnectTask;
+
+    // 入站帧解析：仅在 OkHttp 读线程中使用
+    private final StompFrameParser parser = new StompFrameParser(new StompFrameParser.Handler() {
+        @Override public void onFrame(@NonNull StompFrame frame) { handleStompFrame(frame); }
+        @Override public void onHeartBeat() { /* 到达即已刷新 lastReceiveNanos */ }
+    });
+    private volatile boolean ackBodyNeeded = true;
+
+    // 往返时延探测（毫秒）；服务端从未回过 RECEIPT 时视为无法测量
+    private long probeSeq;
+    private long probeSentNanos;
+    private boolean probeOutstanding;
+    private boolean receiptsSupported;
+    private long rttMillis = -1;
+
+    // 对时探测：同一时刻最多一个未回复的探测
+    @Nullable private ClockOffsetEstimator clockSync;
+    private long clockSyncIntervalMs;
+    private long syncSeq;
+    private long syncSentNanos;
+    private boolean syncOutstanding;
+    private int syncSentThisSession;
+    @Nullable private ScheduledFuture<?> syncTask;
+
+    public StompConnection(@NonNull String baseWsUrl, @NonNull Transport.Listener listener) {
+        this(baseWsUrl, new OkHttpClient(), listener);
+    }
+
+    /** 多条连接共用 baseClient 的连接池与调度线程，超时与 ping 设置仍由本类覆盖 */
+    public StompConnection(@NonNull String baseWsUrl,
+                           @NonNull OkHttpClient baseClient,
+                           @NonNull Transport.Listener listener) {
+        // 握手地址：ws://host:port/ws
+        this.wsUrl = ensureNoTrailingSlash(baseWsUrl) + "/ws";
+        this.listener = listener;
+        this.client = baseClient.newBuilder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(0, TimeUnit.SECONDS)
+                .pingInterval(25, TimeUnit.SECONDS)
+                .build();
+        parser.setBodyPolicy(frame -> {
+            switch (frame.command()) {
+                case "MESSAGE":
+                    return ackBodyNeeded
+                            || ClockOffsetEstimator.TYPE_TIME.equals(frame.header(ClockOffsetEstimator.TYPE_HEADER));
+                case "ERROR": return true;
+                default: return false;
+            }
+        });
+    }
+
+    public synchronized void connect() {
+        if (shuttingDown) return;
+        // 主动连接（如切换器重试）与到点的退避重连合并为一次
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+        if (connected || webSocket != null) return;
+
+        Request request = new Request.Builder().url(wsUrl).build();
+        log("正在连接 STOMP: " + wsUrl);
+        // 新连接不继承上一条连接残留的半帧
+        parser.reset();
+        probeOutstanding = false;
+
+        webSocket = client.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(@NonNull WebSocket ws, @NonNull Response response) {
+                synchronized (StompConnection.this) {
+                    if (ws != webSocket) return;
+                    connected = true;
+                    retryAttempt = 0;
+                }
+                lastReceiveNanos = System.nanoTime();
+                log("WebSocket 已打开，正在发送 STOMP 握手");
+                // 发送 STOMP CONNECT 帧
+                sendStompConnect(ws);
+            }
+
+            @Override
+            public void onMessage(@NonNull WebSocket ws, @NonNull String text) {
+                if (ws != webSocket) return;
+                // 任何入站数据（含心跳换行）都视为链路存活
+                lastReceiveNanos = System.nanoTime();
+                // 不打印每条收到的消息，减少日志量
+                feedParser(text);
+            }
+
+            @Override
+            public void onMessage(@NonNull WebSocket ws, @NonNull ByteString bytes) {
+                if (ws != webSocket) return;
+                lastReceiveNanos = System.nanoTime();
+                feedParser(bytes.utf8());
+            }
+
+            @Override
+            public void onClosing(@NonNull WebSocket ws, int code, @NonNull String reason) {
+                ws.close(1000, null);
+            }
+
+            @Override
+            public void onClosed(@NonNull WebSocket ws, int code, @NonNull String reason) {
+                synchronized (StompConnection.this) {
+                    // 心跳超时后已主动丢弃的旧连接，回调不再影响新连接
+                    if (ws != webSocket) return;
+                    markDisconnected();
+                }
+                log("STOMP 已断开: " + code);
+                notifyDisconnected();
+                scheduleReconnect();
+            }
+
+            @Override
+            public void onFailure(@NonNull WebSocket ws, @NonNull Throwable t, @Nullable Response response) {
+                synchronized (StompConnection.this) {
+                    if (ws != webSocket) return;
+                    markDisconnected();
+                }
+                String errMsg = "连接失败: " + t.getMessage();
+                error(errMsg);
+                scheduleReconnect();
+            }
+        });
+    }
+
+    /**
+     * 设置期望的心跳间隔，需在 connect() 之前调用；下次握手生效。
+     *
+     * @param outgoingMs 客户端能保证的最小发送间隔，0 表示不发送心跳
+     * @param incomingMs 客户端希望收到服务端数据的间隔，0 表示不检测
+     */
+    public synchronized void setHeartBeat(long outgoingMs, long incomingMs) {
+        if (outgoingMs < 0 || incomingMs < 0) {
+            throw new IllegalArgumentException("heart-beat must be >= 0");
+        }
+        heartBeatOutgoingMs = outgoingMs;
+        heartBeatIncomingMs = incomingMs;
+    }
+
+    /**
+     * 使用外部定时线程执行心跳与补发任务（需在 connect() 之前调用），
+     * shutdown() 时只取消本连接的任务，不关闭该线程池。
+     */
+    public synchronized void setIoExecutor(@NonNull ScheduledExecutorService executor) {
+        if (ioExecutor != null && ioExecutor != executor) {
+            throw new IllegalStateException("io executor already in use");
+        }
+        sharedExecutor = executor;
+        ioExecutor = executor;
+    }
+
+    /**
+     * 开启对时：握手成功后经本连接交换时间探测，结果写入 estimator。需在 connect() 之前调用。
+     *
+     * @param intervalMs 首轮 4 个探测之后的发送间隔
+     */
+    public synchronized void setClockSync(@NonNull ClockOffsetEstimator estimator, long intervalMs) {
+        if (intervalMs <= 0) throw new IllegalArgumentException("intervalMs must be > 0");
+        clockSync = estimator;
+        clockSyncIntervalMs = intervalMs;
+    }
+
+    public synchronized boolean isReady() {
+        return stompConnected && webSocket != null;
+    }
+
+    /** 有未返回的探测时，以已等待时长作为下限，链路卡住时时延会持续上升 */
+    public synchronized long latencyMillis() {
+        if (!receiptsSupported) return -1;
+        if (probeOutstanding) {
+            long waiting = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - probeSentNanos);
+            return Math.max(rttMillis, waiting);
+        }
+        return rttMillis;
+    }
+
+    public synchronized int channelCount() {
+        return channels.size();
+    }
+
+    public synchronized void shutdown() {
+        shuttingDown = true;
+        stopHeartBeat();
+        stopFlush();
+        stopClockSync();
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+        if (ioExecutor != null && ioExecutor != sharedExecutor) {
+            ioExecutor.shutdownNow();
+        }
+        ioExecutor = null;
+        if (webSocket != null) {
+            // 发送 STOMP DISCONNECT
+            try {
+                String frame = "DISCONNECT" + LF + LF + NULL_CHAR;
+                webSocket.send(frame);
+                webSocket.close(1000, "app shutdown");
+            } catch (Exception ignored) {}
+            webSocket = null;
+        }
+        connected = false;
+        stompConnected = false;
+        for (StompWebSocketClient channel : channels) {
+            METRICS.drops.add(channel.pending.clear());
+        }
+        channels.clear();
+    }
+
+    // ---- 设备通道 ----
+
+    synchronized void register(@NonNull StompWebSocketClient channel) {
+        if (!channels.contains(channel)) {
+            channels.add(channel);
+            refreshAckPolicy();
+        }
+    }
+
+    synchronized void unregister(@NonNull StompWebSocketClient channel) {
+        channels.remove(channel);
+        METRICS.drops.add(channel.pending.clear());
+        if (nextChannel >= channels.size()) nextChannel = 0;
+        refreshAckPolicy();
+    }
+
+    /** 任一通道需要 ACK 内容时才解析 MESSAGE 消息体 */
+    synchronized void refreshAckPolicy() {
+        boolean needed = false;
+        for (StompWebSocketClient channel : channels) {
+            needed |= channel.ackBodyNeeded;
+        }
+        ackBodyNeeded = needed;
+    }
+
+    /**
+     * 通道中同级及更高优先级的队列为空且 socket 未积压时直接写出，否则排队等待轮询；
+     * 低优先级的积压不会挡住报警与体征
+     */
+    synchronized void send(@NonNull StompWebSocketClient channel, @NonNull String json, @NonNull SendLane lane) {
+        if (shuttingDown) {
+            METRICS.drops.inc();
+            return;
+        }
+        if (channel.pending.isEmptyThrough(lane) && canWrite()) {
+            if (writeSend(channel, json)) {
+                LANE_WAIT_MICROS[lane.ordinal()].record(0);
+            } else {
+                enqueue(channel, json, lane);
+            }
+            return;
+        }
+        enqueue(channel, json, lane);
+        if (stompConnected) {
+            scheduleFlush();
+        } else if (!connected && webSocket == null) {
+            connect();
+        }
+    }
+
+    private void enqueue(StompWebSocketClient channel, String json, SendLane lane) {
+        String evicted = channel.pending.offer(json, lane, System.nanoTime());
+        if (evicted != null) {
+            METRICS.drops.inc();
+            channel.onEvicted(evicted);
+        }
+    }
+
+    private boolean canWrite() {
+        return stompConnected && webSocket != null && webSocket.queueSize() < MAX_SOCKET_QUEUE_BYTES;
+    }
+
+    private boolean writeSend(StompWebSocketClient channel, String json) {
+        WebSocket ws = webSocket;
+        if (ws == null) return false;
+        long nowNanos = System.nanoTime();
+        // 通道的第一条带首样本回执，时延探测顺延到下一条
+        boolean first = channel.firstWrittenNanos == 0;
+        boolean probe = !first && !probeOutstanding
+                && TimeUnit.NANOSECONDS.toMillis(nowNanos - probeSentNanos) >= PROBE_INTERVAL_MS;
+        StringBuilder sb = first
+                ? StompFrameWriter.appendSend(frameBuilder, channel.sendHeaders,
+                        FIRST_RECEIPT_PREFIX, channel.firstReceiptId, json)
+                : StompFrameWriter.appendSend(frameBuilder, channel.sendHeaders,
+                        probe ? PROBE_RECEIPT_PREFIX : null, probeSeq + 1, json);
+        boolean ok = ws.send(sb.toString());
+        if (!ok) {
+            channel.error("发送失败，已加入队列");
+            return false;
+        }
+        lastSendNanos = nowNanos;
+        if (first) {
+            channel.firstWrittenNanos = nowNanos;
+        }
+        if (probe) {
+            probeSeq++;
+            probeSentNanos = nowNanos;
+            probeOutstanding = true;
+        }
+        METRICS.sent.inc();
+        METRICS.bytes.add(sb.length());
+        channel.onSent(json, sb.length());
+        return true;
+    }
+
+    /** 轮询各设备队列，每轮每台设备最多写一条；全部写完后停止轮询任务 */
+    private synchronized void flushFair() {
+        int size = channels.size();
+        if (size == 0) {
+            stopFlush();
+            return;
+        }
+        int flushed = 0;
+        boolean progress = true;
+        while (progress && canWrite()) {
+            progress = false;
+            for (int n = 0; n < size && canWrite(); n++) {
+                StompWebSocketClient channel = channels.get(nextChannel);
+                nextChannel = (nextChannel + 1) % size;
+                String json = channel.pending.poll();
+                if (json == null) continue;
+                if (!writeSend(channel, json)) {
+                    channel.pending.unpoll(json);
+                    progress = false;
+                    break;
+                }
+                LANE_WAIT_MICROS[channel.pending.polledLane().ordinal()].record(
+                        (lastSendNanos - channel.pending.polledEnqueuedNanos()) / 1000);
+                progress = true;
+                flushed++;
+            }
+        }
+        if (flushed > 100) {
+            log("已补发 " + flushed + " 条缓存数据");
+        }
+        if (hasPending() && stompConnected) {
+            scheduleFlush();
+        } else {
+            stopFlush();
+        }
+    }
+
+    private boolean hasPending() {
+        for (StompWebSocketClient channel : channels) {
+            if (!channel.pending.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /** 持锁调用；已在运行则不重复调度 */
+    private void scheduleFlush() {
+        if (flushTask != null || shuttingDown) return;
+        ensureExecutor();
+        flushTask = ioExecutor.scheduleAtFixedRate(
+                this::flushFair, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+    }
+
+    // ---- 协议处理 ----
+
+    private void sendStompConnect(WebSocket ws) {
+        // 简化的 STOMP CONNECT 帧
+        String frame = "CONNECT" + LF +
+                "accept-version:1.0,1.1,1.2" + LF +
+                "heart-beat:" + heartBeatOutgoingMs + "," + heartBeatIncomingMs + LF +
+                LF + NULL_CHAR;
+        ws.send(frame);
+        lastSendNanos = System.nanoTime();
+        log("STOMP 握手帧已发送");
+    }
+
+    private void handleStompFrame(@NonNull StompFrame frame) {
+        switch (frame.command()) {
+            case "CONNECTED":
+                synchronized (this) {
+                    stompConnected = true;
+                    startHeartBeat(frame.header("heart-beat"));
+                    // 上一会话写出但未确认的首样本在新会话重新计时
+                    for (StompWebSocketClient channel : channels) {
+                        if (channel.firstAckedNanos == 0) channel.firstWrittenNanos = 0;
+                    }
+                }
+                log("STOMP 握手成功");
+                // 订阅响应通道
+                subscribe("/data/pub/response");
+                startClockSync();
+                listener.onConnected();
+                for (StompWebSocketClient channel : snapshotChannels()) {
+                    channel.listener.onConnected();
+                }
+                flushFair();
+                break;
+
+            case "MESSAGE":
+                if (ClockOffsetEstimator.TYPE_TIME.equals(frame.header(ClockOffsetEstimator.TYPE_HEADER))) {
+                    // 读线程收到这一批数据的时刻即 t3
+                    onClockResponse(frame.body(), lastReceiveNanos);
+                    break;
+                }
+                // 解析消息体，不打印日志；无人关心时解析器已跳过消息体
+                String ack = frame.isBodySkipped() ? "" : frame.body().trim();
+                long ackNanos = System.nanoTime();
+                for (StompWebSocketClient channel : snapshotChannels()) {
+                    // 服务端不回 RECEIPT 时，首样本写出后的第一条 ACK 视为确认
+                    if (takeFirstAck(channel, null)) channel.onFirstSampleAcked(ackNanos);
+                    channel.listener.onAck(ack);
+                }
+                break;
+
+            case "RECEIPT":
+                // 收到确认，不打印；探测回执用于估计往返时延
+                String receiptId = frame.header("receipt-id");
+                if (receiptId != null && receiptId.startsWith(FIRST_RECEIPT_PREFIX)) {
+                    long receiptNanos = System.nanoTime();
+                    for (StompWebSocketClient channel : snapshotChannels()) {
+                        if (takeFirstAck(channel, receiptId)) channel.onFirstSampleAcked(receiptNanos);
+                    }
+                } else {
+                    onReceipt(receiptId);
+                }
+                break;
+
+            case "ERROR":
+                String errorBody = frame.body().trim();
+                String message = frame.header("message");
+                error("服务器错误: " + (message != null ? message + " " : "") + errorBody);
+                break;
+
+            default:
+                // 其他帧，忽略
+                break;
+        }
+    }
+
+    private synchronized List<StompWebSocketClient> snapshotChannels() {
+        return new ArrayList<>(channels);
+    }
+
+    private synchronized void startClockSync() {
+        stopClockSync();
+        if (clockSync == null || shuttingDown) return;
+        syncOutstanding = false;
+        syncSentThisSession = 0;
+        ensureExecutor();
+        syncTask = ioExecutor.schedule(this::sendClockProbe, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopClockSync() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+            syncTask = null;
+        }
+    }
+
+    private synchronized void sendClockProbe() {
+        if (!stompConnected || webSocket == null || ioExecutor == null || shuttingDown) return;
+        if (!syncOutstanding
+                || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - syncSentNanos) >= CLOCK_SYNC_TIMEOUT_MS) {
+            syncSeq++;
+            String frame = "SEND" + LF
+                    + "destination:" + ClockOffsetEstimator.DESTINATION + LF
+                    + ClockOffsetEstimator.SYNC_ID_HEADER + ":" + syncSeq + LF
+                    + "content-length:0" + LF
+                    + LF + NULL_CHAR;
+            // 写队列积压时 t0 偏早、往返偏长，由 min-RTT 选择滤掉
+            syncSentNanos = System.nanoTime();
+            if (webSocket.send(frame)) {
+                syncOutstanding = true;
+                syncSentThisSession++;
+                lastSendNanos = syncSentNanos;
+            }
+        }
+        long delay = syncSentThisSession < CLOCK_SYNC_BURST ? CLOCK_SYNC_BURST_INTERVAL_MS : clockSyncIntervalMs;
+        syncTask = ioExecutor.schedule(this::sendClockProbe, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void onClockResponse(String body, long receivedNanos) {
+        long[] fields = ClockOffsetEstimator.parseResponse(body);
+        if (fields == null) return;
+        ClockOffsetEstimator estimator;
+        long sentNanos;
+        synchronized (this) {
+            if (!syncOutstanding || fields[0] != syncSeq || clockSync == null) return;
+            syncOutstanding = false;
+            estimator = clockSync;
+            sentNanos = syncSentNanos;
+        }
+        estimator.addSample(sentNanos, fields[1], fields[2], receivedNanos);
+    }
+
+    /** 首样本已写出且未确认时标记为已确认；receiptId 非空时只匹配该通道的首样本回执，为空表示 ACK 消息兜底 */
+    private synchronized boolean takeFirstAck(StompWebSocketClient channel, @Nullable String receiptId) {
+        if (channel.firstWrittenNanos == 0 || channel.firstAckedNanos != 0) return false;
+        if (receiptId == null) {
+            // 服务端支持 RECEIPT 时只认回执，避免批量 ACK 抢先
+            if (receiptsSupported) return false;
+        } else if (!receiptId.equals(FIRST_RECEIPT_PREFIX + channel.firstReceiptId)) {
+            return false;
+        }
+        if (receiptId != null) receiptsSupported = true;
+        channel.firstAckedNanos = System.nanoTime();
+        return true;
+    }
+
+    private synchronized void onReceipt(@Nullable String receiptId) {
+        if (receiptId == null || !probeOutstanding) return;
+        if (!receiptId.equals(PROBE_RECEIPT_PREFIX + probeSeq)) return;
+        long sample = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - probeSentNanos);
+        probeOutstanding = false;
+        receiptsSupported = true;
+        // EWMA 平滑，权重 1/4
+        rttMillis = rttMillis < 0 ? sample : (rttMillis * 3 + sample) / 4;
+    }
+
+    private void feedParser(String text) {
+        try {
+            parser.feed(text);
+        } catch (IllegalStateException e) {
+            error("STOMP 帧解析失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按 STOMP 规范协商心跳：
+     * 发送间隔 = max(cx, sy)，接收间隔 = max(cy, sx)，任一方为 0 则关闭对应方向。
+     */
+    private void startHeartBeat(@Nullable String serverHeartBeat) {
+        stopHeartBeat();
+        long sx = 0;
+        long sy = 0;
+        if (serverHeartBeat != null) {
+            int comma = serverHeartBeat.indexOf(',');
+            if (comma > 0) {
+                try {
+                    sx = Long.parseLong(serverHeartBeat.substring(0, comma).trim());
+                    sy = Long.parseLong(serverHeartBeat.substring(comma + 1).trim());
+                } catch (NumberFormatException ignored) {
+                    sx = 0;
+                    sy = 0;
+                }
+            }
+        }
+        negotiatedOutgoingMs = (heartBeatOutgoingMs == 0 || sy == 0) ? 0 : Math.max(heartBeatOutgoingMs, sy);
+        negotiatedIncomingMs = (heartBeatIncomingMs == 0 || sx == 0) ? 0 : Math.max(heartBeatIncomingMs, sx);
+        log("STOMP 心跳协商: 发送 " + negotiatedOutgoingMs + "ms, 接收 " + negotiatedIncomingMs + "ms");
+        if (negotiatedOutgoingMs == 0 && negotiatedIncomingMs == 0) return;
+
+        ensureExecutor();
+        if (negotiatedOutgoingMs > 0) {
+            // 检查周期取间隔的一半，保证两次心跳之间不超过协商值
+            long period = Math.max(1, negotiatedOutgoingMs / 2);
+            outgoingTask = ioExecutor.scheduleAtFixedRate(
+                    this::sendHeartBeatIfIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+        if (negotiatedIncomingMs > 0) {
+            lastReceiveNanos = System.nanoTime();
+            long period = Math.max(1, negotiatedIncomingMs / 4);
+            incomingTask = ioExecutor.scheduleAtFixedRate(
+                    this::checkIncoming, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void ensureExecutor() {
+        if (ioExecutor == null) {
+            ioExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "stomp-io");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private synchronized void stopHeartBeat() {
+        if (outgoingTask != null) {
+            outgoingTask.cancel(false);
+            outgoingTask = null;
+        }
+        if (incomingTask != null) {
+            incomingTask.cancel(false);
+            incomingTask = null;
+        }
+    }
+
+    /** 数据流动时 lastSendNanos 持续刷新，心跳自然被抑制 */
+    private synchronized void sendHeartBeatIfIdle() {
+        if (!stompConnected || webSocket == null) return;
+        long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSendNanos);
+        if (idleMs >= negotiatedOutgoingMs / 2) {
+            if (webSocket.send(LF)) {
+                lastSendNanos = System.nanoTime();
+            }
+        }
+    }
+
+    private void checkIncoming() {
+        WebSocket dead;
+        long silentMs;
+        synchronized (this) {
+            if (webSocket == null || negotiatedIncomingMs == 0) return;
+            silentMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReceiveNanos);
+            if (silentMs <= (long) (negotiatedIncomingMs * HEARTBEAT_TOLERANCE)) return;
+            // 半开连接：直接丢弃旧 socket，不等待 TCP 超时
+            dead = webSocket;
+            markDisconnected();
+        }
+        dead.cancel();
+        error("心跳超时，" + silentMs + "ms 未收到服务端数据，立即重连");
+        notifyDisconnected();
+        connect();
+    }
+
+    /** 连接丢失（关闭、失败、心跳超时）时调用，每次计一次重连 */
+    private synchronized void markDisconnected() {
+        METRICS.reconnects.inc();
+        connected = false;
+        stompConnected = false;
+        webSocket = null;
+        stopHeartBeat();
+        stopFlush();
+        stopClockSync();
+    }
+
+    private void notifyDisconnected() {
+        listener.onDisconnected();
+        for (StompWebSocketClient channel : snapshotChannels()) {
+            channel.listener.onDisconnected();
+        }
+    }
+
+    private void subscribe(String destination) {
+        WebSocket ws;
+        synchronized (this) {
+            ws = webSocket;
+            if (ws == null) return;
+            subscriptionId++;
+        }
+        String frame = "SUBSCRIBE" + LF +
+                "id:sub-" + subscriptionId + LF +
+                "destination:" + destination + LF +
+                LF + NULL_CHAR;
+        ws.send(frame);
+        log("已订阅: " + destination);
+    }
+
+    /** 关闭或失败后按 2/4/8/16/30 秒退避重连；连接被所有设备通道共用，不依赖切换器重试 */
+    private synchronized void scheduleReconnect() {
+        if (shuttingDown || reconnectTask != null) return;
+        retryAttempt++;
+        int delaySec = Math.min(30, (1 << Math.min(5, retryAttempt)));
+        log(delaySec + "秒后重连 (第" + retryAttempt + "次)");
+        ensureExecutor();
+        reconnectTask = ioExecutor.schedule(this::connect, delaySec, TimeUnit.SECONDS);
+    }
+
+    private static MetricsRegistry.Histogram[] laneWaitHistograms() {
+        SendLane[] lanes = SendLane.values();
+        MetricsRegistry.Histogram[] histograms = new MetricsRegistry.Histogram[lanes.length];
+        for (SendLane lane : lanes) {
+            histograms[lane.ordinal()] = PipelineMetrics.REGISTRY.histogram(
+                    "tx_stomp_wait_" + lane.name().toLowerCase(Locale.US) + "_us");
+        }
+        return histograms;
+    }
+
+    private static String ensureNoTrailingSlash(String base) {
+        if (base.endsWith("/")) return base.substring(0, base.length() - 1);
+        return base;
+    }
+
+    private void log(String line) { listener.onLog(line); }
+    private void error(String err) { listener.onError(err); }
+}
@@ -3,272 +3,268 @@ package com.devicedata.messagesend;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
-import java.util.concurrent.TimeUnit;
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.metrics.SampleTrace;
+import com.devicedata.messagesend.stomp.StompFrameWriter;
 
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.WebSocket;
-import okhttp3.WebSocketListener;
-import okio.ByteString;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * STOMP over WebSocket 客户端
+ * STOMP over WebSocket 设备通道
  * 握手地址：ws://host:port/ws
  * 发送路径：/data/pub/{deviceId}
  * 订阅路径：/data/pub/response
+ * 多台设备可共享同一个 {@link StompConnection}，目的地已区分设备，只需一条 TCP 连接、一份心跳；
+ * 每台设备保留独立队列与统计。使用三参数 URL 构造时自带一条独占连接，行为与单设备时一致。
+ * 队列按 {@link SendLane} 分道，断线恢复后报警与最新体征先于积压的波形写出；未指定通道的按波形处理。
  */
-public class StompWebSocketClient {
+public class StompWebSocketClient implements Transport {
 
-    private static final String NULL_CHAR = "\u0000";
-    private static final String LF = "\n";
-
-    public interface Listener {
-        void onLog(String line);
-        void onConnected();
-        void onDisconnected();
-        void onError(String error);
+    public interface Listener extends Transport.Listener {
         void onAck(String message);
+        void onSendCountUpdate(long count);
+
+        /** 本通道第一条数据得到服务端确认（System.nanoTime 时刻），在 OkHttp 读线程回调 */
+        default void onFirstSampleAcked(long writtenNanos, long ackedNanos) {
+        }
     }
 
-    private final String wsUrl;
-    private final String deviceId;
-    private final Listener listener;
+    private static final AtomicLong FIRST_RECEIPT_IDS = new AtomicLong();
 
-    private final OkHttpClient client;
-    @Nullable private WebSocket webSocket;
-    private boolean connected;
-    private boolean stompConnected;
+    private final StompConnection connection;
+    private final boolean ownsConnection;
+    private final String deviceId;
+    final Listener listener;
+    /** 预拼好的 SEND 帧头（不含结束空行），每条数据只追加消息体 */
+    final String sendHeaders;
+    /** 首样本回执编号，进程内唯一 */
+    final long firstReceiptId = FIRST_RECEIPT_IDS.incrementAndGet();
+
+    // 以下字段由 connection 的锁保护
+    final SendLanes pending = new SendLanes();
+    /** 被抽样追踪的消息，按字符串实例对应，写出时取出打点；未追踪时为空，写出路径只多一次 isEmpty 判断 */
+    final Map<String, SampleTrace> traces = new IdentityHashMap<>();
+    volatile boolean ackBodyNeeded = true;
+    /** 第一条数据写出与得到确认的时刻（nanoTime），0 表示尚未发生 */
+    long firstWrittenNanos;
+    long firstAckedNanos;
     private boolean shuttingDown;
-
-    private final Queue<String> pending = new ArrayDeque<>();
-    private int retryAttempt = 0;
-    private int subscriptionId = 0;
     private long sendCount = 0;
+    private long sentBytes = 0;
     private long lastLogTime = 0;
 
     public StompWebSocketClient(@NonNull String baseWsUrl,
                                 @NonNull String deviceId,
                                 @NonNull Listener listener) {
-        // 握手地址：ws://host:port/ws
-        this.wsUrl = ensureNoTrailingSlash(baseWsUrl) + "/ws";
+        this(new StompConnection(baseWsUrl, new Transport.Listener() {
+            // 独占连接：连接级的上下线事件已由通道回调，这里只转发日志与错误
+            @Override public void onLog(String line) { listener.onLog(line); }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() { }
+            @Override public void onError(String error) { listener.onError(error); }
+        }), true, deviceId, listener);
+    }
+
+    public StompWebSocketClient(@NonNull StompConnection sharedConnection,
+                                @NonNull String deviceId,
+                                @NonNull Listener listener) {
+        this(sharedConnection, false, deviceId, listener);
+    }
+
+    private StompWebSocketClient(StompConnection connection,
+                                 boolean ownsConnection,
+                                 String deviceId,
+                                 Listener listener) {
+        this.connection = connection;
+        this.ownsConnection = ownsConnection;
         this.deviceId = deviceId;
         this.listener = listener;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(0, TimeUnit.SECONDS)
-                .pingInterval(25, TimeUnit.SECONDS)
-                .build();
+        this.sendHeaders = StompFrameWriter.sendHeaders("/data/pub/" + deviceId);
     }
 
-    public synchronized void connect() {
-        if (shuttingDown) return;
-        if (connected || webSocket != null) return;
-
-        Request request = new Request.Builder().url(wsUrl).build();
-        log("正在连接 STOMP: " + wsUrl);
-
-        webSocket = client.newWebSocket(request, new WebSocketListener() {
-            @Override
-            public void onOpen(@NonNull WebSocket ws, @NonNull Response response) {
-                synchronized (StompWebSocketClient.this) {
-                    connected = true;
-                    retryAttempt = 0;
-                }
-                log("WebSocket 已打开，正在发送 STOMP 握手");
-                // 发送 STOMP CONNECT 帧
-                sendStompConnect(ws);
-            }
+    @NonNull
+    public String deviceId() {
+        return deviceId;
+    }
 
-            @Override
-            public void onMessage(@NonNull WebSocket ws, @NonNull String text) {
-                // 不打印每条收到的消息，减少日志量
-                handleStompFrame(text);
-            }
+    @NonNull
+    public StompConnection connection() {
+        return connection;
+    }
 
-            @Override
-            public void onMessage(@NonNull WebSocket ws, @NonNull ByteString bytes) {
-                handleStompFrame(bytes.utf8());
-            }
+    @Override
+    public void connect() {
+        synchronized (connection) {
+            if (shuttingDown) return;
+        }
+        connection.register(this);
+        connection.connect();
+    }
 
-            @Override
-            public void onClosing(@NonNull WebSocket ws, int code, @NonNull String reason) {
-                ws.close(1000, null);
-            }
+    /** 仅在独占连接时生效；共享连接的心跳请在 {@link StompConnection} 上设置 */
+    public void setHeartBeat(long outgoingMs, long incomingMs) {
+        if (ownsConnection) {
+            connection.setHeartBeat(outgoingMs, incomingMs);
+        }
+    }
 
-            @Override
-            public void onClosed(@NonNull WebSocket ws, int code, @NonNull String reason) {
-                synchronized (StompWebSocketClient.this) {
-                    connected = false;
-                    stompConnected = false;
-                    webSocket = null;
-                }
-                log("STOMP 已断开: " + code);
-                listener.onDisconnected();
-                scheduleReconnect();
-            }
+    /** 上层不使用 ACK 内容时可关闭；所有通道都关闭后 MESSAGE 帧的消息体将被直接跳过 */
+    public void setAckBodyNeeded(boolean needed) {
+        ackBodyNeeded = needed;
+        connection.refreshAckPolicy();
+    }
 
-            @Override
-            public void onFailure(@NonNull WebSocket ws, @NonNull Throwable t, @Nullable Response response) {
-                synchronized (StompWebSocketClient.this) {
-                    connected = false;
-                    stompConnected = false;
-                    webSocket = null;
-                }
-                String errMsg = "连接失败: " + t.getMessage();
-                error(errMsg);
-                scheduleReconnect();
-            }
-        });
+    /**
+     * 调度方式：null（默认）为严格优先级；否则按 URGENT、VITALS、WAVEFORM 的权重加权轮转，
+     * 如 {8, 4, 1} 表示积压时每写 13 条中至少有 1 条波形
+     */
+    public void setLaneWeights(@Nullable int[] weights) {
+        synchronized (connection) {
+            pending.setWeights(weights);
+        }
     }
 
-    private void sendStompConnect(WebSocket ws) {
-        // 简化的 STOMP CONNECT 帧
-        String frame = "CONNECT" + LF +
-                "accept-version:1.0,1.1,1.2" + LF +
-                "heart-beat:0,0" + LF +
-                LF + NULL_CHAR;
-        ws.send(frame);
-        log("STOMP 握手帧已发送");
+    /**
+     * 发送 JSON 数据到 /data/pub/{deviceId}
+     */
+    @Override
+    public void send(@NonNull String json) {
+        send(json, SendLane.WAVEFORM, null);
+    }
+
+    @Override
+    public void send(@NonNull String json, @Nullable SampleTrace trace) {
+        send(json, SendLane.WAVEFORM, trace);
     }
 
-    private void handleStompFrame(String raw) {
-        if (raw == null || raw.isEmpty()) return;
-
-        // 移除末尾的 NULL 字符
-        String frame = raw.replace(NULL_CHAR, "").trim();
-        if (frame.isEmpty()) return;
-
-        // 解析 STOMP 命令
-        String[] lines = frame.split(LF, 2);
-        String command = lines[0].trim();
-
-        switch (command) {
-            case "CONNECTED":
-                synchronized (this) {
-                    stompConnected = true;
-                }
-                log("STOMP 握手成功");
-                // 订阅响应通道
-                subscribe("/data/pub/response");
-                listener.onConnected();
-                flushPending();
-                break;
-
-            case "MESSAGE":
-                // 解析消息体，不打印日志
-                String body = extractBody(frame);
-                listener.onAck(body);
-                break;
-
-            case "RECEIPT":
-                // 收到确认，不打印
-                break;
-
-            case "ERROR":
-                String errorBody = extractBody(frame);
-                error("服务器错误: " + errorBody);
-                break;
-
-            default:
-                // 心跳或其他帧，忽略
-                break;
+    /** 入队时刻在进入连接锁后打点，写出 socket 时由 connection 完成追踪 */
+    @Override
+    public void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+        synchronized (connection) {
+            if (shuttingDown) {
+                PipelineMetrics.transport(name()).drops.inc();
+                if (trace != null) trace.discard();
+                return;
+            }
+            if (trace != null) {
+                trace.markEnqueued();
+                traces.put(json, trace);
+            }
+            connection.send(this, json, lane);
         }
     }
 
-    private String extractBody(String frame) {
-        int bodyStart = frame.indexOf(LF + LF);
-        if (bodyStart >= 0) {
-            return frame.substring(bodyStart + 2).trim();
+    @Override
+    public void shutdown() {
+        synchronized (connection) {
+            shuttingDown = true;
+        }
+        if (ownsConnection) {
+            connection.shutdown();
+        } else {
+            connection.unregister(this);
         }
-        return "";
     }
 
-    private void subscribe(String destination) {
-        if (webSocket == null) return;
-        subscriptionId++;
-        String frame = "SUBSCRIBE" + LF +
-                "id:sub-" + subscriptionId + LF +
-                "destination:" + destination + LF +
-                LF + NULL_CHAR;
-        webSocket.send(frame);
-        log("已订阅: " + destination);
+    @NonNull
+    @Override
+    public String name() {
+        return "STOMP";
     }
 
-    public synchronized void shutdown() {
-        shuttingDown = true;
-        if (webSocket != null) {
-            // 发送 STOMP DISCONNECT
-            try {
-                String frame = "DISCONNECT" + LF + LF + NULL_CHAR;
-                webSocket.send(frame);
-                webSocket.close(1000, "app shutdown");
-            } catch (Exception ignored) {}
-            webSocket = null;
+    @Override
+    public boolean isReady() {
+        return connection.isReady();
+    }
+
+    @Override
+    public long latencyMillis() {
+        return connection.latencyMillis();
+    }
+
+    @Override
+    public int pendingCount() {
+        synchronized (connection) {
+            return pending.size();
         }
-        connected = false;
-        stompConnected = false;
-        pending.clear();
     }
 
-    /**
-     * 发送 JSON 数据到 /data/pub/{deviceId}
-     */
-    public synchronized void send(String json) {
-        if (shuttingDown) return;
-
-        if (stompConnected && webSocket != null) {
-            String destination = "/data/pub/" + deviceId;
-            String frame = "SEND" + LF +
-                    "destination:" + destination + LF +
-                    "content-type:application/json" + LF +
-                    LF + json + NULL_CHAR;
-            boolean ok = webSocket.send(frame);
-            if (ok) {
-                sendCount++;
-                // 每5秒最多打印一次发送统计
-                long now = System.currentTimeMillis();
-                if (now - lastLogTime > 5000) {
-                    log("已发送 " + sendCount + " 条数据");
-                    lastLogTime = now;
-                }
-            } else {
-                error("发送失败，已加入队列");
-                pending.add(json);
+    public int pendingCount(@NonNull SendLane lane) {
+        synchronized (connection) {
+            return pending.size(lane);
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<Transport.Pending> drainPending() {
+        synchronized (connection) {
+            List<Transport.Pending> drained = pending.drainAll();
+            for (SampleTrace trace : traces.values()) {
+                trace.discard();
             }
-        } else {
-            pending.add(json);
-            connect();
+            traces.clear();
+            return drained;
+        }
+    }
+
+    /** 本设备已写出的条数 */
+    public long sentCount() {
+        synchronized (connection) {
+            return sendCount;
+        }
+    }
+
+    /** 本设备已写出的帧长度累计（数据为 ASCII JSON，字符数即字节数） */
+    public long sentBytes() {
+        synchronized (connection) {
+            return sentBytes;
         }
     }
 
-    private synchronized void flushPending() {
-        int flushed = 0;
-        while (!pending.isEmpty() && stompConnected && webSocket != null) {
-            String next = pending.poll();
-            if (next == null) break;
-            send(next);
-            flushed++;
+    /** 第一条数据从写出到确认的毫秒数；尚未确认时返回 -1 */
+    public long firstSampleAckMillis() {
+        synchronized (connection) {
+            return firstAckedNanos == 0 ? -1 : (firstAckedNanos - firstWrittenNanos) / 1_000_000;
         }
-        if (flushed > 0) {
-            log("已补发 " + flushed + " 条缓存数据");
+    }
+
+    /** 由 connection 在不持锁的读线程上调用 */
+    void onFirstSampleAcked(long ackedNanos) {
+        long written;
+        synchronized (connection) {
+            written = firstWrittenNanos;
         }
+        listener.onFirstSampleAcked(written, ackedNanos);
     }
 
-    private synchronized void scheduleReconnect() {
-        if (shuttingDown) return;
-        retryAttempt++;
-        int delaySec = Math.min(30, (1 << Math.min(5, retryAttempt)));
-        log(delaySec + "秒后重连 (第" + retryAttempt + "次)");
+    /** 由 connection 在持锁状态下调用 */
+    void onSent(String json, int frameLength) {
+        if (!traces.isEmpty()) {
+            SampleTrace trace = traces.remove(json);
+            if (trace != null) trace.markWritten();
+        }
+        sendCount++;
+        sentBytes += frameLength;
+        // 每5秒最多打印一次发送统计
+        long now = System.currentTimeMillis();
+        if (now - lastLogTime > 5000) {
+            listener.onLog("[" + deviceId + "] 已发送 " + sendCount + " 条数据，排队 " + pending.size());
+            listener.onSendCountUpdate(sendCount);
+            lastLogTime = now;
+        }
     }
 
-    private static String ensureNoTrailingSlash(String base) {
-        if (base.endsWith("/")) return base.substring(0, base.length() - 1);
-        return base;
+    /** 队列已满被挤掉的消息，由 connection 在持锁状态下调用 */
+    void onEvicted(String json) {
+        if (!traces.isEmpty()) {
+            SampleTrace trace = traces.remove(json);
+            if (trace != null) trace.discard();
+        }
     }
 
-    private void log(String line) { listener.onLog(line); }
-    private void error(String err) { listener.onError(err); }
+    void error(String err) { listener.onError(err); }
 }
@@ -0,0 +1,880 @@
+package com.devicedata.messagesend;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanSettings;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import com.devicedata.messagesend.alarm.AlarmEngine;
+import com.devicedata.messagesend.alarm.AlarmRule;
+import com.devicedata.messagesend.ble.BleManager;
+import com.devicedata.messagesend.ble.DiscoveredDevices;
+import com.devicedata.messagesend.stomp.ClockOffsetEstimator;
+import com.devicedata.messagesend.dsp.FanCompressor;
+import com.devicedata.messagesend.dsp.PolyphaseDecimator;
+import com.devicedata.messagesend.dsp.WaveSampleQueue;
+import com.devicedata.messagesend.log.LogRingBuffer;
+import com.devicedata.messagesend.metrics.LatencyTracer;
+import com.devicedata.messagesend.metrics.MetricsRegistry;
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.metrics.SampleTrace;
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.model.VitalsReading;
+import com.devicedata.messagesend.store.VitalsRingStore;
+import com.devicedata.messagesend.stream.Operators;
+import com.devicedata.messagesend.stream.StreamPublisher;
+import com.devicedata.messagesend.stream.Subscriber;
+import com.devicedata.messagesend.stream.Subscription;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 采集 → 编码 → 上送管线所在的前台服务，息屏后仍按 250Hz 节拍运行：
+// - BLE 回调、解帧汇总、报警判定在专用高优先级线程 ble-decode（HandlerThread）上
+// - 250Hz 发送循环在专用高优先级线程 stream-send 上，历史存储、指标文件等慢操作在 pipeline-io 上
+// - 连接设备时进入前台（常驻通知 + 部分唤醒锁），断开后退出前台；界面通过绑定获取状态与日志
+public class StreamingService extends Service {
+
+    private static final String TARGET_NAME_PREFIX = "";
+    private static final String TARGET_DEVICE_ADDRESS = "34:81:F4:75:20:70";
+    // 置为 true 且配置了 TARGET_DEVICE_ADDRESS 时，点击扫描跳过扫描按地址直连；默认仍扫描并按地址过滤
+    private static final boolean CONNECT_BY_ADDRESS = false;
+    // 扫描：模式取 ScanSettings.SCAN_MODE_*；批量上报间隔 0 为逐条回调；设备广播不带服务 UUID 时关闭 UUID 过滤
+    private static final int SCAN_MODE = ScanSettings.SCAN_MODE_LOW_LATENCY;
+    private static final long SCAN_REPORT_DELAY_MS = 0L;
+    private static final boolean SCAN_BY_SERVICE_UUID = true;
+    private static final String DEFAULT_USER_ID = "demo-001";
+    private static final String TARGET_USER_ID = "";
+    private static final String SERVER_WS = "ws://10.242.98.103:8080"; // 服务器地址
+    private static final String SERVER_HTTP = "http://10.242.98.103:8080";
+    // 局域网/有线部署时置为 true：二进制 TCP 通道（binary_server.py 或网关）排在 STOMP 之前
+    private static final boolean USE_BINARY_TCP = false;
+    private static final String SERVER_TCP_HOST = "10.242.98.103";
+    private static final int SERVER_TCP_PORT = 9000;
+    // 端到端时延追踪：>0 时每 N 个读数抽样一个，负载附带 traceId/tNotify，每 10 秒打印各阶段直方图；0 关闭
+    private static final int TRACE_SAMPLE_EVERY = 0;
+    private static final long TRACE_REPORT_INTERVAL_MS = 10_000L;
+    // 经 STOMP 与服务端对时的间隔；上送的时间戳按估出的偏差修正到服务端时间
+    private static final long CLOCK_SYNC_INTERVAL_MS = 30_000L;
+    // 管线指标：每 5 秒向 metrics.lp 追加一行 line protocol（应用外部文件目录，adb pull 导出），息屏时照常写
+    private static final long METRICS_INTERVAL_MS = 5_000L;
+    private static final long METRICS_FILE_MAX_BYTES = 4L * 1024 * 1024;
+    // 带宽受限时置为 false：不再逐点上送 ECG 波形，只上送本地 QRS 检测的 rPeak/rr/hrEcg
+    private static final boolean UPLOAD_ECG_WAVE = true;
+    // 每个节拍最多发出的帧数：各通道的新点按到达代数取出，每点只发一次；设备略快于 250Hz 时积压的点分摊到多帧
+    private static final int MAX_FRAMES_PER_TICK = 4;
+    // 波形降采样：各通道输出采样率（须整除 250）。低于 250 时经抗混叠 FIR 抽取，字段只出现在出点的帧上；
+    // 没有波形出点（也没有新体征、待发心搏）的帧不发
+    private static final int STREAM_RATE_HZ = 250;
+    private static final int ECG_OUTPUT_HZ = 250;
+    private static final int RESP_OUTPUT_HZ = 250;
+    private static final int SPO2_WAVE_OUTPUT_HZ = 250;
+    private static final long TICK_NANOS = 1_000_000_000L / STREAM_RATE_HZ;
+    // 相邻节拍间隔超过该值记一次停顿（波形点仍在队列中，超过 1 秒才会丢点）
+    private static final long TICK_STALL_NANOS = 5 * TICK_NANOS;
+    // 有损波形压缩（蜂窝等窄带上行）：>0 时 ecg/respWave 改为上送 FAN 折线顶点 ecgZ/respZ，
+    // 每点还原误差不超过该值（ADC 单位），每 10 秒在日志打印压缩比与实际误差；0 关闭
+    private static final int WAVE_COMPRESSION_TOLERANCE = 0;
+    private static final long WAVE_COMPRESSION_REPORT_INTERVAL_MS = 10_000L;
+    // 本地历史：发送循环每个节拍把各通道最新值写入内存映射的列式环形文件（应用私有目录），保留最近 1 小时
+    private static final int HISTORY_HOURS = 1;
+    private static final String HISTORY_FILE = "vitals_history.vts";
+    private static final VitalsChannel[] TREND_CHANNELS = {
+            VitalsChannel.ECG_HEART_RATE, VitalsChannel.DERIVED_HEART_RATE, VitalsChannel.PULSE_RATE,
+            VitalsChannel.BLOOD_OXYGEN, VitalsChannel.RESPIRATION_RATE, VitalsChannel.TEMPERATURE};
+    // 界面体征：订阅 BleManager 读数流，在 pipeline-io 上滤掉波形点并至多每 500ms 抽一条投到主线程；缓冲满时丢最旧的
+    private static final long UI_VITALS_INTERVAL_MS = 500L;
+    private static final int UI_VITALS_BUFFER = 256;
+    // 日志：环形缓冲保留最近 512 条，任意线程写入；界面绑定后自行限频刷新
+    static final int LOG_CAPACITY = 512;
+
+    private static final String ACTION_STOP = "com.devicedata.messagesend.action.STOP_STREAMING";
+    private static final String NOTIFICATION_CHANNEL = "streaming";
+    private static final int NOTIFICATION_ID = 1;
+
+    /** 界面回调，均在主线程调用（onLogAppended 除外，可在任意线程） */
+    public interface UiListener {
+        void onStatus(@NonNull String message);
+
+        void onError(@NonNull String error);
+
+        /** 扫描到的设备表（按发现顺序，含 RSSI），合并后至多每 250ms 一次 */
+        void onDevicesChanged(@NonNull List<DiscoveredDevices.Device<BluetoothDevice>> devices);
+
+        /** 最新的低频体征（心率、血氧、血压等），至多每 500ms 一次 */
+        void onVitals(@NonNull VitalsReading reading);
+
+        /** 日志环形缓冲有新内容，界面自行合并刷新 */
+        void onLogAppended();
+    }
+
+    public final class LocalBinder extends Binder {
+        @NonNull
+        public StreamingService service() {
+            return StreamingService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LogRingBuffer logRing = new LogRingBuffer(LOG_CAPACITY);
+    @Nullable
+    private volatile UiListener ui;
+
+    private HandlerThread decodeThread;
+    private Handler bleHandler;
+    private ScheduledExecutorService ioExecutor;
+    private ScheduledExecutorService streamExecutor;
+    private ScheduledFuture<?> streamTask;
+    private PowerManager.WakeLock wakeLock;
+    private boolean foreground;
+    private volatile boolean screenOn = true;
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            screenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+            appendLog(screenOn ? "屏幕点亮" : "屏幕关闭，继续后台采集");
+        }
+    };
+
+    private BleManager bleManager;
+    // 上送通道：STOMP 优先，异常时自动切换到备用通道
+    private volatile Transport transport;
+    // connectTo 时提前组装并连接的上送通道，与 GATT 连接、服务发现并行；BLE 连上后直接启用
+    private Transport preparedTransport;
+    private String preparedDeviceId;
+    // BLE 连上的时刻（nanoTime），用于统计到首个样本被确认的耗时
+    private volatile long bleConnectedNanos;
+    // 所有设备共用一条 STOMP 连接，按目的地 /data/pub/{deviceId} 区分
+    private StompConnection stompConnection;
+    private final ClockOffsetEstimator clockSync = new ClockOffsetEstimator();
+    private volatile String currentDeviceId;
+
+    // 后台打开完成后发布；只由发送线程写入
+    private volatile VitalsRingStore historyStore;
+    // 最新值缓存（流式发送每 4ms 复用）
+    private volatile Integer latestEcgWave;
+    private volatile Integer latestRespWave;
+    private volatile Integer latestBoWave;
+    // 波形新点：解码线程写入，发送线程按代数取出，保证每点恰好上送一次
+    private final WaveSampleQueue ecgQueue = new WaveSampleQueue();
+    private final WaveSampleQueue respQueue = new WaveSampleQueue();
+    private final WaveSampleQueue spo2Queue = new WaveSampleQueue();
+    private volatile Integer latestEcgHr;
+    private volatile Integer latestRespRate;
+    private volatile Integer latestSystolic;
+    private volatile Integer latestDiastolic;
+    private volatile Integer latestMap;
+    private volatile Integer latestBoPercent;
+    private volatile Integer latestPulseRate;
+    private volatile Double latestTemp;
+    private volatile Integer latestDerivedHr;
+    // 最近一次检出的 R 峰，由下一次发送节拍取走，保证每个心搏只上送一次
+    private final AtomicReference<VitalsReading> pendingBeat = new AtomicReference<>();
+    // 收到低频体征后的第一帧走 VITALS 通道，断线积压时先于波形上送
+    private final AtomicBoolean vitalsUpdated = new AtomicBoolean();
+    // 最近一个被抽样的读数，由下一次发送节拍取走；未被取走就被覆盖的计为丢弃
+    private final AtomicReference<SampleTrace> pendingTrace = new AtomicReference<>();
+    @Nullable
+    private LatencyTracer tracer;
+    // 节拍计时，仅发送线程访问
+    private long tickOriginNanos;
+    private long tickCount;
+    private long lastTickNanos;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        decodeThread = new HandlerThread("ble-decode", Process.THREAD_PRIORITY_URGENT_DISPLAY);
+        decodeThread.start();
+        bleHandler = new Handler(decodeThread.getLooper());
+        ioExecutor = Executors.newSingleThreadScheduledExecutor(threads("pipeline-io", Process.THREAD_PRIORITY_BACKGROUND));
+
+        PowerManager power = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        wakeLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "MessageSend:streaming");
+        wakeLock.setReferenceCounted(false);
+        screenOn = power.isInteractive();
+        IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        screenFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        ContextCompat.registerReceiver(this, screenReceiver, screenFilter, ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        appendLog("应用已启动，等待操作");
+        File historyFile = new File(getFilesDir(), HISTORY_FILE);
+        ioExecutor.execute(() -> {
+            int blocks = VitalsRingStore.blocksFor(HISTORY_HOURS * 3600L, STREAM_RATE_HZ,
+                    VitalsRingStore.DEFAULT_BLOCK_ROWS);
+            try {
+                historyStore = VitalsRingStore.open(historyFile, VitalsRingStore.DEFAULT_BLOCK_ROWS, blocks);
+            } catch (IOException | RuntimeException e) {
+                appendLog("历史存储打开失败: " + e.getMessage());
+            }
+        });
+        PipelineMetrics.REGISTRY.gauge("tx_queue", () -> {
+            Transport t = transport;
+            return t != null ? t.pendingCount() : 0;
+        });
+        ioExecutor.scheduleAtFixedRate(this::writeMetricsLine,
+                METRICS_INTERVAL_MS, METRICS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (TRACE_SAMPLE_EVERY > 0) {
+            tracer = new LatencyTracer(TRACE_SAMPLE_EVERY);
+        }
+
+        stompConnection = new StompConnection(SERVER_WS, new Transport.Listener() {
+            @Override public void onLog(String line) { appendLog(line); }
+            @Override public void onConnected() { appendLog("STOMP 已连接"); }
+            @Override public void onDisconnected() { appendLog("STOMP 已断开"); }
+            @Override public void onError(String error) { appendLog("错误: " + error); }
+        });
+        stompConnection.setClockSync(clockSync, CLOCK_SYNC_INTERVAL_MS);
+        PipelineMetrics.REGISTRY.gauge("clock_offset_ms", clockSync::wallClockCorrectionMillis);
+        PipelineMetrics.REGISTRY.gauge("clock_uncertainty_us", () -> clockSync.uncertaintyMicros(System.nanoTime()));
+
+        bleManager = new BleManager(this, new BleManager.Listener() {
+            @Override
+            public void onStatus(String message) {
+                postStatus(message);
+                appendLog(message);
+            }
+
+            @Override
+            public void onConnected(@NonNull BluetoothDevice device) {
+                bleConnectedNanos = System.nanoTime();
+                String label = device.getName() != null ? device.getName() : device.getAddress();
+                postStatus(getString(R.string.status_connected, label));
+                appendLog(getString(R.string.status_connected, label));
+                startPipeline(device.getAddress());
+            }
+
+            @Override
+            public void onDisconnected() {
+                postStatus(getString(R.string.status_disconnected));
+                appendLog(getString(R.string.status_disconnected));
+                stopPipeline();
+                mainHandler.post(StreamingService.this::exitForeground);
+            }
+
+            @Override
+            public void onVitals(@NonNull BluetoothDevice device, @NonNull VitalsReading reading) {
+                // 只更新“最新值缓存”，真正的上传由 250Hz 调度器统一完成
+                updateLatestValues(reading);
+            }
+
+            @Override
+            public void onVitals(@NonNull BluetoothDevice device, @NonNull VitalsReading reading,
+                                 @Nullable SampleTrace trace) {
+                updateLatestValues(reading);
+                if (trace != null) {
+                    SampleTrace replaced = pendingTrace.getAndSet(trace);
+                    if (replaced != null) replaced.discard();
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                appendLog(error);
+                mainHandler.post(() -> {
+                    UiListener l = ui;
+                    if (l != null) l.onError(error);
+                });
+            }
+
+            @Override
+            public void onDeviceFound(@NonNull BluetoothDevice device) {
+                // 状态与日志由 onStatus 给出，列表走 onDevicesChanged
+            }
+
+            @Override
+            public void onDevicesChanged(@NonNull List<DiscoveredDevices.Device<BluetoothDevice>> devices) {
+                mainHandler.post(() -> {
+                    UiListener l = ui;
+                    if (l != null) l.onDevicesChanged(devices);
+                });
+            }
+        }, bleHandler);
+
+        bleManager.setTracer(tracer);
+        bleManager.setAlarmEngine(new AlarmEngine(alarmRules(), this::onAlarm));
+        if (!TARGET_NAME_PREFIX.isEmpty()) {
+            bleManager.setTargetNamePrefix(TARGET_NAME_PREFIX);
+        }
+        if (!TARGET_DEVICE_ADDRESS.isEmpty()) {
+            bleManager.setTargetAddress(TARGET_DEVICE_ADDRESS);
+        }
+        bleManager.setScanMode(SCAN_MODE);
+        bleManager.setScanReportDelay(SCAN_REPORT_DELAY_MS);
+        bleManager.setServiceUuidFilter(SCAN_BY_SERVICE_UUID);
+        subscribeUiVitals();
+    }
+
+    // 上送仍走 onVitals 的最新值缓存（每点恰好一次、250Hz 节拍对齐），界面按自己的节奏从读数流取
+    private void subscribeUiVitals() {
+        StreamPublisher<VitalsReading>.Sink sink = bleManager.vitalsStream().subscribe(
+                Operators.filter(reading -> !reading.isWaveformOnly(),
+                        Operators.sample(UI_VITALS_INTERVAL_MS, new Subscriber<VitalsReading>() {
+                            @Override
+                            public void onSubscribe(@NonNull Subscription subscription) {
+                                subscription.request(Long.MAX_VALUE);
+                            }
+
+                            @Override
+                            public void onNext(@NonNull VitalsReading reading) {
+                                mainHandler.post(() -> {
+                                    UiListener l = ui;
+                                    if (l != null) l.onVitals(reading);
+                                });
+                            }
+                        })),
+                ioExecutor, UI_VITALS_BUFFER, StreamPublisher.Overflow.DROP_OLDEST);
+        PipelineMetrics.REGISTRY.gauge("ui_vitals_dropped", sink::dropped);
+    }
+
+    @Override
+    public int onStartCommand(@Nullable Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            disconnect();
+            return START_NOT_STICKY;
+        }
+        // 由 connectTo 启动：马上转为前台服务
+        startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE);
+        foreground = true;
+        wakeLock.acquire();
+        // 进程被杀后不自动重建：重建的服务没有设备可连
+        return START_NOT_STICKY;
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        unregisterReceiver(screenReceiver);
+        PipelineMetrics.REGISTRY.removeGauge("tx_queue");
+        bleHandler.post(bleManager::shutdown);
+        stopPipeline();
+        ioExecutor.shutdownNow();
+        VitalsRingStore store = historyStore;
+        historyStore = null;
+        if (store != null) {
+            try { store.close(); } catch (IOException ignored) {}
+        }
+        stompConnection.shutdown();
+        decodeThread.quitSafely();
+        if (wakeLock.isHeld()) wakeLock.release();
+        super.onDestroy();
+    }
+
+    // ---- 界面调用（主线程） ----
+
+    public void setUiListener(@Nullable UiListener listener) {
+        ui = listener;
+    }
+
+    @NonNull
+    public LogRingBuffer logRing() {
+        return logRing;
+    }
+
+    @Nullable
+    public String currentDeviceId() {
+        return currentDeviceId;
+    }
+
+    /**
+     * 扫描的同时预热 STOMP 会话（与设备无关），连上设备时握手已完成。
+     * 开启 CONNECT_BY_ADDRESS 且配置了目标地址时不扫描，按地址直接连接。
+     */
+    public void startScan() {
+        if (CONNECT_BY_ADDRESS && !TARGET_DEVICE_ADDRESS.isEmpty()) {
+            postStatus(getString(R.string.status_connect_known_address, TARGET_DEVICE_ADDRESS));
+            appendLog(getString(R.string.status_connect_known_address, TARGET_DEVICE_ADDRESS));
+            connectToAddress(TARGET_DEVICE_ADDRESS);
+            return;
+        }
+        bleHandler.post(() -> {
+            stompConnection.connect();
+            bleManager.startScan();
+        });
+    }
+
+    /** 界面可见时调用：先转为前台服务，再在解码线程上发起连接，同时绑定该设备的上送通道 */
+    public void connectTo(@NonNull BluetoothDevice device) {
+        ContextCompat.startForegroundService(this, new Intent(this, StreamingService.class));
+        String deviceId = device.getAddress();
+        bleHandler.post(() -> {
+            bleManager.connectTo(device);
+            prepareTransport(deviceId);
+        });
+    }
+
+    /** 按已知地址连接（getRemoteDevice），不经过扫描 */
+    public void connectToAddress(@NonNull String address) {
+        ContextCompat.startForegroundService(this, new Intent(this, StreamingService.class));
+        String deviceId = address.toUpperCase(Locale.US);
+        bleHandler.post(() -> {
+            if (bleManager.connectToAddress(deviceId)) {
+                prepareTransport(deviceId);
+            }
+        });
+    }
+
+    public void disconnect() {
+        bleHandler.post(bleManager::disconnect);
+        stopPipeline();
+        exitForeground();
+        postStatus(getString(R.string.status_disconnected));
+        appendLog(getString(R.string.status_disconnected));
+    }
+
+    /** 后台线程按分钟汇总最近 10 分钟的低频指标，结果写入日志 */
+    public void requestHistoryTrend() {
+        try {
+            ioExecutor.execute(this::logHistoryTrend);
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    /** 任意线程调用：写入环形缓冲并通知界面 */
+    public void appendLog(String message) {
+        logRing.add(message);
+        UiListener l = ui;
+        if (l != null) l.onLogAppended();
+    }
+
+    // ---- 管线 ----
+
+    // 报警规则：读数离开汇总器时在解码线程上就地判定，触发/解除时写日志并立即上送报警事件。
+    // 规则带判定状态，每个引擎新建一份
+    private static List<AlarmRule> alarmRules() {
+        return Arrays.asList(
+                AlarmRule.below("spo2_low", VitalsChannel.BLOOD_OXYGEN, 90).sustainFor(10_000),
+                AlarmRule.outside("hr_range", VitalsChannel.ECG_HEART_RATE, 40, 150).sustainFor(5_000),
+                AlarmRule.outside("systolic_range", VitalsChannel.SYSTOLIC, 80, 180),
+                AlarmRule.change("hr_jump", VitalsChannel.ECG_HEART_RATE, 30, 60_000));
+    }
+
+    // 解码线程回调：直接放入 URGENT 道（各通道的 send 都不阻塞），不绕经低优先级的 pipeline-io
+    private void onAlarm(@NonNull AlarmRule rule, boolean active, int value, long timeMillis) {
+        String json = PayloadFactory.buildAlarm(rule.name, rule.channel, active, value,
+                timeMillis + clockSync.wallClockCorrectionMillis()).toString();
+        Transport transport = this.transport;
+        if (transport != null) {
+            transport.send(json, SendLane.URGENT, null);
+        }
+        appendLog((active ? "报警: " : "报警解除: ") + rule.name + " " + rule.channel.name() + "="
+                + (rule.channel.scale == 1 ? String.valueOf(value)
+                : String.format(Locale.US, "%.1f", (double) value / rule.channel.scale)));
+    }
+
+    // 解码线程：预先组装并连接设备的上送通道，已为同一设备准备过则不重复
+    private synchronized void prepareTransport(@NonNull String deviceId) {
+        if (preparedTransport != null) {
+            if (deviceId.equals(preparedDeviceId)) return;
+            preparedTransport.shutdown();
+        }
+        preparedTransport = buildTransport(deviceId);
+        preparedDeviceId = deviceId;
+        preparedTransport.connect();
+    }
+
+    // 解码线程：启用预先准备的上送通道（没有则现建），然后开始 250Hz 发送
+    private synchronized void startPipeline(@NonNull String deviceId) {
+        if (transport != null) {
+            transport.shutdown();
+        }
+        boolean warm = stompConnection.isReady();
+        if (preparedTransport != null && deviceId.equals(preparedDeviceId)) {
+            transport = preparedTransport;
+        } else {
+            if (preparedTransport != null) preparedTransport.shutdown();
+            transport = buildTransport(deviceId);
+            transport.connect();
+        }
+        preparedTransport = null;
+        preparedDeviceId = null;
+        appendLog(warm ? "STOMP 会话已预热，直接上送" : "STOMP 会话未就绪，等待握手");
+        currentDeviceId = deviceId;
+        startStreaming();
+    }
+
+    // 按优先级组装上送通道
+    @NonNull
+    private Transport buildTransport(@NonNull String deviceId) {
+        // STOMP（ws://host:port/ws）→ 纯 WebSocket → HTTP POST
+        StompWebSocketClient stompClient = new StompWebSocketClient(stompConnection, deviceId, new StompWebSocketClient.Listener() {
+            @Override public void onLog(String line) { appendLog(line); }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() { }
+            @Override public void onError(String error) { appendLog("错误: " + error); }
+            @Override public void onAck(String message) { /* 不打印ACK，减少日志 */ }
+            @Override public void onSendCountUpdate(long count) {
+                postStatus("已发送 " + count + " 条数据");
+            }
+            @Override public void onFirstSampleAcked(long writtenNanos, long ackedNanos) {
+                onFirstAck(writtenNanos, ackedNanos);
+            }
+        });
+        // ACK 内容不展示，跳过消息体解析
+        stompClient.setAckBodyNeeded(false);
+        Transport.Listener fallbackListener = new Transport.Listener() {
+            @Override public void onLog(String line) { appendLog(line); }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() { }
+            @Override public void onError(String error) { appendLog("错误: " + error); }
+        };
+        List<Transport> channels = new ArrayList<>();
+        if (USE_BINARY_TCP) {
+            channels.add(new BinaryTcpClient(SERVER_TCP_HOST, SERVER_TCP_PORT, deviceId, fallbackListener));
+        }
+        channels.add(stompClient);
+        channels.add(new DataWebSocketClient(SERVER_WS, deviceId, fallbackListener));
+        channels.add(new DataHttpClient(SERVER_HTTP, deviceId, fallbackListener));
+        return new TransportSelector(channels,
+                new TransportSelector.Listener() {
+                    @Override public void onLog(String line) { appendLog(line); }
+                    @Override public void onSwitched(@NonNull Transport from, @NonNull Transport to, long elapsedMs) {
+                        postStatus("上送通道：" + to.name());
+                    }
+                });
+    }
+
+    // OkHttp 读线程：BLE 连上到首个样本被服务端确认的耗时
+    private void onFirstAck(long writtenNanos, long ackedNanos) {
+        long connected = bleConnectedNanos;
+        if (connected == 0) return;
+        long totalMs = TimeUnit.NANOSECONDS.toMillis(ackedNanos - connected);
+        PipelineMetrics.FIRST_ACK_MILLIS.record(totalMs);
+        appendLog(String.format(Locale.US, "首个样本已确认：BLE 连接后 %d ms（写出到确认 %d ms）",
+                totalMs, TimeUnit.NANOSECONDS.toMillis(ackedNanos - writtenNanos)));
+    }
+
+    private synchronized void stopPipeline() {
+        Transport t = transport;
+        transport = null;
+        if (t != null) {
+            t.shutdown();
+        }
+        if (preparedTransport != null) {
+            preparedTransport.shutdown();
+            preparedTransport = null;
+            preparedDeviceId = null;
+        }
+        stopStreaming();
+    }
+
+    // 更新最新值缓存（解码线程）
+    private void updateLatestValues(VitalsReading reading) {
+        if (reading.ecgWave != null) {
+            latestEcgWave = reading.ecgWave;
+            ecgQueue.push(reading.ecgWave);
+        }
+        if (reading.respWave != null) {
+            latestRespWave = reading.respWave;
+            respQueue.push(reading.respWave);
+        }
+        if (reading.spo2Waveform != null && !reading.spo2Waveform.isEmpty()) {
+            for (Integer point : reading.spo2Waveform) {
+                if (point != null) spo2Queue.push(point);
+            }
+            latestBoWave = reading.spo2Waveform.get(reading.spo2Waveform.size() - 1);
+        }
+        if (reading.ecgHeartRate != null) latestEcgHr = reading.ecgHeartRate;
+        if (reading.respirationRate != null) latestRespRate = reading.respirationRate;
+        if (reading.systolic != null) latestSystolic = reading.systolic;
+        if (reading.diastolic != null) latestDiastolic = reading.diastolic;
+        if (reading.meanArterialPressure != null) latestMap = reading.meanArterialPressure;
+        if (reading.bloodOxygen != null) latestBoPercent = reading.bloodOxygen;
+        if (reading.pulseRate != null) latestPulseRate = reading.pulseRate;
+        if (reading.temperature != null) latestTemp = reading.temperature;
+        if (reading.derivedHeartRate != null) latestDerivedHr = reading.derivedHeartRate;
+        if (reading.rPeakTimestamp != null) pendingBeat.set(reading);
+        if (!reading.isWaveformOnly()) vitalsUpdated.set(true);
+    }
+
+    private synchronized void startStreaming() {
+        stopStreaming();
+        streamExecutor = Executors.newSingleThreadScheduledExecutor(
+                threads("stream-send", Process.THREAD_PRIORITY_URGENT_DISPLAY));
+        LatencyTracer tracer = this.tracer;
+        long[] lastTraceReport = {System.currentTimeMillis()};
+        // 抽取器状态跨节拍保留，只在发送线程上访问
+        PolyphaseDecimator ecgDecimator = new PolyphaseDecimator(STREAM_RATE_HZ, ECG_OUTPUT_HZ);
+        PolyphaseDecimator respDecimator = new PolyphaseDecimator(STREAM_RATE_HZ, RESP_OUTPUT_HZ);
+        PolyphaseDecimator spo2Decimator = new PolyphaseDecimator(STREAM_RATE_HZ, SPO2_WAVE_OUTPUT_HZ);
+        FanCompressor ecgCompressor = WAVE_COMPRESSION_TOLERANCE > 0 ? new FanCompressor(WAVE_COMPRESSION_TOLERANCE) : null;
+        FanCompressor respCompressor = WAVE_COMPRESSION_TOLERANCE > 0 ? new FanCompressor(WAVE_COMPRESSION_TOLERANCE) : null;
+        // 只发送开始之后到达的点
+        ecgQueue.skipAll();
+        respQueue.skipAll();
+        spo2Queue.skipAll();
+        long[] lastCompressionReport = {System.currentTimeMillis()};
+        tickCount = 0;
+        tickOriginNanos = 0;
+        streamTask = streamExecutor.scheduleAtFixedRate(() -> {
+            recordTickTiming();
+            // 以固定 4ms 周期发送：复用低频字段的最近值
+            String userId = TARGET_USER_ID.isEmpty() ? DEFAULT_USER_ID : TARGET_USER_ID;
+            String deviceId = currentDeviceId;
+            Transport transport = StreamingService.this.transport;
+            if (deviceId == null) return;
+            VitalsRingStore store = historyStore;
+            if (store != null) {
+                // 历史按 250Hz 原始最新值记录，不受降采样与压缩影响
+                store.append(new VitalsReading(System.currentTimeMillis(), latestEcgWave, latestEcgHr,
+                        latestRespRate, latestSystolic, latestDiastolic, latestMap, latestBoPercent,
+                        latestPulseRate, latestTemp, null, latestRespWave, null, null, latestDerivedHr), latestBoWave);
+            }
+            if (transport == null) return;
+            // 本机时间戳修正到服务端时间；对时前为 0
+            long clockCorrection = clockSync.wallClockCorrectionMillis();
+            // 每帧各通道最多取一个新点；设备略快于 250Hz 时同一节拍多发几帧追上，没有新数据则不发
+            for (int frame = 0; frame < MAX_FRAMES_PER_TICK; frame++) {
+                Integer ecgRaw = ecgQueue.poll() ? ecgQueue.value() : null;
+                Integer respRaw = respQueue.poll() ? respQueue.value() : null;
+                Integer spo2Raw = spo2Queue.poll() ? spo2Queue.value() : null;
+                boolean vitalsChanged = vitalsUpdated.getAndSet(false);
+                VitalsReading beat = pendingBeat.getAndSet(null);
+                if (ecgRaw == null && respRaw == null && spo2Raw == null && !vitalsChanged && beat == null) break;
+                Integer ecgPoint = decimate(ecgDecimator, UPLOAD_ECG_WAVE ? ecgRaw : null);
+                Integer respPoint = decimate(respDecimator, respRaw);
+                Integer spo2Point = decimate(spo2Decimator, spo2Raw);
+                boolean ecgVertex = false;
+                boolean respVertex = false;
+                if (ecgCompressor != null) {
+                    // 压缩模式：原始点进压缩器，只在确定顶点的帧上带 ecgZ/respZ
+                    ecgVertex = ecgPoint != null && ecgCompressor.push(ecgPoint);
+                    respVertex = respPoint != null && respCompressor.push(respPoint);
+                    ecgPoint = null;
+                    respPoint = null;
+                }
+                if (ecgPoint == null && respPoint == null && spo2Point == null
+                        && !ecgVertex && !respVertex && !vitalsChanged && beat == null) {
+                    continue;
+                }
+                SendLane lane = vitalsChanged || beat != null ? SendLane.VITALS : SendLane.WAVEFORM;
+                VitalsReading snapshot = new VitalsReading(
+                        System.currentTimeMillis() + clockCorrection,
+                        ecgPoint,
+                        latestEcgHr,
+                        latestRespRate,
+                        latestSystolic,
+                        latestDiastolic,
+                        latestMap,
+                        latestBoPercent,
+                        latestPulseRate,
+                        latestTemp,
+                        null,
+                        respPoint,
+                        beat != null && beat.rPeakTimestamp != null ? beat.rPeakTimestamp + clockCorrection : null,
+                        beat != null ? beat.rrInterval : null,
+                        latestDerivedHr
+                );
+                SampleTrace trace = tracer != null ? pendingTrace.getAndSet(null) : null;
+                if (trace != null) trace.markPickedUp();
+                JSONObject payload = PayloadFactory.buildPayload(snapshot, userId, deviceId, spo2Point, trace);
+                if (ecgVertex) {
+                    PayloadFactory.putWaveVertex(payload, "ecgZ", ecgCompressor.vertexRun(), ecgCompressor.vertexValue());
+                }
+                if (respVertex) {
+                    PayloadFactory.putWaveVertex(payload, "respZ", respCompressor.vertexRun(), respCompressor.vertexValue());
+                }
+                String json = payload.toString();
+                PipelineMetrics.PAYLOADS_BUILT.inc();
+                long sendStart = System.nanoTime();
+                transport.send(json, lane, trace);
+                PipelineMetrics.SEND_MICROS.record((System.nanoTime() - sendStart) / 1000);
+            }
+            PipelineMetrics.WAVE_OVERRUNS.add(
+                    ecgQueue.drainOverruns() + respQueue.drainOverruns() + spo2Queue.drainOverruns());
+            long now = System.currentTimeMillis();
+            if (tracer != null && now - lastTraceReport[0] >= TRACE_REPORT_INTERVAL_MS) {
+                lastTraceReport[0] = now;
+                appendLog(tracer.summary());
+            }
+            if (ecgCompressor != null
+                    && now - lastCompressionReport[0] >= WAVE_COMPRESSION_REPORT_INTERVAL_MS) {
+                lastCompressionReport[0] = now;
+                appendLog("ECG " + ecgCompressor.summary() + "\n呼吸 " + respCompressor.summary());
+            }
+        }, 0, 4, TimeUnit.MILLISECONDS);
+        appendLog("开始数据发送（250Hz）");
+    }
+
+    /** 发送线程：记录本节拍相对计划时刻的滞后与停顿，按亮屏/息屏分开统计 */
+    private void recordTickTiming() {
+        long nowNanos = System.nanoTime();
+        if (tickCount == 0) {
+            tickOriginNanos = nowNanos;
+        } else {
+            long lagMicros = (nowNanos - (tickOriginNanos + tickCount * TICK_NANOS)) / 1000;
+            boolean on = screenOn;
+            (on ? PipelineMetrics.TICK_LAG_SCREEN_ON : PipelineMetrics.TICK_LAG_SCREEN_OFF).record(Math.max(0, lagMicros));
+            if (nowNanos - lastTickNanos > TICK_STALL_NANOS) {
+                (on ? PipelineMetrics.TICK_STALLS_SCREEN_ON : PipelineMetrics.TICK_STALLS_SCREEN_OFF).inc();
+            }
+        }
+        tickCount++;
+        lastTickNanos = nowNanos;
+    }
+
+    /** 通道本帧没有新点时不出点；否则把新点送入抽取器，凑满一组才返回输出点 */
+    @Nullable
+    private static Integer decimate(PolyphaseDecimator decimator, @Nullable Integer latest) {
+        if (latest == null) return null;
+        return decimator.push(latest) ? decimator.output() : null;
+    }
+
+    private synchronized void stopStreaming() {
+        if (streamTask != null) {
+            try { streamTask.cancel(false); } catch (Exception ignored) {}
+            streamTask = null;
+        }
+        if (streamExecutor != null) {
+            try { streamExecutor.shutdownNow(); } catch (Exception ignored) {}
+            streamExecutor = null;
+        }
+        SampleTrace untaken = pendingTrace.getAndSet(null);
+        if (untaken != null) untaken.discard();
+        pendingBeat.set(null);
+        vitalsUpdated.set(false);
+    }
+
+    // ---- 前台状态（主线程） ----
+
+    private void exitForeground() {
+        if (!foreground) return;
+        foreground = false;
+        if (wakeLock.isHeld()) wakeLock.release();
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        // 仍被界面绑定时服务继续存在，解绑后销毁
+        stopSelf();
+    }
+
+    private Notification buildNotification() {
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager.getNotificationChannel(NOTIFICATION_CHANNEL) == null) {
+            manager.createNotificationChannel(new NotificationChannel(NOTIFICATION_CHANNEL,
+                    getString(R.string.notification_channel_streaming), NotificationManager.IMPORTANCE_LOW));
+        }
+        PendingIntent open = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stop = PendingIntent.getService(this, 1,
+                new Intent(this, StreamingService.class).setAction(ACTION_STOP), PendingIntent.FLAG_IMMUTABLE);
+        return new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.notification_streaming_title))
+                .setContentText(getString(R.string.notification_streaming_text))
+                .setContentIntent(open)
+                .addAction(0, getString(R.string.button_disconnect), stop)
+                .setOngoing(true)
+                .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE)
+                .build();
+    }
+
+    // ---- 后台任务 ----
+
+    // IO 线程：按分钟汇总最近 10 分钟的低频指标
+    private void logHistoryTrend() {
+        VitalsRingStore store = historyStore;
+        if (store == null) {
+            appendLog("历史存储未就绪");
+            return;
+        }
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder("最近 10 分钟趋势（每分钟 均值[最小~最大]）");
+        for (VitalsChannel channel : TREND_CHANNELS) {
+            VitalsRingStore.Series series = store.query(channel, now - 10 * 60_000L, now, 60_000L);
+            String format = channel.scale == 1 ? " %.0f[%.0f~%.0f]" : " %.1f[%.1f~%.1f]";
+            sb.append('\n').append(channel.name()).append(':');
+            for (int i = 0; i < series.buckets(); i++) {
+                if (series.count(i) == 0) {
+                    sb.append(" -");
+                } else {
+                    sb.append(String.format(Locale.US, format, series.mean(i) / channel.scale,
+                            (double) series.min(i) / channel.scale, (double) series.max(i) / channel.scale));
+                }
+            }
+        }
+        appendLog(sb.toString());
+    }
+
+    // IO 线程：界面不可见时也照常导出，便于对比亮屏/息屏下的节拍指标
+    private void writeMetricsLine() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) return;
+        MetricsRegistry.Snapshot now = PipelineMetrics.REGISTRY.snapshot();
+        String deviceId = currentDeviceId;
+        String line = now.toLineProtocol("pipeline",
+                Collections.singletonMap("device", deviceId != null ? deviceId : "none"));
+        File file = new File(dir, "metrics.lp");
+        if (file.length() > METRICS_FILE_MAX_BYTES) {
+            File old = new File(dir, file.getName() + ".1");
+            //noinspection ResultOfMethodCallIgnored
+            file.renameTo(old);
+        }
+        try (Writer w = new FileWriter(file, true)) {
+            w.write(line);
+            w.write('\n');
+        } catch (IOException ignored) {
+            // 导出失败不影响采集
+        }
+    }
+
+    private void postStatus(String message) {
+        mainHandler.post(() -> {
+            UiListener l = ui;
+            if (l != null) l.onStatus(message);
+        });
+    }
+
+    /** 命名守护线程，启动后先设置 Linux 线程优先级 */
+    private static ThreadFactory threads(String name, int priority) {
+        return r -> {
+            Thread t = new Thread(() -> {
+                Process.setThreadPriority(priority);
+                r.run();
+            }, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
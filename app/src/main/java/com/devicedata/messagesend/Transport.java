@@ -0,0 +1,81 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.metrics.SampleTrace;
+
+import java.util.List;
+
+/**
+ * 上送通道的统一抽象：STOMP、纯 WebSocket、HTTP 三种客户端均实现该接口，
+ * 由 {@link TransportSelector} 按健康状况选择当前通道。
+ */
+public interface Transport {
+
+    /** 排队中的一条消息及其优先级通道，切换通道时随消息一起转移 */
+    final class Pending {
+        @NonNull
+        public final String json;
+        @NonNull
+        public final SendLane lane;
+
+        public Pending(@NonNull String json, @NonNull SendLane lane) {
+            this.json = json;
+            this.lane = lane;
+        }
+    }
+
+    /** 各客户端共用的回调，客户端自己的 Listener 在此基础上扩展 */
+    interface Listener {
+        void onLog(String line);
+        void onConnected();
+        void onDisconnected();
+        void onError(String error);
+    }
+
+    /** 通道名称，用于日志 */
+    @NonNull
+    String name();
+
+    void connect();
+
+    /** 发送一条 JSON；未就绪时进入通道内部队列，就绪后按序补发 */
+    void send(@NonNull String json);
+
+    /**
+     * 发送一条带时延追踪的 JSON。默认实现不区分入队与写出，交给 {@link #send(String)} 前后各打一点；
+     * 能区分的通道（如 STOMP）覆盖此方法，在真正写出 socket 时再调用 {@link SampleTrace#markWritten}。
+     */
+    default void send(@NonNull String json, @Nullable SampleTrace trace) {
+        if (trace != null) trace.markEnqueued();
+        send(json);
+        if (trace != null) trace.markWritten();
+    }
+
+    /**
+     * 按优先级通道发送。默认实现不分道，交给 {@link #send(String, SampleTrace)}；
+     * 有发送队列的通道（如 STOMP）覆盖此方法，积压时高优先级的消息先写出。
+     */
+    default void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+        send(json, trace);
+    }
+
+    void shutdown();
+
+    /** 通道当前是否可以立即发出数据 */
+    boolean isReady();
+
+    /** 最近的往返时延估计（毫秒）；通道无法测量时返回 -1 */
+    long latencyMillis();
+
+    /** 尚未交给底层 socket 的排队条数 */
+    int pendingCount();
+
+    /**
+     * 取出全部尚未发出的数据及各自的通道（同一通道内按入队顺序），用于切换通道时按原通道转移，
+     * 调用后这些数据不会再由本通道发送，避免重复。
+     */
+    @NonNull
+    List<Pending> drainPending();
+}
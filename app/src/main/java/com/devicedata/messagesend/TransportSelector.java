@@ -0,0 +1,247 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.metrics.SampleTrace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多通道选择器：按优先级排列若干 {@link Transport}，始终只通过一个“当前通道”发送。
+ * - 当前通道未就绪、时延或积压超过阈值并持续 unhealthyGraceMs 后，切换到下一个就绪通道
+ * - 更高优先级的通道恢复并稳定 failbackStableMs 后切回
+ * - 切换时把旧通道尚未发出的数据按原顺序转交新通道，不会重复发送
+ */
+public class TransportSelector implements Transport {
+
+    public static final long DEFAULT_CHECK_INTERVAL_MS = 500L;
+    public static final long DEFAULT_MAX_LATENCY_MS = 1_000L;
+    public static final int DEFAULT_MAX_PENDING = 2_500; // 250Hz 下约 10 秒
+    public static final long DEFAULT_UNHEALTHY_GRACE_MS = 2_000L;
+    public static final long DEFAULT_FAILBACK_STABLE_MS = 10_000L;
+
+    public interface Listener {
+        void onLog(String line);
+
+        /**
+         * @param elapsedMs 从首次发现当前通道异常（或更高优先级通道恢复）到完成切换的耗时
+         */
+        void onSwitched(@NonNull Transport from, @NonNull Transport to, long elapsedMs);
+    }
+
+    private final List<Transport> transports;
+    private final Listener listener;
+
+    private long checkIntervalMs = DEFAULT_CHECK_INTERVAL_MS;
+    private long maxLatencyMs = DEFAULT_MAX_LATENCY_MS;
+    private int maxPending = DEFAULT_MAX_PENDING;
+    private long unhealthyGraceMs = DEFAULT_UNHEALTHY_GRACE_MS;
+    private long failbackStableMs = DEFAULT_FAILBACK_STABLE_MS;
+
+    private int activeIndex = 0;
+    private long unhealthySinceMs = -1;
+    // 每个通道连续健康的起始时间，-1 表示当前不健康
+    private final long[] healthySinceMs;
+    @Nullable private ScheduledExecutorService checker;
+    private boolean shuttingDown;
+
+    public TransportSelector(@NonNull List<Transport> transportsByPriority, @NonNull Listener listener) {
+        if (transportsByPriority.isEmpty()) {
+            throw new IllegalArgumentException("at least one transport is required");
+        }
+        this.transports = new ArrayList<>(transportsByPriority);
+        this.listener = listener;
+        this.healthySinceMs = new long[transports.size()];
+        Arrays.fill(healthySinceMs, -1);
+    }
+
+    /** 健康检查周期；设为 0 时不自动检查，由调用方驱动 {@link #checkHealth(long)} */
+    public synchronized void setCheckIntervalMs(long checkIntervalMs) {
+        this.checkIntervalMs = checkIntervalMs;
+    }
+
+    public synchronized void setMaxLatencyMs(long maxLatencyMs) {
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    public synchronized void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public synchronized void setUnhealthyGraceMs(long unhealthyGraceMs) {
+        this.unhealthyGraceMs = unhealthyGraceMs;
+    }
+
+    public synchronized void setFailbackStableMs(long failbackStableMs) {
+        this.failbackStableMs = failbackStableMs;
+    }
+
+    @NonNull
+    public synchronized Transport active() {
+        return transports.get(activeIndex);
+    }
+
+    @NonNull
+    @Override
+    public synchronized String name() {
+        return "auto(" + active().name() + ")";
+    }
+
+    @Override
+    public synchronized void connect() {
+        if (shuttingDown) return;
+        active().connect();
+        if (checker == null && checkIntervalMs > 0) {
+            checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "transport-selector");
+                t.setDaemon(true);
+                return t;
+            });
+            checker.scheduleAtFixedRate(() -> checkHealth(nowMillis()),
+                    checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void send(@NonNull String json) {
+        if (shuttingDown) return;
+        active().send(json);
+    }
+
+    @Override
+    public synchronized void send(@NonNull String json, @Nullable SampleTrace trace) {
+        if (shuttingDown) {
+            if (trace != null) trace.discard();
+            return;
+        }
+        active().send(json, trace);
+    }
+
+    @Override
+    public synchronized void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+        if (shuttingDown) {
+            if (trace != null) trace.discard();
+            return;
+        }
+        active().send(json, lane, trace);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shuttingDown = true;
+        if (checker != null) {
+            checker.shutdownNow();
+            checker = null;
+        }
+        for (Transport t : transports) {
+            t.shutdown();
+        }
+    }
+
+    @Override
+    public synchronized boolean isReady() {
+        return active().isReady();
+    }
+
+    @Override
+    public synchronized long latencyMillis() {
+        return active().latencyMillis();
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return active().pendingCount();
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Transport.Pending> drainPending() {
+        return active().drainPending();
+    }
+
+    /** 执行一次健康评估，必要时切换通道 */
+    synchronized void checkHealth(long nowMs) {
+        if (shuttingDown) return;
+        for (int i = 0; i < transports.size(); i++) {
+            if (isHealthy(transports.get(i))) {
+                if (healthySinceMs[i] < 0) healthySinceMs[i] = nowMs;
+            } else {
+                healthySinceMs[i] = -1;
+            }
+        }
+
+        // 切回：更高优先级通道已稳定健康
+        for (int i = 0; i < activeIndex; i++) {
+            if (healthySinceMs[i] >= 0 && nowMs - healthySinceMs[i] >= failbackStableMs) {
+                switchTo(i, nowMs - healthySinceMs[i]);
+                return;
+            }
+        }
+        // 让更高优先级通道在后台自行重连，以便之后切回
+        for (int i = 0; i < activeIndex; i++) {
+            if (!transports.get(i).isReady()) {
+                transports.get(i).connect();
+            }
+        }
+
+        if (healthySinceMs[activeIndex] >= 0) {
+            unhealthySinceMs = -1;
+            return;
+        }
+        if (unhealthySinceMs < 0) {
+            unhealthySinceMs = nowMs;
+            String latency = transports.get(activeIndex).latencyMillis() + "ms";
+            log("通道 " + active().name() + " 异常（就绪=" + active().isReady()
+                    + "，时延=" + latency + "，积压=" + active().pendingCount() + "），准备切换");
+            // 提前拉起候选通道，宽限期结束时即可切换
+            for (int i = 0; i < transports.size(); i++) {
+                if (i != activeIndex && !transports.get(i).isReady()) {
+                    transports.get(i).connect();
+                }
+            }
+        }
+        if (nowMs - unhealthySinceMs < unhealthyGraceMs) return;
+
+        for (int i = 0; i < transports.size(); i++) {
+            if (i != activeIndex && healthySinceMs[i] >= 0) {
+                switchTo(i, nowMs - unhealthySinceMs);
+                return;
+            }
+        }
+    }
+
+    private boolean isHealthy(Transport t) {
+        if (!t.isReady()) return false;
+        long latency = t.latencyMillis();
+        if (latency >= 0 && latency > maxLatencyMs) return false;
+        return t.pendingCount() <= maxPending;
+    }
+
+    private void switchTo(int index, long elapsedMs) {
+        Transport from = transports.get(activeIndex);
+        Transport to = transports.get(index);
+        // 先转移旧通道积压，再让新样本进入新通道，保证顺序
+        List<Transport.Pending> moved = from.drainPending();
+        activeIndex = index;
+        unhealthySinceMs = -1;
+        to.connect();
+        // 按原通道重发：报警、体征不会落到波形积压之后
+        for (Transport.Pending p : moved) {
+            to.send(p.json, p.lane, null);
+        }
+        log("通道切换 " + from.name() + " -> " + to.name() + "，耗时 " + elapsedMs + "ms，转移 " + moved.size() + " 条");
+        listener.onSwitched(from, to, elapsedMs);
+    }
+
+    private static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void log(String line) { listener.onLog(line); }
+}
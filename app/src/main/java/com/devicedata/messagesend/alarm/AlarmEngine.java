@@ -0,0 +1,79 @@
+package com.devicedata.messagesend.alarm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读数离开 VitalsAggregator 时就地判定报警规则。规则在构造时按通道分组成数组，
+ * 每条读数只取一次各通道的值（不装箱），再依次判定该通道上的规则：工作量只取决于规则数，
+ * 与历史长度无关，判定过程不分配内存。报警触发与解除都回调监听器（在调用 evaluate 的线程上）。
+ * 非线程安全，由 BLE 回调线程独占。
+ */
+public final class AlarmEngine {
+
+    public interface Listener {
+        /**
+         * @param active true 为触发，false 为解除
+         * @param value  触发/解除时的取值（与 {@link VitalsChannel#intValue} 同单位）
+         */
+        void onAlarm(@NonNull AlarmRule rule, boolean active, int value, long timeMillis);
+    }
+
+    private static final VitalsChannel[] CHANNELS = VitalsChannel.values();
+
+    private final AlarmRule[][] rulesByChannel = new AlarmRule[CHANNELS.length][];
+    private final List<AlarmRule> rules;
+    private final Listener listener;
+
+    public AlarmEngine(@NonNull List<AlarmRule> rules, @NonNull Listener listener) {
+        this.rules = new ArrayList<>(rules);
+        this.listener = listener;
+        for (VitalsChannel channel : CHANNELS) {
+            List<AlarmRule> forChannel = new ArrayList<>();
+            for (AlarmRule rule : rules) {
+                if (rule.channel == channel) forChannel.add(rule);
+            }
+            rulesByChannel[channel.ordinal()] = forChannel.isEmpty() ? null : forChannel.toArray(new AlarmRule[0]);
+        }
+    }
+
+    /** 判定一条读数，返回本次报警状态变化的次数 */
+    public int evaluate(@NonNull VitalsReading reading, @Nullable Integer spo2WavePoint) {
+        int changes = 0;
+        for (int c = 0; c < CHANNELS.length; c++) {
+            AlarmRule[] forChannel = rulesByChannel[c];
+            if (forChannel == null) continue;
+            int value = CHANNELS[c].intValue(reading, spo2WavePoint);
+            if (value == VitalsChannel.MISSING) continue;
+            for (AlarmRule rule : forChannel) {
+                if (rule.evaluate(value, reading.timestamp)) {
+                    changes++;
+                    listener.onAlarm(rule, rule.isActive(), value, reading.timestamp);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /** 当前处于报警状态的规则数 */
+    public int activeCount() {
+        int n = 0;
+        for (AlarmRule rule : rules) {
+            if (rule.isActive()) n++;
+        }
+        return n;
+    }
+
+    /** 换设备或断开后清除全部判定状态（不回调解除） */
+    public void reset() {
+        for (AlarmRule rule : rules) {
+            rule.reset();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.devicedata.messagesend.alarm;
+
+import androidx.annotation.NonNull;
+
+import com.devicedata.messagesend.model.VitalsChannel;
+
+/**
+ * 单条报警规则：某个通道上的阈值条件或变化量条件，可要求条件持续一段时间才报警。
+ * 数值与 {@link VitalsChannel#intValue} 同单位（体温为 0.1℃）。
+ * 规则带有自身的判定状态，只能加入一个 {@link AlarmEngine}，由引擎所在线程独占。
+ */
+public final class AlarmRule {
+
+    public enum Kind {
+        /** 取值低于 low 或高于 high */
+        THRESHOLD,
+        /** 最近 1~2 个窗口内相对最低/最高值的变化超过 delta */
+        CHANGE
+    }
+
+    public final String name;
+    public final VitalsChannel channel;
+    public final Kind kind;
+    public final int low;
+    public final int high;
+    public final int delta;
+    public final long windowMillis;
+    private long sustainMillis;
+
+    // 判定状态
+    private long conditionSince = -1;
+    private boolean active;
+    private long windowStart = Long.MIN_VALUE;
+    private int windowMin, windowMax, previousMin, previousMax;
+
+    private AlarmRule(String name, VitalsChannel channel, Kind kind, int low, int high, int delta, long windowMillis) {
+        this.name = name;
+        this.channel = channel;
+        this.kind = kind;
+        this.low = low;
+        this.high = high;
+        this.delta = delta;
+        this.windowMillis = windowMillis;
+    }
+
+    /** 取值落在 [low, high] 之外报警；单边规则用 {@link #below}/{@link #above} */
+    @NonNull
+    public static AlarmRule outside(@NonNull String name, @NonNull VitalsChannel channel, int low, int high) {
+        if (low > high) {
+            throw new IllegalArgumentException("low > high");
+        }
+        return new AlarmRule(name, channel, Kind.THRESHOLD, low, high, 0, 0);
+    }
+
+    @NonNull
+    public static AlarmRule below(@NonNull String name, @NonNull VitalsChannel channel, int limit) {
+        return outside(name, channel, limit, Integer.MAX_VALUE);
+    }
+
+    @NonNull
+    public static AlarmRule above(@NonNull String name, @NonNull VitalsChannel channel, int limit) {
+        return outside(name, channel, Integer.MIN_VALUE + 1, limit);
+    }
+
+    /** windowMillis 内取值上升或下降超过 delta 报警（如 1 分钟内心率变化超过 30） */
+    @NonNull
+    public static AlarmRule change(@NonNull String name, @NonNull VitalsChannel channel, int delta, long windowMillis) {
+        if (delta <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("delta and windowMillis must be > 0");
+        }
+        return new AlarmRule(name, channel, Kind.CHANGE, 0, 0, delta, windowMillis);
+    }
+
+    /** 条件须持续 millis 才报警，用于滤掉单点毛刺；默认 0 即刻报警 */
+    @NonNull
+    public AlarmRule sustainFor(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis must be >= 0");
+        }
+        this.sustainMillis = millis;
+        return this;
+    }
+
+    public long sustainMillis() {
+        return sustainMillis;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /** 判定一个新值；报警状态变化（触发或解除）时返回 true */
+    boolean evaluate(int value, long timeMillis) {
+        boolean condition;
+        if (kind == Kind.THRESHOLD) {
+            condition = value < low || value > high;
+        } else {
+            condition = updateChange(value, timeMillis);
+        }
+        if (!condition) {
+            conditionSince = -1;
+            if (active) {
+                active = false;
+                return true;
+            }
+            return false;
+        }
+        if (conditionSince < 0) {
+            conditionSince = timeMillis;
+        }
+        if (!active && timeMillis - conditionSince >= sustainMillis) {
+            active = true;
+            return true;
+        }
+        return false;
+    }
+
+    /** 翻滚窗口：保留当前与上一窗口的极值，比较范围覆盖最近 1~2 个窗口 */
+    private boolean updateChange(int value, long timeMillis) {
+        if (windowStart == Long.MIN_VALUE || timeMillis - windowStart >= 2 * windowMillis) {
+            windowStart = timeMillis;
+            windowMin = windowMax = previousMin = previousMax = value;
+        } else if (timeMillis - windowStart >= windowMillis) {
+            previousMin = windowMin;
+            previousMax = windowMax;
+            windowStart += windowMillis;
+            windowMin = windowMax = value;
+        }
+        if (value < windowMin) windowMin = value;
+        if (value > windowMax) windowMax = value;
+        int recentMin = Math.min(windowMin, previousMin);
+        int recentMax = Math.max(windowMax, previousMax);
+        return value - recentMin > delta || recentMax - value > delta;
+    }
+
+    void reset() {
+        conditionSince = -1;
+        active = false;
+        windowStart = Long.MIN_VALUE;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,71 @@
+package com.devicedata.messagesend.binary;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 局域网二进制 TCP 协议（大端序），客户端 {@code BinaryTcpClient} 与本地替身服务端共用。
+ * <pre>
+ * 帧：[u32 长度（不含自身 4 字节）][u8 类型][负载]
+ * HELLO   0x01  u8 版本, u16 设备 ID 字节数, 设备 ID（UTF-8）   客户端 → 服务端，连接后第一帧
+ * WELCOME 0x02  u8 状态（0 = 接受）                              服务端 → 客户端
+ * JSON    0x10  UTF-8 JSON（与 WebSocket/STOMP 通道相同的结构）
+ * SAMPLE  0x11  {@link VitalsBinaryCodec} 编码的单点采样
+ * PING    0x20  i64 客户端纳秒时间                               客户端 → 服务端
+ * PONG    0x21  原样回显 PING 的负载                             服务端 → 客户端
+ * ACK     0x30  u32 累计条数, i64 服务端毫秒时间                 服务端 → 客户端
+ * </pre>
+ */
+public final class BinaryProtocol {
+
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 5;
+    /** 单帧负载上限，防止错误长度导致无界分配 */
+    public static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    public static final byte TYPE_HELLO = 0x01;
+    public static final byte TYPE_WELCOME = 0x02;
+    public static final byte TYPE_JSON = 0x10;
+    public static final byte TYPE_SAMPLE = 0x11;
+    public static final byte TYPE_PING = 0x20;
+    public static final byte TYPE_PONG = 0x21;
+    public static final byte TYPE_ACK = 0x30;
+
+    public static final int STATUS_OK = 0;
+
+    private BinaryProtocol() {
+    }
+
+    /** 写入帧头，length 为类型字节之后的负载长度 */
+    public static void putHeader(@NonNull ByteBuffer buf, byte type, int payloadLength) {
+        buf.putInt(payloadLength + 1);
+        buf.put(type);
+    }
+
+    @NonNull
+    public static ByteBuffer hello(@NonNull String deviceId) {
+        byte[] id = deviceId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocateDirect(HEADER_BYTES + 3 + id.length);
+        putHeader(buf, TYPE_HELLO, 3 + id.length);
+        buf.put((byte) VERSION);
+        buf.putShort((short) id.length);
+        buf.put(id);
+        buf.flip();
+        return buf;
+    }
+
+    /** 从 HELLO 负载中读出设备 ID；buf 定位在负载开头 */
+    @NonNull
+    public static String readHelloDeviceId(@NonNull ByteBuffer payload) {
+        int version = payload.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported protocol version " + version);
+        }
+        int len = payload.getShort() & 0xFFFF;
+        byte[] id = new byte[len];
+        payload.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.devicedata.messagesend.binary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.model.VitalsReading;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单点采样的紧凑二进制编码，替代 JSON：
+ * [i64 timestamp][u16 字段位图][按位序每个存在字段一个 i16]
+ * 体温以 0.1℃ 为单位存放；最多 32 字节，不产生中间对象。
+ * 只覆盖基础字段：R 峰时间、RR 间期、推算心率与压缩波形顶点不在编码内，采集管线因此仍发 JSON。
+ */
+public final class VitalsBinaryCodec {
+
+    public static final int MAX_BYTES = 8 + 2 + 11 * 2;
+
+    private static final int ECG_WAVE = 0;
+    private static final int ECG_HR = 1;
+    private static final int RESP_RATE = 2;
+    private static final int SYSTOLIC = 3;
+    private static final int DIASTOLIC = 4;
+    private static final int MAP = 5;
+    private static final int BLOOD_OXYGEN = 6;
+    private static final int PULSE_RATE = 7;
+    private static final int TEMPERATURE = 8;
+    private static final int RESP_WAVE = 9;
+    private static final int SPO2_WAVE = 10;
+
+    private VitalsBinaryCodec() {
+    }
+
+    /** 解码结果：采样与随帧发送的血氧波形单点 */
+    public static final class Decoded {
+        @NonNull public final VitalsReading reading;
+        @Nullable public final Integer spo2WavePoint;
+
+        Decoded(@NonNull VitalsReading reading, @Nullable Integer spo2WavePoint) {
+            this.reading = reading;
+            this.spo2WavePoint = spo2WavePoint;
+        }
+    }
+
+    /** 编码到 buf 当前位置，返回写入字节数 */
+    public static int encode(@NonNull VitalsReading r, @Nullable Integer spo2WavePoint, @NonNull ByteBuffer buf) {
+        int start = buf.position();
+        buf.putLong(r.timestamp);
+        int maskPos = buf.position();
+        buf.putShort((short) 0);
+        int mask = 0;
+        mask |= put(buf, ECG_WAVE, r.ecgWave);
+        mask |= put(buf, ECG_HR, r.ecgHeartRate);
+        mask |= put(buf, RESP_RATE, r.respirationRate);
+        mask |= put(buf, SYSTOLIC, r.systolic);
+        mask |= put(buf, DIASTOLIC, r.diastolic);
+        mask |= put(buf, MAP, r.meanArterialPressure);
+        mask |= put(buf, BLOOD_OXYGEN, r.bloodOxygen);
+        mask |= put(buf, PULSE_RATE, r.pulseRate);
+        if (r.temperature != null) {
+            buf.putShort((short) Math.round(r.temperature * 10));
+            mask |= 1 << TEMPERATURE;
+        }
+        mask |= put(buf, RESP_WAVE, r.respWave);
+        mask |= put(buf, SPO2_WAVE, spo2WavePoint);
+        buf.putShort(maskPos, (short) mask);
+        return buf.position() - start;
+    }
+
+    @NonNull
+    public static Decoded decode(@NonNull ByteBuffer buf) {
+        long timestamp = buf.getLong();
+        int mask = buf.getShort() & 0xFFFF;
+        Integer[] v = new Integer[11];
+        Double temperature = null;
+        for (int bit = 0; bit <= SPO2_WAVE; bit++) {
+            if ((mask & (1 << bit)) == 0) continue;
+            short raw = buf.getShort();
+            if (bit == TEMPERATURE) {
+                temperature = raw / 10.0;
+            } else {
+                v[bit] = (int) raw;
+            }
+        }
+        VitalsReading reading = new VitalsReading(timestamp,
+                v[ECG_WAVE], v[ECG_HR], v[RESP_RATE], v[SYSTOLIC], v[DIASTOLIC], v[MAP],
+                v[BLOOD_OXYGEN], v[PULSE_RATE], temperature, null, v[RESP_WAVE]);
+        return new Decoded(reading, v[SPO2_WAVE]);
+    }
+
+    private static int put(ByteBuffer buf, int bit, @Nullable Integer value) {
+        if (value == null) return 0;
+        buf.putShort((short) (int) value);
+        return 1 << bit;
+    }
+}
@@ -9,23 +9,34 @@ import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
 import android.content.Context;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.devicedata.messagesend.R;
+import com.devicedata.messagesend.alarm.AlarmEngine;
+import com.devicedata.messagesend.metrics.LatencyTracer;
+import com.devicedata.messagesend.metrics.PipelineMetrics;
+import com.devicedata.messagesend.metrics.SampleTrace;
 import com.devicedata.messagesend.model.VitalsReading;
+import com.devicedata.messagesend.stream.StreamPublisher;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -35,6 +46,8 @@ public class BleManager {
 
     private static final String TAG = "BleManager";
     private static final long SCAN_TIMEOUT = 10_000L;
+    // 设备列表最多每 250ms 交给界面一次，RSSI 抖动不逐条刷新
+    private static final long DEVICE_UPDATE_INTERVAL_MS = 250L;
     private static final UUID SERVICE_UUID = UUID.fromString("49535343-fe7d-4ae5-8fa9-9fafd205e455");
     private static final UUID READ_UUID = UUID.fromString("49535343-1e4d-4bd9-ba61-23c647249616");
     private static final UUID CLIENT_CONFIG_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
@@ -48,16 +61,44 @@ public class BleManager {
 
         void onVitals(@NonNull BluetoothDevice device, @NonNull VitalsReading reading);
 
+        /** 设置了 {@link LatencyTracer} 时回调此方法，未抽中的读数 trace 为 null */
+        default void onVitals(@NonNull BluetoothDevice device, @NonNull VitalsReading reading,
+                              @Nullable SampleTrace trace) {
+            onVitals(device, reading);
+        }
+
         void onError(String error);
 
+        /** 扫描中首次发现某台设备时回调一次 */
         void onDeviceFound(@NonNull BluetoothDevice device);
+
+        /** 设备表有变化（新设备、RSSI、名称）时合并回调，至多每 250ms 一次；列表为不可变快照 */
+        default void onDevicesChanged(@NonNull List<DiscoveredDevices.Device<BluetoothDevice>> devices) {
+        }
     }
 
     private final Context context;
     private final Listener listener;
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // GATT 回调、监听器回调与扫描超时都在该 Handler 的线程上执行
+    private final Handler handler;
     private final VitalsAggregator aggregator = new VitalsAggregator();
-    private final ByteArrayOutputStream recvBuffer = new ByteArrayOutputStream();
+    // 读数流：各消费者按自己的节奏订阅，发布只入各自的缓冲区，不阻塞 BLE 回调线程
+    private final StreamPublisher<VitalsReading> vitalsStream = new StreamPublisher<>();
+    private final PacketFramer framer = new PacketFramer(new PacketFramer.Handler() {
+        @Override
+        public void onPacket(byte[] buf, int offset, int length) {
+            PipelineMetrics.BLE_FRAMES.inc();
+            handlePacket(buf, offset, length);
+        }
+
+        @Override
+        public void onChecksumMismatch() {
+            PipelineMetrics.BLE_CHECKSUM_FAILURES.inc();
+            Log.w(TAG, "Checksum mismatch");
+        }
+    });
+    // 当前通知到达时刻，仅 BLE 回调线程读写
+    private long notifyNanos;
 
     @Nullable
     private final BluetoothAdapter adapter;
@@ -71,12 +112,59 @@ public class BleManager {
     private String targetNamePrefix;
     @Nullable
     private String targetAddress;
+    @Nullable
+    private volatile LatencyTracer tracer;
+    @Nullable
+    private volatile AlarmEngine alarmEngine;
 
     private boolean scanning;
+    // 意外断线后按地址直连/后台连接，不重新扫描
+    private final ReconnectController reconnect = new ReconnectController(new ReconnectController.Link() {
+        @Override
+        public void connect(boolean autoConnect) {
+            openGatt(autoConnect);
+        }
+
+        @Override
+        public void close() {
+            closeGatt();
+        }
+    }, new ReconnectController.Scheduler() {
+        @Override
+        public void schedule(@NonNull Runnable task, long delayMs) {
+            handler.postDelayed(task, delayMs);
+        }
+
+        @Override
+        public void cancel(@NonNull Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    }, System::nanoTime);
+    // 上次服务发现得到的通知特征，同一设备重连时直接开启通知，跳过服务发现
+    @Nullable
+    private BluetoothGattCharacteristic cachedNotify;
+    @Nullable
+    private String cachedAddress;
+    private boolean usingCachedHandles;
+    private int scanMode = ScanSettings.SCAN_MODE_LOW_LATENCY;
+    private long scanReportDelayMs;
+    private boolean serviceUuidFilter = true;
+    private final DiscoveredDevices<BluetoothDevice> discovered = new DiscoveredDevices<>();
+    private boolean deviceUpdatePosted;
+    private final Runnable deviceUpdater = this::publishDevices;
 
     public BleManager(@NonNull Context context, @NonNull Listener listener) {
+        this(context, listener, new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * 指定回调线程：GATT 回调、解帧汇总与监听器回调都在 handler 所在线程执行，
+     * 公开方法也应在该线程调用（如后台服务的专用解码线程）。
+     */
+    public BleManager(@NonNull Context context, @NonNull Listener listener, @NonNull Handler handler) {
         this.context = context.getApplicationContext();
         this.listener = listener;
+        this.handler = handler;
         BluetoothManager manager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         this.adapter = manager != null ? manager.getAdapter() : BluetoothAdapter.getDefaultAdapter();
     }
@@ -101,8 +189,50 @@ public class BleManager {
         }
         emitStatus(context.getString(R.string.status_scanning));
         scanning = true;
-        scanner.startScan(scanCallback);
-        mainHandler.postDelayed(this::stopScan, SCAN_TIMEOUT);
+        discovered.reset(SystemClock.elapsedRealtimeNanos());
+        scanner.startScan(buildScanFilters(), buildScanSettings(), scanCallback);
+        handler.postDelayed(this::stopScan, SCAN_TIMEOUT);
+    }
+
+    /**
+     * 交给蓝牙控制器的过滤条件：指定了目标地址时只按地址过滤，否则按广播中的服务 UUID 过滤，
+     * 不相干的广播不会唤醒应用。名称前缀无法在硬件上匹配，仍在回调中判断。
+     */
+    private List<ScanFilter> buildScanFilters() {
+        List<ScanFilter> filters = new ArrayList<>(1);
+        if (targetAddress != null) {
+            filters.add(new ScanFilter.Builder().setDeviceAddress(targetAddress).build());
+        } else if (serviceUuidFilter) {
+            filters.add(new ScanFilter.Builder().setServiceUuid(new ParcelUuid(SERVICE_UUID)).build());
+        }
+        return filters;
+    }
+
+    private ScanSettings buildScanSettings() {
+        ScanSettings.Builder builder = new ScanSettings.Builder()
+                .setScanMode(scanMode)
+                .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES);
+        // 控制器支持批量上报时才延迟，否则退化为逐条回调
+        if (scanReportDelayMs > 0 && adapter != null && adapter.isOffloadedScanBatchingSupported()) {
+            builder.setReportDelay(scanReportDelayMs);
+        }
+        return builder.build();
+    }
+
+    /** 扫描模式，取 ScanSettings.SCAN_MODE_*，默认低时延；下次 startScan 生效 */
+    public void setScanMode(int mode) {
+        scanMode = mode;
+    }
+
+    /** 批量上报间隔（毫秒），0 为逐条回调；控制器不支持批量时忽略。下次 startScan 生效 */
+    public void setScanReportDelay(long delayMs) {
+        if (delayMs < 0) throw new IllegalArgumentException("delayMs < 0");
+        scanReportDelayMs = delayMs;
+    }
+
+    /** 未指定目标地址时是否按服务 UUID 硬件过滤；设备广播中不带该 UUID 时关闭。默认开启 */
+    public void setServiceUuidFilter(boolean enabled) {
+        serviceUuidFilter = enabled;
     }
 
     public void setTargetNamePrefix(@Nullable String prefix) {
@@ -113,19 +243,47 @@ public class BleManager {
         targetAddress = address != null ? address.toUpperCase() : null;
     }
 
+    /** 开启端到端时延追踪：通知到达、解码、汇总三个时刻随抽样读数交给上层；传 null 关闭 */
+    public void setTracer(@Nullable LatencyTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /** 设置报警引擎：每条读数出汇总器后在 BLE 回调线程上就地判定，监听器也在该线程回调；传 null 关闭 */
+    public void setAlarmEngine(@Nullable AlarmEngine engine) {
+        this.alarmEngine = engine;
+    }
+
+    /**
+     * 注册某个数据类型（包体首字节）的解析器，可替换内置的 0x01~0x05、0xFE、0xFF；传 null 取消。
+     * 解析在 BLE 回调线程上进行，注册也投递到该线程。
+     */
+    public void registerPacketHandler(int type, @Nullable PacketHandler packetHandler) {
+        if (type < 0 || type > 0xFF) {
+            throw new IllegalArgumentException("数据类型须在 0~255: " + type);
+        }
+        handler.post(() -> aggregator.register(type, packetHandler));
+    }
+
+    /**
+     * 汇总器出来的读数流（与 {@link Listener#onVitals} 相同的读数），订阅者各自指定线程、缓冲区与溢出策略。
+     * 发布在 BLE 回调线程上进行；{@link #shutdown} 后结束。
+     */
+    @NonNull
+    public StreamPublisher<VitalsReading> vitalsStream() {
+        return vitalsStream;
+    }
+
+    /** 用户断开：停止重连并关闭 GATT */
     public void disconnect() {
         stopScan();
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            bluetoothGatt.close();
-            bluetoothGatt = null;
-        }
+        reconnect.stop();
         currentDevice = null;
-        recvBuffer.reset();
+        framer.reset();
     }
 
     public void shutdown() {
         disconnect();
+        vitalsStream.complete();
     }
 
     private void stopScan() {
@@ -136,49 +294,86 @@ public class BleManager {
             scanner.stopScan(scanCallback);
         }
         scanning = false;
+        handler.removeCallbacks(deviceUpdater);
+        deviceUpdatePosted = false;
+        publishDevices();
         emitStatus(context.getString(R.string.status_scan_stopped));
     }
 
+    // 系统在主线程回调扫描结果；这里只转交 handler，扫描与连接状态都在 handler 线程上读写
     private final ScanCallback scanCallback = new ScanCallback() {
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            if (device == null) {
-                return;
-            }
-            if (targetAddress != null && !targetAddress.equalsIgnoreCase(device.getAddress())) {
-                emitStatus(context.getString(R.string.status_ignoring_device, safeName(device)));
-                return;
-            }
-            if (targetNamePrefix != null) {
-                String name = device.getName();
-                if (name == null || !name.startsWith(targetNamePrefix)) {
-                    emitStatus(context.getString(R.string.status_ignoring_device, safeName(device)));
-                    return;
-                }
-            }
-            emitDeviceFound(device);
-            emitStatus(context.getString(R.string.status_device_found, safeName(device)));
-            if (targetAddress != null || targetNamePrefix != null) {
-                stopScan();
-                connect(device);
-            }
+            handler.post(() -> handleScanResult(result));
         }
 
         @Override
         public void onBatchScanResults(List<ScanResult> results) {
-            if (!results.isEmpty()) {
-                onScanResult(0, results.get(0));
-            }
+            handler.post(() -> {
+                for (int i = 0, n = results.size(); i < n && scanning; i++) {
+                    handleScanResult(results.get(i));
+                }
+            });
         }
 
         @Override
         public void onScanFailed(int errorCode) {
-            emitError(context.getString(R.string.status_scan_failed, errorCode));
-            stopScan();
+            handler.post(() -> {
+                emitError(context.getString(R.string.status_scan_failed, errorCode));
+                stopScan();
+            });
         }
     };
 
+    // handler 线程：硬件过滤后剩下的广播在此去重；被忽略的广播只计数，不写状态
+    private void handleScanResult(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        if (device == null || !scanning) {
+            return;
+        }
+        PipelineMetrics.SCAN_RESULTS.inc();
+        String address = device.getAddress();
+        if (targetAddress != null && !targetAddress.equalsIgnoreCase(address)) {
+            PipelineMetrics.SCAN_IGNORED.inc();
+            return;
+        }
+        String name = device.getName();
+        if (targetNamePrefix != null && (name == null || !name.startsWith(targetNamePrefix))) {
+            PipelineMetrics.SCAN_IGNORED.inc();
+            return;
+        }
+        // ScanResult 时间戳为 elapsedRealtimeNanos，与 reset 时刻同一时钟
+        long discoverMillis = discovered.update(device, address, name, result.getRssi(), result.getTimestampNanos());
+        if (discoverMillis < 0) {
+            if (!deviceUpdatePosted) {
+                deviceUpdatePosted = true;
+                handler.postDelayed(deviceUpdater, DEVICE_UPDATE_INTERVAL_MS);
+            }
+            return;
+        }
+        PipelineMetrics.SCAN_DISCOVER_MILLIS.record(discoverMillis);
+        emitDeviceFound(device);
+        emitStatus(context.getString(R.string.status_device_found, safeName(device)));
+        if (targetAddress != null || targetNamePrefix != null) {
+            stopScan();
+            connect(device);
+        } else {
+            // 新设备立即出现在列表中，之后的 RSSI 变化合并刷新
+            handler.removeCallbacks(deviceUpdater);
+            deviceUpdatePosted = false;
+            publishDevices();
+        }
+    }
+
+    private void publishDevices() {
+        deviceUpdatePosted = false;
+        List<DiscoveredDevices.Device<BluetoothDevice>> snapshot = discovered.takeSnapshot();
+        if (snapshot != null) {
+            PipelineMetrics.SCAN_LIST_UPDATES.inc();
+            listener.onDevicesChanged(snapshot);
+        }
+    }
+
     public void connectTo(@NonNull BluetoothDevice device) {
         stopScan();
         // 主动触发配对请求，确保连接前完成绑定
@@ -190,30 +385,128 @@ public class BleManager {
         connect(device);
     }
 
+    /**
+     * 已知地址（如配置的目标设备）时不扫描，用 getRemoteDevice 直接连接。
+     * 在解码线程上调用，地址无效或没有蓝牙适配器时经 onError 报告，不抛异常。
+     *
+     * @return 是否已发起连接
+     */
+    public boolean connectToAddress(@NonNull String address) {
+        if (adapter == null) {
+            emitError(context.getString(R.string.status_bluetooth_unavailable));
+            return false;
+        }
+        String normalized = address.toUpperCase(Locale.US);
+        if (!BluetoothAdapter.checkBluetoothAddress(normalized)) {
+            emitError(context.getString(R.string.status_invalid_address, address));
+            return false;
+        }
+        connectTo(adapter.getRemoteDevice(normalized));
+        return true;
+    }
+
     private void connect(BluetoothDevice device) {
+        reconnect.stop();
+        emitStatus(context.getString(R.string.status_connecting, safeName(device)));
+        currentDevice = device;
+        if (!device.getAddress().equals(cachedAddress)) {
+            invalidateCachedHandles();
+        }
+        reconnect.start();
+    }
+
+    // 由 ReconnectController 调用：首次连接与重连都从这里发起
+    private void openGatt(boolean autoConnect) {
+        BluetoothDevice device = currentDevice;
+        if (device == null) {
+            return;
+        }
+        if (autoConnect) {
+            emitStatus(context.getString(R.string.status_reconnect_background, safeName(device)));
+        }
+        framer.reset();
+        bluetoothGatt = device.connectGatt(context, autoConnect, gattCallback, BluetoothDevice.TRANSPORT_LE,
+                BluetoothDevice.PHY_LE_1M_MASK, handler);
+    }
+
+    private void closeGatt() {
         if (bluetoothGatt != null) {
             bluetoothGatt.disconnect();
             bluetoothGatt.close();
             bluetoothGatt = null;
         }
-        emitStatus(context.getString(R.string.status_connecting, safeName(device)));
-        currentDevice = device;
-        recvBuffer.reset();
-        bluetoothGatt = device.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
+    }
+
+    private void invalidateCachedHandles() {
+        cachedNotify = null;
+        cachedAddress = null;
+        usingCachedHandles = false;
+    }
+
+    /** 开启通知并写 CCCD；写成功（onDescriptorWrite）后才算就绪 */
+    private boolean enableNotifications(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+        if (!gatt.setCharacteristicNotification(characteristic, true)) {
+            return false;
+        }
+        BluetoothGattDescriptor cccd = characteristic.getDescriptor(CLIENT_CONFIG_UUID);
+        if (cccd == null) {
+            onNotificationsEnabled();
+            return true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return gatt.writeDescriptor(cccd, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE)
+                    == BluetoothStatusCodes.SUCCESS;
+        }
+        cccd.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        return gatt.writeDescriptor(cccd);
+    }
+
+    private void onNotificationsEnabled() {
+        boolean reconnecting = reconnect.state() == ReconnectController.State.RECONNECTING;
+        reconnect.onReady();
+        // 重连不再通知上层“已连接”，上送管线保持不动
+        if (!reconnecting && currentDevice != null) {
+            emitConnected(currentDevice);
+        }
+        emitStatus(context.getString(R.string.status_notifications_enabled));
     }
 
     private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
         @Override
         public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            if (gatt != bluetoothGatt) {
+                return;
+            }
             if (status != BluetoothGatt.GATT_SUCCESS) {
-                emitError(context.getString(R.string.status_gatt_error, status));
+                // 重连过程中的失败属预期，只记日志
+                if (reconnect.state() == ReconnectController.State.RECONNECTING) {
+                    Log.w(TAG, "GATT status " + status + " while reconnecting");
+                } else {
+                    emitError(context.getString(R.string.status_gatt_error, status));
+                }
             }
             if (newState == BluetoothProfile.STATE_CONNECTED) {
+                reconnect.onLinkUp();
+                BluetoothGattCharacteristic cached = cachedNotify;
+                if (cached != null && currentDevice != null && currentDevice.getAddress().equals(cachedAddress)) {
+                    usingCachedHandles = true;
+                    emitStatus(context.getString(R.string.status_cached_handles));
+                    if (enableNotifications(gatt, cached)) {
+                        return;
+                    }
+                    invalidateCachedHandles();
+                }
                 emitStatus(context.getString(R.string.status_discovering_services));
                 if (!gatt.discoverServices()) {
                     emitError(context.getString(R.string.status_service_discovery_failed, BluetoothGatt.GATT_FAILURE));
                 }
             } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                framer.reset();
+                BluetoothDevice device = currentDevice;
+                if (device != null && reconnect.onLinkDown()) {
+                    emitStatus(context.getString(R.string.status_reconnecting, safeName(device)));
+                    return;
+                }
                 emitStatus(context.getString(R.string.status_disconnected));
                 emitDisconnected();
                 disconnect();
@@ -236,118 +529,123 @@ public class BleManager {
                 emitError(context.getString(R.string.status_characteristic_missing));
                 return;
             }
-            boolean enabled = gatt.setCharacteristicNotification(notifyCharacteristic, true);
-            if (!enabled) {
+            usingCachedHandles = false;
+            if (currentDevice != null) {
+                cachedNotify = notifyCharacteristic;
+                cachedAddress = currentDevice.getAddress();
+            }
+            if (!enableNotifications(gatt, notifyCharacteristic)) {
                 emitError(context.getString(R.string.status_enable_notification_failed));
-                return;
             }
-            for (BluetoothGattDescriptor descriptor : notifyCharacteristic.getDescriptors()) {
-                if (descriptor == null) {
-                    continue;
-                }
-                if (CLIENT_CONFIG_UUID.equals(descriptor.getUuid())) {
-                    descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-                    gatt.writeDescriptor(descriptor);
-                }
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            if (!CLIENT_CONFIG_UUID.equals(descriptor.getUuid())) {
+                return;
             }
-            if (currentDevice != null) {
-                emitConnected(currentDevice);
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                onNotificationsEnabled();
+            } else if (usingCachedHandles) {
+                // 设备的 GATT 表变了：丢弃缓存，走完整的服务发现
+                invalidateCachedHandles();
+                emitStatus(context.getString(R.string.status_cached_handles_stale));
+                gatt.discoverServices();
+            } else {
+                emitError(context.getString(R.string.status_enable_notification_failed));
             }
-            emitStatus(context.getString(R.string.status_notifications_enabled));
         }
 
         @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            byte[] data = characteristic.getValue();
-            processIncoming(data);
+        public void onServiceChanged(@NonNull BluetoothGatt gatt) {
+            invalidateCachedHandles();
+            gatt.discoverServices();
         }
-    };
 
-    private void processIncoming(@Nullable byte[] data) {
-        if (data == null || data.length == 0) {
-            return;
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt,
+                                            @NonNull BluetoothGattCharacteristic characteristic,
+                                            @NonNull byte[] value) {
+            onNotification(value);
         }
-        for (byte b : data) {
-            recvBuffer.write(b);
-            byte[] buf = recvBuffer.toByteArray();
-            if (buf.length == 1 && (buf[0] & 0xFF) != 0x55) {
-                recvBuffer.reset();
-                continue;
-            }
-            if (buf.length == 2 && (buf[1] & 0xFF) != 0xAA) {
-                recvBuffer.reset();
-                continue;
-            }
-            if (buf.length >= 3) {
-                int len = buf[2] & 0xFF;
-                int fullLen = len + 2;
-                if (buf.length == fullLen) {
-                    handlePacket(buf);
-                    recvBuffer.reset();
-                } else if (buf.length > fullLen) {
-                    recvBuffer.reset();
-                }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+            // 仅供 API 33 以下的系统：覆写了上面带值的版本后，API 33 起系统不再回调本方法
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                return;
             }
+            onNotification(characteristic.getValue());
         }
-    }
 
-    private void handlePacket(byte[] packet) {
-        if (packet.length < 4) {
-            return;
-        }
-        int len = packet[2] & 0xFF;
-        if (packet.length != len + 2) {
-            return;
-        }
-        byte[] body = Arrays.copyOfRange(packet, 3, packet.length - 1);
-        if (body.length == 0) {
-            return;
-        }
-        byte checksumRecv = packet[packet.length - 1];
-        int sum = len;
-        for (byte b : body) {
-            sum += (b & 0xFF);
-        }
-        byte checksumCalc = (byte) ~sum;
-        if (checksumCalc != checksumRecv) {
-            Log.w(TAG, "Checksum mismatch");
-            return;
+        private void onNotification(byte[] value) {
+            notifyNanos = System.nanoTime();
+            PipelineMetrics.BLE_NOTIFICATIONS.inc();
+            if (reconnect.onData()) {
+                long gapMs = reconnect.lastGapMillis();
+                PipelineMetrics.BLE_RECONNECTS.inc();
+                PipelineMetrics.BLE_GAP_MILLIS.record(gapMs);
+                emitStatus(context.getString(R.string.status_reconnected, gapMs));
+            }
+            framer.accept(value);
         }
-        int type = body[0] & 0xFF;
-        VitalsReading reading = aggregator.update(type, body);
+    };
+
+    /** 包体视图直接来自通知数组或拆包缓冲区，不复制 */
+    private void handlePacket(byte[] buf, int offset, int length) {
+        LatencyTracer tracer = this.tracer;
+        long decodeNanos = tracer != null ? System.nanoTime() : 0;
+        VitalsReading reading = aggregator.update(buf, offset, length);
         if (reading != null) {
+            PipelineMetrics.BLE_READINGS.inc();
+            AlarmEngine alarms = this.alarmEngine;
+            if (alarms != null) {
+                int changes = alarms.evaluate(reading, null);
+                if (changes > 0) {
+                    PipelineMetrics.ALARMS.add(changes);
+                    PipelineMetrics.ALARM_MICROS.record((System.nanoTime() - notifyNanos) / 1000);
+                }
+            }
+            SampleTrace trace = tracer != null ? tracer.begin(notifyNanos, decodeNanos, System.nanoTime()) : null;
             // 现在包括波形-only 的 Reading 也会回调，供上层以 250Hz 复用低频字段后统一上送
-            emitVitals(reading);
+            emitVitals(reading, trace);
         }
     }
 
     private void emitStatus(String message) {
-        mainHandler.post(() -> listener.onStatus(message));
+        handler.post(() -> listener.onStatus(message));
     }
 
     private void emitError(String message) {
         Log.e(TAG, message);
-        mainHandler.post(() -> listener.onError(message));
+        handler.post(() -> listener.onError(message));
     }
 
-    private void emitVitals(VitalsReading reading) {
+    private void emitVitals(VitalsReading reading, @Nullable SampleTrace trace) {
         BluetoothDevice device = currentDevice;
         if (device == null) {
+            if (trace != null) trace.discard();
             return;
         }
-        mainHandler.post(() -> listener.onVitals(device, reading));
+        vitalsStream.publish(reading);
+        if (handler.getLooper().isCurrentThread()) {
+            // GATT 回调已在目标线程上（专用解码线程），直接回调，省去每条读数一次消息投递
+            listener.onVitals(device, reading, trace);
+        } else {
+            handler.post(() -> listener.onVitals(device, reading, trace));
+        }
     }
 
     private void emitConnected(BluetoothDevice device) {
-        mainHandler.post(() -> listener.onConnected(device));
+        handler.post(() -> listener.onConnected(device));
     }
 
     private void emitDisconnected() {
-        mainHandler.post(listener::onDisconnected);
+        handler.post(listener::onDisconnected);
     }
 
     private void emitDeviceFound(BluetoothDevice device) {
-        mainHandler.post(() -> listener.onDeviceFound(device));
+        handler.post(() -> listener.onDeviceFound(device));
     }
 
     private static String safeName(BluetoothDevice device) {
@@ -0,0 +1,120 @@
+package com.devicedata.messagesend.ble;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描到的设备表：按地址哈希去重，每条广播 O(1) 更新 RSSI 与最后出现时间。
+ * 界面不逐条刷新，而是由调用方定时取 {@link #takeSnapshot()}，两次之间有变化才返回新列表。
+ * 非线程安全，只在 BleManager 的 handler 线程上使用；快照为不可变副本，可交给其他线程。
+ *
+ * @param <D> 设备对象（Android 上为 BluetoothDevice，测试中可用任意类型）
+ */
+public final class DiscoveredDevices<D> {
+
+    /** 某台设备在快照时刻的状态 */
+    public static final class Device<D> {
+        @NonNull
+        public final D device;
+        @NonNull
+        public final String address;
+        @Nullable
+        public final String name;
+        public final int rssi;
+        /** 从开始扫描到第一次收到该设备广播的毫秒数 */
+        public final long discoverMillis;
+        public final long lastSeenNanos;
+        public final int seenCount;
+
+        Device(Entry<D> e) {
+            device = e.device;
+            address = e.address;
+            name = e.name;
+            rssi = e.rssi;
+            discoverMillis = e.discoverMillis;
+            lastSeenNanos = e.lastSeenNanos;
+            seenCount = e.seenCount;
+        }
+    }
+
+    private static final class Entry<D> {
+        final D device;
+        final String address;
+        final long discoverMillis;
+        String name;
+        int rssi;
+        long lastSeenNanos;
+        int seenCount;
+
+        Entry(D device, String address, long discoverMillis) {
+            this.device = device;
+            this.address = address;
+            this.discoverMillis = discoverMillis;
+        }
+    }
+
+    private final Map<String, Entry<D>> byAddress = new HashMap<>();
+    // 按发现顺序排列，界面顺序稳定
+    private final List<Entry<D>> ordered = new ArrayList<>();
+    private long scanStartNanos;
+    private boolean dirty;
+
+    /** 开始新一轮扫描：清空设备表 */
+    public void reset(long nowNanos) {
+        byAddress.clear();
+        ordered.clear();
+        scanStartNanos = nowNanos;
+        dirty = true;
+    }
+
+    /**
+     * 记录一条广播。
+     *
+     * @return 首次发现的设备返回其发现耗时（毫秒，≥0）；已知设备返回 -1
+     */
+    public long update(@NonNull D device, @NonNull String address, @Nullable String name, int rssi, long nowNanos) {
+        Entry<D> e = byAddress.get(address);
+        long discovered = -1;
+        if (e == null) {
+            discovered = Math.max(0, (nowNanos - scanStartNanos) / 1_000_000);
+            e = new Entry<>(device, address, discovered);
+            byAddress.put(address, e);
+            ordered.add(e);
+            dirty = true;
+        } else if (e.rssi != rssi || (name != null && !name.equals(e.name))) {
+            dirty = true;
+        }
+        if (name != null) e.name = name;
+        e.rssi = rssi;
+        e.lastSeenNanos = nowNanos;
+        e.seenCount++;
+        return discovered;
+    }
+
+    public int size() {
+        return ordered.size();
+    }
+
+    @Nullable
+    public D get(@NonNull String address) {
+        Entry<D> e = byAddress.get(address);
+        return e != null ? e.device : null;
+    }
+
+    /** 自上次取快照后有变化时返回按发现顺序排列的不可变副本，否则返回 null */
+    @Nullable
+    public List<Device<D>> takeSnapshot() {
+        if (!dirty) return null;
+        dirty = false;
+        List<Device<D>> snapshot = new ArrayList<>(ordered.size());
+        for (Entry<D> e : ordered) {
+            snapshot.add(new Device<>(e));
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,102 @@
+package com.devicedata.messagesend.ble;
+
+/**
+ * 设备串口协议的拆包与校验：0x55 0xAA len body... checksum，len 计入自身与 body、checksum，
+ * checksum = ~(len + Σbody)。通知可能把一个包拆成多段，也可能一段里带多个包。
+ * - 整包落在一次通知里时直接在通知数组上校验并回调，不复制
+ * - 跨通知的包逐字节拼到定长缓冲区（len 一字节，整包最多 257 字节），拼齐后以缓冲区视图回调
+ * 不依赖 Android 框架，由 BleManager 在 BLE 回调线程调用；非线程安全。
+ */
+final class PacketFramer {
+
+    interface Handler {
+        /**
+         * 校验通过的包体视图 buf[offset, offset + length)（不含包头、长度与校验字节），buf[offset] 为数据类型。
+         * 视图指向通知数据或拆包缓冲区，只在回调期间有效，需要保留时自行复制。
+         */
+        void onPacket(byte[] buf, int offset, int length);
+
+        void onChecksumMismatch();
+    }
+
+    private static final int MAX_PACKET = 2 + 255;
+
+    private final Handler handler;
+    private final byte[] partial = new byte[MAX_PACKET];
+    private int partialLen;
+
+    PacketFramer(Handler handler) {
+        this.handler = handler;
+    }
+
+    void accept(byte[] data) {
+        if (data == null || data.length == 0) {
+            return;
+        }
+        accept(data, 0, data.length);
+    }
+
+    void accept(byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        while (i < end) {
+            if (partialLen == 0) {
+                if ((data[i] & 0xFF) != 0x55) {
+                    i++;
+                    continue;
+                }
+                // 快速路径：包头与整包都在本次数据里
+                if (end - i >= 3 && (data[i + 1] & 0xFF) == 0xAA) {
+                    int full = (data[i + 2] & 0xFF) + 2;
+                    if (full >= 4 && end - i >= full) {
+                        deliver(data, i, full);
+                        i += full;
+                        continue;
+                    }
+                }
+            }
+            append(data[i++]);
+        }
+    }
+
+    void reset() {
+        partialLen = 0;
+    }
+
+    private void append(byte b) {
+        if (partialLen == 0 && (b & 0xFF) != 0x55) {
+            return;
+        }
+        if (partialLen == 1 && (b & 0xFF) != 0xAA) {
+            partialLen = 0;
+            return;
+        }
+        partial[partialLen++] = b;
+        if (partialLen >= 3) {
+            int full = (partial[2] & 0xFF) + 2;
+            if (partialLen == full) {
+                partialLen = 0;
+                deliver(partial, 0, full);
+            } else if (partialLen > full) {
+                partialLen = 0;
+            }
+        }
+    }
+
+    private void deliver(byte[] buf, int start, int full) {
+        int bodyOffset = start + 3;
+        int bodyLength = full - 4;
+        if (bodyLength <= 0) {
+            return;
+        }
+        int sum = buf[start + 2] & 0xFF;
+        for (int k = bodyOffset, bodyEnd = bodyOffset + bodyLength; k < bodyEnd; k++) {
+            sum += buf[k] & 0xFF;
+        }
+        if ((byte) ~sum != buf[start + full - 1]) {
+            handler.onChecksumMismatch();
+            return;
+        }
+        handler.onPacket(buf, bodyOffset, bodyLength);
+    }
+}
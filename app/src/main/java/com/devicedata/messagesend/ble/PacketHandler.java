@@ -0,0 +1,16 @@
+package com.devicedata.messagesend.ble;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.model.VitalsReading;
+
+/**
+ * 一种监护仪数据包的解析，按数据类型注册到 {@link BleManager#registerPacketHandler}。
+ * 入参为包体视图 buf[offset, offset + length)，buf[offset] 为数据类型；视图只在调用期间有效。
+ * 在 BLE 回调线程上调用，返回要交给上层的读数，没有则返回 null。
+ */
+public interface PacketHandler {
+    @Nullable
+    VitalsReading handle(@NonNull byte[] buf, int offset, int length);
+}
@@ -0,0 +1,195 @@
+package com.devicedata.messagesend.ble;
+
+import androidx.annotation.NonNull;
+
+import java.util.function.LongSupplier;
+
+/**
+ * BLE 意外断线后的重连策略：不重新扫描，按已知地址直接重连。
+ * - 断线后立即直连（autoConnect=false，设备仍在广播时最快），失败或超时按退避间隔重试
+ * - 直连次数用完后改为系统后台连接（autoConnect=true），设备回到范围内时由协议栈连上，不再超时
+ * - 记录断线前最后一个数据到重连后第一个数据的间隔，即波形缺口
+ * 所有方法在同一线程（BLE 回调线程）调用；链路与定时器抽象为接口，测试中用模拟 GATT 替换。
+ */
+public final class ReconnectController {
+
+    /** 底层链路：Android 上对应 connectGatt / disconnect + close */
+    public interface Link {
+        void connect(boolean autoConnect);
+
+        /** 放弃当前连接或连接尝试并释放资源，之后不再有回调 */
+        void close();
+    }
+
+    public interface Scheduler {
+        void schedule(@NonNull Runnable task, long delayMs);
+
+        void cancel(@NonNull Runnable task);
+    }
+
+    public enum State { IDLE, CONNECTING, CONNECTED, RECONNECTING }
+
+    /** 各次直连前的等待（毫秒）；第一次立即发起 */
+    public static final long[] DEFAULT_BACKOFF_MS = {0, 250, 1_000, 2_000};
+    /** 单次直连等待连上的时间，超过则放弃本次尝试 */
+    public static final long DEFAULT_ATTEMPT_TIMEOUT_MS = 3_000;
+
+    private final Link link;
+    private final Scheduler scheduler;
+    private final LongSupplier clock;
+    private long[] backoffMs = DEFAULT_BACKOFF_MS;
+    private long attemptTimeoutMs = DEFAULT_ATTEMPT_TIMEOUT_MS;
+
+    private State state = State.IDLE;
+    // 本次断线后已发起的直连次数
+    private int attempts;
+    private boolean background;
+    private long lastDataNanos;
+    private boolean gapOpen;
+    private long lastGapMillis = -1;
+    private long reconnects;
+    private final Runnable attemptTask = this::attempt;
+    private final Runnable timeoutTask = this::onAttemptTimeout;
+
+    public ReconnectController(@NonNull Link link, @NonNull Scheduler scheduler, @NonNull LongSupplier nanoClock) {
+        this.link = link;
+        this.scheduler = scheduler;
+        this.clock = nanoClock;
+    }
+
+    /** 直连退避序列，长度即直连次数；空数组表示断线后直接转后台连接 */
+    public void setBackoff(@NonNull long[] delaysMs) {
+        for (long d : delaysMs) {
+            if (d < 0) throw new IllegalArgumentException("delay < 0");
+        }
+        backoffMs = delaysMs.clone();
+    }
+
+    public void setAttemptTimeout(long timeoutMs) {
+        if (timeoutMs <= 0) throw new IllegalArgumentException("timeoutMs <= 0");
+        attemptTimeoutMs = timeoutMs;
+    }
+
+    /** 用户发起连接 */
+    public void start() {
+        cancelTimers();
+        state = State.CONNECTING;
+        attempts = 0;
+        background = false;
+        gapOpen = false;
+        lastDataNanos = 0;
+        link.connect(false);
+    }
+
+    /** 用户断开：停止重连并关闭链路 */
+    public void stop() {
+        cancelTimers();
+        state = State.IDLE;
+        gapOpen = false;
+        link.close();
+    }
+
+    /** 链路已连上（服务尚未就绪），取消本次尝试的超时 */
+    public void onLinkUp() {
+        scheduler.cancel(timeoutTask);
+    }
+
+    /** 通知已开启，可以收数据 */
+    public void onReady() {
+        if (state == State.IDLE || state == State.CONNECTED) return;
+        cancelTimers();
+        if (state == State.RECONNECTING) reconnects++;
+        state = State.CONNECTED;
+        attempts = 0;
+        background = false;
+    }
+
+    /**
+     * 链路断开或连接尝试失败。
+     *
+     * @return true 表示将自动重连，上层不必当作断开处理
+     */
+    public boolean onLinkDown() {
+        if (state == State.IDLE) return false;
+        scheduler.cancel(timeoutTask);
+        if (state == State.CONNECTED) {
+            attempts = 0;
+            background = false;
+            gapOpen = lastDataNanos != 0;
+        }
+        state = State.RECONNECTING;
+        link.close();
+        scheduleNext();
+        return true;
+    }
+
+    /**
+     * 收到一个数据通知。
+     *
+     * @return true 表示这是断线重连后的第一个数据，缺口见 {@link #lastGapMillis()}
+     */
+    public boolean onData() {
+        long now = clock.getAsLong();
+        boolean closedGap = false;
+        if (gapOpen) {
+            gapOpen = false;
+            lastGapMillis = (now - lastDataNanos) / 1_000_000;
+            closedGap = true;
+        }
+        lastDataNanos = now;
+        return closedGap;
+    }
+
+    @NonNull
+    public State state() {
+        return state;
+    }
+
+    /** 当前是否已转为后台自动连接 */
+    public boolean isBackground() {
+        return background;
+    }
+
+    /** 本次断线后已发起的直连次数 */
+    public int attempts() {
+        return attempts;
+    }
+
+    /** 最近一次断线造成的数据缺口（毫秒）；尚无时为 -1 */
+    public long lastGapMillis() {
+        return lastGapMillis;
+    }
+
+    /** 成功重连的次数 */
+    public long reconnects() {
+        return reconnects;
+    }
+
+    private void scheduleNext() {
+        if (attempts < backoffMs.length) {
+            scheduler.schedule(attemptTask, backoffMs[attempts]);
+        } else {
+            // 直连用完：交给协议栈后台连接，不设超时
+            background = true;
+            link.connect(true);
+        }
+    }
+
+    private void attempt() {
+        if (state != State.RECONNECTING) return;
+        attempts++;
+        link.connect(false);
+        scheduler.schedule(timeoutTask, attemptTimeoutMs);
+    }
+
+    private void onAttemptTimeout() {
+        if (state != State.RECONNECTING || background) return;
+        link.close();
+        scheduleNext();
+    }
+
+    private void cancelTimers() {
+        scheduler.cancel(attemptTask);
+        scheduler.cancel(timeoutTask);
+    }
+}
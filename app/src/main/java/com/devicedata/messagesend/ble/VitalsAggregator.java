@@ -1,5 +1,6 @@
 package com.devicedata.messagesend.ble;
 
+import com.devicedata.messagesend.dsp.QrsDetector;
 import com.devicedata.messagesend.model.VitalsReading;
 
 import java.util.ArrayList;
@@ -10,6 +11,11 @@ import java.util.List;
  */
 class VitalsAggregator {
 
+    /** 设备 ECG 波形点（0x01 包）的采样率 */
+    static final int ECG_SAMPLE_RATE_HZ = 250;
+
+    private final QrsDetector qrsDetector = new QrsDetector(ECG_SAMPLE_RATE_HZ);
+
     private Integer ecgWave;
     private Integer ecgHeartRate;
     private Integer respirationRate;
@@ -22,74 +28,157 @@ class VitalsAggregator {
     private Integer respWave;
     // 不再批量缓存血氧波形，按需逐点发出
 
-    VitalsReading update(int type, byte[] body) {
-        switch (type) {
-            case 0x01:
-                ecgWave = body.length > 1 ? body[1] & 0xFF : null;
-                return null;
-            case 0x02:
-                ecgHeartRate = body.length > 2 ? body[2] & 0xFF : null;
-                respirationRate = body.length > 3 ? body[3] & 0xFF : null;
-                return snapshot();
-            case 0x03:
-                systolic = body.length > 3 ? body[3] & 0xFF : null;
-                meanArterialPressure = body.length > 4 ? body[4] & 0xFF : null;
-                diastolic = body.length > 5 ? body[5] & 0xFF : null;
-                return snapshot();
-            case 0x04:
-                bloodOxygen = body.length > 2 ? body[2] & 0xFF : null;
-                pulseRate = body.length > 3 ? body[3] & 0xFF : null;
-                return snapshot();
-            case 0x05:
-                if (body.length > 3) {
-                    int tInt = body[2] & 0xFF;
-                    int tDec = body[3] & 0xFF;
-                    temperature = tInt + (tDec / 10.0);
-                }
-                return snapshot();
-            case 0xFE:
-                if (body.length > 1) {
-                    // 直接构造仅包含单点血氧波形的 Reading
-                    List<Integer> one = new ArrayList<>(1);
-                    one.add(body[1] & 0xFF);
-                    return new VitalsReading(System.currentTimeMillis(),
-                            null, // ecgWave
-                            null, // ecgHeartRate
-                            null, // respirationRate
-                            null, // systolic
-                            null, // diastolic
-                            null, // map
-                            null, // bloodOxygen (饱和度为低频字段，单点发送由上层按最近值复用)
-                            null, // pulseRate
-                            null, // temperature
-                            one,  // spo2Waveform 单点
-                            null  // respWave
-                    );
-                }
-                return null;
-            case 0xFF:
-                respWave = body.length > 1 ? body[1] & 0xFF : null;
-                // 呼吸波也可视为波形，直接返回以便上层获取最新值
-                return new VitalsReading(System.currentTimeMillis(),
-                        null,
-                        null,
-                        null,
-                        null,
-                        null,
-                        null,
-                        null,
-                        null,
-                        null,
-                        null,
-                        respWave);
-            default:
-                return null;
+    /** 按数据类型（包体首字节）分派的处理器表 */
+    private final PacketHandler[] handlers = new PacketHandler[256];
+
+    VitalsAggregator() {
+        handlers[0x01] = this::onEcgWave;
+        handlers[0x02] = this::onEcgParams;
+        handlers[0x03] = this::onBloodPressure;
+        handlers[0x04] = this::onSpo2Params;
+        handlers[0x05] = this::onTemperature;
+        handlers[0xFE] = this::onSpo2Wave;
+        handlers[0xFF] = this::onRespWave;
+    }
+
+    /** 注册或替换某个数据类型的处理器；handler 为 null 时该类型不再处理 */
+    void register(int type, PacketHandler handler) {
+        if (type < 0 || type > 0xFF) {
+            throw new IllegalArgumentException("数据类型须在 0~255: " + type);
         }
+        handlers[type] = handler;
     }
 
-    private VitalsReading snapshot() {
-    return new VitalsReading(System.currentTimeMillis(),
+    /** 包体视图 buf[offset, offset + length)，buf[offset] 为数据类型；视图只在调用期间使用，不复制 */
+    VitalsReading update(byte[] buf, int offset, int length) {
+        if (length <= 0) {
+            return null;
+        }
+        PacketHandler handler = handlers[buf[offset] & 0xFF];
+        return handler != null ? handler.handle(buf, offset, length) : null;
+    }
+
+    /** 包体第 index 字节（无符号），超出包长时为 null */
+    private static Integer u8(byte[] buf, int offset, int length, int index) {
+        return length > index ? buf[offset + index] & 0xFF : null;
+    }
+
+    /** 每个 ECG 点都出一条仅含该点的读数，检出 R 峰时附带检测结果 */
+    private VitalsReading onEcgWave(byte[] buf, int offset, int length) {
+        ecgWave = u8(buf, offset, length, 1);
+        if (ecgWave == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (qrsDetector.process(ecgWave, now)) {
+            return beat(now);
+        }
+        return new VitalsReading(now,
                 ecgWave,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null);
+    }
+
+    private VitalsReading onEcgParams(byte[] buf, int offset, int length) {
+        ecgHeartRate = u8(buf, offset, length, 2);
+        respirationRate = u8(buf, offset, length, 3);
+        return snapshot();
+    }
+
+    private VitalsReading onBloodPressure(byte[] buf, int offset, int length) {
+        systolic = u8(buf, offset, length, 3);
+        meanArterialPressure = u8(buf, offset, length, 4);
+        diastolic = u8(buf, offset, length, 5);
+        return snapshot();
+    }
+
+    private VitalsReading onSpo2Params(byte[] buf, int offset, int length) {
+        bloodOxygen = u8(buf, offset, length, 2);
+        pulseRate = u8(buf, offset, length, 3);
+        return snapshot();
+    }
+
+    private VitalsReading onTemperature(byte[] buf, int offset, int length) {
+        if (length > 3) {
+            int tInt = buf[offset + 2] & 0xFF;
+            int tDec = buf[offset + 3] & 0xFF;
+            temperature = tInt + (tDec / 10.0);
+        }
+        return snapshot();
+    }
+
+    private VitalsReading onSpo2Wave(byte[] buf, int offset, int length) {
+        if (length <= 1) {
+            return null;
+        }
+        // 直接构造仅包含单点血氧波形的 Reading
+        List<Integer> one = new ArrayList<>(1);
+        one.add(buf[offset + 1] & 0xFF);
+        return new VitalsReading(System.currentTimeMillis(),
+                null, // ecgWave
+                null, // ecgHeartRate
+                null, // respirationRate
+                null, // systolic
+                null, // diastolic
+                null, // map
+                null, // bloodOxygen (饱和度为低频字段，单点发送由上层按最近值复用)
+                null, // pulseRate
+                null, // temperature
+                one,  // spo2Waveform 单点
+                null  // respWave
+        );
+    }
+
+    private VitalsReading onRespWave(byte[] buf, int offset, int length) {
+        respWave = u8(buf, offset, length, 1);
+        // 呼吸波也可视为波形，直接返回以便上层获取最新值
+        return new VitalsReading(System.currentTimeMillis(),
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                respWave);
+    }
+
+    /** 检出 R 峰：带当前 ECG 点与检测结果，低频字段仍由 0x02~0x05 快照给出 */
+    private VitalsReading beat(long now) {
+        int rr = qrsDetector.lastRrMillis();
+        int hr = qrsDetector.heartRateBpm();
+        return new VitalsReading(now,
+                ecgWave,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                qrsDetector.lastRPeakMillis(),
+                rr > 0 ? rr : null,
+                hr > 0 ? hr : null);
+    }
+
+    /** 低频字段快照；波形点只由各自的波形包给出，快照不带，避免上层把旧点当新点再次入队 */
+    private VitalsReading snapshot() {
+        return new VitalsReading(System.currentTimeMillis(),
+                null,
                 ecgHeartRate,
                 respirationRate,
                 systolic,
@@ -98,7 +187,7 @@ class VitalsAggregator {
                 bloodOxygen,
                 pulseRate,
                 temperature,
-        null,
-                respWave);
+                null,
+                null);
     }
 }
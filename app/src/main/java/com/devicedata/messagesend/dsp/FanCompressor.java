@@ -0,0 +1,147 @@
+package com.devicedata.messagesend.dsp;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * 有损波形压缩（FAN 算法）：把等间隔采样序列压成折线顶点，相邻顶点间线性插值还原，
+ * 每个点的还原误差保证不超过 tolerance。
+ * 从上一个顶点出发维护一个“扇形”斜率区间，新点落在扇形内就收窄扇形继续，
+ * 落在扇形外则把前一个点定为顶点、从它重新开扇形。每点固定工作量，构造后不分配内存。
+ * 顶点以 (run, value) 输出，run 为距上一顶点的点数（首个顶点为 0），解码见 {@link FanDecoder}。
+ * 非线程安全，由发送循环线程独占。
+ */
+public final class FanCompressor {
+
+    /** 平直信号最多攒这么多点也输出一个顶点，限制解码端的等待 */
+    public static final int DEFAULT_MAX_RUN = 250;
+
+    private final int tolerance;
+    private final int maxRun;
+    // 自上一顶点以来的原始点，用于顶点输出时统计实际还原误差
+    private final int[] pending;
+
+    private boolean started;
+    private int origin;
+    private int run;
+    private double upper;
+    private double lower;
+
+    private int vertexRun;
+    private int vertexValue;
+
+    private long samples;
+    private long vertices;
+    private int maxError;
+    private double sumSquaredError;
+
+    public FanCompressor(int tolerance) {
+        this(tolerance, DEFAULT_MAX_RUN);
+    }
+
+    public FanCompressor(int tolerance, int maxRun) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance must be >= 0");
+        }
+        if (maxRun < 1) {
+            throw new IllegalArgumentException("maxRun must be >= 1");
+        }
+        this.tolerance = tolerance;
+        this.maxRun = maxRun;
+        this.pending = new int[maxRun + 1];
+    }
+
+    /** 输入一个点；确定了一个顶点时返回 true，由 {@link #vertexRun()}、{@link #vertexValue()} 读取 */
+    public boolean push(int sample) {
+        samples++;
+        if (!started) {
+            started = true;
+            startFan(sample);
+            emit(0, sample);
+            return true;
+        }
+        int k = run + 1;
+        double slope = (double) (sample - origin) / k;
+        if (k == 1 || (slope >= lower && slope <= upper)) {
+            upper = Math.min(upper, (double) (sample + tolerance - origin) / k);
+            lower = Math.max(lower, (double) (sample - tolerance - origin) / k);
+            run = k;
+            pending[k] = sample;
+            if (k == maxRun) {
+                emit(k, sample);
+                startFan(sample);
+                return true;
+            }
+            return false;
+        }
+        // 新点在扇形外：前一个点成为顶点，并作为新扇形的起点
+        int value = pending[run];
+        emit(run, value);
+        startFan(value);
+        run = 1;
+        pending[1] = sample;
+        upper = sample + tolerance - value;
+        lower = sample - tolerance - value;
+        return true;
+    }
+
+    private void startFan(int value) {
+        origin = value;
+        run = 0;
+        upper = Double.POSITIVE_INFINITY;
+        lower = Double.NEGATIVE_INFINITY;
+    }
+
+    /** 记录顶点，并对两顶点之间的原始点统计还原误差（与解码端相同的取整插值） */
+    private void emit(int n, int value) {
+        for (int i = 1; i < n; i++) {
+            int error = Math.abs(FanDecoder.interpolate(vertexValue, value, i, n) - pending[i]);
+            if (error > maxError) maxError = error;
+            sumSquaredError += (double) error * error;
+        }
+        vertexRun = n;
+        vertexValue = value;
+        vertices++;
+    }
+
+    public int vertexRun() {
+        return vertexRun;
+    }
+
+    public int vertexValue() {
+        return vertexValue;
+    }
+
+    public int tolerance() {
+        return tolerance;
+    }
+
+    /** 已输入点数与已输出顶点数之比 */
+    public double compressionRatio() {
+        return vertices == 0 ? 0 : (double) samples / vertices;
+    }
+
+    /** 已确定顶点之间的点中实际出现的最大还原误差（不超过 tolerance） */
+    public int maxError() {
+        return maxError;
+    }
+
+    public double rmsError() {
+        return samples == 0 ? 0 : Math.sqrt(sumSquaredError / samples);
+    }
+
+    public long samples() {
+        return samples;
+    }
+
+    public long vertices() {
+        return vertices;
+    }
+
+    @NonNull
+    public String summary() {
+        return String.format(Locale.US, "压缩比 %.1f:1（%d 点 / %d 顶点），误差 max %d / rms %.2f，容差 %d",
+                compressionRatio(), samples, vertices, maxError, rmsError(), tolerance);
+    }
+}
@@ -0,0 +1,38 @@
+package com.devicedata.messagesend.dsp;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link FanCompressor} 顶点流的解码：对相邻顶点线性插值，按原采样间隔还原每个点。
+ * 与 server.py 中的 fan_decode 取整规则一致（四舍五入，.5 远离零）。
+ */
+public final class FanDecoder {
+
+    public interface Sink {
+        void onSample(int value);
+    }
+
+    private boolean started;
+    private int last;
+
+    /** 解码一个顶点；run 为 0 的首个顶点只输出它自己 */
+    public void decode(int run, int value, @NonNull Sink sink) {
+        if (!started || run == 0) {
+            started = true;
+            last = value;
+            sink.onSample(value);
+            return;
+        }
+        for (int i = 1; i <= run; i++) {
+            sink.onSample(interpolate(last, value, i, run));
+        }
+        last = value;
+    }
+
+    /** 从 from 到 to 共 run 步，第 i 步的取整插值 */
+    static int interpolate(int from, int to, int i, int run) {
+        long numerator = (long) (to - from) * i;
+        long q = (2 * Math.abs(numerator) + run) / (2L * run);
+        return from + (int) (numerator < 0 ? -q : q);
+    }
+}
@@ -0,0 +1,125 @@
+package com.devicedata.messagesend.dsp;
+
+/**
+ * 流式整数倍抽取：窗函数法（Hamming）设计的低通 FIR 作抗混叠，系数为 Q15 定点，按多相分解实现。
+ * 长度 L = M × tapsPerPhase 的滤波器拆成 M 个子滤波器，每个输入点只写入所属相位的延迟线，
+ * 凑满 M 个点输出一次，每个输出 L 次乘加（折合每输入点 tapsPerPhase 次），被抽掉的点不做计算。
+ * 截止频率取输出采样率的 0.4 倍；直流增益严格为 1。延迟线跨包保留，构造后不再分配内存。
+ * 非线程安全，由发送循环线程独占。
+ */
+public final class PolyphaseDecimator {
+
+    public static final int DEFAULT_TAPS_PER_PHASE = 16;
+    /** 截止频率与输出采样率之比，过渡带落在输出 Nyquist 附近 */
+    static final double CUTOFF_RATIO = 0.4;
+    private static final int Q15 = 15;
+
+    private final int factor;
+    private final int tapsPerPhase;
+    // 相位优先排列：coefficients[p * T + j] = h[j * M + p]
+    private final short[] coefficients;
+    // 每个相位一条长度 2T 的延迟线，同一点写两次，读取时不用取模
+    private final int[] history;
+    private int slot;
+    private int position;
+    private int output;
+
+    public PolyphaseDecimator(int inputRateHz, int outputRateHz) {
+        this(inputRateHz, outputRateHz, DEFAULT_TAPS_PER_PHASE);
+    }
+
+    public PolyphaseDecimator(int inputRateHz, int outputRateHz, int tapsPerPhase) {
+        if (inputRateHz <= 0 || outputRateHz <= 0 || outputRateHz > inputRateHz
+                || inputRateHz % outputRateHz != 0) {
+            throw new IllegalArgumentException("输出采样率须整除输入采样率: " + inputRateHz + " / " + outputRateHz);
+        }
+        if (tapsPerPhase < 1) {
+            throw new IllegalArgumentException("tapsPerPhase must be >= 1");
+        }
+        this.factor = inputRateHz / outputRateHz;
+        this.tapsPerPhase = factor == 1 ? 1 : tapsPerPhase;
+        // 不抽取时直通，不滤波
+        short[] h = factor == 1 ? new short[0] : designLowPass(factor * this.tapsPerPhase, CUTOFF_RATIO / factor);
+        this.coefficients = new short[h.length];
+        for (int i = 0; i < h.length; i++) {
+            int p = i % factor;
+            int j = i / factor;
+            coefficients[p * this.tapsPerPhase + j] = h[i];
+        }
+        this.history = new int[factor == 1 ? 0 : factor * 2 * this.tapsPerPhase];
+    }
+
+    public int factor() {
+        return factor;
+    }
+
+    /** 输入一个点；凑满一组时返回 true，结果由 {@link #output()} 读取 */
+    public boolean push(int sample) {
+        if (factor == 1) {
+            output = sample;
+            return true;
+        }
+        // 组内第 q 个点属于相位 M-1-q：y[kM+M-1] = Σ_p Σ_j h[jM+p]·x[(k-j)M + M-1-p]
+        int p = factor - 1 - position;
+        int base = p * 2 * tapsPerPhase;
+        history[base + slot] = sample;
+        history[base + slot + tapsPerPhase] = sample;
+        if (++position < factor) {
+            return false;
+        }
+        position = 0;
+        long acc = 0;
+        for (int phase = 0; phase < factor; phase++) {
+            int c = phase * tapsPerPhase;
+            int h = phase * 2 * tapsPerPhase + slot + tapsPerPhase;
+            for (int j = 0; j < tapsPerPhase; j++) {
+                acc += (long) coefficients[c + j] * history[h - j];
+            }
+        }
+        output = (int) ((acc + (1L << Q15 - 1)) >> Q15);
+        if (++slot == tapsPerPhase) slot = 0;
+        return true;
+    }
+
+    /** 最近一次输出的抽取后采样值 */
+    public int output() {
+        return output;
+    }
+
+    /** 群时延（输入采样点数），线性相位 FIR 为 (L-1)/2 */
+    public double groupDelaySamples() {
+        return factor == 1 ? 0 : (factor * tapsPerPhase - 1) / 2.0;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(history, 0);
+        slot = 0;
+        position = 0;
+        output = 0;
+    }
+
+    /**
+     * Hamming 窗 sinc 低通，cutoff 为相对输入采样率的归一化频率（0~0.5）。
+     * 量化为 Q15 后把舍入误差补到中心抽头，使系数和恰为 32768（直流增益 1）。
+     */
+    static short[] designLowPass(int taps, double cutoff) {
+        double[] h = new double[taps];
+        double sum = 0;
+        double center = (taps - 1) / 2.0;
+        for (int i = 0; i < taps; i++) {
+            double x = i - center;
+            double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            double window = 0.54 - 0.46 * Math.cos(2 * Math.PI * i / (taps - 1));
+            h[i] = sinc * window;
+            sum += h[i];
+        }
+        short[] q = new short[taps];
+        int total = 0;
+        for (int i = 0; i < taps; i++) {
+            q[i] = (short) Math.round(h[i] / sum * (1 << Q15));
+            total += q[i];
+        }
+        q[taps / 2] += (short) ((1 << Q15) - total);
+        return q;
+    }
+}
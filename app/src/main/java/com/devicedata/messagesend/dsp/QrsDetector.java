@@ -0,0 +1,282 @@
+package com.devicedata.messagesend.dsp;
+
+/**
+ * 流式 QRS 检测（Pan-Tompkins）：带通 5~15Hz → 五点微分 → 平方 → 150ms 滑动积分 → 自适应双阈值。
+ * 每个采样点固定工作量，检出时在原始信号（去基线后）上回溯 150ms 找 R 峰位置；
+ * 所有缓冲在构造时分配，处理过程中不分配内存。非线程安全，由 BLE 回调线程独占。
+ * <ul>
+ *   <li>前 2 秒为学习期，用积分信号的最大值与均值初始化信号/噪声峰估计</li>
+ *   <li>200ms 不应期；距上一个 R 峰 360ms 内且斜率不足上一个 QRS 一半的判为 T 波</li>
+ *   <li>超过 1.66 倍平均 RR 仍未检出时，回查期间最大的噪声峰，高于半阈值即补记一次心搏</li>
+ * </ul>
+ */
+public final class QrsDetector {
+
+    private static final int RR_HISTORY = 8;
+    private static final int MIN_RR_MS = 250;   // 240 bpm
+    private static final int MAX_RR_MS = 2500;  // 24 bpm
+
+    private final int sampleRateHz;
+    private final double msPerSample;
+    private final int window;
+    private final int refractory;
+    private final int tWaveWindow;
+    private final int learnSamples;
+    private final double baselineAlpha;
+
+    private final Biquad highPass;
+    private final Biquad lowPass;
+    private final double[] mwiBuffer;
+    private final float[] deviation;
+    private final int deviationMask;
+    private final int[] rrHistory = new int[RR_HISTORY];
+
+    private long n;
+    private double baseline;
+    private double bp1, bp2, bp3, bp4;
+    private int mwiPos;
+    private double mwiSum;
+    private double mwiPrev, mwiPrev2;
+
+    private double spki, npki;
+    private double learnMax, learnSum;
+
+    private boolean inRegion;
+    private double regionMax;
+    private long regionMaxIndex;
+    private double regionMaxSlope;
+    private double bestNoise;
+    private long bestNoiseIndex;
+
+    private long lastRIndex;
+    private double lastQrsSlope;
+    private int rrCount, rrPos, rrSum;
+    private long lastRPeakMillis;
+    private int lastRrMillis;
+    private int heartRateBpm;
+    private long beatCount;
+
+    public QrsDetector(int sampleRateHz) {
+        if (sampleRateHz < 50) {
+            throw new IllegalArgumentException("sampleRateHz must be >= 50");
+        }
+        this.sampleRateHz = sampleRateHz;
+        this.msPerSample = 1000.0 / sampleRateHz;
+        this.window = Math.max(1, Math.round(0.150f * sampleRateHz));
+        this.refractory = Math.round(0.200f * sampleRateHz);
+        this.tWaveWindow = Math.round(0.360f * sampleRateHz);
+        this.learnSamples = 2 * sampleRateHz;
+        this.baselineAlpha = 1.0 / (0.5 * sampleRateHz);
+        this.highPass = Biquad.highPass(5.0, sampleRateHz);
+        this.lowPass = Biquad.lowPass(15.0, sampleRateHz);
+        this.mwiBuffer = new double[window];
+        // 覆盖补查所需的最长回溯（约 2.5 秒）
+        int size = Integer.highestOneBit(4 * sampleRateHz - 1) << 1;
+        this.deviation = new float[size];
+        this.deviationMask = size - 1;
+        reset();
+    }
+
+    public void reset() {
+        n = -1;
+        bp1 = bp2 = bp3 = bp4 = 0;
+        mwiPos = 0;
+        mwiSum = 0;
+        mwiPrev = mwiPrev2 = 0;
+        java.util.Arrays.fill(mwiBuffer, 0);
+        spki = npki = 0;
+        learnMax = learnSum = 0;
+        inRegion = false;
+        bestNoise = 0;
+        lastRIndex = -1;
+        lastQrsSlope = 0;
+        rrCount = rrPos = rrSum = 0;
+        lastRPeakMillis = -1;
+        lastRrMillis = -1;
+        heartRateBpm = -1;
+        beatCount = 0;
+    }
+
+    public int sampleRateHz() {
+        return sampleRateHz;
+    }
+
+    /**
+     * 输入一个 ECG 采样点及其到达时间（毫秒）。检出 R 峰时返回 true，
+     * 结果由 {@link #lastRPeakMillis()}、{@link #lastRrMillis()}、{@link #heartRateBpm()} 读取。
+     * 检出相对 R 峰约有 0.2~0.3 秒延迟，R 峰时间已按采样间隔回推。
+     */
+    public boolean process(int sample, long timeMillis) {
+        n++;
+        if (n == 0) {
+            baseline = sample;
+            highPass.prime(sample);
+        }
+        baseline += baselineAlpha * (sample - baseline);
+        deviation[(int) (n & deviationMask)] = (float) (sample - baseline);
+
+        double bp = lowPass.filter(highPass.filter(sample));
+        double slope = (2 * bp + bp1 - bp3 - 2 * bp4) * 0.125;
+        bp4 = bp3;
+        bp3 = bp2;
+        bp2 = bp1;
+        bp1 = bp;
+        double squared = slope * slope;
+        mwiSum += squared - mwiBuffer[mwiPos];
+        mwiBuffer[mwiPos] = squared;
+        if (++mwiPos == window) mwiPos = 0;
+        double mwi = Math.max(0, mwiSum / window);
+
+        boolean beat = false;
+        if (n < learnSamples) {
+            learnMax = Math.max(learnMax, mwi);
+            learnSum += mwi;
+            if (n == learnSamples - 1) {
+                spki = learnMax / 3;
+                npki = learnSum / learnSamples / 2;
+            }
+        } else {
+            double threshold1 = npki + 0.25 * (spki - npki);
+            if (inRegion) {
+                regionMaxSlope = Math.max(regionMaxSlope, Math.abs(slope));
+                if (mwi > regionMax) {
+                    regionMax = mwi;
+                    regionMaxIndex = n;
+                }
+                if (mwi < 0.5 * regionMax) {
+                    inRegion = false;
+                    beat = classify(regionMax, regionMaxIndex, regionMaxSlope, timeMillis);
+                }
+            } else if (mwi > threshold1 && mwiPrev <= threshold1
+                    && (lastRIndex < 0 || n - lastRIndex > refractory)) {
+                inRegion = true;
+                regionMax = mwi;
+                regionMaxIndex = n;
+                regionMaxSlope = Math.abs(slope);
+            } else if (mwiPrev > mwiPrev2 && mwiPrev >= mwi) {
+                npki = 0.125 * mwiPrev + 0.875 * npki;
+                if (mwiPrev > bestNoise) {
+                    bestNoise = mwiPrev;
+                    bestNoiseIndex = n - 1;
+                }
+            }
+            if (!beat && !inRegion && rrCount > 0 && lastRIndex >= 0
+                    && bestNoise > 0.5 * threshold1
+                    && (n - lastRIndex) * msPerSample > 1.66 * rrSum / rrCount) {
+                spki = 0.25 * bestNoise + 0.75 * spki;
+                accept(bestNoiseIndex, lastQrsSlope, timeMillis);
+                beat = true;
+            }
+        }
+        mwiPrev2 = mwiPrev;
+        mwiPrev = mwi;
+        return beat;
+    }
+
+    private boolean classify(double peak, long peakIndex, double slope, long timeMillis) {
+        if (lastRIndex >= 0 && peakIndex - lastRIndex < tWaveWindow && slope < 0.5 * lastQrsSlope) {
+            npki = 0.125 * peak + 0.875 * npki;
+            return false;
+        }
+        spki = 0.125 * peak + 0.875 * spki;
+        accept(peakIndex, slope, timeMillis);
+        return true;
+    }
+
+    /** 在积分峰之前一个窗口（再加 50ms 滤波延迟余量）内找去基线后绝对值最大的点作为 R 峰 */
+    private void accept(long peakIndex, double slope, long timeMillis) {
+        long from = Math.max(peakIndex - window - sampleRateHz / 20, n - deviationMask);
+        if (lastRIndex >= 0) from = Math.max(from, lastRIndex + 1);
+        long rIndex = peakIndex;
+        float best = -1;
+        for (long i = from; i <= peakIndex; i++) {
+            float v = Math.abs(deviation[(int) (i & deviationMask)]);
+            if (v > best) {
+                best = v;
+                rIndex = i;
+            }
+        }
+        if (lastRIndex >= 0) {
+            int rr = (int) Math.round((rIndex - lastRIndex) * msPerSample);
+            lastRrMillis = rr;
+            if (rr >= MIN_RR_MS && rr <= MAX_RR_MS) {
+                if (rrCount == RR_HISTORY) {
+                    rrSum -= rrHistory[rrPos];
+                } else {
+                    rrCount++;
+                }
+                rrHistory[rrPos] = rr;
+                rrSum += rr;
+                rrPos = (rrPos + 1) % RR_HISTORY;
+                heartRateBpm = (int) Math.round(60_000.0 * rrCount / rrSum);
+            }
+        }
+        lastRIndex = rIndex;
+        lastQrsSlope = slope;
+        lastRPeakMillis = timeMillis - Math.round((n - rIndex) * msPerSample);
+        bestNoise = 0;
+        beatCount++;
+    }
+
+    /** 最近一个 R 峰的时间（毫秒）；尚未检出时为 -1 */
+    public long lastRPeakMillis() {
+        return lastRPeakMillis;
+    }
+
+    /** 最近两个 R 峰的间隔（毫秒）；不足两个时为 -1 */
+    public int lastRrMillis() {
+        return lastRrMillis;
+    }
+
+    /** 最近 8 个有效 RR 间期的平均心率；尚无有效 RR 时为 -1 */
+    public int heartRateBpm() {
+        return heartRateBpm;
+    }
+
+    public long beatCount() {
+        return beatCount;
+    }
+
+    /** 二阶 IIR（RBJ 公式，Q=0.707 即 Butterworth），直接 I 型 */
+    private static final class Biquad {
+        private final double b0, b1, b2, a1, a2;
+        private double x1, x2, y1, y2;
+
+        private Biquad(double b0, double b1, double b2, double a0, double a1, double a2) {
+            this.b0 = b0 / a0;
+            this.b1 = b1 / a0;
+            this.b2 = b2 / a0;
+            this.a1 = a1 / a0;
+            this.a2 = a2 / a0;
+        }
+
+        static Biquad lowPass(double cutoffHz, int sampleRateHz) {
+            double w0 = 2 * Math.PI * cutoffHz / sampleRateHz;
+            double cos = Math.cos(w0);
+            double alpha = Math.sin(w0) / (2 * Math.sqrt(0.5));
+            return new Biquad((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+        }
+
+        static Biquad highPass(double cutoffHz, int sampleRateHz) {
+            double w0 = 2 * Math.PI * cutoffHz / sampleRateHz;
+            double cos = Math.cos(w0);
+            double alpha = Math.sin(w0) / (2 * Math.sqrt(0.5));
+            return new Biquad((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+        }
+
+        /** 以稳态输入初始化，避免首个采样的直流阶跃引起振铃（仅对高通有意义，输出稳态为 0） */
+        void prime(double x) {
+            x1 = x2 = x;
+            y1 = y2 = 0;
+        }
+
+        double filter(double x) {
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            return y;
+        }
+    }
+}
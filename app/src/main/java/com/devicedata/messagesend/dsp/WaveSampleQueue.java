@@ -0,0 +1,89 @@
+package com.devicedata.messagesend.dsp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个波形通道的点队列，单生产者（BLE 线程）单消费者（发送线程），无锁。
+ * 以写入序号（代数）区分新旧：发送节拍只取代数比上次新的点，每个点恰好取出一次，
+ * 设备采样率与 250Hz 节拍不对齐时既不重复发送旧点，也不跳过新点。
+ * 消费者落后超过容量时跳过最旧的点并计入溢出数。
+ */
+public final class WaveSampleQueue {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int[] ring;
+    private final int mask;
+    /** 已写入的点数，即当前代数；生产者写槽位后以 lazySet 发布 */
+    private final AtomicLong written = new AtomicLong();
+
+    // 以下仅消费者访问
+    private long read;
+    private long overruns;
+    private int value;
+
+    public WaveSampleQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** capacity 须为 2 的幂 */
+    public WaveSampleQueue(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two >= 2");
+        }
+        ring = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /** 生产者：写入一点 */
+    public void push(int sample) {
+        long w = written.get();
+        ring[(int) (w & mask)] = sample;
+        written.lazySet(w + 1);
+    }
+
+    /** 消费者：有新点时取出最旧的一个并返回 true，由 {@link #value()} 读取 */
+    public boolean poll() {
+        while (true) {
+            long w = written.get();
+            if (read >= w) return false;
+            // 生产者可能正在写第 read + capacity 个点（与 read 同一槽位），提前一格视为溢出
+            if (w - read >= ring.length) {
+                long skipTo = w - ring.length + 1;
+                overruns += skipTo - read;
+                read = skipTo;
+            }
+            int v = ring[(int) (read & mask)];
+            if (written.get() - read >= ring.length) continue;
+            value = v;
+            read++;
+            return true;
+        }
+    }
+
+    public int value() {
+        return value;
+    }
+
+    /** 尚未取出的点数 */
+    public int available() {
+        return (int) Math.min(ring.length, written.get() - read);
+    }
+
+    /** 生产者写入的总点数 */
+    public long generation() {
+        return written.get();
+    }
+
+    /** 返回并清零自上次调用以来因消费者落后而跳过的点数 */
+    public long drainOverruns() {
+        long n = overruns;
+        overruns = 0;
+        return n;
+    }
+
+    /** 消费者：丢弃尚未取出的点（如重新开始发送时不补发旧点） */
+    public void skipAll() {
+        read = written.get();
+    }
+}
@@ -0,0 +1,78 @@
+package com.devicedata.messagesend.log;
+
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import com.devicedata.messagesend.R;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 日志列表适配器：数据是 {@link LogRingBuffer} 的快照，ListView 只为可见行创建/复用视图，
+ * 时间戳格式化也只发生在可见行上。仅在 UI 线程使用。
+ */
+public final class LogLineAdapter extends BaseAdapter {
+
+    private final LogRingBuffer.Entry[] entries;
+    private final LayoutInflater inflater;
+    private final int timestampColor;
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+    private final Date date = new Date();
+    private int count;
+
+    public LogLineAdapter(@NonNull LayoutInflater inflater, int capacity, int timestampColor) {
+        this.inflater = inflater;
+        this.entries = new LogRingBuffer.Entry[capacity];
+        this.timestampColor = timestampColor;
+    }
+
+    /** 从环形缓冲重新取快照并刷新列表 */
+    public void refreshFrom(@NonNull LogRingBuffer ring) {
+        count = ring.snapshot(entries);
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public LogRingBuffer.Entry getItem(int position) {
+        return entries[position];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return entries[position].seq;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = convertView != null
+                ? (TextView) convertView
+                : (TextView) inflater.inflate(R.layout.item_log_line, parent, false);
+        LogRingBuffer.Entry e = entries[position];
+        date.setTime(e.timeMillis);
+        String time = "[" + timeFormat.format(date) + "] ";
+        SpannableStringBuilder text = new SpannableStringBuilder(time).append(e.message);
+        text.setSpan(new ForegroundColorSpan(timestampColor), 0, time.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        view.setText(text);
+        return view;
+    }
+}
@@ -0,0 +1,76 @@
+package com.devicedata.messagesend.log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 定长日志环形缓冲：任意线程无锁写入，写满后覆盖最旧的一条；读取方（UI 线程）按需取快照。
+ * 写入只做一次自增与一次数组写，时间戳格式化推迟到真正显示时。
+ * 极端情况下（同一槽位的新旧两次写入交错）可能丢失一条，读取时按序号校验跳过，不会错位。
+ */
+public final class LogRingBuffer {
+
+    public static final class Entry {
+        public final long seq;
+        public final long timeMillis;
+        @NonNull
+        public final String message;
+
+        Entry(long seq, long timeMillis, @NonNull String message) {
+            this.seq = seq;
+            this.timeMillis = timeMillis;
+            this.message = message;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    /** capacity 向上取整为 2 的幂 */
+    public LogRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public void add(@NonNull String message) {
+        long seq = next.getAndIncrement();
+        slots.set((int) (seq & mask), new Entry(seq, System.currentTimeMillis(), message));
+    }
+
+    /** 累计写入条数，可用于判断是否有新日志 */
+    public long written() {
+        return next.get();
+    }
+
+    /**
+     * 按从旧到新的顺序把仍在缓冲内的日志拷入 out（长度不小于 {@link #capacity()}），返回条数。
+     * 尚未写完或已被覆盖的槽位跳过。
+     */
+    public int snapshot(@NonNull Entry[] out) {
+        if (out.length < capacity()) {
+            throw new IllegalArgumentException("out.length < capacity");
+        }
+        long end = next.get();
+        long start = Math.max(0, end - capacity());
+        int n = 0;
+        for (long seq = start; seq < end; seq++) {
+            Entry e = slots.get((int) (seq & mask));
+            if (e != null && e.seq == seq) {
+                out[n++] = e;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,115 @@
+package com.devicedata.messagesend.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * HDR 风格的对数-线性直方图：每个 2 的幂区间再等分 64 格，相对误差不超过 1/64，
+ * 覆盖 0 ~ Long.MAX_VALUE，固定约 30KB，记录时不分配内存。
+ * 单位由调用方决定（纳秒或微秒）。非线程安全：每个写线程持有一份，汇总时用 {@link #add}。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;       // 小于 128 的值逐个计数
+    private static final int HALF = SUB_COUNT >> 1;           // 之后每个 2 的幂区间 64 格
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS + 1) * HALF;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * 百分位值（0~100），返回所在格的上界并以实际最大值封顶；没有数据时返回 0。
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, Math.max(min, highestEquivalent(i)));
+            }
+        }
+        return max;
+    }
+
+    /** 累加另一份直方图 */
+    public void add(@NonNull LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        if (other.totalCount > 0) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        sum = 0;
+    }
+
+    /** 例如 "n=1000 p50=120 p90=180 p99=420 p99.9=900 max=1500" */
+    @NonNull
+    public String summary() {
+        return "n=" + totalCount
+                + " p50=" + valueAtPercentile(50)
+                + " p90=" + valueAtPercentile(90)
+                + " p99=" + valueAtPercentile(99)
+                + " p99.9=" + valueAtPercentile(99.9)
+                + " max=" + max;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - (SUB_BITS - 1);
+        int mantissa = (int) (value >>> shift);              // [64, 128)
+        return SUB_COUNT + (shift - 1) * HALF + (mantissa - HALF);
+    }
+
+    static long highestEquivalent(int index) {
+        if (index < SUB_COUNT) return index;
+        int offset = index - SUB_COUNT;
+        int shift = offset / HALF + 1;
+        long mantissa = HALF + offset % HALF;
+        long upper = ((mantissa + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,115 @@
+package com.devicedata.messagesend.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 端到端时延追踪：每 N 个读数抽样一个，按阶段记录到各自的 {@link LatencyHistogram}（微秒）。
+ * 阶段依次为：通知→解码、解码→汇总、汇总→发送循环取用（含主线程投递与等待 4ms 节拍）、
+ * 取用→入队（构造 JSON）、入队→写出 socket，以及通知→写出的总时延。
+ * {@link #begin} 只在 BLE 回调线程调用；其余方法线程安全。
+ */
+public final class LatencyTracer {
+
+    public enum Stage {
+        DECODE("通知→解码"),
+        AGGREGATE("解码→汇总"),
+        PICKUP("汇总→取用"),
+        ENQUEUE("取用→入队"),
+        WRITE("入队→写出"),
+        TOTAL("通知→写出");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final int sampleEvery;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    // 仅 BLE 回调线程访问
+    private int sinceLastSample;
+    private long nextId;
+    private long dropped;
+
+    /** @param sampleEvery 每多少个读数追踪一个，1 表示全部追踪 */
+    public LatencyTracer(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be >= 1");
+        }
+        this.sampleEvery = sampleEvery;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 汇总出一个读数后调用；未抽中时返回 null。
+     * 通知时刻的墙钟由 nanoTime 差值倒推，通知回调里不必额外取系统时间。
+     */
+    @Nullable
+    public SampleTrace begin(long notifyNanos, long decodeNanos, long aggregateNanos) {
+        if (++sinceLastSample < sampleEvery) {
+            return null;
+        }
+        sinceLastSample = 0;
+        long notifyEpochMillis = System.currentTimeMillis() - (System.nanoTime() - notifyNanos) / 1_000_000;
+        return new SampleTrace(this, ++nextId, notifyEpochMillis, notifyNanos, decodeNanos, aggregateNanos);
+    }
+
+    synchronized void complete(SampleTrace t) {
+        // 未经过的阶段（如通道不区分入队与写出）按上一时刻补齐，耗时记 0
+        long pickup = t.pickupNanos != 0 ? t.pickupNanos : t.aggregateNanos;
+        long enqueue = t.enqueueNanos != 0 ? t.enqueueNanos : pickup;
+        record(Stage.DECODE, t.decodeNanos - t.notifyNanos);
+        record(Stage.AGGREGATE, t.aggregateNanos - t.decodeNanos);
+        record(Stage.PICKUP, pickup - t.aggregateNanos);
+        record(Stage.ENQUEUE, enqueue - pickup);
+        record(Stage.WRITE, t.writeNanos - enqueue);
+        record(Stage.TOTAL, t.writeNanos - t.notifyNanos);
+    }
+
+    synchronized void recordDropped() {
+        dropped++;
+    }
+
+    private void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos / 1000);
+    }
+
+    /** 已完成追踪的样本数 */
+    public synchronized long completedCount() {
+        return histograms[Stage.TOTAL.ordinal()].count();
+    }
+
+    /** 被覆盖或随通道切换丢弃的样本数 */
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    /** 某阶段的时延百分位（微秒） */
+    public synchronized long valueAtPercentile(@NonNull Stage stage, double percentile) {
+        return histograms[stage.ordinal()].valueAtPercentile(percentile);
+    }
+
+    public synchronized void reset() {
+        for (LatencyHistogram h : histograms) {
+            h.reset();
+        }
+        dropped = 0;
+    }
+
+    /** 多行报告，每阶段一行，单位微秒 */
+    @NonNull
+    public synchronized String summary() {
+        StringBuilder sb = new StringBuilder("时延追踪(us) 完成 ")
+                .append(completedCount()).append("，丢弃 ").append(dropped);
+        for (Stage stage : STAGES) {
+            sb.append('\n').append(stage.label).append(' ').append(histograms[stage.ordinal()].summary());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package com.devicedata.messagesend.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 轻量指标注册表：计数器基于 {@link LongAdder}，热路径上一次无锁累加；
+ * 仪表（队列深度等）只在取快照时读取；直方图按线程分条，记录线程之间基本无竞争。
+ * 同名指标重复注册返回同一个实例。快照可格式化为界面文本或单行 line protocol。
+ */
+public final class MetricsRegistry {
+
+    public static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void inc() {
+            adder.increment();
+        }
+
+        public void add(long n) {
+            adder.add(n);
+        }
+
+        public long sum() {
+            return adder.sum();
+        }
+    }
+
+    /**
+     * 直方图：线程首次记录时轮流分到一个固定条带，每条一把几乎不争用的锁；取快照时合并。
+     * 条带数固定，上千个虚拟线程记录时内存也不会随线程数增长。
+     */
+    public static final class Histogram {
+        private static final int STRIPES = 4;
+        // 不用已弃用的 Thread.getId()；条带号在 0..STRIPES-1，装箱走 Integer 缓存，不分配
+        private static final AtomicInteger NEXT_STRIPE = new AtomicInteger();
+        private static final ThreadLocal<Integer> STRIPE =
+                ThreadLocal.withInitial(() -> NEXT_STRIPE.getAndIncrement() & (STRIPES - 1));
+
+        private final LatencyHistogram[] stripes = new LatencyHistogram[STRIPES];
+
+        Histogram() {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new LatencyHistogram();
+            }
+        }
+
+        public void record(long value) {
+            LatencyHistogram h = stripes[STRIPE.get()];
+            synchronized (h) {
+                h.record(value);
+            }
+        }
+
+        /** 合并后的副本 */
+        @NonNull
+        public LatencyHistogram snapshot() {
+            LatencyHistogram merged = new LatencyHistogram();
+            for (LatencyHistogram h : stripes) {
+                synchronized (h) {
+                    merged.add(h);
+                }
+            }
+            return merged;
+        }
+    }
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @NonNull
+    public Counter counter(@NonNull String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    @NonNull
+    public Histogram histogram(@NonNull String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /** 注册或替换仪表；supplier 在取快照的线程上调用 */
+    public void gauge(@NonNull String name, @NonNull LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public void removeGauge(@NonNull String name) {
+        gauges.remove(name);
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            values.put(e.getKey(), e.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            values.put(e.getKey(), e.getValue().getAsLong());
+        }
+        Map<String, LatencyHistogram> hist = new TreeMap<>();
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            hist.put(e.getKey(), e.getValue().snapshot());
+        }
+        return new Snapshot(System.currentTimeMillis(), values, hist);
+    }
+
+    /** 某一时刻的全部指标值；计数器为累计值，速率由两次快照相减得到 */
+    public static final class Snapshot {
+        public final long timeMillis;
+        private final Map<String, Long> values;
+        private final Map<String, LatencyHistogram> histograms;
+
+        Snapshot(long timeMillis, Map<String, Long> values, Map<String, LatencyHistogram> histograms) {
+            this.timeMillis = timeMillis;
+            this.values = values;
+            this.histograms = histograms;
+        }
+
+        /** 计数器或仪表的值，不存在时返回 0 */
+        public long value(@NonNull String name) {
+            Long v = values.get(name);
+            return v != null ? v : 0;
+        }
+
+        @NonNull
+        public LatencyHistogram histogram(@NonNull String name) {
+            LatencyHistogram h = histograms.get(name);
+            return h != null ? h : new LatencyHistogram();
+        }
+
+        /**
+         * InfluxDB line protocol，一个快照一行，时间戳为毫秒（写入时用 precision=ms）：
+         * {@code pipeline,device=AA:BB ble_notify=120i,...,send_us_p50=80i,send_us_p99=900i 1731420000000}
+         */
+        @NonNull
+        public String toLineProtocol(@NonNull String measurement, @NonNull Map<String, String> tags) {
+            StringBuilder sb = new StringBuilder(256).append(escape(measurement));
+            for (Map.Entry<String, String> tag : new TreeMap<>(tags).entrySet()) {
+                sb.append(',').append(escape(tag.getKey())).append('=').append(escape(tag.getValue()));
+            }
+            char sep = ' ';
+            for (Map.Entry<String, Long> e : values.entrySet()) {
+                sb.append(sep).append(escape(e.getKey())).append('=').append(e.getValue()).append('i');
+                sep = ',';
+            }
+            for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+                LatencyHistogram h = e.getValue();
+                String key = escape(e.getKey());
+                sb.append(sep).append(key).append("_n=").append(h.count()).append('i');
+                sep = ',';
+                sb.append(',').append(key).append("_p50=").append(h.valueAtPercentile(50)).append('i');
+                sb.append(',').append(key).append("_p99=").append(h.valueAtPercentile(99)).append('i');
+                sb.append(',').append(key).append("_max=").append(h.max()).append('i');
+            }
+            return sb.append(' ').append(timeMillis).toString();
+        }
+
+        /** 界面展示：每项一行；给出上一快照时计数器额外显示区间速率 */
+        @NonNull
+        public String format(@NonNull Snapshot previous) {
+            double seconds = Math.max(1, timeMillis - previous.timeMillis) / 1000.0;
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Long> e : values.entrySet()) {
+                long delta = e.getValue() - previous.value(e.getKey());
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(e.getKey()).append(' ').append(e.getValue());
+                if (delta != 0 && previous.values.containsKey(e.getKey())) {
+                    sb.append(String.format(Locale.US, " (%+.1f/s)", delta / seconds));
+                }
+            }
+            for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(e.getKey()).append(' ').append(e.getValue().summary());
+            }
+            return sb.toString();
+        }
+
+        private static String escape(String s) {
+            StringBuilder sb = null;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == ' ' || c == ',' || c == '=') {
+                    if (sb == null) sb = new StringBuilder(s.substring(0, i));
+                    sb.append('\\');
+                }
+                if (sb != null) sb.append(c);
+            }
+            return sb != null ? sb.toString() : s;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.devicedata.messagesend.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 采集与上送管线的进程级指标：BLE 收包、250Hz 发送循环、各上送通道。
+ * 计数器为静态常量，埋点处直接 inc()，不需要在各组件之间传递注册表。
+ */
+public final class PipelineMetrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    // BLE：通知、校验通过的包、校验失败、汇总出的读数
+    public static final MetricsRegistry.Counter BLE_NOTIFICATIONS = REGISTRY.counter("ble_notify");
+    public static final MetricsRegistry.Counter BLE_FRAMES = REGISTRY.counter("ble_frames");
+    public static final MetricsRegistry.Counter BLE_CHECKSUM_FAILURES = REGISTRY.counter("ble_checksum_fail");
+    public static final MetricsRegistry.Counter BLE_READINGS = REGISTRY.counter("ble_readings");
+    // BLE 断线重连：成功次数与断线前最后一个通知到重连后第一个通知的间隔（毫秒）
+    public static final MetricsRegistry.Counter BLE_RECONNECTS = REGISTRY.counter("ble_reconnects");
+    public static final MetricsRegistry.Histogram BLE_GAP_MILLIS = REGISTRY.histogram("ble_gap_ms");
+
+    // 扫描：硬件过滤后送到应用的广播数、软件过滤掉的广播数、设备列表刷新次数、开始扫描到发现新设备的耗时（毫秒）
+    public static final MetricsRegistry.Counter SCAN_RESULTS = REGISTRY.counter("scan_results");
+    public static final MetricsRegistry.Counter SCAN_IGNORED = REGISTRY.counter("scan_ignored");
+    public static final MetricsRegistry.Counter SCAN_LIST_UPDATES = REGISTRY.counter("scan_list_updates");
+    public static final MetricsRegistry.Histogram SCAN_DISCOVER_MILLIS = REGISTRY.histogram("scan_discover_ms");
+
+    // 报警：状态变化（触发与解除）次数、BLE 通知到报警判定完成的时延（微秒）
+    public static final MetricsRegistry.Counter ALARMS = REGISTRY.counter("alarms");
+    public static final MetricsRegistry.Histogram ALARM_MICROS = REGISTRY.histogram("alarm_us");
+
+    // 发送循环：构造的负载条数、transport.send() 耗时（微秒）、发送线程落后太多而跳过的波形点
+    public static final MetricsRegistry.Counter PAYLOADS_BUILT = REGISTRY.counter("payloads");
+    public static final MetricsRegistry.Counter WAVE_OVERRUNS = REGISTRY.counter("wave_overruns");
+    public static final MetricsRegistry.Histogram SEND_MICROS = REGISTRY.histogram("send_us");
+
+    // 发送节拍：相对 4ms 计划时刻的滞后（微秒）与相邻节拍间隔超过 20ms 的停顿次数，按亮屏/息屏分开
+    public static final MetricsRegistry.Histogram TICK_LAG_SCREEN_ON = REGISTRY.histogram("tick_lag_on_us");
+    public static final MetricsRegistry.Histogram TICK_LAG_SCREEN_OFF = REGISTRY.histogram("tick_lag_off_us");
+    public static final MetricsRegistry.Counter TICK_STALLS_SCREEN_ON = REGISTRY.counter("tick_stalls_on");
+    public static final MetricsRegistry.Counter TICK_STALLS_SCREEN_OFF = REGISTRY.counter("tick_stalls_off");
+
+    // 连接：BLE 连上到首个样本被服务端确认的耗时（毫秒）
+    public static final MetricsRegistry.Histogram FIRST_ACK_MILLIS = REGISTRY.histogram("first_ack_ms");
+
+    // 界面：渲染帧数与超过 1.5 个刷新周期的慢帧数
+    public static final MetricsRegistry.Counter UI_FRAMES = REGISTRY.counter("ui_frames");
+    public static final MetricsRegistry.Counter UI_SLOW_FRAMES = REGISTRY.counter("ui_slow_frames");
+
+    private static final Map<String, TransportCounters> TRANSPORTS = new ConcurrentHashMap<>();
+
+    private PipelineMetrics() {
+    }
+
+    /** 某个上送通道的计数器，名称前缀为 tx_{name}_ */
+    public static final class TransportCounters {
+        /** 交给 socket / 请求成功的条数 */
+        public final MetricsRegistry.Counter sent;
+        public final MetricsRegistry.Counter bytes;
+        /** 未能发出且不会再发的条数（写失败、关闭时仍在队列中等） */
+        public final MetricsRegistry.Counter drops;
+        public final MetricsRegistry.Counter reconnects;
+
+        TransportCounters(String prefix) {
+            sent = REGISTRY.counter(prefix + "sent");
+            bytes = REGISTRY.counter(prefix + "bytes");
+            drops = REGISTRY.counter(prefix + "drops");
+            reconnects = REGISTRY.counter(prefix + "reconnects");
+        }
+    }
+
+    /** 同名通道共用一组计数器（多台设备的 STOMP 通道累计到一起） */
+    @NonNull
+    public static TransportCounters transport(@NonNull String name) {
+        return TRANSPORTS.computeIfAbsent(name, n -> new TransportCounters("tx_" + n.toLowerCase(Locale.US) + "_"));
+    }
+}
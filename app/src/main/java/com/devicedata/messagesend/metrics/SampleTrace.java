@@ -0,0 +1,72 @@
+package com.devicedata.messagesend.metrics;
+
+/**
+ * 单个被抽样读数的打点记录：从 onCharacteristicChanged 触发开始，
+ * 依次记录解码、汇总、发送循环取用、进入发送通道、写出 socket 的时刻（nanoTime）。
+ * 各阶段在不同线程打点，前后两步之间经由 Handler 投递、volatile 字段或通道锁交接，无需额外同步。
+ * 写出后由 {@link #markWritten} 交给所属 {@link LatencyTracer} 计入直方图，只计一次。
+ */
+public final class SampleTrace {
+
+    /** 抽样序号，随负载上送（traceId），便于与服务端日志对应 */
+    public final long id;
+    /** 通知到达时的墙钟时间（毫秒），随负载上送（tNotify） */
+    public final long notifyEpochMillis;
+
+    final long notifyNanos;
+    final long decodeNanos;
+    final long aggregateNanos;
+    long pickupNanos;
+    long enqueueNanos;
+    long writeNanos;
+
+    private final LatencyTracer tracer;
+    private boolean finished;
+
+    SampleTrace(LatencyTracer tracer, long id, long notifyEpochMillis,
+                long notifyNanos, long decodeNanos, long aggregateNanos) {
+        this.tracer = tracer;
+        this.id = id;
+        this.notifyEpochMillis = notifyEpochMillis;
+        this.notifyNanos = notifyNanos;
+        this.decodeNanos = decodeNanos;
+        this.aggregateNanos = aggregateNanos;
+    }
+
+    /** 发送循环取到该读数、开始构造负载 */
+    public void markPickedUp() {
+        markPickedUp(System.nanoTime());
+    }
+
+    /** 负载交给发送通道（StompWebSocketClient 入队或直写之前） */
+    public void markEnqueued() {
+        markEnqueued(System.nanoTime());
+    }
+
+    /** 负载已交给 socket，计入直方图 */
+    public void markWritten() {
+        markWritten(System.nanoTime());
+    }
+
+    /** 被后续读数覆盖或随通道切换丢弃，不计入直方图 */
+    public void discard() {
+        if (finished) return;
+        finished = true;
+        tracer.recordDropped();
+    }
+
+    void markPickedUp(long nanos) {
+        pickupNanos = nanos;
+    }
+
+    void markEnqueued(long nanos) {
+        enqueueNanos = nanos;
+    }
+
+    void markWritten(long nanos) {
+        if (finished) return;
+        finished = true;
+        writeNanos = nanos;
+        tracer.complete(this);
+    }
+}
@@ -0,0 +1,63 @@
+package com.devicedata.messagesend.model;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * {@link VitalsReading} 中的各个通道，按整数取值（体温按 0.1℃，读取时除以 {@link #scale}）。
+ * 历史存储的列、报警规则的输入都按这里的通道划分。
+ */
+public enum VitalsChannel {
+    ECG_WAVE(1),
+    RESP_WAVE(1),
+    SPO2_WAVE(1),
+    ECG_HEART_RATE(1),
+    RESPIRATION_RATE(1),
+    SYSTOLIC(1),
+    DIASTOLIC(1),
+    MEAN_ARTERIAL_PRESSURE(1),
+    BLOOD_OXYGEN(1),
+    PULSE_RATE(1),
+    TEMPERATURE(10),
+    DERIVED_HEART_RATE(1);
+
+    /** 列中整数值 = 实际值 × scale */
+    public final int scale;
+
+    VitalsChannel(int scale) {
+        this.scale = scale;
+    }
+
+    /** {@link #intValue} 表示缺测的返回值 */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    /**
+     * 该通道在读数中的整数值，缺失时返回 {@link #MISSING}；不装箱，热路径可用。
+     * SPO2_WAVE 优先取单独传入的波形点，否则取读数中血氧波形的最后一点。
+     */
+    public int intValue(VitalsReading r, @Nullable Integer spo2WavePoint) {
+        switch (this) {
+            case ECG_WAVE: return orMissing(r.ecgWave);
+            case RESP_WAVE: return orMissing(r.respWave);
+            case SPO2_WAVE:
+                if (spo2WavePoint != null) return spo2WavePoint;
+                List<Integer> wave = r.spo2Waveform;
+                return wave != null && !wave.isEmpty() ? orMissing(wave.get(wave.size() - 1)) : MISSING;
+            case ECG_HEART_RATE: return orMissing(r.ecgHeartRate);
+            case RESPIRATION_RATE: return orMissing(r.respirationRate);
+            case SYSTOLIC: return orMissing(r.systolic);
+            case DIASTOLIC: return orMissing(r.diastolic);
+            case MEAN_ARTERIAL_PRESSURE: return orMissing(r.meanArterialPressure);
+            case BLOOD_OXYGEN: return orMissing(r.bloodOxygen);
+            case PULSE_RATE: return orMissing(r.pulseRate);
+            case TEMPERATURE: return r.temperature != null ? (int) Math.round(r.temperature * 10) : MISSING;
+            case DERIVED_HEART_RATE: return orMissing(r.derivedHeartRate);
+            default: return MISSING;
+        }
+    }
+
+    private static int orMissing(@Nullable Integer value) {
+        return value != null ? value : MISSING;
+    }
+}
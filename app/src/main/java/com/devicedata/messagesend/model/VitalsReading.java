@@ -33,6 +33,14 @@ public class VitalsReading {
     public final List<Integer> spo2Waveform;
     @Nullable
     public final Integer respWave;
+    /** 本地 QRS 检测结果：R 峰时间（毫秒）与 RR 间期，仅检出 R 峰的那条读数上非空 */
+    @Nullable
+    public final Long rPeakTimestamp;
+    @Nullable
+    public final Integer rrInterval;
+    /** 由最近若干 RR 间期推算的心率 */
+    @Nullable
+    public final Integer derivedHeartRate;
 
     public VitalsReading(long timestamp,
                          @Nullable Integer ecgWave,
@@ -46,6 +54,25 @@ public class VitalsReading {
                          @Nullable Double temperature,
                          @Nullable List<Integer> spo2Waveform,
                          @Nullable Integer respWave) {
+        this(timestamp, ecgWave, ecgHeartRate, respirationRate, systolic, diastolic, meanArterialPressure,
+                bloodOxygen, pulseRate, temperature, spo2Waveform, respWave, null, null, null);
+    }
+
+    public VitalsReading(long timestamp,
+                         @Nullable Integer ecgWave,
+                         @Nullable Integer ecgHeartRate,
+                         @Nullable Integer respirationRate,
+                         @Nullable Integer systolic,
+                         @Nullable Integer diastolic,
+                         @Nullable Integer meanArterialPressure,
+                         @Nullable Integer bloodOxygen,
+                         @Nullable Integer pulseRate,
+                         @Nullable Double temperature,
+                         @Nullable List<Integer> spo2Waveform,
+                         @Nullable Integer respWave,
+                         @Nullable Long rPeakTimestamp,
+                         @Nullable Integer rrInterval,
+                         @Nullable Integer derivedHeartRate) {
         this.timestamp = timestamp;
         this.ecgWave = ecgWave;
         this.ecgHeartRate = ecgHeartRate;
@@ -58,6 +85,9 @@ public class VitalsReading {
         this.temperature = temperature;
         this.spo2Waveform = spo2Waveform != null ? Collections.unmodifiableList(spo2Waveform) : null;
         this.respWave = respWave;
+        this.rPeakTimestamp = rPeakTimestamp;
+        this.rrInterval = rrInterval;
+        this.derivedHeartRate = derivedHeartRate;
     }
 
     public boolean isWaveformOnly() {
@@ -0,0 +1,214 @@
+package com.devicedata.messagesend.stomp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 客户端与服务端的时钟偏差估计（NTP 方式），经 STOMP 交换带时间戳的探测：
+ * - 客户端 SEND {@link #DESTINATION}，头 {@code sync-id:N}；服务端在 /data/pub/response 上回 MESSAGE，
+ *   头 {@code type:time}，消息体见 {@link #responseBody}，t1/t2 为服务端收到、发出时刻（毫秒）
+ * - 每个样本：偏差 θ = ((t1 − t0) + (t2 − t3)) / 2，往返 δ = (t3 − t0) − (t2 − t1)，θ 的误差不超过 δ/2
+ * - 最近 8 个样本中选 δ/2 + 漂移上界 × 样本年龄 最小的一个（min-RTT 选择，排队被拉长的样本自然落选）
+ * - 历次选中的样本做最小二乘得到漂移，跨度满 60 秒后用于外推；不确定度 = δ/2 + 漂移上界 × 距选中样本的时长。
+ *   漂移上界在估出漂移前取 100ppm（手机晶振误差），之后取 15ppm（同 NTP 的 PHI）
+ * 本地时间取单调时钟（nanoTime），不受系统改时影响。写入加锁，读取无锁（发布不可变快照）。
+ */
+public final class ClockOffsetEstimator {
+
+    public static final String DESTINATION = "/data/time";
+    public static final String SYNC_ID_HEADER = "sync-id";
+    public static final String TYPE_HEADER = "type";
+    public static final String TYPE_TIME = "time";
+
+    static final int WINDOW = 8;
+    static final int HISTORY = 16;
+    /** 尚未估出漂移时的上界 */
+    static final double UNKNOWN_DRIFT = 100e-6;
+    /** 按估出的漂移外推后剩余误差的上界 */
+    static final double RESIDUAL_DRIFT = 15e-6;
+    static final double MIN_SKEW_SPAN_MS = 60_000;
+    static final double MAX_SKEW = 500e-6;
+
+    /** 当前估计：选中样本的本地时刻、偏差、往返与漂移 */
+    private static final class Estimate {
+        final double localMs;
+        final double offsetMs;
+        final double delayMs;
+        final double skew;
+
+        Estimate(double localMs, double offsetMs, double delayMs, double skew) {
+            this.localMs = localMs;
+            this.offsetMs = offsetMs;
+            this.delayMs = delayMs;
+            this.skew = skew;
+        }
+    }
+
+    private final double[] winLocal = new double[WINDOW];
+    private final double[] winOffset = new double[WINDOW];
+    private final double[] winDelay = new double[WINDOW];
+    private int winCount;
+    private int winNext;
+    private final double[] histLocal = new double[HISTORY];
+    private final double[] histOffset = new double[HISTORY];
+    private int histCount;
+    private int histNext;
+    private long samples;
+    private long rejected;
+    private volatile Estimate estimate;
+
+    /** 服务端对一次探测的回复（MESSAGE 消息体） */
+    @NonNull
+    public static String responseBody(long syncId, long t1Millis, long t2Millis) {
+        return "{\"id\":" + syncId + ",\"t1\":" + t1Millis + ",\"t2\":" + t2Millis + "}";
+    }
+
+    /** 解析 {@link #responseBody} 格式的回复，返回 {id, t1, t2}；缺字段时返回 null */
+    @Nullable
+    public static long[] parseResponse(@NonNull String body) {
+        long id = longField(body, "\"id\"");
+        long t1 = longField(body, "\"t1\"");
+        long t2 = longField(body, "\"t2\"");
+        if (id == Long.MIN_VALUE || t1 == Long.MIN_VALUE || t2 == Long.MIN_VALUE) return null;
+        return new long[]{id, t1, t2};
+    }
+
+    private static long longField(String body, String key) {
+        int i = body.indexOf(key);
+        if (i < 0) return Long.MIN_VALUE;
+        i += key.length();
+        int n = body.length();
+        while (i < n && (body.charAt(i) == ':' || body.charAt(i) == ' ')) i++;
+        int end = i;
+        if (end < n && body.charAt(end) == '-') end++;
+        while (end < n && Character.isDigit(body.charAt(end))) end++;
+        try {
+            return Long.parseLong(body.substring(i, end));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * 加入一个样本。
+     *
+     * @param t0Nanos 客户端发出探测的本地时刻（nanoTime）
+     * @param t1Millis 服务端收到探测的时刻
+     * @param t2Millis 服务端发出回复的时刻
+     * @param t3Nanos 客户端收到回复的本地时刻（nanoTime）
+     * @return 样本是否被采纳；时间戳自相矛盾的样本被丢弃
+     */
+    public synchronized boolean addSample(long t0Nanos, long t1Millis, long t2Millis, long t3Nanos) {
+        if (t3Nanos < t0Nanos || t2Millis < t1Millis) {
+            rejected++;
+            return false;
+        }
+        double t0 = t0Nanos / 1e6;
+        double t3 = t3Nanos / 1e6;
+        // 服务端时间戳只到毫秒，往返很短时可能算出负值
+        double delay = Math.max(0, (t3 - t0) - (t2Millis - t1Millis));
+        double offset = ((t1Millis - t0) + (t2Millis - t3)) / 2;
+        winLocal[winNext] = t3;
+        winOffset[winNext] = offset;
+        winDelay[winNext] = delay;
+        winNext = (winNext + 1) % WINDOW;
+        if (winCount < WINDOW) winCount++;
+        samples++;
+
+        Estimate current = estimate;
+        double drift = driftBound(current);
+        int best = -1;
+        double bestError = Double.MAX_VALUE;
+        for (int i = 0; i < winCount; i++) {
+            double error = winDelay[i] / 2 + drift * (t3 - winLocal[i]);
+            if (error <= bestError) {
+                bestError = error;
+                best = i;
+            }
+        }
+        if (current == null || current.localMs != winLocal[best]) {
+            histLocal[histNext] = winLocal[best];
+            histOffset[histNext] = winOffset[best];
+            histNext = (histNext + 1) % HISTORY;
+            if (histCount < HISTORY) histCount++;
+            estimate = new Estimate(winLocal[best], winOffset[best], winDelay[best], fitSkew());
+        }
+        return true;
+    }
+
+    /** 选中样本的偏差随时间的最小二乘斜率；跨度不足时为 0 */
+    private double fitSkew() {
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < histCount; i++) {
+            minX = Math.min(minX, histLocal[i]);
+            maxX = Math.max(maxX, histLocal[i]);
+            meanX += histLocal[i];
+            meanY += histOffset[i];
+        }
+        if (histCount < 3 || maxX - minX < MIN_SKEW_SPAN_MS) return 0;
+        meanX /= histCount;
+        meanY /= histCount;
+        double sxy = 0;
+        double sxx = 0;
+        for (int i = 0; i < histCount; i++) {
+            double dx = histLocal[i] - meanX;
+            sxy += dx * (histOffset[i] - meanY);
+            sxx += dx * dx;
+        }
+        double skew = sxy / sxx;
+        return Math.max(-MAX_SKEW, Math.min(MAX_SKEW, skew));
+    }
+
+    public boolean hasEstimate() {
+        return estimate != null;
+    }
+
+    /** 本地单调时刻对应的服务端时间（毫秒）；尚无估计时返回 -1 */
+    public long toServerMillis(long localNanos) {
+        Estimate e = estimate;
+        if (e == null) return -1;
+        double local = localNanos / 1e6;
+        return Math.round(local + e.offsetMs + e.skew * (local - e.localMs));
+    }
+
+    /** 服务端时间减本机系统时间（毫秒），用于修正本机时间戳；尚无估计时为 0 */
+    public long wallClockCorrectionMillis() {
+        if (estimate == null) return 0;
+        return toServerMillis(System.nanoTime()) - System.currentTimeMillis();
+    }
+
+    /** 当前估计的误差上界（微秒）；尚无估计时返回 -1 */
+    public long uncertaintyMicros(long nowNanos) {
+        Estimate e = estimate;
+        if (e == null) return -1;
+        double ageMs = Math.max(0, nowNanos / 1e6 - e.localMs);
+        return Math.round((e.delayMs / 2 + driftBound(e) * ageMs) * 1000);
+    }
+
+    private static double driftBound(@Nullable Estimate e) {
+        return e != null && e.skew != 0 ? RESIDUAL_DRIFT : UNKNOWN_DRIFT;
+    }
+
+    /** 本机时钟相对服务端的漂移（ppm，正值表示服务端走得更快） */
+    public double skewPpm() {
+        Estimate e = estimate;
+        return e != null ? e.skew * 1e6 : 0;
+    }
+
+    /** 选中样本的往返时延（毫秒）；尚无估计时返回 -1 */
+    public double selectedDelayMillis() {
+        Estimate e = estimate;
+        return e != null ? e.delayMs : -1;
+    }
+
+    public synchronized long samples() {
+        return samples;
+    }
+
+    public synchronized long rejected() {
+        return rejected;
+    }
+}
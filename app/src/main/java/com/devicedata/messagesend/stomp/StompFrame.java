@@ -0,0 +1,190 @@
+package com.devicedata.messagesend.stomp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 可复用的 STOMP 帧结构：由 {@link StompFrameParser} 反复填充，
+ * 头部以字符区间存放在同一块缓冲区内，只有调用方真正读取时才生成 String。
+ * 注意：回调返回后实例会被下一帧覆盖，需要保留的内容请自行拷贝。
+ */
+public final class StompFrame {
+
+    private String command = "";
+    private char[] chars = new char[256];
+    private int charCount;
+    // 每个 header 占 4 个 int：nameStart, nameEnd, valueStart, valueEnd
+    private int[] spans = new int[4 * 8];
+    private int headerCount;
+    private final StringBuilder body = new StringBuilder();
+    private boolean bodySkipped;
+    private int bodyBytes;
+
+    @NonNull
+    public String command() {
+        return command;
+    }
+
+    public int headerCount() {
+        return headerCount;
+    }
+
+    @NonNull
+    public String headerName(int index) {
+        int base = index * 4;
+        return new String(chars, spans[base], spans[base + 1] - spans[base]);
+    }
+
+    @NonNull
+    public String headerValue(int index) {
+        int base = index * 4;
+        return new String(chars, spans[base + 2], spans[base + 3] - spans[base + 2]);
+    }
+
+    /** 重复 header 以第一次出现为准（STOMP 1.2 规定） */
+    @Nullable
+    public String header(@NonNull String name) {
+        int index = indexOf(name);
+        return index >= 0 ? headerValue(index) : null;
+    }
+
+    public boolean hasHeader(@NonNull String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /** 解析数值型 header，不存在或非法时返回 defaultValue，不产生临时 String */
+    public long headerAsLong(@NonNull String name, long defaultValue) {
+        int index = indexOf(name);
+        if (index < 0) return defaultValue;
+        int base = index * 4;
+        int start = spans[base + 2];
+        int end = spans[base + 3];
+        if (start == end) return defaultValue;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') return defaultValue;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /** 消息体；若解析时按策略跳过了消息体，返回空串 */
+    @NonNull
+    public String body() {
+        return body.toString();
+    }
+
+    @NonNull
+    public CharSequence bodyChars() {
+        return body;
+    }
+
+    public boolean isBodySkipped() {
+        return bodySkipped;
+    }
+
+    /** 消息体的 UTF-8 字节数（跳过时同样统计） */
+    public int bodyLength() {
+        return bodyBytes;
+    }
+
+    private int indexOf(String name) {
+        int len = name.length();
+        for (int h = 0; h < headerCount; h++) {
+            int base = h * 4;
+            int start = spans[base];
+            if (spans[base + 1] - start != len) continue;
+            boolean match = true;
+            for (int i = 0; i < len; i++) {
+                if (chars[start + i] != name.charAt(i)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) return h;
+        }
+        return -1;
+    }
+
+    // ---- 以下供解析器填充 ----
+
+    void reset() {
+        command = "";
+        charCount = 0;
+        headerCount = 0;
+        body.setLength(0);
+        bodySkipped = false;
+        bodyBytes = 0;
+    }
+
+    void setCommand(String command) {
+        this.command = command;
+    }
+
+    int mark() {
+        return charCount;
+    }
+
+    void appendChar(char c) {
+        if (charCount == chars.length) {
+            char[] grown = new char[chars.length * 2];
+            System.arraycopy(chars, 0, grown, 0, charCount);
+            chars = grown;
+        }
+        chars[charCount++] = c;
+    }
+
+    void appendChars(char[] src, int offset, int count) {
+        if (charCount + count > chars.length) {
+            char[] grown = new char[Math.max(chars.length * 2, charCount + count)];
+            System.arraycopy(chars, 0, grown, 0, charCount);
+            chars = grown;
+        }
+        System.arraycopy(src, offset, chars, charCount, count);
+        charCount += count;
+    }
+
+    void addHeader(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        int base = headerCount * 4;
+        if (base + 4 > spans.length) {
+            int[] grown = new int[spans.length * 2];
+            System.arraycopy(spans, 0, grown, 0, spans.length);
+            spans = grown;
+        }
+        spans[base] = nameStart;
+        spans[base + 1] = nameEnd;
+        spans[base + 2] = valueStart;
+        spans[base + 3] = valueEnd;
+        headerCount++;
+    }
+
+    /** 丢弃 mark 之后的字符（命令行解析完后回收缓冲区） */
+    void truncate(int mark) {
+        charCount = mark;
+    }
+
+    boolean regionMatches(int start, String s) {
+        if (start + s.length() > charCount) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (chars[start + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    String region(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    StringBuilder bodyBuffer() {
+        return body;
+    }
+
+    void setBodySkipped(boolean skipped) {
+        bodySkipped = skipped;
+    }
+
+    void setBodyLength(int bytes) {
+        bodyBytes = bytes;
+    }
+}
@@ -0,0 +1,348 @@
+package com.devicedata.messagesend.stomp;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 增量式 STOMP 1.2 帧解析器（非线程安全，每条连接一个实例）。
+ * - 一条 WebSocket 消息可以包含多帧，一帧也可以跨多条消息，状态在 feed() 之间保留
+ * - 支持 content-length（按 UTF-8 字节计数），没有时以 NUL 结束
+ * - 帧之间的换行视为心跳
+ * - 头部值按 1.2 规则反转义（CONNECT/CONNECTED 帧除外）
+ * - 可通过 {@link BodyPolicy} 在头部解析完后决定是否保留消息体，不需要时直接跳过
+ */
+public final class StompFrameParser {
+
+    public interface Handler {
+        /** frame 在回调返回后会被复用 */
+        void onFrame(@NonNull StompFrame frame);
+
+        void onHeartBeat();
+    }
+
+    public interface BodyPolicy {
+        boolean wantsBody(@NonNull StompFrame frame);
+    }
+
+    public static final int DEFAULT_MAX_FRAME_CHARS = 1 << 20;
+
+    private static final String[] COMMANDS = {
+            "CONNECTED", "MESSAGE", "RECEIPT", "ERROR",
+            "CONNECT", "STOMP", "SEND", "SUBSCRIBE", "UNSUBSCRIBE",
+            "ACK", "NACK", "BEGIN", "COMMIT", "ABORT", "DISCONNECT"
+    };
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_COMMAND = 1;
+    private static final int STATE_HEADER = 2;
+    private static final int STATE_BODY = 3;
+    private static final int STATE_END = 4;
+
+    private final Handler handler;
+    private final StompFrame frame = new StompFrame();
+    private BodyPolicy bodyPolicy = f -> true;
+    private int maxFrameChars = DEFAULT_MAX_FRAME_CHARS;
+
+    private int state = STATE_IDLE;
+    private boolean pendingCr;
+    private boolean escape;
+    private boolean unescapeHeaders;
+    private int lineStart;
+    private int colon = -1;
+    private int frameChars;
+    private long contentLength;
+    private long bodyBytes;
+    private boolean keepBody;
+    private char highSurrogate;
+    private char[] scratch = new char[512];
+
+    public StompFrameParser(@NonNull Handler handler) {
+        this.handler = handler;
+    }
+
+    public void setBodyPolicy(@NonNull BodyPolicy policy) {
+        this.bodyPolicy = policy;
+    }
+
+    public void setMaxFrameChars(int maxFrameChars) {
+        if (maxFrameChars <= 0) throw new IllegalArgumentException("maxFrameChars must be > 0");
+        this.maxFrameChars = maxFrameChars;
+    }
+
+    /** 丢弃半帧状态，例如连接重建后 */
+    public void reset() {
+        state = STATE_IDLE;
+        pendingCr = false;
+        escape = false;
+        colon = -1;
+        frameChars = 0;
+        highSurrogate = 0;
+        frame.reset();
+    }
+
+    /**
+     * 输入一段字符，完整的帧会同步回调给 Handler。
+     *
+     * @throws IllegalStateException 帧格式错误或超过大小上限，解析器已重置，可继续输入后续数据
+     */
+    public void feed(@NonNull CharSequence chunk) {
+        int len = chunk.length();
+        // 拷贝到复用的 char[]，后续按区间批量扫描，避免逐字符接口调用
+        if (scratch.length < len) {
+            scratch = new char[Math.max(len, scratch.length * 2)];
+        }
+        if (chunk instanceof String) {
+            ((String) chunk).getChars(0, len, scratch, 0);
+        } else {
+            for (int k = 0; k < len; k++) scratch[k] = chunk.charAt(k);
+        }
+        feed(scratch, 0, len);
+    }
+
+    /** 输入字符区间，语义同 {@link #feed(CharSequence)} */
+    public void feed(@NonNull char[] buf, int offset, int length) {
+        int len = offset + length;
+        int i = offset;
+        try {
+            while (i < len) {
+                switch (state) {
+                    case STATE_IDLE: {
+                        char c = buf[i++];
+                        if (c == '\n') {
+                            handler.onHeartBeat();
+                        } else if (c != '\r' && c != '\0') {
+                            frame.reset();
+                            frameChars = 0;
+                            pendingCr = false;
+                            state = STATE_COMMAND;
+                            appendFrameChar(c);
+                        }
+                        break;
+                    }
+                    case STATE_COMMAND:
+                    case STATE_HEADER:
+                        i = consumeLines(buf, i, len);
+                        break;
+                    case STATE_BODY:
+                        i = consumeBody(buf, i, len);
+                        break;
+                    case STATE_END:
+                        if (buf[i++] != '\0') {
+                            throw new IllegalStateException("STOMP frame missing NUL after content-length body");
+                        }
+                        finishFrame();
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown parser state " + state);
+                }
+            }
+        } catch (IllegalStateException e) {
+            reset();
+            throw e;
+        }
+    }
+
+    /** 命令行与头部行：普通字符整段拷贝，只有控制字符逐个处理 */
+    private int consumeLines(char[] buf, int i, int len) {
+        int run = i;
+        // 上一段输入停在 \r 或转义符之后，先逐字符处理完
+        while ((pendingCr || escape) && i < len) {
+            onLineChar(buf[i++]);
+            run = i;
+            if (state != STATE_COMMAND && state != STATE_HEADER) return i;
+        }
+        while (i < len) {
+            char c = buf[i];
+            if (c == '\n' || c == '\r' || c == '\\' || c == ':') {
+                appendFrameChars(buf, run, i - run);
+                onLineChar(c);
+                i++;
+                while ((pendingCr || escape) && i < len) {
+                    onLineChar(buf[i++]);
+                }
+                run = i;
+                if (state != STATE_COMMAND && state != STATE_HEADER) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        appendFrameChars(buf, run, i - run);
+        return i;
+    }
+
+    private void onLineChar(char c) {
+        if (state == STATE_COMMAND) {
+            onCommandChar(c);
+        } else {
+            onHeaderChar(c);
+        }
+    }
+
+    private void onCommandChar(char c) {
+        if (c == '\n') {
+            int end = frame.mark();
+            pendingCr = false;
+            frame.setCommand(internCommand(end));
+            frame.truncate(0);
+            unescapeHeaders = !"CONNECT".equals(frame.command()) && !"CONNECTED".equals(frame.command());
+            startHeaderLine();
+            state = STATE_HEADER;
+            return;
+        }
+        if (pendingCr) {
+            appendFrameChar('\r');
+            pendingCr = false;
+        }
+        if (c == '\r') {
+            pendingCr = true;
+        } else {
+            appendFrameChar(c);
+        }
+    }
+
+    private void onHeaderChar(char c) {
+        if (c == '\n') {
+            pendingCr = false;
+            if (escape) throw new IllegalStateException("STOMP header ends inside escape sequence");
+            int end = frame.mark();
+            if (end == lineStart) {
+                beginBody();
+                return;
+            }
+            if (colon >= 0) {
+                frame.addHeader(lineStart, colon, colon, end);
+            }
+            // 没有冒号的行不符合规范，宽松处理：忽略
+            startHeaderLine();
+            return;
+        }
+        if (pendingCr) {
+            appendFrameChar('\r');
+            pendingCr = false;
+        }
+        if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n': appendFrameChar('\n'); break;
+                case 'r': appendFrameChar('\r'); break;
+                case 'c': appendFrameChar(':'); break;
+                case '\\': appendFrameChar('\\'); break;
+                default: throw new IllegalStateException("invalid STOMP header escape \\" + c);
+            }
+            return;
+        }
+        if (c == '\r') {
+            pendingCr = true;
+        } else if (c == '\\' && unescapeHeaders) {
+            escape = true;
+        } else if (c == ':' && colon < 0) {
+            colon = frame.mark();
+        } else {
+            appendFrameChar(c);
+        }
+    }
+
+    private void startHeaderLine() {
+        lineStart = frame.mark();
+        colon = -1;
+        escape = false;
+    }
+
+    private void beginBody() {
+        contentLength = frame.headerAsLong("content-length", -1);
+        bodyBytes = 0;
+        highSurrogate = 0;
+        keepBody = bodyPolicy.wantsBody(frame);
+        frame.setBodySkipped(!keepBody);
+        state = contentLength == 0 ? STATE_END : STATE_BODY;
+    }
+
+    private int consumeBody(char[] buf, int i, int len) {
+        int start = i;
+        if (contentLength < 0) {
+            // 无 content-length：读到 NUL 为止
+            while (i < len && buf[i] != '\0') {
+                i++;
+            }
+            countBodyChars(buf, start, i);
+            if (keepBody) frame.bodyBuffer().append(buf, start, i - start);
+            if (i < len) {
+                finishFrame();
+                return i + 1;
+            }
+            return i;
+        }
+        while (i < len && bodyBytes < contentLength) {
+            char c = buf[i++];
+            if (c < 0x80) {
+                bodyBytes++;
+            } else {
+                countBodyChar(c);
+            }
+        }
+        checkFrameSize(i - start);
+        if (keepBody) frame.bodyBuffer().append(buf, start, i - start);
+        if (bodyBytes >= contentLength) {
+            state = STATE_END;
+        }
+        return i;
+    }
+
+    private void countBodyChars(char[] buf, int start, int end) {
+        checkFrameSize(end - start);
+        for (int k = start; k < end; k++) {
+            countBodyChar(buf[k]);
+        }
+    }
+
+    /** 按 UTF-8 编码长度统计消息体字节数，代理对计 4 字节 */
+    private void countBodyChar(char c) {
+        if (c < 0x80) {
+            bodyBytes += 1;
+        } else if (c < 0x800) {
+            bodyBytes += 2;
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c) && highSurrogate != 0) {
+            bodyBytes += 4;
+            highSurrogate = 0;
+        } else {
+            bodyBytes += 3;
+        }
+    }
+
+    private void finishFrame() {
+        frame.setBodyLength((int) bodyBytes);
+        state = STATE_IDLE;
+        handler.onFrame(frame);
+        frame.reset();
+    }
+
+    private void appendFrameChar(char c) {
+        checkFrameSize(1);
+        frame.appendChar(c);
+    }
+
+    private void appendFrameChars(char[] buf, int start, int count) {
+        if (count == 0) return;
+        checkFrameSize(count);
+        frame.appendChars(buf, start, count);
+    }
+
+    private void checkFrameSize(int added) {
+        frameChars += added;
+        if (frameChars > maxFrameChars) {
+            throw new IllegalStateException("STOMP frame exceeds " + maxFrameChars + " chars");
+        }
+    }
+
+    private String internCommand(int end) {
+        for (String candidate : COMMANDS) {
+            if (candidate.length() == end && frame.regionMatches(0, candidate)) {
+                return candidate;
+            }
+        }
+        return frame.region(0, end);
+    }
+}
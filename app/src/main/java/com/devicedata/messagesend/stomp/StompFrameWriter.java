@@ -0,0 +1,40 @@
+package com.devicedata.messagesend.stomp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 出站 SEND 帧拼装：帧头按目的地预拼一次，每条数据只追加可选 receipt 头与消息体，
+ * 调用方复用同一个 StringBuilder，热路径上只有最终 toString 一次分配。
+ */
+public final class StompFrameWriter {
+
+    private StompFrameWriter() {
+    }
+
+    /** 预拼的 SEND 帧头（不含结束空行） */
+    @NonNull
+    public static String sendHeaders(@NonNull String destination) {
+        return "SEND\n"
+                + "destination:" + destination + "\n"
+                + "content-type:application/json\n";
+    }
+
+    /**
+     * 清空 sb 并写入完整 SEND 帧：帧头、可选 receipt:{prefix}{id}、空行、消息体、NUL。
+     * receiptPrefix 为 null 时不带回执。
+     */
+    @NonNull
+    public static StringBuilder appendSend(@NonNull StringBuilder sb,
+                                           @NonNull String headers,
+                                           @Nullable String receiptPrefix,
+                                           long receiptId,
+                                           @NonNull String body) {
+        sb.setLength(0);
+        sb.append(headers);
+        if (receiptPrefix != null) {
+            sb.append("receipt:").append(receiptPrefix).append(receiptId).append('\n');
+        }
+        return sb.append('\n').append(body).append('\u0000');
+    }
+}
@@ -0,0 +1,380 @@
+package com.devicedata.messagesend.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最近若干小时生命体征的本地列式环形存储，文件整体内存映射。
+ * 按块组织：每块 blockRows 行，块内为列存——一列相对块首的毫秒时间偏移（int），
+ * 每个通道一列 short；另有块摘要区保存块首/末时间戳与各通道 min/max/count/sum，
+ * 区间查询时整块落在同一个桶里就直接用摘要，不逐行扫描。写满后从最旧的块覆盖。
+ * <p>
+ * 写入只允许一个线程，追加一行是固定次数的 put，最后以 lazySet 发布行数，不加锁不等待（wait-free）；
+ * 查询可在任意线程并发进行：跳过下一个将被覆盖的最旧块，读完后复核写指针，期间被覆盖则重读。
+ * 已提交行数同时写入文件头，重启后打开同一文件可继续查询与追加。
+ */
+public final class VitalsRingStore implements Closeable {
+
+    public static final int DEFAULT_BLOCK_ROWS = 1024;
+    /** 单次查询最多返回的桶数 */
+    public static final int MAX_BUCKETS = 100_000;
+
+    static final short MISSING = Short.MIN_VALUE;
+
+    private static final int MAGIC = 0x56545331; // "VTS1"
+    private static final int VERSION = 1;
+    private static final VitalsChannel[] CHANNELS = VitalsChannel.values();
+    private static final int HEADER_BYTES = 64;
+    private static final int OFF_COMMITTED = 24;
+    // 块摘要：首/末时间戳各 8 字节，每通道 min、max、count（short）、保留 2 字节、sum（int）
+    private static final int SUMMARY_BYTES = 16 + CHANNELS.length * 12;
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int blockRows;
+    private final int blockCount;
+    private final int dataBase;
+    private final int blockDataBytes;
+    private final AtomicLong committed = new AtomicLong();
+
+    // 以下只由写线程访问
+    private long blockFirstTime;
+    private long lastTime = Long.MIN_VALUE;
+    private final int[] min = new int[CHANNELS.length];
+    private final int[] max = new int[CHANNELS.length];
+    private final int[] count = new int[CHANNELS.length];
+    private final int[] sum = new int[CHANNELS.length];
+
+    private VitalsRingStore(RandomAccessFile raf, int blockRows, int blockCount, long size) throws IOException {
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.blockRows = blockRows;
+        this.blockCount = blockCount;
+        this.dataBase = align8(HEADER_BYTES + blockCount * SUMMARY_BYTES);
+        this.blockDataBytes = blockRows * 4 + CHANNELS.length * blockRows * 2;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * 打开或新建存储文件。文件已存在且块参数一致时保留历史，否则清空重建。
+     *
+     * @param blockRows  每块行数，决定摘要粒度（250Hz 下 1024 行约 4 秒）
+     * @param blockCount 块数，总容量 = blockRows × blockCount 行
+     */
+    @NonNull
+    public static VitalsRingStore open(@NonNull File file, int blockRows, int blockCount) throws IOException {
+        if (blockRows < 2 || blockRows > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("blockRows must be in [2, 32767]");
+        }
+        if (blockCount < 2) {
+            throw new IllegalArgumentException("blockCount must be >= 2");
+        }
+        long size = align8(HEADER_BYTES + (long) blockCount * SUMMARY_BYTES)
+                + (long) blockCount * (blockRows * 4L + CHANNELS.length * blockRows * 2L);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("store too large: " + size + " bytes");
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            boolean reuse = raf.length() == size;
+            raf.setLength(size);
+            VitalsRingStore store = new VitalsRingStore(raf, blockRows, blockCount, size);
+            if (!reuse || !store.restore()) {
+                store.format();
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /** 覆盖 seconds 秒所需的块数（按 rowsPerSecond 行/秒），另加一块供写入时轮转 */
+    public static int blocksFor(long seconds, int rowsPerSecond, int blockRows) {
+        long rows = seconds * rowsPerSecond;
+        return (int) Math.min(Integer.MAX_VALUE, (rows + blockRows - 1) / blockRows + 1);
+    }
+
+    private void format() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, CHANNELS.length);
+        buffer.putInt(12, blockRows);
+        buffer.putInt(16, blockCount);
+        buffer.putLong(OFF_COMMITTED, 0);
+        committed.set(0);
+    }
+
+    private boolean restore() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != CHANNELS.length
+                || buffer.getInt(12) != blockRows || buffer.getInt(16) != blockCount) {
+            return false;
+        }
+        long rows = buffer.getLong(OFF_COMMITTED);
+        if (rows < 0) {
+            return false;
+        }
+        if (rows > 0) {
+            int s = summaryOffset(slot((rows - 1) / blockRows));
+            blockFirstTime = buffer.getLong(s);
+            lastTime = buffer.getLong(s + 8);
+            if (rows % blockRows != 0) {
+                for (int c = 0; c < CHANNELS.length; c++) {
+                    int o = s + 16 + c * 12;
+                    count[c] = buffer.getShort(o + 4);
+                    min[c] = count[c] > 0 ? buffer.getShort(o) : Integer.MAX_VALUE;
+                    max[c] = count[c] > 0 ? buffer.getShort(o + 2) : Integer.MIN_VALUE;
+                    sum[c] = count[c] > 0 ? buffer.getInt(o + 8) : 0;
+                }
+            }
+        }
+        committed.set(rows);
+        return true;
+    }
+
+    /**
+     * 追加一行（只能由单个写线程调用）。时间戳取 reading.timestamp，若小于上一行则按上一行记，
+     * 保证块内时间单调；缺失的通道记为缺测，不计入摘要。
+     */
+    public void append(@NonNull VitalsReading reading, @Nullable Integer spo2WavePoint) {
+        long time = Math.max(reading.timestamp, lastTime);
+        long seq = committed.get();
+        if (seq % blockRows != 0 && time - blockFirstTime > Integer.MAX_VALUE) {
+            // 距块首超出 int 毫秒偏移（长时间停用后恢复），先用缺测行补满当前块
+            seq = sealBlock(seq);
+        }
+        int row = (int) (seq % blockRows);
+        int slot = slot(seq / blockRows);
+        int s = summaryOffset(slot);
+        if (row == 0) {
+            startBlock(s, time);
+        }
+        lastTime = time;
+        int d = dataOffset(slot);
+        buffer.putInt(d + row * 4, (int) (time - blockFirstTime));
+        int column = d + blockRows * 4 + row * 2;
+        for (int c = 0; c < CHANNELS.length; c++, column += blockRows * 2) {
+            int value = CHANNELS[c].intValue(reading, spo2WavePoint);
+            if (value == VitalsChannel.MISSING) {
+                buffer.putShort(column, MISSING);
+                continue;
+            }
+            int v = Math.max(MISSING + 1, Math.min(Short.MAX_VALUE, value));
+            int o = s + 16 + c * 12;
+            buffer.putShort(column, (short) v);
+            if (v < min[c]) buffer.putShort(o, (short) (min[c] = v));
+            if (v > max[c]) buffer.putShort(o + 2, (short) (max[c] = v));
+            buffer.putShort(o + 4, (short) ++count[c]);
+            buffer.putInt(o + 8, sum[c] += v);
+        }
+        publish(s, time, seq + 1);
+    }
+
+    private void startBlock(int s, long time) {
+        blockFirstTime = time;
+        buffer.putLong(s, time);
+        for (int c = 0; c < CHANNELS.length; c++) {
+            min[c] = Integer.MAX_VALUE;
+            max[c] = Integer.MIN_VALUE;
+            count[c] = 0;
+            sum[c] = 0;
+            buffer.putShort(s + 16 + c * 12 + 4, (short) 0);
+        }
+    }
+
+    private long sealBlock(long seq) {
+        int slot = slot(seq / blockRows);
+        int d = dataOffset(slot);
+        int offset = (int) (lastTime - blockFirstTime);
+        for (int row = (int) (seq % blockRows); row < blockRows; row++, seq++) {
+            buffer.putInt(d + row * 4, offset);
+            for (int c = 0; c < CHANNELS.length; c++) {
+                buffer.putShort(d + blockRows * 4 + c * blockRows * 2 + row * 2, MISSING);
+            }
+        }
+        publish(summaryOffset(slot), lastTime, seq);
+        return seq;
+    }
+
+    private void publish(int summary, long time, long rows) {
+        buffer.putLong(summary + 8, time);
+        buffer.putLong(OFF_COMMITTED, rows);
+        committed.lazySet(rows);
+    }
+
+    /** 已写入的总行数（含已被覆盖的） */
+    public long committedRows() {
+        return committed.get();
+    }
+
+    /** 容量（行） */
+    public long capacityRows() {
+        return (long) blockRows * blockCount;
+    }
+
+    /** 最新一行的时间戳，空存储返回 -1 */
+    public long newestMillis() {
+        long rows = committed.get();
+        return rows == 0 ? -1 : buffer.getLong(summaryOffset(slot((rows - 1) / blockRows)) + 8);
+    }
+
+    /**
+     * 查询 [fromMillis, toMillis) 内某通道的数据，按 resolutionMillis 分桶汇总 min/max/均值。
+     * 早于保留范围或缺测的桶 count 为 0。
+     */
+    @NonNull
+    public Series query(@NonNull VitalsChannel ch, long fromMillis, long toMillis, long resolutionMillis) {
+        if (resolutionMillis <= 0 || toMillis <= fromMillis) {
+            throw new IllegalArgumentException("invalid range");
+        }
+        long buckets = (toMillis - fromMillis + resolutionMillis - 1) / resolutionMillis;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("too many buckets: " + buckets);
+        }
+        for (int attempt = 1; ; attempt++) {
+            Series series = new Series(ch, fromMillis, resolutionMillis, (int) buckets);
+            long rows = committed.get();
+            long current = rows / blockRows;
+            // 最旧的块是写线程换块时下一个覆盖的对象，不读
+            long firstBlock = Math.max(0, current - blockCount + 2);
+            for (long b = firstBlock; b <= current; b++) {
+                int rowsInBlock = (int) Math.min(blockRows, rows - b * blockRows);
+                if (rowsInBlock > 0) {
+                    scanBlock(series, ch.ordinal(), slot(b), rowsInBlock, toMillis);
+                }
+            }
+            if ((firstBlock + blockCount) * blockRows > committed.get()) {
+                return series;
+            }
+            if (attempt == MAX_READ_ATTEMPTS) {
+                throw new IllegalStateException("写入过快，查询期间数据被覆盖");
+            }
+        }
+    }
+
+    private void scanBlock(Series series, int c, int slot, int rows, long toMillis) {
+        int s = summaryOffset(slot);
+        long first = buffer.getLong(s);
+        long last = buffer.getLong(s + 8);
+        if (last < series.fromMillis || first >= toMillis) {
+            return;
+        }
+        int o = s + 16 + c * 12;
+        if (rows == blockRows && first >= series.fromMillis && last < toMillis
+                && series.bucketOf(first) == series.bucketOf(last)) {
+            int n = buffer.getShort(o + 4);
+            if (n > 0) {
+                series.merge(series.bucketOf(first), buffer.getShort(o), buffer.getShort(o + 2), n, buffer.getInt(o + 8));
+            }
+            return;
+        }
+        int d = dataOffset(slot);
+        int column = d + blockRows * 4 + c * blockRows * 2;
+        for (int row = 0; row < rows; row++) {
+            long t = first + buffer.getInt(d + row * 4);
+            if (t < series.fromMillis || t >= toMillis) continue;
+            short v = buffer.getShort(column + row * 2);
+            if (v != MISSING) {
+                series.merge(series.bucketOf(t), v, v, 1, v);
+            }
+        }
+    }
+
+    private int slot(long block) {
+        return (int) (block % blockCount);
+    }
+
+    private int summaryOffset(int slot) {
+        return HEADER_BYTES + slot * SUMMARY_BYTES;
+    }
+
+    private int dataOffset(int slot) {
+        return dataBase + slot * blockDataBytes;
+    }
+
+    private static int align8(long n) {
+        return (int) ((n + 7) & ~7L);
+    }
+
+    /** 把映射内容同步到磁盘；不调用时由系统页缓存回写，进程退出也不丢，只防掉电 */
+    public void flush() {
+        buffer.force();
+    }
+
+    /** 关闭文件；映射区随对象回收解除，关闭后不得再调用 append */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        raf.close();
+    }
+
+    /** 查询结果：第 i 个桶覆盖 [bucketStart(i), bucketStart(i) + resolutionMillis)，值为列中的整数（÷ scale 得实际值） */
+    public static final class Series {
+        public final VitalsChannel channel;
+        public final long fromMillis;
+        public final long resolutionMillis;
+        private final int[] min;
+        private final int[] max;
+        private final int[] count;
+        private final long[] sum;
+
+        Series(VitalsChannel channel, long fromMillis, long resolutionMillis, int buckets) {
+            this.channel = channel;
+            this.fromMillis = fromMillis;
+            this.resolutionMillis = resolutionMillis;
+            this.min = new int[buckets];
+            this.max = new int[buckets];
+            this.count = new int[buckets];
+            this.sum = new long[buckets];
+        }
+
+        int bucketOf(long t) {
+            return (int) ((t - fromMillis) / resolutionMillis);
+        }
+
+        void merge(int bucket, int lo, int hi, int n, long total) {
+            if (count[bucket] == 0 || lo < min[bucket]) min[bucket] = lo;
+            if (count[bucket] == 0 || hi > max[bucket]) max[bucket] = hi;
+            count[bucket] += n;
+            sum[bucket] += total;
+        }
+
+        public int buckets() {
+            return count.length;
+        }
+
+        public long bucketStart(int i) {
+            return fromMillis + i * resolutionMillis;
+        }
+
+        public int count(int i) {
+            return count[i];
+        }
+
+        public int min(int i) {
+            return min[i];
+        }
+
+        public int max(int i) {
+            return max[i];
+        }
+
+        /** 桶内均值（列中的整数单位），无数据时为 NaN */
+        public double mean(int i) {
+            return count[i] == 0 ? Double.NaN : (double) sum[i] / count[i];
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.devicedata.messagesend.stream;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 数据流算子：包装下游订阅者，返回交给 {@link StreamPublisher#subscribe} 的上游订阅者。
+ * 算子在订阅指定的 Executor 上执行，不占用生产者线程；额度按算子语义换算后向上游请求。
+ */
+public final class Operators {
+
+    private Operators() {
+    }
+
+    /** 逐项变换；mapper 不得返回 null */
+    @NonNull
+    public static <T, R> Subscriber<T> map(@NonNull Function<? super T, ? extends R> mapper,
+                                           @NonNull Subscriber<? super R> downstream) {
+        return new Subscriber<T>() {
+            @Override
+            public void onSubscribe(@NonNull Subscription subscription) {
+                downstream.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(@NonNull T item) {
+                downstream.onNext(mapper.apply(item));
+            }
+
+            @Override
+            public void onError(@NonNull Throwable error) {
+                downstream.onError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                downstream.onComplete();
+            }
+        };
+    }
+
+    /** 只放行满足条件的项；滤掉的项向上游补回额度 */
+    @NonNull
+    public static <T> Subscriber<T> filter(@NonNull Predicate<? super T> predicate,
+                                           @NonNull Subscriber<? super T> downstream) {
+        return new Subscriber<T>() {
+            private Subscription upstream;
+
+            @Override
+            public void onSubscribe(@NonNull Subscription subscription) {
+                upstream = subscription;
+                downstream.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(@NonNull T item) {
+                if (predicate.test(item)) {
+                    downstream.onNext(item);
+                } else {
+                    upstream.request(1);
+                }
+            }
+
+            @Override
+            public void onError(@NonNull Throwable error) {
+                downstream.onError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                downstream.onComplete();
+            }
+        };
+    }
+
+    /** 每 size 项打包成一个列表；结束时不足 size 的尾部也交出。下游请求 n 个窗口即向上游请求 n × size 项 */
+    @NonNull
+    public static <T> Subscriber<T> window(int size, @NonNull Subscriber<? super List<T>> downstream) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size 须为正数: " + size);
+        }
+        return new Subscriber<T>() {
+            private List<T> current = new ArrayList<>(size);
+
+            @Override
+            public void onSubscribe(@NonNull Subscription subscription) {
+                downstream.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                        if (n <= 0) {
+                            throw new IllegalArgumentException("request 须为正数: " + n);
+                        }
+                        subscription.request(n > Long.MAX_VALUE / size ? Long.MAX_VALUE : n * size);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(@NonNull T item) {
+                current.add(item);
+                if (current.size() == size) {
+                    List<T> full = current;
+                    current = new ArrayList<>(size);
+                    downstream.onNext(full);
+                }
+            }
+
+            @Override
+            public void onError(@NonNull Throwable error) {
+                downstream.onError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                if (!current.isEmpty()) {
+                    List<T> tail = current;
+                    current = new ArrayList<>(0);
+                    downstream.onNext(tail);
+                }
+                downstream.onComplete();
+            }
+        };
+    }
+
+    /** 按周期抽样（nanoTime 计时），见 {@link #sample(long, LongSupplier, Subscriber)} */
+    @NonNull
+    public static <T> Subscriber<T> sample(long periodMs, @NonNull Subscriber<? super T> downstream) {
+        return sample(periodMs, System::nanoTime, downstream);
+    }
+
+    /**
+     * 按周期抽样：距上次交出满 periodMs 后到达的第一项交给下游，其余丢弃。
+     * 向上游请求不限额度，下游没有额度时也丢弃。
+     */
+    @NonNull
+    public static <T> Subscriber<T> sample(long periodMs, @NonNull LongSupplier clockNanos,
+                                           @NonNull Subscriber<? super T> downstream) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("periodMs 须为正数: " + periodMs);
+        }
+        long periodNanos = periodMs * 1_000_000L;
+        return new Subscriber<T>() {
+            private final AtomicLong demand = new AtomicLong();
+            private boolean emitted;
+            private long lastNanos;
+
+            @Override
+            public void onSubscribe(@NonNull Subscription subscription) {
+                downstream.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                        if (n <= 0) {
+                            throw new IllegalArgumentException("request 须为正数: " + n);
+                        }
+                        demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                    }
+                });
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(@NonNull T item) {
+                long now = clockNanos.getAsLong();
+                if (emitted && now - lastNanos < periodNanos) {
+                    return;
+                }
+                long d = demand.get();
+                if (d == 0) {
+                    return;
+                }
+                if (d != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                emitted = true;
+                lastNanos = now;
+                downstream.onNext(item);
+            }
+
+            @Override
+            public void onError(@NonNull Throwable error) {
+                downstream.onError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                downstream.onComplete();
+            }
+        };
+    }
+}
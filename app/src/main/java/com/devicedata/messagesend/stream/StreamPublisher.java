@@ -0,0 +1,291 @@
+package com.devicedata.messagesend.stream;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多订阅者、按需拉取的数据流（Reactive Streams 语义的精简版；minSdk 29 没有 java.util.concurrent.Flow）。
+ * - 生产者调用 {@link #publish}，只把数据放进各订阅者自己的有界缓冲区，不等待、不在生产者线程上回调订阅者
+ * - 每个订阅者指定 Executor、缓冲区大小与溢出策略；回调在该 Executor 上串行执行，onNext 不超过订阅者请求的额度
+ * - 订阅者跟不上时只按自己的溢出策略丢数据，不影响生产者与其他订阅者
+ * 任意线程可订阅、取消；publish 与 complete 应来自同一个生产者线程。
+ */
+public final class StreamPublisher<T> {
+
+    /** 订阅者缓冲区满时的处理 */
+    public enum Overflow {
+        /** 丢弃缓冲区中最旧的一项，保留最新数据 */
+        DROP_OLDEST,
+        /** 丢弃新到的一项，保留已缓冲的连续数据 */
+        DROP_NEWEST,
+        /** 以 IllegalStateException 结束该订阅，用于不允许丢数据的消费者 */
+        ERROR
+    }
+
+    private static final Object[] EMPTY = new Object[0];
+
+    // 写时复制，publish 遍历时不加锁、不分配
+    private volatile Object[] sinks = EMPTY;
+    private volatile boolean completed;
+
+    /**
+     * 订阅。订阅者的回调都在 executor 上执行；回调中抛出的异常会取消订阅并转为 onError。
+     *
+     * @param bufferSize 该订阅者的缓冲区大小（项），已投递、未请求的数据都计入
+     * @param overflow   缓冲区满时的处理
+     * @return 该订阅，可查询投递与丢弃计数
+     */
+    @NonNull
+    public Sink subscribe(@NonNull Subscriber<? super T> subscriber, @NonNull Executor executor,
+                          int bufferSize, @NonNull Overflow overflow) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize 须为正数: " + bufferSize);
+        }
+        Sink sink = new Sink(subscriber, executor, bufferSize, overflow);
+        synchronized (this) {
+            Object[] current = sinks;
+            Object[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = sink;
+            sinks = next;
+        }
+        if (completed) {
+            sink.finish();
+        }
+        sink.schedule();
+        return sink;
+    }
+
+    /** 生产者线程：交给所有订阅者，不阻塞 */
+    @SuppressWarnings("unchecked")
+    public void publish(@NonNull T item) {
+        for (Object sink : sinks) {
+            ((Sink) sink).offer(item);
+        }
+    }
+
+    /** 结束数据流：各订阅者投递完缓冲区后收到 onComplete；之后的订阅者直接结束 */
+    @SuppressWarnings("unchecked")
+    public void complete() {
+        completed = true;
+        for (Object sink : sinks) {
+            ((Sink) sink).finish();
+        }
+    }
+
+    public int subscriberCount() {
+        return sinks.length;
+    }
+
+    private synchronized void remove(Sink sink) {
+        Object[] current = sinks;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == sink) {
+                Object[] next = new Object[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                sinks = next;
+                return;
+            }
+        }
+    }
+
+    /** 一个订阅：有界缓冲区、额度与投递状态 */
+    public final class Sink implements Subscription, Runnable {
+        private final Subscriber<? super T> subscriber;
+        private final Executor executor;
+        private final Overflow overflow;
+        private final Object[] ring;
+        // 投递任务的重入计数：只有从 0 变 1 的一方提交任务，保证回调串行
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile long delivered;
+        // 以下由 this 保护
+        private int head;
+        private int count;
+        private boolean done;
+        private Throwable error;
+        private long dropped;
+        // 只在投递线程上访问
+        private boolean started;
+
+        Sink(Subscriber<? super T> subscriber, Executor executor, int bufferSize, Overflow overflow) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.overflow = overflow;
+            this.ring = new Object[bufferSize];
+        }
+
+        void offer(T item) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (count == ring.length) {
+                    dropped++;
+                    if (overflow == Overflow.DROP_NEWEST) {
+                        return;
+                    }
+                    if (overflow == Overflow.ERROR) {
+                        clear();
+                        done = true;
+                        error = new IllegalStateException("订阅者缓冲区已满: " + ring.length);
+                    } else {
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        count--;
+                    }
+                }
+                if (!done) {
+                    ring[(head + count) % ring.length] = item;
+                    count++;
+                }
+            }
+            schedule();
+        }
+
+        void finish() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!started) {
+                    started = true;
+                    if (!cancelled) {
+                        subscriber.onSubscribe(this);
+                    }
+                }
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drain() {
+            long r = requested.get();
+            long e = 0;
+            boolean finished = false;
+            Throwable err = null;
+            while (!cancelled) {
+                Object item = null;
+                synchronized (this) {
+                    finished = done && count == 0;
+                    err = error;
+                    if (count > 0 && e != r) {
+                        item = ring[head];
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        count--;
+                    }
+                }
+                if (finished || item == null) {
+                    break;
+                }
+                try {
+                    subscriber.onNext((T) item);
+                } catch (RuntimeException ex) {
+                    finished = true;
+                    err = ex;
+                    break;
+                }
+                e++;
+            }
+            if (e != 0) {
+                delivered += e;
+                if (r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+            }
+            // 计数先于终止回调更新，订阅者在 onComplete 里看到的是最终值
+            if (finished) {
+                terminate(err);
+            }
+        }
+
+        private void terminate(Throwable err) {
+            cancel();
+            if (err != null) {
+                subscriber.onError(err);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(ring, null);
+            head = 0;
+            count = 0;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("request 须为正数: " + n);
+            }
+            long r;
+            long next;
+            do {
+                r = requested.get();
+                if (r == Long.MAX_VALUE) {
+                    return;
+                }
+                next = r + n < 0 ? Long.MAX_VALUE : r + n;
+            } while (!requested.compareAndSet(r, next));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                done = true;
+                clear();
+            }
+            remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** 已投递给订阅者的项数 */
+        public long delivered() {
+            return delivered;
+        }
+
+        /** 缓冲区满而丢弃的项数 */
+        public synchronized long dropped() {
+            return dropped;
+        }
+
+        /** 缓冲区中待投递的项数 */
+        public synchronized int buffered() {
+            return count;
+        }
+    }
+}
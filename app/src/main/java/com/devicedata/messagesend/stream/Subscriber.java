@@ -0,0 +1,19 @@
+package com.devicedata.messagesend.stream;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 数据流的消费者。回调都在订阅时指定的 Executor 上串行执行：先 onSubscribe，
+ * 之后 onNext 的次数不超过 {@link Subscription#request} 累计的额度，最后至多一次 onError 或 onComplete。
+ */
+public interface Subscriber<T> {
+    void onSubscribe(@NonNull Subscription subscription);
+
+    void onNext(@NonNull T item);
+
+    default void onError(@NonNull Throwable error) {
+    }
+
+    default void onComplete() {
+    }
+}
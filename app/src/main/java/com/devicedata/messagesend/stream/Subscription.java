@@ -0,0 +1,12 @@
+package com.devicedata.messagesend.stream;
+
+/**
+ * 订阅者与 {@link StreamPublisher} 之间的额度与取消，可在任意线程调用。
+ */
+public interface Subscription {
+    /** 追加 n 项额度，n 须为正；累计达到 Long.MAX_VALUE 视为不限 */
+    void request(long n);
+
+    /** 取消订阅并丢弃缓冲区中的数据，之后不再回调 */
+    void cancel();
+}
@@ -0,0 +1,215 @@
+package com.devicedata.messagesend;
+
+import com.devicedata.messagesend.binary.BinaryProtocol;
+import com.devicedata.messagesend.binary.VitalsBinaryCodec;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BinaryTcpClientTest {
+
+    private static final Transport.Listener QUIET = new Transport.Listener() {
+        @Override public void onLog(String line) { }
+        @Override public void onConnected() { }
+        @Override public void onDisconnected() { }
+        @Override public void onError(String error) { }
+    };
+
+    private static VitalsReading sample() {
+        return new VitalsReading(1731420000000L, 2048, 75, 18, null, null, null,
+                98, 76, 36.6, null, -12);
+    }
+
+    @Test
+    public void codecRoundTrip() {
+        ByteBuffer buf = ByteBuffer.allocate(VitalsBinaryCodec.MAX_BYTES);
+        int n = VitalsBinaryCodec.encode(sample(), 90, buf);
+        assertEquals(8 + 2 + 8 * 2, n);
+        buf.flip();
+        VitalsBinaryCodec.Decoded d = VitalsBinaryCodec.decode(buf);
+        assertEquals(1731420000000L, d.reading.timestamp);
+        assertEquals(Integer.valueOf(2048), d.reading.ecgWave);
+        assertNull(d.reading.systolic);
+        assertEquals(Integer.valueOf(98), d.reading.bloodOxygen);
+        assertEquals(36.6, d.reading.temperature, 1e-9);
+        assertEquals(Integer.valueOf(-12), d.reading.respWave);
+        assertEquals(Integer.valueOf(90), d.spo2WavePoint);
+        assertFalse(buf.hasRemaining());
+    }
+
+    @Test
+    public void queuedFramesAreFlushedAfterHandshake() throws Exception {
+        BlockingQueue<Object> received = new ArrayBlockingQueue<>(8);
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread peer = new Thread(() -> {
+                try (Socket s = server.accept()) {
+                    DataInputStream in = new DataInputStream(s.getInputStream());
+                    DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                    while (true) {
+                        byte[] body = new byte[in.readInt()];
+                        in.readFully(body);
+                        ByteBuffer payload = ByteBuffer.wrap(body, 1, body.length - 1);
+                        switch (body[0]) {
+                            case BinaryProtocol.TYPE_HELLO:
+                                received.add(BinaryProtocol.readHelloDeviceId(payload));
+                                out.writeInt(2);
+                                out.writeByte(BinaryProtocol.TYPE_WELCOME);
+                                out.writeByte(BinaryProtocol.STATUS_OK);
+                                break;
+                            case BinaryProtocol.TYPE_JSON:
+                                received.add(new String(body, 1, body.length - 1, StandardCharsets.UTF_8));
+                                break;
+                            case BinaryProtocol.TYPE_SAMPLE:
+                                received.add(VitalsBinaryCodec.decode(payload));
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                } catch (Exception ignored) {
+                }
+            });
+            peer.setDaemon(true);
+            peer.start();
+
+            BinaryTcpClient client = new BinaryTcpClient("127.0.0.1", server.getLocalPort(), "AA:BB", QUIET);
+            // 握手前发送的数据应排队，握手完成后按序写出
+            client.send("{\"ecg\":1,\"note\":\"心电\"}");
+            client.sendSample(sample(), null);
+            client.connect();
+            try {
+                assertEquals("AA:BB", received.poll(5, TimeUnit.SECONDS));
+                assertEquals("{\"ecg\":1,\"note\":\"心电\"}", received.poll(5, TimeUnit.SECONDS));
+                Object decoded = received.poll(5, TimeUnit.SECONDS);
+                assertTrue(decoded instanceof VitalsBinaryCodec.Decoded);
+                assertEquals(Integer.valueOf(76), ((VitalsBinaryCodec.Decoded) decoded).reading.pulseRate);
+                assertTrue(client.isReady());
+                assertEquals(0, client.pendingCount());
+            } finally {
+                client.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void drainPendingConvertsSamplesToJson() throws Exception {
+        int closedPort;
+        try (ServerSocket s = new ServerSocket(0)) {
+            closedPort = s.getLocalPort();
+        }
+        BinaryTcpClient client = new BinaryTcpClient("127.0.0.1", closedPort, "dev", QUIET);
+        try {
+            client.send("{\"a\":1}", SendLane.URGENT, null);
+            client.sendSample(sample(), 90);
+            List<Transport.Pending> drained = client.drainPending();
+            assertEquals(2, drained.size());
+            assertEquals("{\"a\":1}", drained.get(0).json);
+            assertEquals(SendLane.URGENT, drained.get(0).lane);
+            assertTrue(drained.get(1).json.contains("\"boWave\":90"));
+            assertTrue(drained.get(1).json.contains("\"temp\":\"36.6\""));
+            assertEquals(SendLane.WAVEFORM, drained.get(1).lane);
+            assertEquals(0, client.pendingCount());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void pendingQueueDropsOldestWhenFull() throws Exception {
+        int closedPort;
+        try (ServerSocket s = new ServerSocket(0)) {
+            closedPort = s.getLocalPort();
+        }
+        BinaryTcpClient client = new BinaryTcpClient("127.0.0.1", closedPort, "dev", QUIET);
+        client.setMaxPending(3);
+        try {
+            for (int i = 0; i < 5; i++) {
+                client.send("{\"n\":" + i + "}");
+            }
+            assertEquals(3, client.pendingCount());
+            List<Transport.Pending> drained = client.drainPending();
+            assertEquals(3, drained.size());
+            assertEquals("{\"n\":2}", drained.get(0).json);
+            assertEquals("{\"n\":4}", drained.get(2).json);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void sharedLoopServesSeveralClients() throws Exception {
+        int clients = 3;
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread acceptor = new Thread(() -> {
+                for (int i = 0; i < clients; i++) {
+                    try {
+                        Socket s = server.accept();
+                        Thread peer = new Thread(() -> welcomeAndDrain(s));
+                        peer.setDaemon(true);
+                        peer.start();
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            BinaryTcpIoLoop loop = new BinaryTcpIoLoop("test-tcp-io");
+            BinaryTcpClient[] all = new BinaryTcpClient[clients];
+            try {
+                for (int i = 0; i < clients; i++) {
+                    all[i] = new BinaryTcpClient("127.0.0.1", server.getLocalPort(), "dev-" + i, QUIET, loop);
+                    all[i].send("{\"n\":" + i + "}");
+                }
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                for (BinaryTcpClient c : all) {
+                    while ((!c.isReady() || c.pendingCount() > 0) && System.nanoTime() < deadline) {
+                        Thread.sleep(10);
+                    }
+                    assertTrue(c.isReady());
+                    assertEquals(0, c.pendingCount());
+                    assertEquals(1, c.sentCount());
+                }
+                long loopThreads = Thread.getAllStackTraces().keySet().stream()
+                        .filter(t -> t.getName().equals("test-tcp-io")).count();
+                assertEquals(1, loopThreads);
+            } finally {
+                for (BinaryTcpClient c : all) {
+                    if (c != null) c.shutdown();
+                }
+                loop.shutdown();
+            }
+        }
+    }
+
+    private static void welcomeAndDrain(Socket s) {
+        try (Socket socket = s) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            while (true) {
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                if (body[0] == BinaryProtocol.TYPE_HELLO) {
+                    out.writeInt(2);
+                    out.writeByte(BinaryProtocol.TYPE_WELCOME);
+                    out.writeByte(BinaryProtocol.STATUS_OK);
+                }
+            }
+        } catch (Exception ignored) {
+        }
+    }
+}
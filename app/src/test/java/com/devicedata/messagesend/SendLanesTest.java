@@ -0,0 +1,130 @@
+package com.devicedata.messagesend;
+
+import com.devicedata.messagesend.metrics.LatencyHistogram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SendLanesTest {
+
+    private static final long TICK_NANOS = 4_000_000L;
+
+    /**
+     * 断线 30 秒后恢复：积压 7500 条波形与 30 条体征；恢复后每 4ms 节拍可写 5 条，
+     * 同时按 250Hz 继续产生波形、每秒一条体征，中途触发一次报警。统计各通道恢复后新消息的排队时延。
+     */
+    @Test
+    public void urgentAndVitalsBypassWaveformBacklog() {
+        SendLanes lanes = new SendLanes();
+        int tick = 0;
+        for (; tick < 7500; tick++) {
+            lanes.offer("w" + tick, SendLane.WAVEFORM, tick * TICK_NANOS);
+            if (tick % 250 == 0) lanes.offer("v" + tick, SendLane.VITALS, tick * TICK_NANOS);
+        }
+        assertEquals(7530, lanes.size());
+
+        // 恢复后第一条是最新体征
+        assertEquals("v7250", lanes.poll());
+        assertEquals(SendLane.VITALS, lanes.polledLane());
+        lanes.unpoll("v7250");
+
+        int reconnectTick = tick;
+        Map<SendLane, LatencyHistogram> waits = new EnumMap<>(SendLane.class);
+        for (SendLane lane : SendLane.values()) waits.put(lane, new LatencyHistogram());
+        String previousWave = null;
+        for (; tick < reconnectTick + 3000; tick++) {
+            long now = tick * TICK_NANOS;
+            lanes.offer("w" + tick, SendLane.WAVEFORM, now);
+            if (tick % 250 == 0) lanes.offer("v" + tick, SendLane.VITALS, now);
+            if (tick == reconnectTick + 1234) lanes.offer("alarm", SendLane.URGENT, now);
+            for (int n = 0; n < 5; n++) {
+                String json = lanes.poll();
+                if (json == null) break;
+                if (lanes.polledLane() == SendLane.WAVEFORM) {
+                    // 波形按序补发
+                    if (previousWave != null) {
+                        assertTrue(Integer.parseInt(json.substring(1)) > Integer.parseInt(previousWave.substring(1)));
+                    }
+                    previousWave = json;
+                }
+                if (lanes.polledEnqueuedNanos() >= reconnectTick * TICK_NANOS) {
+                    waits.get(lanes.polledLane()).record((now - lanes.polledEnqueuedNanos()) / 1000);
+                }
+            }
+        }
+        assertEquals(1, waits.get(SendLane.URGENT).count());
+        assertEquals(0, waits.get(SendLane.URGENT).max());
+        assertEquals(0, waits.get(SendLane.VITALS).max());
+        // 积压约 1875 个节拍才补完，恢复后新产生的波形在此之前一直排队
+        assertTrue(waits.get(SendLane.WAVEFORM).max() > 5_000_000);
+        assertTrue(lanes.isEmpty());
+    }
+
+    @Test
+    public void weightedSchedulingServesEveryLane() {
+        SendLanes lanes = new SendLanes();
+        for (int i = 0; i < 64; i++) {
+            lanes.offer("u" + i, SendLane.URGENT, i);
+            lanes.offer("v" + i, SendLane.VITALS, i);
+            lanes.offer("w" + i, SendLane.WAVEFORM, i);
+        }
+        lanes.setWeights(new int[]{4, 2, 1});
+        int[] served = new int[SendLane.values().length];
+        for (int i = 0; i < 70; i++) {
+            assertNotNull(lanes.poll());
+            served[lanes.polledLane().ordinal()]++;
+        }
+        assertArrayEquals(Arrays.toString(served), new int[]{40, 20, 10}, served);
+
+        // 严格优先级下波形要等前两道清空
+        lanes.setWeights(null);
+        int urgentLeft = lanes.size(SendLane.URGENT);
+        int vitalsLeft = lanes.size(SendLane.VITALS);
+        for (int i = 0; i < urgentLeft + vitalsLeft; i++) {
+            lanes.poll();
+            assertNotEquals(SendLane.WAVEFORM, lanes.polledLane());
+        }
+        assertEquals("w10", lanes.poll());
+    }
+
+    @Test
+    public void boundedLanesEvictOldestAndUnpollRestoresOrder() {
+        SendLanes lanes = new SendLanes(2, 2, 3);
+        assertNull(lanes.offer("w0", SendLane.WAVEFORM, 0));
+        lanes.offer("w1", SendLane.WAVEFORM, 1);
+        lanes.offer("w2", SendLane.WAVEFORM, 2);
+        assertEquals("w0", lanes.offer("w3", SendLane.WAVEFORM, 3));
+        lanes.offer("v0", SendLane.VITALS, 4);
+        lanes.offer("v1", SendLane.VITALS, 5);
+        assertEquals("v0", lanes.offer("v2", SendLane.VITALS, 6));
+
+        assertEquals("v2", lanes.poll());
+        assertEquals(6, lanes.polledEnqueuedNanos());
+        lanes.unpoll("v2");
+        assertEquals("v2", lanes.poll());
+        assertEquals("v1", lanes.poll());
+        assertEquals("w1", lanes.poll());
+        lanes.unpoll("w1");
+        assertEquals(1, lanes.polledEnqueuedNanos());
+        assertTrue(lanes.isEmptyThrough(SendLane.VITALS));
+        assertFalse(lanes.isEmptyThrough(SendLane.WAVEFORM));
+        lanes.offer("v3", SendLane.VITALS, 7);
+        lanes.offer("v4", SendLane.VITALS, 8);
+        List<Transport.Pending> drained = lanes.drainAll();
+        assertEquals(5, drained.size());
+        // 各道按入队先后取出并带上通道，VITALS 也是旧的在前
+        assertEquals("v3", drained.get(0).json);
+        assertEquals(SendLane.VITALS, drained.get(0).lane);
+        assertEquals("v4", drained.get(1).json);
+        assertEquals("w1", drained.get(2).json);
+        assertEquals(SendLane.WAVEFORM, drained.get(4).lane);
+        assertEquals("w3", drained.get(4).json);
+        assertEquals(0, lanes.clear());
+    }
+}
@@ -0,0 +1,152 @@
+package com.devicedata.messagesend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devicedata.messagesend.metrics.SampleTrace;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransportSelectorTest {
+
+    /** 可控的假通道：未就绪时排队，就绪时直接记为已发送，并记下各条的通道 */
+    private static final class FakeTransport implements Transport {
+        final String name;
+        final List<String> sent = new ArrayList<>();
+        final List<SendLane> sentLanes = new ArrayList<>();
+        final List<Transport.Pending> pending = new ArrayList<>();
+        boolean ready = true;
+        long latency = -1;
+
+        FakeTransport(String name) {
+            this.name = name;
+        }
+
+        @NonNull @Override public String name() { return name; }
+        @Override public void connect() { }
+        @Override public void send(@NonNull String json) {
+            send(json, SendLane.WAVEFORM, null);
+        }
+        @Override public void send(@NonNull String json, @NonNull SendLane lane, @Nullable SampleTrace trace) {
+            if (ready) {
+                sent.add(json);
+                sentLanes.add(lane);
+            } else {
+                pending.add(new Transport.Pending(json, lane));
+            }
+        }
+        @Override public void shutdown() { }
+        @Override public boolean isReady() { return ready; }
+        @Override public long latencyMillis() { return latency; }
+        @Override public int pendingCount() { return pending.size(); }
+        @NonNull @Override public List<Transport.Pending> drainPending() {
+            List<Transport.Pending> out = new ArrayList<>(pending);
+            pending.clear();
+            return out;
+        }
+    }
+
+    private FakeTransport primary;
+    private FakeTransport backup;
+    private TransportSelector selector;
+    private final List<Long> switchTimes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        primary = new FakeTransport("primary");
+        backup = new FakeTransport("backup");
+        selector = new TransportSelector(Arrays.asList(primary, backup), new TransportSelector.Listener() {
+            @Override public void onLog(String line) { }
+            @Override public void onSwitched(@NonNull Transport from, @NonNull Transport to, long elapsedMs) {
+                switchTimes.add(elapsedMs);
+            }
+        });
+        selector.setCheckIntervalMs(0);
+        selector.setUnhealthyGraceMs(1_000);
+        selector.setFailbackStableMs(5_000);
+        selector.connect();
+    }
+
+    @Test
+    public void failsOverAfterGraceAndKeepsOrderWithoutDuplicates() {
+        selector.send("1");
+        primary.ready = false;
+        selector.send("2");
+        selector.checkHealth(0);
+        selector.send("3");
+        selector.checkHealth(500);
+        assertSame(primary, selector.active());
+        selector.checkHealth(1_000);
+        assertSame(backup, selector.active());
+        assertEquals(Long.valueOf(1_000), switchTimes.get(0));
+        selector.send("4");
+
+        assertEquals(Arrays.asList("1"), primary.sent);
+        assertEquals(Arrays.asList("2", "3", "4"), backup.sent);
+        assertEquals(0, primary.pendingCount());
+    }
+
+    @Test
+    public void switchKeepsLanesAndVitalsOrder() {
+        // 主通道为分道队列：积压按优先级与各道顺序取出
+        SendLanes lanes = new SendLanes();
+        lanes.offer("w1", SendLane.WAVEFORM, 0);
+        lanes.offer("v1", SendLane.VITALS, 1);
+        lanes.offer("w2", SendLane.WAVEFORM, 2);
+        lanes.offer("v2", SendLane.VITALS, 3);
+        lanes.offer("a1", SendLane.URGENT, 4);
+        primary.ready = false;
+        for (Transport.Pending p : lanes.drainAll()) {
+            primary.pending.add(p);
+        }
+        selector.checkHealth(0);
+        selector.checkHealth(1_000);
+        assertSame(backup, selector.active());
+
+        assertEquals(Arrays.asList("a1", "v1", "v2", "w1", "w2"), backup.sent);
+        assertEquals(Arrays.asList(SendLane.URGENT, SendLane.VITALS, SendLane.VITALS,
+                SendLane.WAVEFORM, SendLane.WAVEFORM), backup.sentLanes);
+
+        // 转移到另一个分道队列后出队顺序与原队列一致（VITALS 仍是新的先出）
+        SendLanes target = new SendLanes();
+        for (int i = 0; i < backup.sent.size(); i++) {
+            target.offer(backup.sent.get(i), backup.sentLanes.get(i), i);
+        }
+        assertEquals("a1", target.poll());
+        assertEquals("v2", target.poll());
+        assertEquals("v1", target.poll());
+        assertEquals("w1", target.poll());
+        assertEquals("w2", target.poll());
+    }
+
+    @Test
+    public void failsOverOnLatencyAndFailsBackWhenStable() {
+        primary.latency = 5_000;
+        selector.checkHealth(0);
+        selector.checkHealth(1_000);
+        assertSame(backup, selector.active());
+
+        primary.latency = 20;
+        selector.checkHealth(2_000);
+        selector.checkHealth(6_000);
+        assertSame(backup, selector.active());
+        selector.checkHealth(7_000);
+        assertSame(primary, selector.active());
+    }
+
+    @Test
+    public void staysWhenNoCandidateIsHealthy() {
+        primary.ready = false;
+        backup.ready = false;
+        selector.checkHealth(0);
+        selector.checkHealth(10_000);
+        assertSame(primary, selector.active());
+    }
+}
@@ -0,0 +1,73 @@
+package com.devicedata.messagesend.alarm;
+
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlarmEngineTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private AlarmEngine engine(AlarmRule... rules) {
+        return new AlarmEngine(Arrays.asList(rules),
+                (rule, active, value, time) -> events.add(rule.name + (active ? "+" : "-") + value + "@" + time));
+    }
+
+    private static VitalsReading vitals(long time, Integer heartRate, Integer spo2, Integer systolic) {
+        return new VitalsReading(time, null, heartRate, null, systolic, null, null, spo2, null, null, null, null);
+    }
+
+    @Test
+    public void thresholdRaisesOnceAndClears() {
+        AlarmEngine engine = engine(
+                AlarmRule.outside("hr", VitalsChannel.ECG_HEART_RATE, 40, 150),
+                AlarmRule.above("sys", VitalsChannel.SYSTOLIC, 180));
+        engine.evaluate(vitals(0, 80, null, 120), null);
+        engine.evaluate(vitals(4, 160, null, 190), null);
+        engine.evaluate(vitals(8, 170, null, 190), null);
+        assertEquals(2, engine.activeCount());
+        engine.evaluate(vitals(12, 90, null, null), null); // 缺测的通道不判定，血压报警保持
+        assertEquals(Arrays.asList("hr+160@4", "sys+190@4", "hr-90@12"), events);
+        assertEquals(1, engine.activeCount());
+    }
+
+    @Test
+    public void sustainedRuleIgnoresShortDips() {
+        AlarmEngine engine = engine(AlarmRule.below("spo2", VitalsChannel.BLOOD_OXYGEN, 90).sustainFor(10_000));
+        engine.evaluate(vitals(0, null, 85, null), null);
+        engine.evaluate(vitals(5_000, null, 95, null), null); // 5 秒后恢复，不报警
+        engine.evaluate(vitals(6_000, null, 88, null), null);
+        engine.evaluate(vitals(15_000, null, 87, null), null);
+        assertTrue(events.isEmpty());
+        engine.evaluate(vitals(16_000, null, 86, null), null);
+        assertEquals(Arrays.asList("spo2+86@16000"), events);
+    }
+
+    @Test
+    public void changeRuleDetectsRiseWithinWindow() {
+        AlarmEngine engine = engine(AlarmRule.change("hrJump", VitalsChannel.ECG_HEART_RATE, 30, 60_000));
+        // 每 5 秒一个值，缓慢上升不报警
+        int hr = 70;
+        for (long t = 0; t < 300_000; t += 5_000) {
+            engine.evaluate(vitals(t, hr++, null, null), null);
+        }
+        assertTrue(events.toString(), events.isEmpty());
+        engine.evaluate(vitals(300_000, hr + 35, null, null), null);
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).startsWith("hrJump+"));
+    }
+
+    @Test
+    public void spo2WaveComesFromSeparatePoint() {
+        AlarmEngine engine = engine(AlarmRule.below("pleth", VitalsChannel.SPO2_WAVE, 10));
+        assertEquals(1, engine.evaluate(vitals(0, null, null, null), 3));
+        assertEquals(0, engine.evaluate(vitals(4, null, null, null), null));
+    }
+}
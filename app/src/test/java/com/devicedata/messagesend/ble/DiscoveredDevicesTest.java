@@ -0,0 +1,64 @@
+package com.devicedata.messagesend.ble;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DiscoveredDevicesTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void deduplicatesAndTracksRssi() {
+        DiscoveredDevices<String> table = new DiscoveredDevices<>();
+        table.reset(1_000 * MS);
+        assertEquals(120, table.update("a", "AA:01", null, -70, 1_120 * MS));
+        assertEquals(300, table.update("b", "AA:02", "Monitor", -60, 1_300 * MS));
+        assertEquals(-1, table.update("a", "AA:01", "Patch", -55, 1_400 * MS));
+        assertEquals(2, table.size());
+        assertEquals("a", table.get("AA:01"));
+
+        List<DiscoveredDevices.Device<String>> snapshot = table.takeSnapshot();
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.size());
+        DiscoveredDevices.Device<String> first = snapshot.get(0);
+        assertEquals("AA:01", first.address);
+        assertEquals("Patch", first.name);
+        assertEquals(-55, first.rssi);
+        assertEquals(120, first.discoverMillis);
+        assertEquals(1_400 * MS, first.lastSeenNanos);
+        assertEquals(2, first.seenCount);
+
+        // 没有变化时不给新快照；快照是副本，不随后续广播变化
+        assertEquals(-1, table.update("a", "AA:01", null, -55, 1_500 * MS));
+        assertNull(table.takeSnapshot());
+        table.update("a", "AA:01", null, -80, 1_600 * MS);
+        assertEquals(-80, table.takeSnapshot().get(0).rssi);
+        assertEquals(-55, first.rssi);
+
+        table.reset(2_000 * MS);
+        assertEquals(0, table.size());
+        assertEquals(0, table.takeSnapshot().size());
+    }
+
+    @Test
+    public void coalescesAdvertisementBursts() {
+        // 20 台设备各 100ms 广播一次、持续 2 秒：400 条广播，按 250ms 取快照只刷新 8 次
+        DiscoveredDevices<Integer> table = new DiscoveredDevices<>();
+        table.reset(0);
+        int refreshes = 0;
+        long nextSnapshot = 250 * MS;
+        for (long t = 0; t < 2_000 * MS; t += 5 * MS) {
+            int device = (int) (t / (5 * MS)) % 20;
+            table.update(device, "AA:" + device, null, -60 - (int) (t / MS) % 7, t);
+            if (t >= nextSnapshot) {
+                if (table.takeSnapshot() != null) refreshes++;
+                nextSnapshot += 250 * MS;
+            }
+        }
+        assertEquals(20, table.size());
+        assertTrue("refreshes " + refreshes, refreshes <= 8);
+    }
+}
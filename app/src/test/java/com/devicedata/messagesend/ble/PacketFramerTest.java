@@ -0,0 +1,109 @@
+package com.devicedata.messagesend.ble;
+
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PacketFramerTest {
+
+    private final List<byte[]> bodies = new ArrayList<>();
+    private final List<byte[]> sources = new ArrayList<>();
+    private int mismatches;
+    private final PacketFramer framer = new PacketFramer(new PacketFramer.Handler() {
+        @Override
+        public void onPacket(byte[] buf, int offset, int length) {
+            // 视图只在回调期间有效，测试里复制保存
+            bodies.add(Arrays.copyOfRange(buf, offset, offset + length));
+            sources.add(buf);
+        }
+
+        @Override
+        public void onChecksumMismatch() {
+            mismatches++;
+        }
+    });
+
+    @Test
+    public void reassemblesPacketsAcrossNotifications() {
+        byte[] a = packet(0x02, 0x00, 75, 18);
+        byte[] b = packet(0xFE, 90);
+        byte[] stream = new byte[a.length + b.length + 2];
+        stream[0] = 0x13; // 包前的杂字节被丢弃
+        System.arraycopy(a, 0, stream, 1, a.length);
+        stream[1 + a.length] = 0x00;
+        System.arraycopy(b, 0, stream, 2 + a.length, b.length);
+
+        framer.accept(Arrays.copyOfRange(stream, 0, 4));
+        framer.accept(Arrays.copyOfRange(stream, 4, stream.length));
+
+        assertEquals(2, bodies.size());
+        assertArrayEquals(new byte[] {0x02, 0x00, 75, 18}, bodies.get(0));
+        assertArrayEquals(new byte[] {(byte) 0xFE, 90}, bodies.get(1));
+        assertEquals(0, mismatches);
+    }
+
+    @Test
+    public void dropsPacketWithBadChecksum() {
+        byte[] p = packet(0x04, 0x00, 98, 76);
+        p[p.length - 1] ^= 1;
+        framer.accept(p);
+        framer.accept(packet(0x01, 0x80));
+        assertEquals(1, mismatches);
+        assertEquals(1, bodies.size());
+        assertEquals(0x01, bodies.get(0)[0]);
+    }
+
+    @Test
+    public void deliversViewsIntoNotificationAndDispatchesRegisteredType() {
+        byte[] a = packet(0x04, 0x00, 98, 76);
+        byte[] b = packet(0x30, 7, 9);
+        byte[] notification = new byte[a.length + b.length];
+        System.arraycopy(a, 0, notification, 0, a.length);
+        System.arraycopy(b, 0, notification, a.length, b.length);
+        framer.accept(notification);
+        // 整包都在通知里：回调的是通知数组本身
+        assertEquals(2, sources.size());
+        assertSame(notification, sources.get(0));
+        assertSame(notification, sources.get(1));
+
+        // 逐字节到达的包在拆包缓冲区里拼齐
+        for (byte x : packet(0x30, 7, 9)) {
+            framer.accept(new byte[] {x});
+        }
+        assertEquals(3, bodies.size());
+        assertArrayEquals(new byte[] {0x30, 7, 9}, bodies.get(2));
+        assertNotSame(notification, sources.get(2));
+
+        VitalsAggregator aggregator = new VitalsAggregator();
+        assertNull(aggregator.update(notification, a.length + 3, 3));
+        aggregator.register(0x30, (buf, offset, length) -> new VitalsReading(1L,
+                null, null, null, null, null, null, null, null, null, null, buf[offset + 2] & 0xFF));
+        VitalsReading custom = aggregator.update(notification, a.length + 3, 3);
+        assertNotNull(custom);
+        assertEquals(Integer.valueOf(9), custom.respWave);
+        VitalsReading spo2 = aggregator.update(notification, 3, 4);
+        assertEquals(Integer.valueOf(98), spo2.bloodOxygen);
+        assertEquals(Integer.valueOf(76), spo2.pulseRate);
+    }
+
+    private static byte[] packet(int... body) {
+        int len = body.length + 2;
+        byte[] p = new byte[body.length + 4];
+        p[0] = 0x55;
+        p[1] = (byte) 0xAA;
+        p[2] = (byte) len;
+        int sum = len;
+        for (int i = 0; i < body.length; i++) {
+            p[3 + i] = (byte) body[i];
+            sum += body[i] & 0xFF;
+        }
+        p[p.length - 1] = (byte) ~sum;
+        return p;
+    }
+}
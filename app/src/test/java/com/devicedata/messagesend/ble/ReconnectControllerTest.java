@@ -0,0 +1,187 @@
+package com.devicedata.messagesend.ble;
+
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.*;
+
+public class ReconnectControllerTest {
+
+    private static final long MS = 1_000_000L;
+
+    /** 模拟时钟上的定时器 */
+    private static final class SimScheduler implements ReconnectController.Scheduler {
+        private static final class Task implements Comparable<Task> {
+            final long at;
+            final long seq;
+            final Runnable runnable;
+
+            Task(long at, long seq, Runnable runnable) {
+                this.at = at;
+                this.seq = seq;
+                this.runnable = runnable;
+            }
+
+            @Override
+            public int compareTo(Task o) {
+                return at != o.at ? Long.compare(at, o.at) : Long.compare(seq, o.seq);
+            }
+        }
+
+        final PriorityQueue<Task> queue = new PriorityQueue<>();
+        long nowNanos;
+        long seq;
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            queue.add(new Task(nowNanos + delayMs * MS, seq++, task));
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            queue.removeIf(t -> t.runnable == task);
+        }
+
+        void runUntil(long nanos) {
+            while (!queue.isEmpty() && queue.peek().at <= nanos) {
+                Task t = queue.poll();
+                nowNanos = t.at;
+                t.runnable.run();
+            }
+            nowNanos = nanos;
+        }
+    }
+
+    /**
+     * 模拟 GATT：设备在范围内时直连 40ms 连上、后台连接 600ms 连上（后台扫描占空比低），
+     * 用缓存句柄开启通知 20ms；连上后每 4ms 一个通知。离开范围时已连接的链路断开。
+     */
+    private static final class FakeGatt implements ReconnectController.Link {
+        final SimScheduler sim;
+        ReconnectController controller;
+        boolean inRange = true;
+        boolean pending;
+        boolean autoConnect;
+        boolean connected;
+        int generation;
+        int directConnects;
+        int autoConnects;
+        long notifications;
+
+        FakeGatt(SimScheduler sim) {
+            this.sim = sim;
+        }
+
+        @Override
+        public void connect(boolean auto) {
+            generation++;
+            pending = true;
+            autoConnect = auto;
+            if (auto) autoConnects++;
+            else directConnects++;
+            if (inRange) scheduleLinkUp();
+        }
+
+        @Override
+        public void close() {
+            generation++;
+            pending = false;
+            connected = false;
+        }
+
+        void setInRange(boolean value) {
+            inRange = value;
+            if (!value && connected) {
+                connected = false;
+                controller.onLinkDown();
+            } else if (value && pending) {
+                scheduleLinkUp();
+            }
+        }
+
+        private void scheduleLinkUp() {
+            int gen = generation;
+            sim.schedule(() -> {
+                if (gen != generation || !pending || !inRange) return;
+                pending = false;
+                connected = true;
+                controller.onLinkUp();
+                sim.schedule(() -> {
+                    if (gen != generation || !connected) return;
+                    controller.onReady();
+                    scheduleNotify(gen);
+                }, 20);
+            }, autoConnect ? 600 : 40);
+        }
+
+        private void scheduleNotify(int gen) {
+            sim.schedule(() -> {
+                if (gen != generation || !connected) return;
+                notifications++;
+                controller.onData();
+                scheduleNotify(gen);
+            }, 4);
+        }
+    }
+
+    private static FakeGatt connectedDevice(SimScheduler sim) {
+        FakeGatt gatt = new FakeGatt(sim);
+        ReconnectController controller = new ReconnectController(gatt, sim, () -> sim.nowNanos);
+        gatt.controller = controller;
+        controller.start();
+        sim.runUntil(1_000 * MS);
+        assertEquals(ReconnectController.State.CONNECTED, controller.state());
+        return gatt;
+    }
+
+    @Test
+    public void transientDropReconnectsDirectly() {
+        SimScheduler sim = new SimScheduler();
+        FakeGatt gatt = connectedDevice(sim);
+        // 离开范围 400ms：第一次直连挂起，设备回来后即连上
+        sim.schedule(() -> gatt.setInRange(false), 0);
+        sim.schedule(() -> gatt.setInRange(true), 400);
+        sim.runUntil(3_000 * MS);
+
+        ReconnectController controller = gatt.controller;
+        assertEquals(ReconnectController.State.CONNECTED, controller.state());
+        assertEquals(1, controller.reconnects());
+        assertEquals(0, gatt.autoConnects);
+        // 缺口 = 离开时长 + 直连 40ms + 开启通知 20ms + 不到一个通知周期
+        long gap = controller.lastGapMillis();
+        assertTrue("gap " + gap, gap >= 460 && gap <= 470);
+    }
+
+    @Test
+    public void longOutageFallsBackToBackgroundConnect() {
+        SimScheduler sim = new SimScheduler();
+        FakeGatt gatt = connectedDevice(sim);
+        ReconnectController controller = gatt.controller;
+        sim.schedule(() -> gatt.setInRange(false), 0);
+        sim.schedule(() -> gatt.setInRange(true), 20_000);
+        sim.runUntil(18_000 * MS);
+
+        // 4 次直连（每次 3 秒超时，间隔 0/250/1000/2000ms）后转后台连接
+        assertEquals(ReconnectController.State.RECONNECTING, controller.state());
+        assertTrue(controller.isBackground());
+        assertEquals(1 + ReconnectController.DEFAULT_BACKOFF_MS.length, gatt.directConnects);
+        assertEquals(1, gatt.autoConnects);
+
+        sim.runUntil(25_000 * MS);
+        assertEquals(ReconnectController.State.CONNECTED, controller.state());
+        assertFalse(controller.isBackground());
+        long gap = controller.lastGapMillis();
+        assertTrue("gap " + gap, gap >= 20_620 && gap <= 20_630);
+
+        // 用户断开后不再重连
+        controller.stop();
+        gatt.setInRange(false);
+        gatt.setInRange(true);
+        long before = gatt.notifications;
+        sim.runUntil(30_000 * MS);
+        assertEquals(before, gatt.notifications);
+        assertEquals(ReconnectController.State.IDLE, controller.state());
+        assertFalse(controller.onLinkDown());
+    }
+}
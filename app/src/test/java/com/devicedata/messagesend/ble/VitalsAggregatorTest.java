@@ -0,0 +1,50 @@
+package com.devicedata.messagesend.ble;
+
+import com.devicedata.messagesend.dsp.WaveSampleQueue;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VitalsAggregatorTest {
+
+    @Test
+    public void interleavedPacketsQueueEachWavePointExactlyOnce() {
+        VitalsAggregator aggregator = new VitalsAggregator();
+        WaveSampleQueue ecgQueue = new WaveSampleQueue();
+        WaveSampleQueue respQueue = new WaveSampleQueue();
+        List<Integer> ecgSent = new ArrayList<>();
+        List<Integer> respSent = new ArrayList<>();
+        int snapshots = 0;
+        for (int i = 0; i < 200; i++) {
+            List<byte[]> bodies = new ArrayList<>();
+            bodies.add(new byte[] {0x01, (byte) (100 + (i % 50))});
+            if (i % 2 == 0) bodies.add(new byte[] {(byte) 0xFF, (byte) (i % 128)});
+            if (i % 25 == 0) bodies.add(new byte[] {0x02, 0x00, 75, 18});
+            for (byte[] body : bodies) {
+                VitalsReading reading = aggregator.update(body, 0, body.length);
+                if (reading == null) continue;
+                // 与 StreamingService.updateLatestValues 相同：读数带波形点就入队
+                if (reading.ecgWave != null) ecgQueue.push(reading.ecgWave);
+                if (reading.respWave != null) respQueue.push(reading.respWave);
+                if (!reading.isWaveformOnly()) snapshots++;
+            }
+            // 发送节拍：取空两个队列
+            while (ecgQueue.poll()) ecgSent.add(ecgQueue.value());
+            while (respQueue.poll()) respSent.add(respQueue.value());
+        }
+        assertEquals(8, snapshots);
+        assertEquals(200, ecgSent.size());
+        assertEquals(100, respSent.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(100 + (i % 50), (int) ecgSent.get(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals((2 * i) % 128, (int) respSent.get(i));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.devicedata.messagesend.dsp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FanCompressorTest {
+
+    /** 压缩后解码，返回已还原的点（最后一个顶点之后的点尚在扇形中，不含在内） */
+    private static List<Integer> roundTrip(FanCompressor compressor, int[] signal) {
+        FanDecoder decoder = new FanDecoder();
+        List<Integer> decoded = new ArrayList<>();
+        for (int x : signal) {
+            if (compressor.push(x)) {
+                decoder.decode(compressor.vertexRun(), compressor.vertexValue(), decoded::add);
+            }
+        }
+        return decoded;
+    }
+
+    @Test
+    public void boundsErrorOnEcg() {
+        // 合成信号带 σ=2 的噪声，容差小于噪声时压缩比有限
+        int[] ecg = QrsDetectorTest.syntheticEcg(30, new double[]{0.8}, 7, null);
+        double previousRatio = 1;
+        for (int tolerance : new int[]{1, 2, 4, 8}) {
+            FanCompressor compressor = new FanCompressor(tolerance);
+            List<Integer> decoded = roundTrip(compressor, ecg);
+            assertTrue(decoded.size() > ecg.length - FanCompressor.DEFAULT_MAX_RUN);
+            int maxError = 0;
+            for (int i = 0; i < decoded.size(); i++) {
+                maxError = Math.max(maxError, Math.abs(decoded.get(i) - ecg[i]));
+            }
+            assertTrue("容差 " + tolerance + " 实际误差 " + maxError, maxError <= tolerance);
+            assertEquals(maxError, compressor.maxError());
+            assertTrue(compressor.summary(), compressor.compressionRatio() > previousRatio);
+            previousRatio = compressor.compressionRatio();
+        }
+        assertTrue("容差 8 压缩比 " + previousRatio, previousRatio > 10);
+    }
+
+    @Test
+    public void zeroToleranceIsLossless() {
+        int[] signal = new int[1000];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = (i / 50) % 2 == 0 ? i % 50 : 100 - i % 50 * 2;
+        }
+        FanCompressor compressor = new FanCompressor(0);
+        List<Integer> decoded = roundTrip(compressor, signal);
+        for (int i = 0; i < decoded.size(); i++) {
+            assertEquals("第 " + i + " 点", signal[i], (int) decoded.get(i));
+        }
+        // 分段直线只需保留转折点
+        assertTrue(compressor.summary(), compressor.compressionRatio() > 20);
+        assertEquals(0.0, compressor.rmsError(), 0);
+    }
+
+    @Test
+    public void flatSignalEmitsAtMaxRun() {
+        FanCompressor compressor = new FanCompressor(2, 100);
+        int emitted = 0;
+        for (int i = 0; i < 1001; i++) {
+            if (compressor.push(128)) {
+                emitted++;
+                assertEquals(i == 0 ? 0 : 100, compressor.vertexRun());
+            }
+        }
+        assertEquals(11, emitted);
+    }
+}
@@ -0,0 +1,101 @@
+package com.devicedata.messagesend.dsp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PolyphaseDecimatorTest {
+
+    private static final int FS = 250;
+
+    /** 输入正弦，跳过滤波器暖机后按输出点求幅度增益 */
+    private static double gain(int outputRate, double toneHz) {
+        PolyphaseDecimator decimator = new PolyphaseDecimator(FS, outputRate);
+        double amplitude = 8000;
+        double sumSquares = 0;
+        int outputs = 0;
+        int warmup = 4 * PolyphaseDecimator.DEFAULT_TAPS_PER_PHASE;
+        for (int i = 0; i < 40 * FS; i++) {
+            int x = (int) Math.round(amplitude * Math.sin(2 * Math.PI * toneHz * i / FS));
+            if (decimator.push(x) && warmup-- <= 0) {
+                double y = decimator.output();
+                sumSquares += y * y;
+                outputs++;
+            }
+        }
+        return Math.sqrt(2 * sumSquares / outputs) / amplitude;
+    }
+
+    @Test
+    public void passbandIsFlatAndStopbandAttenuated() {
+        int[][] cases = {{125}, {50}, {25}};
+        for (int[] c : cases) {
+            int out = c[0];
+            // 通带：输出采样率的 0.2 倍以内增益误差 < 0.5dB
+            for (double f : new double[]{0.05 * out, 0.1 * out, 0.2 * out}) {
+                double g = gain(out, f);
+                assertEquals(out + "Hz 输出, " + f + "Hz 增益 " + g, 1.0, g, 0.06);
+            }
+            // 阻带：高于输出 Nyquist 的 0.6 倍输出采样率以上衰减 > 40dB，避免混叠回通带
+            for (double f : new double[]{0.6 * out, 0.8 * out, Math.min(1.2 * out, 0.45 * FS)}) {
+                double g = gain(out, f);
+                assertTrue(out + "Hz 输出, " + f + "Hz 增益 " + g, g < 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void preservesDcExactlyAndEmitsEveryFactorSamples() {
+        PolyphaseDecimator decimator = new PolyphaseDecimator(FS, 25);
+        assertEquals(10, decimator.factor());
+        int outputs = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (decimator.push(128)) {
+                outputs++;
+                assertEquals("第 " + i + " 点", 9, i % 10);
+                if (outputs > PolyphaseDecimator.DEFAULT_TAPS_PER_PHASE) {
+                    assertEquals(128, decimator.output());
+                }
+            }
+        }
+        assertEquals(100, outputs);
+    }
+
+    @Test
+    public void matchesDirectConvolutionAcrossChunks() {
+        int factor = 5;
+        int taps = factor * PolyphaseDecimator.DEFAULT_TAPS_PER_PHASE;
+        short[] h = PolyphaseDecimator.designLowPass(taps, PolyphaseDecimator.CUTOFF_RATIO / factor);
+        int sum = 0;
+        for (short c : h) sum += c;
+        assertEquals(1 << 15, sum);
+
+        int[] x = new int[600];
+        java.util.Random random = new java.util.Random(5);
+        for (int i = 0; i < x.length; i++) x[i] = random.nextInt(256);
+        PolyphaseDecimator decimator = new PolyphaseDecimator(FS, FS / factor);
+        // 按 20 点一包喂入，状态跨包保留，结果应与整段直接卷积一致
+        for (int start = 0; start < x.length; start += 20) {
+            for (int i = start; i < start + 20; i++) {
+                if (decimator.push(x[i])) {
+                    long acc = 0;
+                    for (int k = 0; k < taps && i - k >= 0; k++) acc += (long) h[k] * x[i - k];
+                    assertEquals("第 " + i + " 点", (int) ((acc + (1 << 14)) >> 15), decimator.output());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void factorOneIsPassThrough() {
+        PolyphaseDecimator decimator = new PolyphaseDecimator(FS, FS);
+        assertTrue(decimator.push(42));
+        assertEquals(42, decimator.output());
+        assertEquals(0.0, decimator.groupDelaySamples(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonIntegerRatio() {
+        new PolyphaseDecimator(FS, 100);
+    }
+}
@@ -0,0 +1,121 @@
+package com.devicedata.messagesend.dsp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QrsDetectorTest {
+
+    private static final int FS = 250;
+
+    /** 合成 ECG：128 基线 + 呼吸漂移 + 噪声，R 峰高 80，带 Q/S 与 T 波 */
+    static int[] syntheticEcg(int seconds, double[] rrSeconds, long seed, long[] rPeakSamples) {
+        return syntheticEcg(seconds, rrSeconds, new double[]{80}, seed, rPeakSamples);
+    }
+
+    static int[] syntheticEcg(int seconds, double[] rrSeconds, double[] rAmplitudes, long seed, long[] rPeakSamples) {
+        int total = seconds * FS;
+        double[] v = new double[total];
+        Random random = new Random(seed);
+        for (int i = 0; i < total; i++) {
+            double t = (double) i / FS;
+            v[i] = 128 + 8 * Math.sin(2 * Math.PI * 0.3 * t) + random.nextGaussian() * 2;
+        }
+        double t = 0.5;
+        int beats = 0;
+        while (t < seconds - 0.5) {
+            addWave(v, t - 0.025, -10, 0.008);
+            addWave(v, t, rAmplitudes[beats % rAmplitudes.length], 0.010);
+            addWave(v, t + 0.025, -15, 0.008);
+            addWave(v, t + 0.25, 20, 0.040);
+            if (rPeakSamples != null && beats < rPeakSamples.length) {
+                rPeakSamples[beats] = Math.round(t * FS);
+            }
+            t += rrSeconds[beats++ % rrSeconds.length];
+        }
+        int[] out = new int[total];
+        for (int i = 0; i < total; i++) {
+            out[i] = Math.max(0, Math.min(255, (int) Math.round(v[i])));
+        }
+        return out;
+    }
+
+    private static void addWave(double[] v, double center, double amplitude, double sigma) {
+        int from = Math.max(0, (int) ((center - 5 * sigma) * FS));
+        int to = Math.min(v.length - 1, (int) ((center + 5 * sigma) * FS));
+        for (int i = from; i <= to; i++) {
+            double d = ((double) i / FS - center) / sigma;
+            v[i] += amplitude * Math.exp(-0.5 * d * d);
+        }
+    }
+
+    @Test
+    public void tracksSteadyRhythmWithAccurateRPeaks() {
+        long[] truth = new long[200];
+        int[] ecg = syntheticEcg(60, new double[]{0.8}, 1, truth);
+        QrsDetector detector = new QrsDetector(FS);
+        long start = 1_700_000_000_000L;
+        int matched = 0;
+        for (int i = 0; i < ecg.length; i++) {
+            long now = start + i * 4L;
+            if (detector.process(ecg[i], now)) {
+                long rSample = (detector.lastRPeakMillis() - start) / 4;
+                long nearest = Long.MAX_VALUE;
+                for (long r : truth) {
+                    if (Math.abs(r - rSample) < Math.abs(nearest)) nearest = r - rSample;
+                }
+                assertTrue("R 峰偏差 " + nearest + " 采样", Math.abs(nearest) <= 2);
+                matched++;
+            }
+        }
+        // 学习期 2 秒内的心搏不计
+        assertTrue("检出 " + matched, matched >= 70 && matched <= 73);
+        assertEquals(800, detector.lastRrMillis());
+        assertEquals(75, detector.heartRateBpm());
+    }
+
+    @Test
+    public void followsRateChange() {
+        // 前 30 秒 60bpm，之后 100bpm
+        int[] slow = syntheticEcg(30, new double[]{1.0}, 2, null);
+        int[] fast = syntheticEcg(30, new double[]{0.6}, 3, null);
+        QrsDetector detector = new QrsDetector(FS);
+        int beats = 0;
+        long now = 0;
+        for (int s : slow) {
+            if (detector.process(s, now += 4)) beats++;
+        }
+        assertEquals(60, detector.heartRateBpm());
+        for (int s : fast) {
+            if (detector.process(s, now += 4)) beats++;
+        }
+        assertEquals(100, detector.heartRateBpm());
+        assertTrue("检出 " + beats, beats >= 75 && beats <= 79);
+    }
+
+    @Test
+    public void searchBackRecoversLowAmplitudeBeat() {
+        // 每 10 个心搏有一个 R 峰只有 25，低于一级阈值，靠回查补记
+        double[] amplitudes = {80, 80, 80, 80, 80, 80, 80, 80, 80, 25};
+        int[] ecg = syntheticEcg(60, new double[]{0.8}, amplitudes, 4, null);
+        QrsDetector detector = new QrsDetector(FS);
+        int beats = 0;
+        for (int i = 0; i < ecg.length; i++) {
+            if (detector.process(ecg[i], i * 4L)) beats++;
+        }
+        assertTrue("检出 " + beats, beats >= 70 && beats <= 73);
+        assertEquals(75, detector.heartRateBpm());
+    }
+
+    @Test
+    public void ignoresFlatSignal() {
+        QrsDetector detector = new QrsDetector(FS);
+        for (int i = 0; i < 10 * FS; i++) {
+            assertFalse(detector.process(128, i * 4L));
+        }
+        assertEquals(-1, detector.heartRateBpm());
+        assertEquals(-1, detector.lastRPeakMillis());
+    }
+}
@@ -0,0 +1,86 @@
+package com.devicedata.messagesend.dsp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaveSampleQueueTest {
+
+    /** 设备 256Hz、发送节拍 250Hz：每点恰好取出一次，节拍间隔内没有新点时不取 */
+    @Test
+    public void mismatchedRatesEmitEachPointOnce() {
+        WaveSampleQueue queue = new WaveSampleQueue(16);
+        int produced = 0;
+        int expected = 0;
+        int emptyTicks = 0;
+        for (int tickMicros = 0; tickMicros < 10_000_000; tickMicros += 4000) {
+            // 推进到本节拍为止设备产生的点
+            while ((long) produced * 1_000_000 / 256 <= tickMicros) {
+                queue.push(produced++);
+            }
+            boolean any = false;
+            for (int frame = 0; frame < 4 && queue.poll(); frame++) {
+                assertEquals(expected++, queue.value());
+                any = true;
+            }
+            if (!any) emptyTicks++;
+        }
+        assertEquals(produced, expected);
+        assertEquals(0, queue.drainOverruns());
+        assertEquals(produced, queue.generation());
+        assertEquals(0, emptyTicks);
+
+        // 设备慢于节拍：没有新点的节拍不重复旧点
+        queue.push(7);
+        assertTrue(queue.poll());
+        assertFalse(queue.poll());
+        assertFalse(queue.poll());
+    }
+
+    @Test
+    public void slowConsumerSkipsOldestAndCounts() {
+        WaveSampleQueue queue = new WaveSampleQueue(8);
+        for (int i = 0; i < 20; i++) queue.push(i);
+        assertEquals(8, queue.available());
+        assertTrue(queue.poll());
+        // 保留最新的 7 点（与正在写入的槽位隔开一格）
+        assertEquals(13, queue.value());
+        assertEquals(13, queue.drainOverruns());
+        int last = queue.value();
+        while (queue.poll()) {
+            assertEquals(++last, queue.value());
+        }
+        assertEquals(19, last);
+        queue.push(20);
+        queue.skipAll();
+        assertFalse(queue.poll());
+    }
+
+    @Test
+    public void concurrentProducerIsSeenInOrder() throws Exception {
+        WaveSampleQueue queue = new WaveSampleQueue(64);
+        int total = 2_000_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) queue.push(i);
+        });
+        producer.start();
+        long seen = 0;
+        long overruns = 0;
+        int last = -1;
+        while (last < total - 1) {
+            if (!queue.poll()) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int v = queue.value();
+            long skipped = queue.drainOverruns();
+            // 取到的点紧接上一个点，或者恰好跳过计入溢出的那些点
+            assertEquals(last + 1 + skipped, v);
+            overruns += skipped;
+            last = v;
+            seen++;
+        }
+        producer.join();
+        assertEquals(total, seen + overruns);
+    }
+}
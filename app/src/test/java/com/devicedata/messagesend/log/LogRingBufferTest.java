@@ -0,0 +1,51 @@
+package com.devicedata.messagesend.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void keepsNewestEntriesInOrder() {
+        LogRingBuffer ring = new LogRingBuffer(6);
+        assertEquals(8, ring.capacity());
+        LogRingBuffer.Entry[] out = new LogRingBuffer.Entry[ring.capacity()];
+        assertEquals(0, ring.snapshot(out));
+        for (int i = 0; i < 20; i++) {
+            ring.add("line " + i);
+        }
+        assertEquals(20, ring.written());
+        assertEquals(8, ring.snapshot(out));
+        for (int i = 0; i < 8; i++) {
+            assertEquals("line " + (12 + i), out[i].message);
+        }
+    }
+
+    @Test
+    public void concurrentWritersNeverCorruptSnapshot() throws Exception {
+        LogRingBuffer ring = new LogRingBuffer(64);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    ring.add(id + ":" + i);
+                }
+            });
+            writers[t].start();
+        }
+        LogRingBuffer.Entry[] out = new LogRingBuffer.Entry[ring.capacity()];
+        while (ring.written() < 80_000) {
+            int n = ring.snapshot(out);
+            for (int i = 1; i < n; i++) {
+                assertTrue(out[i].seq > out[i - 1].seq);
+            }
+        }
+        for (Thread t : writers) t.join();
+        // 同一槽位新旧写入交错时允许丢一条，但留下的一定是最近 64 条之内
+        int n = ring.snapshot(out);
+        assertTrue(n > 0 && n <= 64);
+        assertTrue(out[0].seq >= 80_000 - 64);
+    }
+}
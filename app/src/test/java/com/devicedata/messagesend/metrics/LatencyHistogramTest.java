@@ -0,0 +1,52 @@
+package com.devicedata.messagesend.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesStayWithinRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            h.record(v);
+        }
+        assertEquals(100_000, h.count());
+        assertEquals(1, h.min());
+        assertEquals(100_000, h.max());
+        assertEquals(50_000.5, h.mean(), 1e-6);
+        for (double p : new double[] {50, 90, 99, 99.9}) {
+            long expected = (long) (p / 100 * 100_000);
+            long actual = h.valueAtPercentile(p);
+            assertTrue(p + ": " + actual, actual >= expected && actual <= expected * (1 + 1.0 / 64) + 1);
+        }
+        assertEquals(100_000, h.valueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverFullRange() {
+        for (long v : new long[] {0, 1, 127, 128, 129, 1_000_000_007L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(v);
+            long upper = LatencyHistogram.highestEquivalent(index);
+            assertTrue(v + " <= " + upper, v <= upper);
+            assertTrue(index == 0 || LatencyHistogram.highestEquivalent(index - 1) < v);
+        }
+    }
+
+    @Test
+    public void addMergesAndResetClears() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(1000);
+        b.record(-5); // 负值按 0 记录
+        a.add(b);
+        assertEquals(3, a.count());
+        assertEquals(0, a.min());
+        assertEquals(1000, a.max());
+        a.reset();
+        assertEquals(0, a.count());
+        assertEquals(0, a.valueAtPercentile(99));
+    }
+}
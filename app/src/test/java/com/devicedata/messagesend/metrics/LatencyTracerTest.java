@@ -0,0 +1,54 @@
+package com.devicedata.messagesend.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyTracerTest {
+
+    @Test
+    public void samplesEveryNthReading() {
+        LatencyTracer tracer = new LatencyTracer(4);
+        int traced = 0;
+        for (int i = 0; i < 40; i++) {
+            SampleTrace t = tracer.begin(0, 0, 0);
+            if (t != null) {
+                traced++;
+                assertEquals(traced, t.id);
+            }
+        }
+        assertEquals(10, traced);
+    }
+
+    @Test
+    public void recordsEachStage() {
+        LatencyTracer tracer = new LatencyTracer(1);
+        long base = 1_000_000_000L;
+        SampleTrace t = tracer.begin(base, base + 50_000, base + 60_000);
+        assertNotNull(t);
+        t.markPickedUp(base + 2_060_000);
+        t.markEnqueued(base + 2_090_000);
+        t.markWritten(base + 2_100_000);
+        t.markWritten(base + 9_000_000); // 重复写出不再计入
+
+        assertEquals(1, tracer.completedCount());
+        assertEquals(50, tracer.valueAtPercentile(LatencyTracer.Stage.DECODE, 50));
+        assertEquals(10, tracer.valueAtPercentile(LatencyTracer.Stage.AGGREGATE, 50));
+        assertEquals(2000, tracer.valueAtPercentile(LatencyTracer.Stage.PICKUP, 50));
+        assertEquals(30, tracer.valueAtPercentile(LatencyTracer.Stage.ENQUEUE, 50));
+        assertEquals(10, tracer.valueAtPercentile(LatencyTracer.Stage.WRITE, 50));
+        assertEquals(2100, tracer.valueAtPercentile(LatencyTracer.Stage.TOTAL, 50));
+    }
+
+    @Test
+    public void discardedTracesAreCountedSeparately() {
+        LatencyTracer tracer = new LatencyTracer(1);
+        SampleTrace t = tracer.begin(System.nanoTime(), System.nanoTime(), System.nanoTime());
+        assertNotNull(t);
+        t.discard();
+        t.markWritten();
+        assertEquals(0, tracer.completedCount());
+        assertEquals(1, tracer.droppedCount());
+        assertTrue(tracer.summary().contains("丢弃 1"));
+    }
+}
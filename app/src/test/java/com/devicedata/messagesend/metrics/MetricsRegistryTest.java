@@ -0,0 +1,57 @@
+package com.devicedata.messagesend.metrics;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void countersAreSharedByNameAndSafeAcrossThreads() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsRegistry.Counter counter = registry.counter("ble_notify");
+        assertSame(counter, registry.counter("ble_notify"));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.inc();
+                    registry.histogram("send_us").record(i % 100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+
+        MetricsRegistry.Snapshot snapshot = registry.snapshot();
+        assertEquals(40_000, snapshot.value("ble_notify"));
+        assertEquals(40_000, snapshot.histogram("send_us").count());
+        assertEquals(99, snapshot.histogram("send_us").max());
+        assertEquals(0, snapshot.value("missing"));
+    }
+
+    @Test
+    public void formatsLineProtocol() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("tx_stomp_sent").add(250);
+        registry.gauge("tx_queue", () -> 3);
+        registry.histogram("send_us").record(80);
+
+        MetricsRegistry.Snapshot snapshot = registry.snapshot();
+        String line = snapshot.toLineProtocol("pipeline", Collections.singletonMap("device", "AA BB"));
+        assertEquals("pipeline,device=AA\\ BB tx_queue=3i,tx_stomp_sent=250i,"
+                + "send_us_n=1i,send_us_p50=80i,send_us_p99=80i,send_us_max=80i " + snapshot.timeMillis, line);
+    }
+
+    @Test
+    public void formatShowsRatesAgainstPreviousSnapshot() {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsRegistry.Counter payloads = registry.counter("payloads");
+        MetricsRegistry.Snapshot first = registry.snapshot();
+        payloads.add(1250);
+        MetricsRegistry.Snapshot second = registry.snapshot();
+        assertTrue(second.format(first).startsWith("payloads 1250 (+"));
+    }
+}
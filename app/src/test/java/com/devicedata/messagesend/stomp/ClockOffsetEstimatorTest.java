@@ -0,0 +1,80 @@
+package com.devicedata.messagesend.stomp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClockOffsetEstimatorTest {
+
+    private static final long MS = 1_000_000L;
+    // 服务端时钟比本机单调时钟超前约 1.7e12ms（纪元时间）再加 1.5 秒，且每秒快 80µs
+    private static final double SERVER_BASE_MS = 1_700_000_000_000.0 + 1_500;
+    private static final double SKEW = 80e-6;
+
+    private static double serverMillis(long localNanos) {
+        return SERVER_BASE_MS + localNanos / 1e6 * (1 + SKEW);
+    }
+
+    @Test
+    public void minRttSelectionBoundsErrorUnderQueueing() {
+        Random random = new Random(7);
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+        long t = 10_000 * MS;
+        double worstNaiveError = 0;
+        double worstError = 0;
+        for (int probe = 0; probe < 120; probe++) {
+            // 单程 5ms 基础时延 + 指数抖动；每 5 个探测有一个回程排在 300ms 的积压后面
+            double up = 5 + exponential(random, 4);
+            double down = 5 + exponential(random, 4) + (probe % 5 == 4 ? 300 : 0);
+            long t0 = t;
+            long arrive = t0 + (long) (up * MS);
+            long t1 = (long) Math.floor(serverMillis(arrive));
+            long t2 = t1;
+            long t3 = arrive + (long) (down * MS);
+            assertTrue(estimator.addSample(t0, t1, t2, t3));
+
+            double naive = ((t1 - t0 / 1e6) + (t2 - t3 / 1e6)) / 2;
+            double truth = serverMillis(t3) - t3 / 1e6;
+            worstNaiveError = Math.max(worstNaiveError, Math.abs(naive - truth));
+            if (probe >= 8) {
+                long error = Math.abs(estimator.toServerMillis(t3) - Math.round(serverMillis(t3)));
+                worstError = Math.max(worstError, error);
+                // 误差不超过报告的不确定度（毫秒取整多 1ms）
+                assertTrue("probe " + probe + " error " + error, error * 1000 <= estimator.uncertaintyMicros(t3) + 1000);
+            }
+            t += (probe < 4 ? 250 : 5_000) * MS;
+        }
+        assertTrue("worst " + worstError + " naive " + worstNaiveError, worstError * 10 < worstNaiveError);
+        assertTrue(estimator.uncertaintyMicros(t) < 15_000);
+        assertEquals(80, estimator.skewPpm(), 20);
+        assertEquals(120, estimator.samples());
+    }
+
+    @Test
+    public void rejectsInconsistentSamplesAndParsesResponses() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+        assertFalse(estimator.hasEstimate());
+        assertEquals(-1, estimator.toServerMillis(0));
+        assertEquals(-1, estimator.uncertaintyMicros(0));
+        assertEquals(0, estimator.wallClockCorrectionMillis());
+        assertFalse(estimator.addSample(10 * MS, 100, 100, 5 * MS));
+        assertFalse(estimator.addSample(10 * MS, 100, 99, 20 * MS));
+        assertEquals(2, estimator.rejected());
+        assertTrue(estimator.addSample(10 * MS, 1_000, 1_002, 22 * MS));
+        // θ = ((1000 − 10) + (1002 − 22)) / 2 = 985，δ = 12 − 2 = 10
+        assertEquals(985 + 30, estimator.toServerMillis(30 * MS));
+        assertEquals(10, estimator.selectedDelayMillis(), 1e-9);
+        assertEquals(5_000, estimator.uncertaintyMicros(22 * MS));
+
+        long[] fields = ClockOffsetEstimator.parseResponse(ClockOffsetEstimator.responseBody(42, 1_700_000_000_123L, 1_700_000_000_124L));
+        assertArrayEquals(new long[]{42, 1_700_000_000_123L, 1_700_000_000_124L}, fields);
+        assertArrayEquals(new long[]{7, -3, 5}, ClockOffsetEstimator.parseResponse("{\"id\": 7, \"t1\": -3, \"t2\": 5}"));
+        assertNull(ClockOffsetEstimator.parseResponse("{\"count\":250,\"t\":1}"));
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+}
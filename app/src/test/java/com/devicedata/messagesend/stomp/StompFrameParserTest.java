@@ -0,0 +1,106 @@
+package com.devicedata.messagesend.stomp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StompFrameParserTest {
+
+    private final List<String> commands = new ArrayList<>();
+    private final List<String> bodies = new ArrayList<>();
+    private final List<String> destinations = new ArrayList<>();
+    private int heartBeats;
+    private StompFrameParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new StompFrameParser(new StompFrameParser.Handler() {
+            @Override
+            public void onFrame(StompFrame frame) {
+                commands.add(frame.command());
+                bodies.add(frame.body());
+                destinations.add(frame.header("destination"));
+            }
+
+            @Override
+            public void onHeartBeat() {
+                heartBeats++;
+            }
+        });
+    }
+
+    @Test
+    public void parsesConcatenatedFramesAndHeartBeats() {
+        parser.feed("\nCONNECTED\nversion:1.2\nheart-beat:1000,2000\n\n\u0000\n"
+                + "MESSAGE\ndestination:/data/pub/response\n\n{\"count\":250}\u0000");
+        assertEquals(2, heartBeats);
+        assertEquals(2, commands.size());
+        assertEquals("CONNECTED", commands.get(0));
+        assertEquals("MESSAGE", commands.get(1));
+        assertEquals("{\"count\":250}", bodies.get(1));
+        assertEquals("/data/pub/response", destinations.get(1));
+    }
+
+    @Test
+    public void frameSplitAcrossChunks() {
+        String frame = "MESSAGE\r\ndestination:/a\r\n\r\nhello\u0000";
+        for (int i = 0; i < frame.length(); i++) {
+            parser.feed(frame.substring(i, i + 1));
+        }
+        assertEquals(1, commands.size());
+        assertEquals("hello", bodies.get(0));
+        assertEquals("/a", destinations.get(0));
+    }
+
+    @Test
+    public void contentLengthAllowsNulInBodyAndCountsUtf8Bytes() {
+        // "心" 占 3 个 UTF-8 字节，加上 NUL 共 5 字节
+        parser.feed("MESSAGE\ncontent-length:5\n\na\u0000心\u0000");
+        assertEquals(1, commands.size());
+        assertEquals("a\u0000心", bodies.get(0));
+    }
+
+    @Test
+    public void unescapesHeadersExceptOnConnected() {
+        List<String> values = new ArrayList<>();
+        StompFrameParser p = new StompFrameParser(new StompFrameParser.Handler() {
+            @Override
+            public void onFrame(StompFrame frame) {
+                values.add(frame.header("k"));
+            }
+
+            @Override
+            public void onHeartBeat() {
+            }
+        });
+        p.feed("MESSAGE\nk:a\\cb\\nc\\\\\nk:ignored\n\n\u0000");
+        p.feed("CONNECTED\nk:a\\cb\n\n\u0000");
+        assertEquals("a:b\nc\\", values.get(0));
+        assertEquals("a\\cb", values.get(1));
+    }
+
+    @Test
+    public void bodyPolicySkipsBody() {
+        parser.setBodyPolicy(frame -> !"MESSAGE".equals(frame.command()));
+        parser.feed("MESSAGE\ndestination:/a\n\nlarge-body\u0000ERROR\nmessage:x\n\noops\u0000");
+        assertEquals("", bodies.get(0));
+        assertEquals("oops", bodies.get(1));
+    }
+
+    @Test
+    public void recoversAfterMalformedFrame() {
+        try {
+            parser.feed("MESSAGE\ncontent-length:2\n\nabX");
+            fail("expected missing NUL to be rejected");
+        } catch (IllegalStateException expected) {
+            // 解析器已重置
+        }
+        parser.feed("RECEIPT\nreceipt-id:1\n\n\u0000");
+        assertEquals(1, commands.size());
+        assertEquals("RECEIPT", commands.get(0));
+    }
+}
@@ -0,0 +1,129 @@
+package com.devicedata.messagesend.store;
+
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class VitalsRingStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    /** 第 i 行：每 4ms 一行，ECG = i % 200，体温 36.5，心率每 250 行才有一次 */
+    private static VitalsReading row(long i) {
+        return new VitalsReading(T0 + i * 4, (int) (i % 200), i % 250 == 0 ? 70 : null,
+                null, null, null, null, null, null, 36.5, null, null);
+    }
+
+    @Test
+    public void bucketsMatchBruteForce() throws Exception {
+        try (VitalsRingStore store = VitalsRingStore.open(folder.newFile(), 64, 40)) {
+            for (long i = 0; i < 2000; i++) {
+                store.append(row(i), (int) (i % 7));
+            }
+            // 100ms 的桶小于一个块（256ms），1000ms 的桶包含整块，两种路径都覆盖
+            for (long resolution : new long[]{100, 1000}) {
+                VitalsRingStore.Series s = store.query(VitalsChannel.ECG_WAVE, T0 + 500, T0 + 7500, resolution);
+                for (int b = 0; b < s.buckets(); b++) {
+                    int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE, n = 0;
+                    long total = 0;
+                    for (long i = 0; i < 2000; i++) {
+                        long t = T0 + i * 4;
+                        if (t >= s.bucketStart(b) && t < s.bucketStart(b) + resolution && t < T0 + 7500) {
+                            int v = (int) (i % 200);
+                            lo = Math.min(lo, v);
+                            hi = Math.max(hi, v);
+                            total += v;
+                            n++;
+                        }
+                    }
+                    assertEquals(n, s.count(b));
+                    if (n > 0) {
+                        assertEquals(lo, s.min(b));
+                        assertEquals(hi, s.max(b));
+                        assertEquals((double) total / n, s.mean(b), 1e-9);
+                    }
+                }
+            }
+            VitalsRingStore.Series temp = store.query(VitalsChannel.TEMPERATURE, T0, T0 + 8000, 8000);
+            assertEquals(2000, temp.count(0));
+            assertEquals(36.5, temp.mean(0) / VitalsChannel.TEMPERATURE.scale, 1e-9);
+            assertEquals(8, store.query(VitalsChannel.ECG_HEART_RATE, T0, T0 + 8000, 8000).count(0));
+            assertEquals(0, store.query(VitalsChannel.SYSTOLIC, T0, T0 + 8000, 8000).count(0));
+        }
+    }
+
+    @Test
+    public void overwritesOldestAndSurvivesReopen() throws Exception {
+        File file = folder.newFile();
+        try (VitalsRingStore store = VitalsRingStore.open(file, 64, 10)) {
+            for (long i = 0; i < 1000; i++) {
+                store.append(row(i), null);
+            }
+        }
+        try (VitalsRingStore store = VitalsRingStore.open(file, 64, 10)) {
+            assertEquals(1000, store.committedRows());
+            assertEquals(T0 + 999 * 4, store.newestMillis());
+            // 继续写满当前块的剩余部分
+            for (long i = 1000; i < 1100; i++) {
+                store.append(row(i), null);
+            }
+            VitalsRingStore.Series s = store.query(VitalsChannel.ECG_WAVE, T0, T0 + 1100 * 4, 4);
+            // 1100 行在第 17 块；可读的是第 9~17 块（最旧的第 8 块不读）
+            long oldest = 9 * 64;
+            for (int b = 0; b < s.buckets(); b++) {
+                assertEquals("第 " + b + " 行", b >= oldest ? 1 : 0, s.count(b));
+                if (b >= oldest) assertEquals(b % 200, s.min(b));
+            }
+        }
+        // 块参数变化时清空重建
+        try (VitalsRingStore store = VitalsRingStore.open(file, 32, 10)) {
+            assertEquals(0, store.committedRows());
+            assertEquals(-1, store.newestMillis());
+        }
+    }
+
+    @Test
+    public void concurrentQueriesNeverSeeTornBlocks() throws Exception {
+        try (VitalsRingStore store = VitalsRingStore.open(folder.newFile(), 128, 8)) {
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        long newest = store.newestMillis();
+                        if (newest < 0) continue;
+                        VitalsRingStore.Series s = store.query(VitalsChannel.ECG_WAVE, newest - 2000, newest + 1, 200);
+                        for (int b = 0; b < s.buckets(); b++) {
+                            if (s.count(b) > 0 && (s.min(b) < 0 || s.max(b) >= 200 || s.count(b) > 50)) {
+                                throw new AssertionError("桶 " + b + " 异常: " + s.min(b) + ".." + s.max(b) + " n=" + s.count(b));
+                            }
+                        }
+                    }
+                } catch (IllegalStateException ignored) {
+                    // 单核上写线程可能在一次查询期间写过整圈，允许放弃
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            reader.start();
+            for (long i = 0; i < 200_000; i++) {
+                store.append(row(i), null);
+            }
+            done.set(true);
+            reader.join();
+            assertNull(failure.get());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.devicedata.messagesend.stream;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OperatorsTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static final class Collector<T> implements Subscriber<T> {
+        final List<T> items = new ArrayList<>();
+        final long initialRequest;
+        Subscription subscription;
+        boolean completed;
+
+        Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(@NonNull Subscription s) {
+            subscription = s;
+            s.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(@NonNull T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    public void filterMapWindowTranslatesDemand() {
+        StreamPublisher<Integer> publisher = new StreamPublisher<>();
+        Collector<List<String>> windows = new Collector<>(2);
+        StreamPublisher<Integer>.Sink sink = publisher.subscribe(
+                Operators.filter(i -> i % 2 == 0, Operators.map(i -> "v" + i, Operators.window(3, windows))),
+                Runnable::run, 64, StreamPublisher.Overflow.ERROR);
+        for (int i = 0; i < 20; i++) {
+            publisher.publish(i);
+        }
+        // 请求 2 个窗口 = 6 个偶数项；滤掉的奇数项补回额度
+        assertEquals(2, windows.items.size());
+        assertEquals(List.of("v0", "v2", "v4"), windows.items.get(0));
+        assertEquals(List.of("v6", "v8", "v10"), windows.items.get(1));
+        assertEquals(9, sink.buffered());
+
+        windows.subscription.request(5);
+        publisher.complete();
+        assertEquals(4, windows.items.size());
+        // 结束时交出不足一个窗口的尾部
+        assertEquals(List.of("v18"), windows.items.get(3));
+        assertTrue(windows.completed);
+    }
+
+    @Test
+    public void sampleKeepsFirstItemPerPeriodWithinDemand() {
+        long[] now = {0};
+        StreamPublisher<Integer> publisher = new StreamPublisher<>();
+        Collector<Integer> sampled = new Collector<>(3);
+        publisher.subscribe(Operators.sample(100, () -> now[0], sampled),
+                Runnable::run, 8, StreamPublisher.Overflow.ERROR);
+        // 4ms 一项，共 1 秒：每 100ms 交出一项，但下游只请求了 3 项
+        for (int i = 0; i < 250; i++) {
+            now[0] = i * 4 * MS;
+            publisher.publish(i);
+        }
+        assertEquals(List.of(0, 25, 50), sampled.items);
+        sampled.subscription.request(Long.MAX_VALUE);
+        for (int i = 250; i < 500; i++) {
+            now[0] = i * 4 * MS;
+            publisher.publish(i);
+        }
+        assertEquals(3 + 10, sampled.items.size());
+        assertEquals(Integer.valueOf(250), sampled.items.get(3));
+    }
+}
@@ -0,0 +1,177 @@
+package com.devicedata.messagesend.stream;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class StreamPublisherTest {
+
+    private static final int ITEMS = 500_000;
+
+    /** 记录收到的序号；每次只请求 batch 项 */
+    private static class Recorder implements Subscriber<Integer> {
+        final int batch;
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Subscription subscription;
+        int received;
+        int outstanding;
+        int last = -1;
+        boolean ordered = true;
+
+        Recorder(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(@NonNull Subscription s) {
+            subscription = s;
+            outstanding = batch;
+            s.request(batch);
+        }
+
+        @Override
+        public void onNext(@NonNull Integer item) {
+            ordered &= item > last;
+            last = item;
+            received++;
+            if (--outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(@NonNull Throwable e) {
+            error.set(e);
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void slowSubscriberDropsWithoutBlockingProducerOrFastSubscriber() throws Exception {
+        ExecutorService fastExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService slowExecutor = Executors.newSingleThreadExecutor();
+        StreamPublisher<Integer> publisher = new StreamPublisher<>();
+
+        Recorder fast = new Recorder(256);
+        StreamPublisher<Integer>.Sink fastSink = publisher.subscribe(fast, fastExecutor, 16_384,
+                StreamPublisher.Overflow.DROP_NEWEST);
+
+        // 慢订阅者：第一项上卡住，直到生产者发完
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Recorder slow = new Recorder(1) {
+            @Override
+            public void onNext(@NonNull Integer item) {
+                if (received == 0) {
+                    stalled.countDown();
+                    try {
+                        timedOut.set(!release.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.onNext(item);
+            }
+        };
+        StreamPublisher<Integer>.Sink slowSink = publisher.subscribe(slow, slowExecutor, 64,
+                StreamPublisher.Overflow.DROP_OLDEST);
+
+        publisher.publish(0);
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < ITEMS; i++) {
+            publisher.publish(i);
+        }
+        publisher.complete();
+        assertTrue(fast.done.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(slow.done.await(10, TimeUnit.SECONDS));
+        fastExecutor.shutdown();
+        slowExecutor.shutdown();
+
+        // 生产者没有被卡住的订阅者拖住
+        assertFalse(timedOut.get());
+        assertNull(fast.error.get());
+        assertTrue(fast.ordered);
+        assertEquals(ITEMS, fastSink.delivered() + fastSink.dropped());
+        // 慢订阅者：卡住的那一项 + 缓冲区里最新的 64 项
+        assertEquals(65, slow.received);
+        assertEquals(65, slowSink.delivered());
+        assertEquals(ITEMS - 65, slowSink.dropped());
+        assertEquals(ITEMS - 1, slow.last);
+        assertTrue(slow.ordered);
+        assertEquals(0, publisher.subscriberCount());
+    }
+
+    @Test
+    public void deliversOnlyRequestedItemsAndErrorOverflowCancels() {
+        StreamPublisher<Integer> publisher = new StreamPublisher<>();
+        List<Integer> items = new ArrayList<>();
+        Subscription[] subscription = new Subscription[1];
+        StreamPublisher<Integer>.Sink sink = publisher.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(@NonNull Subscription s) {
+                subscription[0] = s;
+                s.request(3);
+            }
+
+            @Override
+            public void onNext(@NonNull Integer item) {
+                items.add(item);
+            }
+        }, Runnable::run, 16, StreamPublisher.Overflow.DROP_OLDEST);
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(i);
+        }
+        assertEquals(3, items.size());
+        assertEquals(7, sink.buffered());
+        subscription[0].request(2);
+        assertEquals(5, items.size());
+        assertEquals(Integer.valueOf(4), items.get(4));
+        subscription[0].cancel();
+        publisher.publish(10);
+        assertEquals(5, items.size());
+        assertTrue(sink.isCancelled());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        StreamPublisher<Integer>.Sink strict = publisher.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(@NonNull Subscription s) {
+            }
+
+            @Override
+            public void onNext(@NonNull Integer item) {
+                fail("未请求不应投递");
+            }
+
+            @Override
+            public void onError(@NonNull Throwable e) {
+                error.set(e);
+            }
+        }, Runnable::run, 4, StreamPublisher.Overflow.ERROR);
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(i);
+        }
+        assertTrue(error.get() instanceof IllegalStateException);
+        assertTrue(strict.isCancelled());
+        assertEquals(0, publisher.subscriberCount());
+    }
+}
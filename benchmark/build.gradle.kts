@@ -0,0 +1,47 @@
+// JMH 基准测试：直接编译 app 模块中不依赖 Android 框架的源码，保证测的就是 App 里跑的实现
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(17)
+    }
+}
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include("com/devicedata/messagesend/stomp/**")
+            include("com/devicedata/messagesend/binary/**")
+            include("com/devicedata/messagesend/model/**")
+            include("com/devicedata/messagesend/metrics/**")
+            include("com/devicedata/messagesend/dsp/**")
+            include("com/devicedata/messagesend/alarm/**")
+            include("com/devicedata/messagesend/ble/PacketFramer.java")
+            include("com/devicedata/messagesend/ble/VitalsAggregator.java")
+            include("com/devicedata/messagesend/ble/PacketHandler.java")
+            include("com/devicedata/messagesend/PayloadFactory.java")
+        }
+    }
+}
+
+dependencies {
+    compileOnly(libs.androidx.annotation)
+    // Android 自带 org.json，JVM 上需要显式引入
+    implementation(libs.org.json)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    resultFormat = "JSON"
+    // 吞吐之外同时输出分配速率（gc.alloc.rate.norm 即每次操作分配的字节数）
+    profilers = listOf("gc")
+    // 只跑部分基准：./gradlew :benchmark:jmh -PjmhIncludes=TransportFraming
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
@@ -0,0 +1,54 @@
+package com.devicedata.messagesend;
+
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 250Hz 发送循环每个节拍的两步：按最新值缓存构造 VitalsReading，再 buildPayload(...).toString()。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayloadBenchmark {
+
+    // 模拟 MainActivity 的最新值缓存（装箱字段），避免常量折叠
+    private Integer ecgWave = 2048;
+    private Integer ecgHr = 75;
+    private Integer respRate = 18;
+    private Integer systolic = 120;
+    private Integer diastolic = 80;
+    private Integer map = 93;
+    private Integer boPercent = 98;
+    private Integer pulseRate = 76;
+    private Double temp = 36.6;
+    private Integer respWave = 1500;
+    private Integer boWave = 90;
+    private long now = 1731420000000L;
+
+    private final VitalsReading reading = newReading();
+
+    @Benchmark
+    public VitalsReading newReading() {
+        return new VitalsReading(now++, ecgWave, ecgHr, respRate, systolic, diastolic, map,
+                boPercent, pulseRate, temp, null, respWave);
+    }
+
+    @Benchmark
+    public String buildPayloadToString() {
+        return PayloadFactory.buildPayload(reading, null, null, boWave).toString();
+    }
+
+    /** 一个完整节拍 */
+    @Benchmark
+    public String tick() {
+        return PayloadFactory.buildPayload(newReading(), null, null, boWave).toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.devicedata.messagesend;
+
+import com.devicedata.messagesend.binary.BinaryProtocol;
+import com.devicedata.messagesend.binary.VitalsBinaryCodec;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单点采样从 VitalsReading 到可写入 socket 的字节，发送端每条的 CPU 开销：
+ * STOMP over WebSocket（JSON + SEND 帧头 + 客户端掩码）对比二进制 TCP 的 JSON 帧与 SAMPLE 帧。
+ * 网络往返时延请在真机上对照 BinaryTcpClient 与 StompConnection 的 latencyMillis()。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransportFramingBenchmark {
+
+    private static final String SEND_HEADERS = "SEND\n"
+            + "destination:/data/pub/AA:BB:CC:DD:EE:FF\n"
+            + "content-type:application/json\n";
+
+    private VitalsReading reading;
+    private final byte[] mask = {0x12, 0x34, 0x56, 0x78};
+    private final ByteBuffer direct = ByteBuffer.allocateDirect(256);
+    private byte[] scratch = new byte[256];
+
+    @Setup
+    public void setUp() {
+        reading = new VitalsReading(1731420000000L, 2048, 75, 18, null, null, null,
+                98, 76, 36.6, null, 1500);
+    }
+
+    /** StompWebSocketClient.send + OkHttp 写帧：JSON、拼帧、UTF-8 编码、逐字节掩码 */
+    @Benchmark
+    public byte[] stompOverWebSocket() {
+        String json = PayloadFactory.buildPayload(reading, null, null, 90).toString();
+        String frame = SEND_HEADERS + "content-length:" + json.length() + "\n\n" + json + "\u0000";
+        byte[] payload = frame.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[payload.length + 8];
+        out[0] = (byte) 0x81;
+        out[1] = (byte) (0x80 | 126);
+        out[2] = (byte) (payload.length >>> 8);
+        out[3] = (byte) payload.length;
+        System.arraycopy(mask, 0, out, 4, 4);
+        for (int i = 0; i < payload.length; i++) {
+            out[8 + i] = (byte) (payload[i] ^ mask[i & 3]);
+        }
+        return out;
+    }
+
+    /** BinaryTcpClient.send：JSON 原样放入长度前缀帧 */
+    @Benchmark
+    public ByteBuffer binaryJson() {
+        String json = PayloadFactory.buildPayload(reading, null, null, 90).toString();
+        int len = json.length();
+        if (scratch.length < len) scratch = new byte[len * 2];
+        for (int i = 0; i < len; i++) {
+            scratch[i] = (byte) json.charAt(i);
+        }
+        direct.clear();
+        BinaryProtocol.putHeader(direct, BinaryProtocol.TYPE_JSON, len);
+        direct.put(scratch, 0, len);
+        direct.flip();
+        return direct;
+    }
+
+    /** BinaryTcpClient.sendSample：不经 JSON，直接编码 */
+    @Benchmark
+    public ByteBuffer binarySample() {
+        direct.clear();
+        BinaryProtocol.putHeader(direct, BinaryProtocol.TYPE_SAMPLE, 0);
+        int n = VitalsBinaryCodec.encode(reading, 90, direct);
+        direct.putInt(0, n + 1);
+        direct.flip();
+        return direct;
+    }
+}
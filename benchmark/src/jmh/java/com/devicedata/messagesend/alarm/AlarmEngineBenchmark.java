@@ -0,0 +1,71 @@
+package com.devicedata.messagesend.alarm;
+
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlarmEngine.evaluate 每条读数耗时：规则平均分布到全部通道，三类规则轮换（阈值、持续阈值、变化量）。
+ * 两条读数交替输入，约十分之一的阈值规则每次都在触发与解除之间翻转，监听器走一次回调。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AlarmEngineBenchmark {
+
+    @Param({"100", "500"})
+    public int rules;
+
+    private AlarmEngine engine;
+    private VitalsReading[] readings;
+    private long tick;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        VitalsChannel[] channels = VitalsChannel.values();
+        List<AlarmRule> list = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            VitalsChannel channel = channels[i % channels.length];
+            String name = "r" + i;
+            switch (i % 3) {
+                case 0:
+                    // 十分之一的规则卡在 100~110 之间，两条读数交替时翻转
+                    list.add(i % 10 == 0 ? AlarmRule.above(name, channel, 105) : AlarmRule.outside(name, channel, 0, 1000));
+                    break;
+                case 1:
+                    list.add(AlarmRule.below(name, channel, 10).sustainFor(5_000));
+                    break;
+                default:
+                    list.add(AlarmRule.change(name, channel, 50, 60_000));
+                    break;
+            }
+        }
+        engine = new AlarmEngine(list, (rule, active, value, time) -> blackhole.consume(rule));
+        readings = new VitalsReading[]{reading(100), reading(110)};
+    }
+
+    private static VitalsReading reading(int v) {
+        List<Integer> wave = new ArrayList<>();
+        wave.add(v);
+        return new VitalsReading(0, v, v, v, v, v, v, v, v, v / 10.0 + 26, wave, v, null, null, v);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        VitalsReading r = readings[(int) (tick++ & 1)];
+        return engine.evaluate(r, null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.devicedata.messagesend.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BleManager 收包路径：拆包 + 校验，包体以视图交给回调，不复制。
+ * 一轮输入为 7 种数据类型各一包（共 64 字节），按 20 字节（默认 MTU 23 的有效载荷）切成多次通知。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PacketFramerBenchmark {
+
+    private byte[][] notifications;
+    private byte[] singlePacket;
+    private PacketFramer framer;
+
+    @Setup
+    public void setUp(Blackhole bh) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] body : sampleBodies()) {
+            byte[] packet = packet(body);
+            stream.write(packet, 0, packet.length);
+        }
+        byte[] all = stream.toByteArray();
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < all.length; i += 20) {
+            chunks.add(Arrays.copyOfRange(all, i, Math.min(all.length, i + 20)));
+        }
+        notifications = chunks.toArray(new byte[0][]);
+        singlePacket = packet(new byte[] {0x01, (byte) 0x80});
+        framer = new PacketFramer(new PacketFramer.Handler() {
+            @Override
+            public void onPacket(byte[] buf, int offset, int length) {
+                bh.consume(buf[offset]);
+            }
+
+            @Override
+            public void onChecksumMismatch() {
+                throw new IllegalStateException("checksum");
+            }
+        });
+    }
+
+    /** 一轮 7 包，跨通知拼接 */
+    @Benchmark
+    public void mixedStream() {
+        for (byte[] n : notifications) {
+            framer.accept(n);
+        }
+    }
+
+    /** 最常见的单包通知：ECG 波形点 */
+    @Benchmark
+    public void ecgPacket() {
+        framer.accept(singlePacket);
+    }
+
+    /** 各数据类型的典型包体（body[0] 为类型） */
+    static byte[][] sampleBodies() {
+        return new byte[][] {
+                {0x01, (byte) 0x80},                                  // ECG 波形
+                {0x02, 0x00, 75, 18},                                 // 心率、呼吸率
+                {0x03, 0x00, 0x00, 120, 93, 80},                      // 血压
+                {0x04, 0x00, 98, 76},                                 // 血氧、脉率
+                {0x05, 0x00, 36, 6},                                  // 体温
+                {(byte) 0xFE, 90},                                    // 血氧波形
+                {(byte) 0xFF, 0x40},                                  // 呼吸波形
+        };
+    }
+
+    /** 0x55 0xAA len body checksum */
+    static byte[] packet(byte[] body) {
+        int len = body.length + 2;
+        byte[] packet = new byte[body.length + 4];
+        packet[0] = 0x55;
+        packet[1] = (byte) 0xAA;
+        packet[2] = (byte) len;
+        System.arraycopy(body, 0, packet, 3, body.length);
+        int sum = len;
+        for (byte b : body) {
+            sum += b & 0xFF;
+        }
+        packet[packet.length - 1] = (byte) ~sum;
+        return packet;
+    }
+}
@@ -0,0 +1,49 @@
+package com.devicedata.messagesend.ble;
+
+import com.devicedata.messagesend.model.VitalsReading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VitalsAggregator.update 按数据类型分别测：波形类型（0x01 经 QRS 检测后出单点读数；0xFE/0xFF 单点读数）与低频快照类型。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VitalsAggregatorBenchmark {
+
+    @Param({"01", "02", "03", "04", "05", "FE", "FF"})
+    public String type;
+
+    private final VitalsAggregator aggregator = new VitalsAggregator();
+    private byte[] body;
+    private int typeCode;
+
+    @Setup
+    public void setUp() {
+        typeCode = Integer.parseInt(type, 16);
+        for (byte[] b : PacketFramerBenchmark.sampleBodies()) {
+            if ((b[0] & 0xFF) == typeCode) {
+                body = b;
+            }
+        }
+        // 先填满低频字段，快照类型返回完整读数
+        for (byte[] b : PacketFramerBenchmark.sampleBodies()) {
+            aggregator.update(b, 0, b.length);
+        }
+    }
+
+    @Benchmark
+    public VitalsReading update() {
+        return aggregator.update(body, 0, body.length);
+    }
+}
@@ -0,0 +1,45 @@
+package com.devicedata.messagesend.dsp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PolyphaseDecimator.push 每输入点吞吐：250Hz 抽到 125/50/25Hz（抽取倍数 2/5/10，每输入点 16 次乘加）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PolyphaseDecimatorBenchmark {
+
+    @Param({"125", "50", "25"})
+    public int outputRateHz;
+
+    private PolyphaseDecimator decimator;
+    private final int[] samples = new int[1024];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        decimator = new PolyphaseDecimator(250, outputRateHz);
+        Random random = new Random(1);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextInt(256);
+        }
+    }
+
+    @Benchmark
+    public int push() {
+        int i = index;
+        index = (i + 1) & (samples.length - 1);
+        return decimator.push(samples[i]) ? decimator.output() : -1;
+    }
+}
@@ -0,0 +1,55 @@
+package com.devicedata.messagesend.dsp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QrsDetector 单点处理吞吐：输入 60 秒 75bpm 的合成 ECG 循环播放。
+ * 结果（ops/us）乘 10^6 再除以 250 即为相对设备采样率的余量倍数；gc.alloc.rate.norm 应为 0。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QrsDetectorBenchmark {
+
+    private static final int FS = 250;
+
+    private final QrsDetector detector = new QrsDetector(FS);
+    private int[] ecg;
+    private int index;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        double[] v = new double[60 * FS];
+        Random random = new Random(1);
+        for (int i = 0; i < v.length; i++) {
+            v[i] = 128 + 8 * Math.sin(2 * Math.PI * 0.3 * i / FS) + random.nextGaussian() * 2;
+        }
+        for (int r = FS / 2; r < v.length - FS / 2; r += FS * 4 / 5) {
+            for (int d = -12; d <= 12; d++) {
+                double x = d / 2.5;
+                v[r + d] += 80 * Math.exp(-0.5 * x * x);
+            }
+        }
+        ecg = new int[v.length];
+        for (int i = 0; i < v.length; i++) {
+            ecg[i] = Math.max(0, Math.min(255, (int) Math.round(v[i])));
+        }
+    }
+
+    @Benchmark
+    public boolean process() {
+        int i = index;
+        index = i + 1 == ecg.length ? 0 : i + 1;
+        return detector.process(ecg[i], now += 4);
+    }
+}
@@ -0,0 +1,89 @@
+package com.devicedata.messagesend.stomp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入站帧解析吞吐：增量解析器（保留/跳过消息体、多帧拼接）对比旧版 replace/split 实现。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StompFrameParserBenchmark {
+
+    private static final String ACK_FRAME = "MESSAGE\n"
+            + "destination:/data/pub/response\n"
+            + "content-type:application/json\n"
+            + "subscription:sub-1\n"
+            + "message-id:abcd-1234-5678\n"
+            + "content-length:32\n"
+            + "\n"
+            + "{\"count\":250,\"t\":1731420000000}\n"
+            + "\u0000";
+
+    private String batched;
+    private StompFrameParser withBody;
+    private StompFrameParser skipBody;
+    private Blackhole bh;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        bh = blackhole;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            sb.append(ACK_FRAME).append('\n');
+        }
+        batched = sb.toString();
+        StompFrameParser.Handler handler = new StompFrameParser.Handler() {
+            @Override
+            public void onFrame(StompFrame frame) {
+                bh.consume(frame.command());
+                if (!frame.isBodySkipped()) {
+                    bh.consume(frame.body());
+                }
+            }
+
+            @Override
+            public void onHeartBeat() {
+                bh.consume(true);
+            }
+        };
+        withBody = new StompFrameParser(handler);
+        skipBody = new StompFrameParser(handler);
+        skipBody.setBodyPolicy(frame -> false);
+    }
+
+    @Benchmark
+    public void parserWithBody() {
+        withBody.feed(ACK_FRAME);
+    }
+
+    @Benchmark
+    public void parserSkipBody() {
+        skipBody.feed(ACK_FRAME);
+    }
+
+    /** 一条 WebSocket 消息携带 16 帧 + 心跳 */
+    @Benchmark
+    public void parserBatched16() {
+        withBody.feed(batched);
+    }
+
+    /** 旧版 handleStompFrame 的处理方式，作为对照 */
+    @Benchmark
+    public String legacySplit() {
+        String frame = ACK_FRAME.replace("\u0000", "").trim();
+        String[] lines = frame.split("\n", 2);
+        bh.consume(lines[0].trim());
+        int bodyStart = frame.indexOf("\n\n");
+        return bodyStart >= 0 ? frame.substring(bodyStart + 2).trim() : "";
+    }
+}
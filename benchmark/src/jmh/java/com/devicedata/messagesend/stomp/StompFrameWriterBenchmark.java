@@ -0,0 +1,36 @@
+package com.devicedata.messagesend.stomp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StompConnection 写出路径的 SEND 帧拼装（复用 StringBuilder），普通帧与带 receipt 的探测帧。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StompFrameWriterBenchmark {
+
+    private static final String JSON = "{\"timestamp\":1731420000000,\"bo\":\"98\",\"hr\":\"76\",\"temp\":\"36.6\","
+            + "\"ecg\":2048,\"resp\":18,\"respWave\":1500,\"boWave\":90}";
+
+    private final String headers = StompFrameWriter.sendHeaders("/data/pub/AA:BB:CC:DD:EE:FF");
+    private final StringBuilder sb = new StringBuilder(256);
+    private long receiptId;
+
+    @Benchmark
+    public String send() {
+        return StompFrameWriter.appendSend(sb, headers, null, 0, JSON).toString();
+    }
+
+    @Benchmark
+    public String sendWithReceipt() {
+        return StompFrameWriter.appendSend(sb, headers, "probe-", ++receiptId, JSON).toString();
+    }
+}
@@ -0,0 +1,123 @@
+"""本地调试用的二进制 TCP 接收端，对应 App 中的 BinaryTcpClient。
+
+帧格式：[u32 长度（不含自身）][u8 类型][负载]，大端序，详见 BinaryProtocol.java。
+握手：客户端先发 HELLO（设备 ID），本端回 WELCOME；之后回显 PING 为 PONG，
+每秒回一帧 ACK（累计条数）并打印每台设备的接收速率，不逐条打印数据。
+
+用法示例：
+	python binary_server.py --host 0.0.0.0 --port 9000
+	python binary_server.py --port 9000 --dump   # 额外打印每秒最后一个采样
+"""
+
+from __future__ import annotations
+
+import argparse
+import logging
+import socket
+import struct
+import threading
+import time
+
+TYPE_HELLO = 0x01
+TYPE_WELCOME = 0x02
+TYPE_JSON = 0x10
+TYPE_SAMPLE = 0x11
+TYPE_PING = 0x20
+TYPE_PONG = 0x21
+TYPE_ACK = 0x30
+
+MAX_PAYLOAD = 64 * 1024
+
+# 与 VitalsBinaryCodec 的位序一致
+_SAMPLE_FIELDS = ("ecg", "ecgHr", "resp", "systolic", "diastolic", "map",
+	"bo", "hr", "temp", "respWave", "boWave")
+
+
+def _frame(frame_type: int, payload: bytes = b"") -> bytes:
+	return struct.pack(">IB", len(payload) + 1, frame_type) + payload
+
+
+def decode_sample(payload: bytes) -> dict:
+	timestamp, mask = struct.unpack_from(">qH", payload, 0)
+	offset = 10
+	sample: dict = {"timestamp": timestamp}
+	for bit, name in enumerate(_SAMPLE_FIELDS):
+		if mask & (1 << bit):
+			(value,) = struct.unpack_from(">h", payload, offset)
+			offset += 2
+			sample[name] = value / 10.0 if name == "temp" else value
+	return sample
+
+
+def _recv_exact(sock: socket.socket, n: int) -> bytes:
+	buf = bytearray()
+	while len(buf) < n:
+		chunk = sock.recv(n - len(buf))
+		if not chunk:
+			raise ConnectionError("peer closed")
+		buf.extend(chunk)
+	return bytes(buf)
+
+
+def _handle(sock: socket.socket, addr, dump: bool) -> None:
+	sock.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+	device_id = "?"
+	count = 0
+	window_count = 0
+	window_start = time.time()
+	last_sample = None
+	try:
+		while True:
+			(length,) = struct.unpack(">I", _recv_exact(sock, 4))
+			if length < 1 or length > MAX_PAYLOAD + 1:
+				raise ValueError(f"invalid frame length {length}")
+			body = _recv_exact(sock, length)
+			frame_type, payload = body[0], body[1:]
+			if frame_type == TYPE_HELLO:
+				_version, id_len = struct.unpack_from(">BH", payload, 0)
+				device_id = payload[3:3 + id_len].decode("utf-8")
+				logging.info("%s HELLO device=%s", addr[0], device_id)
+				sock.sendall(_frame(TYPE_WELCOME, b"\x00"))
+			elif frame_type == TYPE_PING:
+				sock.sendall(_frame(TYPE_PONG, payload))
+			elif frame_type in (TYPE_JSON, TYPE_SAMPLE):
+				count += 1
+				window_count += 1
+				if dump:
+					last_sample = payload.decode("utf-8") if frame_type == TYPE_JSON else decode_sample(payload)
+			now = time.time()
+			if now - window_start >= 1.0:
+				sock.sendall(_frame(TYPE_ACK, struct.pack(">Iq", count & 0xFFFFFFFF, int(now * 1000))))
+				logging.info("[%s] %.0f msg/s, total %d", device_id, window_count / (now - window_start), count)
+				if last_sample is not None:
+					logging.info("[%s] last sample: %s", device_id, last_sample)
+				window_count = 0
+				window_start = now
+	except (ConnectionError, OSError, ValueError) as exc:
+		logging.info("[%s] disconnected: %s (total %d)", device_id, exc, count)
+	finally:
+		sock.close()
+
+
+def main() -> None:
+	parser = argparse.ArgumentParser(description="Stand-in receiver for the binary TCP transport.")
+	parser.add_argument("--host", default="0.0.0.0")
+	parser.add_argument("--port", type=int, default=9000)
+	parser.add_argument("--dump", action="store_true", help="log the last sample received each second")
+	args = parser.parse_args()
+
+	logging.basicConfig(level=logging.INFO, format="%(asctime)s %(levelname)s %(message)s")
+	server = socket.create_server((args.host, args.port))
+	logging.info("Binary TCP receiver listening on %s:%d", args.host, args.port)
+	try:
+		while True:
+			client, addr = server.accept()
+			threading.Thread(target=_handle, args=(client, addr, args.dump), daemon=True).start()
+	except KeyboardInterrupt:
+		logging.info("Shutting down receiver...")
+	finally:
+		server.close()
+
+
+if __name__ == "__main__":
+	main()
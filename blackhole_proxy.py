@@ -0,0 +1,109 @@
+"""本地调试用的 TCP 转发代理，可按需"黑洞"流量以模拟半开连接。
+
+客户端连接代理端口，代理把字节原样转发到真实网关。进入黑洞模式后，
+代理继续接受数据但不再转发、也不关闭任何 socket，与移动网络中
+链路静默断开的表现一致，可用于测量 STOMP 心跳的失效检测时间。
+
+用法示例：
+	python blackhole_proxy.py --listen-port 9090 --target-host 127.0.0.1 --target-port 8080 --blackhole-after 20
+
+运行中输入 b 回车进入黑洞模式，输入 r 回车恢复转发。
+"""
+
+from __future__ import annotations
+
+import argparse
+import logging
+import socket
+import sys
+import threading
+import time
+
+_blackhole = threading.Event()
+_blackhole_since = 0.0
+
+
+def _pump(src: socket.socket, dst: socket.socket, label: str) -> None:
+	try:
+		while True:
+			data = src.recv(65536)
+			if not data:
+				break
+			if _blackhole.is_set():
+				# 吞掉数据，不回 FIN/RST
+				continue
+			dst.sendall(data)
+	except OSError as exc:
+		logging.info("%s closed: %s", label, exc)
+	finally:
+		for s in (src, dst):
+			try:
+				s.shutdown(socket.SHUT_RDWR)
+			except OSError:
+				pass
+
+
+def _handle(client: socket.socket, target: tuple[str, int]) -> None:
+	try:
+		upstream = socket.create_connection(target)
+	except OSError as exc:
+		logging.warning("upstream connect failed: %s", exc)
+		client.close()
+		return
+	for s in (client, upstream):
+		s.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+	threading.Thread(target=_pump, args=(client, upstream, "c->s"), daemon=True).start()
+	threading.Thread(target=_pump, args=(upstream, client, "s->c"), daemon=True).start()
+
+
+def _set_blackhole(enabled: bool) -> None:
+	global _blackhole_since
+	if enabled and not _blackhole.is_set():
+		_blackhole_since = time.time()
+		_blackhole.set()
+		logging.info("BLACKHOLE ON at %.3f (epoch seconds)", _blackhole_since)
+	elif not enabled and _blackhole.is_set():
+		_blackhole.clear()
+		logging.info("BLACKHOLE OFF after %.3f s", time.time() - _blackhole_since)
+
+
+def _console() -> None:
+	for line in sys.stdin:
+		cmd = line.strip().lower()
+		if cmd == "b":
+			_set_blackhole(True)
+		elif cmd == "r":
+			_set_blackhole(False)
+
+
+def main() -> None:
+	parser = argparse.ArgumentParser(description="TCP proxy that can silently black-hole traffic.")
+	parser.add_argument("--listen-host", default="0.0.0.0")
+	parser.add_argument("--listen-port", type=int, default=9090)
+	parser.add_argument("--target-host", default="127.0.0.1")
+	parser.add_argument("--target-port", type=int, default=8080)
+	parser.add_argument("--blackhole-after", type=float, default=0.0,
+		help="seconds after start to enter black-hole mode automatically (0 = manual)")
+	args = parser.parse_args()
+
+	logging.basicConfig(level=logging.INFO, format="%(asctime)s %(levelname)s %(message)s")
+	target = (args.target_host, args.target_port)
+	server = socket.create_server((args.listen_host, args.listen_port))
+	logging.info("Proxy %s:%d -> %s:%d", args.listen_host, args.listen_port, *target)
+
+	threading.Thread(target=_console, daemon=True).start()
+	if args.blackhole_after > 0:
+		threading.Timer(args.blackhole_after, _set_blackhole, args=(True,)).start()
+
+	try:
+		while True:
+			client, _ = server.accept()
+			_handle(client, target)
+	except KeyboardInterrupt:
+		logging.info("Shutting down proxy...")
+	finally:
+		server.close()
+
+
+if __name__ == "__main__":
+	main()
@@ -0,0 +1,36 @@
+// 本地压测网关：NIO 实现的 STOMP / WebSocket / HTTP / 二进制 TCP 接收端，
+// 直接编译 app 模块中不依赖 Android 框架的源码（STOMP 解析、二进制协议、直方图）
+plugins {
+    java
+    application
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(17)
+    }
+}
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("src/main/java", "../app/src/main/java"))
+            include("com/devicedata/gateway/**")
+            include("com/devicedata/messagesend/stomp/**")
+            include("com/devicedata/messagesend/binary/**")
+            include("com/devicedata/messagesend/model/**")
+            include("com/devicedata/messagesend/metrics/**")
+        }
+    }
+}
+
+dependencies {
+    compileOnly(libs.androidx.annotation)
+    testCompileOnly(libs.androidx.annotation)
+    testImplementation(libs.junit)
+    testImplementation(libs.okhttp)
+}
+
+application {
+    mainClass = "com.devicedata.gateway.GatewayMain"
+}
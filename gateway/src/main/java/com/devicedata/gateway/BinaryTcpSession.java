@@ -0,0 +1,100 @@
+package com.devicedata.gateway;
+
+import com.devicedata.messagesend.binary.BinaryProtocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 二进制 TCP 入口（App 的 BinaryTcpClient）：HELLO 握手、PING 回显、每秒回累计 ACK；
+ * SAMPLE 帧直接读首 8 字节时间戳，JSON 帧与其他入口一样扫描。
+ */
+final class BinaryTcpSession implements Connection.Protocol {
+
+    private static final long ACK_INTERVAL_MS = 1_000;
+
+    private boolean helloReceived;
+    private long received;
+    private long ackedCount;
+    private long lastAckMs;
+
+    @Override
+    public void onData(Connection c, ByteBuffer in) throws IOException {
+        while (in.remaining() >= 4 && !c.isClosed()) {
+            int start = in.position();
+            int length = in.getInt(start);
+            if (length < 1 || length > BinaryProtocol.MAX_PAYLOAD_BYTES + 1) {
+                throw new IOException("invalid frame length " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                c.requireCapacity(4 + length);
+                return;
+            }
+            byte type = in.get(start + 4);
+            int payloadStart = start + BinaryProtocol.HEADER_BYTES;
+            int payloadLength = length - 1;
+            in.position(payloadStart);
+            handleFrame(c, type, in, payloadLength);
+            in.position(start + 4 + length);
+        }
+    }
+
+    private void handleFrame(Connection c, byte type, ByteBuffer payload, int payloadLength) throws IOException {
+        if (!helloReceived && type != BinaryProtocol.TYPE_HELLO) {
+            throw new IOException("expected HELLO, got type " + type);
+        }
+        switch (type) {
+            case BinaryProtocol.TYPE_HELLO: {
+                BinaryProtocol.readHelloDeviceId(payload);
+                helloReceived = true;
+                lastAckMs = c.worker.nowMillis();
+                ByteBuffer welcome = ByteBuffer.allocate(BinaryProtocol.HEADER_BYTES + 1);
+                BinaryProtocol.putHeader(welcome, BinaryProtocol.TYPE_WELCOME, 1);
+                welcome.put((byte) BinaryProtocol.STATUS_OK);
+                welcome.flip();
+                c.send(welcome);
+                break;
+            }
+            case BinaryProtocol.TYPE_PING: {
+                ByteBuffer pong = ByteBuffer.allocate(BinaryProtocol.HEADER_BYTES + 8);
+                BinaryProtocol.putHeader(pong, BinaryProtocol.TYPE_PONG, 8);
+                pong.putLong(payload.getLong());
+                pong.flip();
+                c.send(pong);
+                break;
+            }
+            case BinaryProtocol.TYPE_SAMPLE:
+                c.worker.stats.record(IngestStats.Source.TCP, payloadLength, payload.getLong(), c.readMicros);
+                received++;
+                break;
+            case BinaryProtocol.TYPE_JSON: {
+                int offset = payload.arrayOffset() + payload.position();
+                long timestamp = PayloadScanner.scan(c.decodeUtf8(payload.array(), offset, payloadLength), c.worker.trace);
+                if (timestamp == PayloadScanner.MALFORMED) {
+                    c.worker.stats.recordDecodeError();
+                } else {
+                    c.worker.stats.record(IngestStats.Source.TCP, payloadLength, timestamp, c.readMicros);
+                    c.worker.stats.recordTrace(c.worker.trace.notifyMillis, c.readMicros);
+                    received++;
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onTick(Connection c, long nowMs) throws IOException {
+        if (!helloReceived || nowMs - lastAckMs < ACK_INTERVAL_MS) return;
+        lastAckMs = nowMs;
+        if (received == ackedCount) return;
+        ackedCount = received;
+        ByteBuffer ack = ByteBuffer.allocate(BinaryProtocol.HEADER_BYTES + 12);
+        BinaryProtocol.putHeader(ack, BinaryProtocol.TYPE_ACK, 12);
+        ack.putInt((int) received);
+        ack.putLong(System.currentTimeMillis());
+        ack.flip();
+        c.send(ack);
+    }
+}
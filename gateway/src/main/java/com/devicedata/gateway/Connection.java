@@ -0,0 +1,164 @@
+package com.devicedata.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * 一条客户端 socket：读缓冲、写队列与当前协议处理器，只在所属 {@link IoWorker} 线程上访问。
+ * HTTP 升级为 WebSocket 时直接替换 protocol，已读到的剩余字节交给新协议继续处理。
+ */
+final class Connection {
+
+    interface Protocol {
+        /** in 处于读模式；只消费完整的单元，剩余字节保留，下次读到更多数据后再调用 */
+        void onData(Connection c, ByteBuffer in) throws IOException;
+
+        /** IO 线程约每 100ms 调用一次，用于 ACK、心跳等定时发送 */
+        void onTick(Connection c, long nowMs) throws IOException;
+
+        default void onClose(Connection c) {
+        }
+    }
+
+    private static final int INITIAL_READ_BYTES = 16 * 1024;
+    static final int MAX_READ_BYTES = 2 * 1024 * 1024;
+
+    final SocketChannel channel;
+    final IoWorker worker;
+    SelectionKey key;
+    Protocol protocol;
+
+    private ByteBuffer in = ByteBuffer.allocate(INITIAL_READ_BYTES);
+    private int requiredCapacity;
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private boolean closeAfterFlush;
+    private boolean closed;
+    long lastWriteMs;
+    /** 本次读到数据时的墙钟时间（微秒），同一批消息共用 */
+    long readMicros;
+
+    private char[] chars = new char[1024];
+    private CharBuffer charView = CharBuffer.wrap(chars);
+
+    Connection(SocketChannel channel, IoWorker worker, Protocol protocol) {
+        this.channel = channel;
+        this.worker = worker;
+        this.protocol = protocol;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void onReadable() throws IOException {
+        int n = channel.read(in);
+        if (n < 0) {
+            close();
+            return;
+        }
+        readMicros = worker.nowMicros();
+        in.flip();
+        Protocol p;
+        do {
+            p = protocol;
+            p.onData(this, in);
+        } while (protocol != p && in.hasRemaining() && !closed);
+        in.compact();
+        if (requiredCapacity > in.capacity()) {
+            if (requiredCapacity > MAX_READ_BYTES) {
+                throw new IOException("message too large: " + requiredCapacity + " bytes");
+            }
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(requiredCapacity, in.capacity() * 2));
+            in.flip();
+            grown.put(in);
+            in = grown;
+        }
+        requiredCapacity = 0;
+    }
+
+    /** 协议发现当前单元需要 bytes 字节才完整时调用，读缓冲不够会在本轮结束后扩容 */
+    void requireCapacity(int bytes) {
+        requiredCapacity = Math.max(requiredCapacity, bytes);
+    }
+
+    void onWritable() throws IOException {
+        flush();
+    }
+
+    void send(byte[] data) throws IOException {
+        send(ByteBuffer.wrap(data));
+    }
+
+    void send(ByteBuffer data) throws IOException {
+        if (closed) return;
+        out.add(data);
+        lastWriteMs = worker.nowMillis();
+        flush();
+    }
+
+    /** 写完队列后关闭（HTTP Connection: close、STOMP DISCONNECT、WebSocket Close） */
+    void closeAfterFlush() throws IOException {
+        closeAfterFlush = true;
+        flush();
+    }
+
+    /** 把 src 中 len 字节按 UTF-8 解码到复用的字符缓冲区；返回的视图在下次调用前有效 */
+    CharBuffer decodeUtf8(byte[] src, int offset, int len) {
+        if (chars.length < len) {
+            chars = new char[Math.max(len, chars.length * 2)];
+            charView = CharBuffer.wrap(chars);
+        }
+        int i = 0;
+        for (; i < len; i++) {
+            byte b = src[offset + i];
+            if (b < 0) break;
+            chars[i] = (char) b;
+        }
+        int count = len;
+        if (i < len) {
+            String s = new String(src, offset, len, StandardCharsets.UTF_8);
+            count = s.length();
+            s.getChars(0, count, chars, 0);
+        }
+        charView.clear();
+        charView.limit(count);
+        return charView;
+    }
+
+    char[] chars() {
+        return chars;
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        protocol.onClose(this);
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        out.clear();
+    }
+
+    private void flush() throws IOException {
+        while (!out.isEmpty()) {
+            ByteBuffer head = out.peekFirst();
+            channel.write(head);
+            if (head.hasRemaining()) break;
+            out.pollFirst();
+        }
+        if (out.isEmpty() && closeAfterFlush) {
+            close();
+            return;
+        }
+        if (key != null && key.isValid()) {
+            key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.devicedata.gateway;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令行入口，替代 server.py 做压测接收端：
+ * <pre>
+ * ./gradlew :gateway:run --args="--port 8080 --tcp-port 9000 --workers 4 --report-secs 5"
+ * </pre>
+ * 每个统计周期打印一行接收速率与时延百分位，Ctrl+C 退出时打印累计结果。
+ * 时延 = 收到时刻 - 负载中的 timestamp，客户端时间戳为毫秒，需与网关在同一台机器或已对时。
+ */
+public final class GatewayMain {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private GatewayMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "0.0.0.0";
+        int port = 8080;
+        int tcpPort = 9000;
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int reportSecs = 5;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--host": host = require(args[i], value); i++; break;
+                case "--port": port = Integer.parseInt(require(args[i], value)); i++; break;
+                case "--tcp-port": tcpPort = Integer.parseInt(require(args[i], value)); i++; break;
+                case "--workers": workers = Integer.parseInt(require(args[i], value)); i++; break;
+                case "--report-secs": reportSecs = Integer.parseInt(require(args[i], value)); i++; break;
+                default:
+                    System.err.println("用法: [--host H] [--port 8080] [--tcp-port 9000|-1] [--workers N] [--report-secs 5]");
+                    System.exit(2);
+                    return;
+            }
+        }
+
+        GatewayServer server = new GatewayServer(host, port, tcpPort, workers);
+        server.start();
+        System.out.println("网关已启动 http/ws=" + host + ":" + server.httpPort()
+                + (server.tcpPort() >= 0 ? "，tcp=" + server.tcpPort() : "")
+                + "，IO 线程 " + workers);
+
+        long startNanos = System.nanoTime();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            server.drainInterval();
+            double secs = (System.nanoTime() - startNanos) / 1e9;
+            System.out.println("累计 " + String.format("%.0f", secs) + "s: " + server.total().format(secs, 0));
+            stopped.countDown();
+        }, "gateway-shutdown"));
+
+        long last = System.nanoTime();
+        while (!stopped.await(reportSecs, TimeUnit.SECONDS)) {
+            long now = System.nanoTime();
+            IngestStats interval = server.drainInterval();
+            System.out.println(LocalTime.now().format(TIME) + " "
+                    + interval.format((now - last) / 1e9, server.connectionCount()));
+            last = now;
+        }
+    }
+
+    private static String require(String flag, String value) {
+        if (value == null) throw new IllegalArgumentException(flag + " requires a value");
+        return value;
+    }
+}
@@ -0,0 +1,117 @@
+package com.devicedata.gateway;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 本地压测网关：一个 HTTP/WebSocket 端口 + 可选的二进制 TCP 端口，
+ * 接收线程阻塞 accept，连接轮询分给若干 {@link IoWorker}。
+ */
+public final class GatewayServer {
+
+    private final String host;
+    private final int requestedHttpPort;
+    private final int requestedTcpPort;
+    private final List<IoWorker> workers = new ArrayList<>();
+    private final List<ServerSocketChannel> servers = new ArrayList<>();
+    private final IngestStats total = new IngestStats();
+    private int nextWorker;
+    private int httpPort = -1;
+    private int tcpPort = -1;
+
+    /**
+     * @param httpPort 0 表示随机端口
+     * @param tcpPort  二进制 TCP 端口，0 为随机端口，负数表示不启用
+     */
+    public GatewayServer(String host, int httpPort, int tcpPort, int workerCount) throws IOException {
+        if (workerCount <= 0) throw new IllegalArgumentException("workerCount must be > 0");
+        this.host = host;
+        this.requestedHttpPort = httpPort;
+        this.requestedTcpPort = tcpPort;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new IoWorker());
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        for (int i = 0; i < workers.size(); i++) {
+            Thread t = new Thread(workers.get(i), "gateway-io-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        httpPort = listen(requestedHttpPort, "gateway-accept-http", c -> new HttpProtocol());
+        if (requestedTcpPort >= 0) {
+            tcpPort = listen(requestedTcpPort, "gateway-accept-tcp", c -> new BinaryTcpSession());
+        }
+    }
+
+    public synchronized int httpPort() {
+        return httpPort;
+    }
+
+    /** 未启用时返回 -1 */
+    public synchronized int tcpPort() {
+        return tcpPort;
+    }
+
+    public int connectionCount() {
+        int n = 0;
+        for (IoWorker w : workers) n += w.connectionCount();
+        return n;
+    }
+
+    /** 汇总并清空各 IO 线程自上次调用以来的统计，同时累加到 {@link #total()} */
+    public IngestStats drainInterval() {
+        IngestStats interval = new IngestStats();
+        for (IoWorker w : workers) {
+            w.stats.drainTo(interval);
+        }
+        interval.addTo(total);
+        return interval;
+    }
+
+    /** 启动以来的累计统计（只包含已被 {@link #drainInterval()} 汇总的部分） */
+    public IngestStats total() {
+        return total;
+    }
+
+    public synchronized void stop() {
+        for (ServerSocketChannel s : servers) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+        for (IoWorker w : workers) w.stop();
+    }
+
+    private int listen(int port, String threadName, Function<Connection, Connection.Protocol> protocolFactory)
+            throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(host, port), 1024);
+        servers.add(server);
+        Thread acceptor = new Thread(() -> {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel ch = server.accept();
+                    IoWorker w;
+                    synchronized (this) {
+                        w = workers.get(nextWorker);
+                        nextWorker = (nextWorker + 1) % workers.size();
+                    }
+                    w.adopt(ch, protocolFactory);
+                } catch (IOException e) {
+                    if (server.isOpen()) System.err.println("accept failed: " + e);
+                }
+            }
+        }, threadName);
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+}
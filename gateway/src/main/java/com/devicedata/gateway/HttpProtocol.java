@@ -0,0 +1,194 @@
+package com.devicedata.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * HTTP/1.1 入口（每个连接的初始协议）：
+ * - POST/PUT 任意路径：消息体按上送 JSON 计数，回 {"status":"ok"}，与 server.py 行为一致
+ * - GET /ws 升级：STOMP over WebSocket（{@link StompSession}）
+ * - GET /data/{deviceId} 升级：纯 WebSocket JSON（{@link RawDataSession}）
+ * 不支持 chunked 请求体。
+ */
+final class HttpProtocol implements Connection.Protocol {
+
+    private static final int MAX_HEAD_BYTES = 8 * 1024;
+    private static final String WS_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final byte[] OK_RESPONSE = response(200, "OK", "{\"status\":\"ok\"}", true);
+    private static final byte[] OK_RESPONSE_CLOSE = response(200, "OK", "{\"status\":\"ok\"}", false);
+
+    @Override
+    public void onData(Connection c, ByteBuffer in) throws IOException {
+        while (in.hasRemaining() && c.protocol == this && !c.isClosed()) {
+            int start = in.position();
+            int headEnd = indexOfHeadEnd(in.array(), in.arrayOffset() + start, in.arrayOffset() + in.limit());
+            if (headEnd < 0) {
+                if (in.remaining() > MAX_HEAD_BYTES) {
+                    c.send(response(431, "Request Header Fields Too Large", "", false));
+                    c.closeAfterFlush();
+                } else {
+                    c.requireCapacity(MAX_HEAD_BYTES + 4);
+                }
+                return;
+            }
+            int headLength = headEnd - (in.arrayOffset() + start);
+            String head = new String(in.array(), in.arrayOffset() + start, headLength, StandardCharsets.ISO_8859_1);
+            Request req = Request.parse(head);
+            if (req == null) {
+                c.send(response(400, "Bad Request", "", false));
+                c.closeAfterFlush();
+                return;
+            }
+            if (req.chunked) {
+                c.send(response(411, "Length Required", "", false));
+                c.closeAfterFlush();
+                return;
+            }
+            int total = headLength + 4 + req.contentLength;
+            if (in.remaining() < total) {
+                c.requireCapacity(total);
+                return;
+            }
+            int bodyOffset = start + headLength + 4;
+            in.position(start + total);
+            handle(c, req, in.array(), in.arrayOffset() + bodyOffset);
+        }
+    }
+
+    @Override
+    public void onTick(Connection c, long nowMs) {
+    }
+
+    private void handle(Connection c, Request req, byte[] buf, int bodyOffset) throws IOException {
+        if ("GET".equals(req.method) && req.upgradeWebSocket) {
+            WebSocketProtocol.MessageSink sink;
+            if ("/ws".equals(req.path)) {
+                sink = new StompSession();
+            } else if (req.path.startsWith("/data/")) {
+                sink = new RawDataSession();
+            } else {
+                c.send(response(404, "Not Found", "", false));
+                c.closeAfterFlush();
+                return;
+            }
+            if (req.webSocketKey == null) {
+                c.send(response(400, "Bad Request", "", false));
+                c.closeAfterFlush();
+                return;
+            }
+            String handshake = "HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + acceptKey(req.webSocketKey) + "\r\n\r\n";
+            c.send(handshake.getBytes(StandardCharsets.ISO_8859_1));
+            c.protocol = new WebSocketProtocol(c, sink);
+            return;
+        }
+        if ("POST".equals(req.method) || "PUT".equals(req.method)) {
+            CharSequence body = c.decodeUtf8(buf, bodyOffset, req.contentLength);
+            long timestamp = PayloadScanner.scan(body, c.worker.trace);
+            if (timestamp == PayloadScanner.MALFORMED) {
+                c.worker.stats.recordDecodeError();
+            } else {
+                c.worker.stats.record(IngestStats.Source.HTTP, req.contentLength, timestamp, c.readMicros);
+                c.worker.stats.recordTrace(c.worker.trace.notifyMillis, c.readMicros);
+            }
+            c.send(req.keepAlive ? OK_RESPONSE : OK_RESPONSE_CLOSE);
+        } else {
+            c.send(req.keepAlive ? response(404, "Not Found", "", true) : response(404, "Not Found", "", false));
+        }
+        if (!req.keepAlive) c.closeAfterFlush();
+    }
+
+    private static int indexOfHeadEnd(byte[] buf, int from, int to) {
+        for (int i = from; i + 3 < to; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') return i;
+        }
+        return -1;
+    }
+
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key + WS_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 unavailable", e);
+        }
+    }
+
+    private static byte[] response(int code, String reason, String body, boolean keepAlive) {
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + code + " " + reason + "\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + bodyBytes.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] all = new byte[headBytes.length + bodyBytes.length];
+        System.arraycopy(headBytes, 0, all, 0, headBytes.length);
+        System.arraycopy(bodyBytes, 0, all, headBytes.length, bodyBytes.length);
+        return all;
+    }
+
+    /** 只解析网关用得到的几个头 */
+    private static final class Request {
+        String method;
+        String path;
+        int contentLength;
+        boolean keepAlive = true;
+        boolean chunked;
+        boolean upgradeWebSocket;
+        String webSocketKey;
+
+        static Request parse(String head) {
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) return null;
+            Request r = new Request();
+            r.method = requestLine[0];
+            int query = requestLine[1].indexOf('?');
+            r.path = query >= 0 ? requestLine[1].substring(0, query) : requestLine[1];
+            if ("HTTP/1.0".equals(requestLine[2])) r.keepAlive = false;
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) return null;
+                String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = lines[i].substring(colon + 1).trim();
+                switch (name) {
+                    case "content-length":
+                        try {
+                            r.contentLength = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            return null;
+                        }
+                        if (r.contentLength < 0 || r.contentLength > Connection.MAX_READ_BYTES - MAX_HEAD_BYTES) return null;
+                        break;
+                    case "connection": {
+                        String v = value.toLowerCase(Locale.ROOT);
+                        if (v.contains("close")) r.keepAlive = false;
+                        if (v.contains("keep-alive")) r.keepAlive = true;
+                        break;
+                    }
+                    case "transfer-encoding":
+                        r.chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                        break;
+                    case "upgrade":
+                        r.upgradeWebSocket = "websocket".equalsIgnoreCase(value);
+                        break;
+                    case "sec-websocket-key":
+                        r.webSocketKey = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return r;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.devicedata.gateway;
+
+import com.devicedata.messagesend.metrics.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 接收统计：各入口条数、字节数、解码失败数与端到端时延（微秒）。
+ * 每个 IO 线程写自己的一份，报告线程定期 {@link #drainTo} 汇总，热路径上只有无竞争的锁。
+ */
+public final class IngestStats {
+
+    public enum Source { STOMP, WS, HTTP, TCP }
+
+    private static final Source[] SOURCES = Source.values();
+
+    private final long[] messages = new long[SOURCES.length];
+    private long bytes;
+    private long decodeErrors;
+    private final LatencyHistogram latencyMicros = new LatencyHistogram();
+    private final LatencyHistogram traceMicros = new LatencyHistogram();
+
+    /**
+     * @param timestampMs 负载中的采样时间戳（毫秒），非正数表示没有，不计入时延
+     * @param nowMicros   收到该批数据时的墙钟时间（微秒）
+     */
+    synchronized void record(Source source, int payloadBytes, long timestampMs, long nowMicros) {
+        messages[source.ordinal()]++;
+        bytes += payloadBytes;
+        if (timestampMs > 0) {
+            latencyMicros.record(nowMicros - timestampMs * 1000);
+        }
+    }
+
+    /** 带追踪字段的负载：BLE 通知到达（tNotify）至网关收到的时延；notifyMillis 非正数时忽略 */
+    synchronized void recordTrace(long notifyMillis, long nowMicros) {
+        if (notifyMillis > 0) {
+            traceMicros.record(nowMicros - notifyMillis * 1000);
+        }
+    }
+
+    synchronized void recordDecodeError() {
+        decodeErrors++;
+    }
+
+    /** 把本份统计累加到 target 并清零 */
+    synchronized void drainTo(IngestStats target) {
+        addTo(target);
+        Arrays.fill(messages, 0);
+        bytes = 0;
+        decodeErrors = 0;
+        latencyMicros.reset();
+        traceMicros.reset();
+    }
+
+    /** 把本份统计累加到 target，本份不变 */
+    synchronized void addTo(IngestStats target) {
+        synchronized (target) {
+            for (int i = 0; i < messages.length; i++) {
+                target.messages[i] += messages[i];
+            }
+            target.bytes += bytes;
+            target.decodeErrors += decodeErrors;
+            target.latencyMicros.add(latencyMicros);
+            target.traceMicros.add(traceMicros);
+        }
+    }
+
+    public synchronized long messages(Source source) {
+        return messages[source.ordinal()];
+    }
+
+    public synchronized long totalMessages() {
+        long total = 0;
+        for (long m : messages) total += m;
+        return total;
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized long decodeErrors() {
+        return decodeErrors;
+    }
+
+    /** 时延百分位（微秒） */
+    public synchronized long latencyPercentileMicros(double percentile) {
+        return latencyMicros.valueAtPercentile(percentile);
+    }
+
+    /** 追踪样本的通知→收到时延百分位（微秒） */
+    public synchronized long tracePercentileMicros(double percentile) {
+        return traceMicros.valueAtPercentile(percentile);
+    }
+
+    public synchronized long traceCount() {
+        return traceMicros.count();
+    }
+
+    /** 一行报告；seconds 为统计区间长度 */
+    public synchronized String format(double seconds, int connections) {
+        long total = 0;
+        for (long m : messages) total += m;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "接收 %.0f msg/s (", total / seconds));
+        for (int i = 0; i < SOURCES.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(SOURCES[i].name()).append(' ').append(messages[i]);
+        }
+        sb.append(String.format(Locale.US, ")，%.2f MB/s，连接 %d，解码失败 %d",
+                bytes / seconds / (1024 * 1024), connections, decodeErrors));
+        if (latencyMicros.count() > 0) {
+            sb.append(String.format(Locale.US, "，时延(ms) p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f",
+                    latencyMicros.valueAtPercentile(50) / 1000.0,
+                    latencyMicros.valueAtPercentile(90) / 1000.0,
+                    latencyMicros.valueAtPercentile(99) / 1000.0,
+                    latencyMicros.valueAtPercentile(99.9) / 1000.0,
+                    latencyMicros.max() / 1000.0));
+        }
+        if (traceMicros.count() > 0) {
+            sb.append(String.format(Locale.US, "，追踪 %d 条 通知→收到(ms) p50=%.2f p99=%.2f max=%.2f",
+                    traceMicros.count(),
+                    traceMicros.valueAtPercentile(50) / 1000.0,
+                    traceMicros.valueAtPercentile(99) / 1000.0,
+                    traceMicros.max() / 1000.0));
+        }
+        return sb.toString();
+    }
+}
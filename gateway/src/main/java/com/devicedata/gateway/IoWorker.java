@@ -0,0 +1,146 @@
+package com.devicedata.gateway;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * 单线程 selector 循环：负责一批连接的读写与定时任务，连接之间不共享锁。
+ */
+final class IoWorker implements Runnable {
+
+    private static final long TICK_MS = 100;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Pending> incoming = new ConcurrentLinkedQueue<>();
+    private final List<Connection> connections = new ArrayList<>();
+    final IngestStats stats = new IngestStats();
+    /** 负载扫描时复用的追踪字段 */
+    final PayloadScanner.Trace trace = new PayloadScanner.Trace();
+    private volatile boolean running = true;
+    private volatile int connectionCount;
+
+    // 墙钟基准：nanoTime 推算微秒，避免每批数据都取一次系统时间
+    private final long epochMicrosBase = System.currentTimeMillis() * 1000;
+    private final long nanoBase = System.nanoTime();
+
+    private static final class Pending {
+        final SocketChannel channel;
+        final Function<Connection, Connection.Protocol> protocolFactory;
+
+        Pending(SocketChannel channel, Function<Connection, Connection.Protocol> protocolFactory) {
+            this.channel = channel;
+            this.protocolFactory = protocolFactory;
+        }
+    }
+
+    IoWorker() throws IOException {
+        selector = Selector.open();
+    }
+
+    /** 由接收线程调用，连接交给本线程处理 */
+    void adopt(SocketChannel channel, Function<Connection, Connection.Protocol> protocolFactory) {
+        incoming.add(new Pending(channel, protocolFactory));
+        selector.wakeup();
+    }
+
+    int connectionCount() {
+        return connectionCount;
+    }
+
+    long nowMillis() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    long nowMicros() {
+        return epochMicrosBase + (System.nanoTime() - nanoBase) / 1000;
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastTick = nowMillis();
+        try {
+            while (running) {
+                selector.select(TICK_MS);
+                registerIncoming();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Connection c = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) c.onReadable();
+                        if (key.isValid() && key.isWritable()) c.onWritable();
+                    } catch (IOException | RuntimeException e) {
+                        c.close();
+                    }
+                }
+                long now = nowMillis();
+                if (now - lastTick >= TICK_MS) {
+                    lastTick = now;
+                    tick(now);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("IO 线程退出: " + e);
+        } finally {
+            for (Connection c : connections) c.close();
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void registerIncoming() {
+        Pending p;
+        while ((p = incoming.poll()) != null) {
+            try {
+                p.channel.configureBlocking(false);
+                p.channel.socket().setTcpNoDelay(true);
+                Connection c = new Connection(p.channel, this, null);
+                c.protocol = p.protocolFactory.apply(c);
+                c.key = p.channel.register(selector, SelectionKey.OP_READ, c);
+                c.lastWriteMs = nowMillis();
+                connections.add(c);
+            } catch (IOException e) {
+                try {
+                    p.channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        connectionCount = connections.size();
+    }
+
+    private void tick(long now) {
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            Connection c = connections.get(i);
+            if (!c.isClosed()) {
+                try {
+                    c.protocol.onTick(c, now);
+                } catch (IOException | RuntimeException e) {
+                    c.close();
+                }
+            }
+            if (c.isClosed()) {
+                // 顺序无关，末尾元素补位
+                int last = connections.size() - 1;
+                connections.set(i, connections.get(last));
+                connections.remove(last);
+            }
+        }
+        connectionCount = connections.size();
+    }
+}
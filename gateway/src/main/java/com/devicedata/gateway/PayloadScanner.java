@@ -0,0 +1,164 @@
+package com.devicedata.gateway;
+
+/**
+ * 上送 JSON 的轻量校验与时间戳提取：单次扫描，不建对象、不逐字段记录。
+ * 只认一层对象，值为字符串、数字、布尔、null，嵌套对象/数组整体跳过。
+ * 附带时延追踪字段（traceId、tNotify）的负载，可顺带把 tNotify 取到 {@link Trace}。
+ */
+final class PayloadScanner {
+
+    /** 结构非法时返回 */
+    static final long MALFORMED = Long.MIN_VALUE;
+    /** 结构合法但没有数值型 timestamp 时返回 */
+    static final long NO_TIMESTAMP = -1;
+
+    private static final String TIMESTAMP = "timestamp";
+    private static final String TRACE_NOTIFY = "tNotify";
+
+    /** 每个 IO 线程复用一份；每次扫描先清零，负载不带追踪字段时保持 0 */
+    static final class Trace {
+        long notifyMillis;
+    }
+
+    private PayloadScanner() {
+    }
+
+    /** 返回 timestamp 字段（毫秒），或 {@link #NO_TIMESTAMP} / {@link #MALFORMED} */
+    static long scan(CharSequence s) {
+        return scan(s, null);
+    }
+
+    /** 同上，trace 非 null 时顺带取出 tNotify（毫秒） */
+    static long scan(CharSequence s, Trace trace) {
+        if (trace != null) trace.notifyMillis = 0;
+        int len = s.length();
+        int i = skipWs(s, 0, len);
+        if (i >= len || s.charAt(i) != '{') return MALFORMED;
+        i = skipWs(s, i + 1, len);
+        long timestamp = NO_TIMESTAMP;
+        if (i < len && s.charAt(i) == '}') return skipWs(s, i + 1, len) == len ? timestamp : MALFORMED;
+        while (i < len) {
+            if (s.charAt(i) != '"') return MALFORMED;
+            int keyStart = i + 1;
+            int keyEnd = skipString(s, i, len);
+            if (keyEnd < 0) return MALFORMED;
+            i = skipWs(s, keyEnd + 1, len);
+            if (i >= len || s.charAt(i) != ':') return MALFORMED;
+            i = skipWs(s, i + 1, len);
+            if (i >= len) return MALFORMED;
+            boolean isTimestamp = keyEnd - keyStart == TIMESTAMP.length() && regionEquals(s, keyStart, TIMESTAMP);
+            boolean isNotify = trace != null
+                    && keyEnd - keyStart == TRACE_NOTIFY.length() && regionEquals(s, keyStart, TRACE_NOTIFY);
+            int valueEnd;
+            if ((isTimestamp || isNotify) && isNumberStart(s.charAt(i))) {
+                valueEnd = skipNumber(s, i, len);
+                if (valueEnd < 0) return MALFORMED;
+                long value = parseNonNegative(s, i, valueEnd);
+                if (isTimestamp) {
+                    timestamp = value < 0 ? NO_TIMESTAMP : value;
+                } else if (value > 0) {
+                    trace.notifyMillis = value;
+                }
+            } else {
+                valueEnd = skipValue(s, i, len);
+                if (valueEnd < 0) return MALFORMED;
+            }
+            i = skipWs(s, valueEnd, len);
+            if (i >= len) return MALFORMED;
+            char c = s.charAt(i);
+            if (c == '}') return skipWs(s, i + 1, len) == len ? timestamp : MALFORMED;
+            if (c != ',') return MALFORMED;
+            i = skipWs(s, i + 1, len);
+        }
+        return MALFORMED;
+    }
+
+    /** 数字的整数部分；负数返回 -1 */
+    private static long parseNonNegative(CharSequence s, int start, int end) {
+        if (s.charAt(start) == '-') return -1;
+        long value = 0;
+        for (int j = start; j < end && s.charAt(j) >= '0' && s.charAt(j) <= '9'; j++) {
+            value = value * 10 + (s.charAt(j) - '0');
+        }
+        return value;
+    }
+
+    private static int skipValue(CharSequence s, int i, int len) {
+        char c = s.charAt(i);
+        if (c == '"') {
+            int end = skipString(s, i, len);
+            return end < 0 ? -1 : end + 1;
+        }
+        if (c == '{' || c == '[') return skipNested(s, i, len);
+        if (isNumberStart(c)) return skipNumber(s, i, len);
+        if (regionEquals(s, i, "true")) return i + 4;
+        if (regionEquals(s, i, "false")) return i + 5;
+        if (regionEquals(s, i, "null")) return i + 4;
+        return -1;
+    }
+
+    /** 返回结束引号的下标 */
+    private static int skipString(CharSequence s, int quote, int len) {
+        for (int i = quote + 1; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            } else if (c < 0x20) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipNumber(CharSequence s, int i, int len) {
+        int start = i;
+        while (i < len) {
+            char c = s.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i > start ? i : -1;
+    }
+
+    private static int skipNested(CharSequence s, int i, int len) {
+        int depth = 0;
+        for (; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                i = skipString(s, i, len);
+                if (i < 0) return -1;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWs(CharSequence s, int i, int len) {
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isNumberStart(char c) {
+        return c == '-' || (c >= '0' && c <= '9');
+    }
+
+    private static boolean regionEquals(CharSequence s, int start, String expected) {
+        if (start + expected.length() > s.length()) return false;
+        for (int k = 0; k < expected.length(); k++) {
+            if (s.charAt(start + k) != expected.charAt(k)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.devicedata.gateway;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * /data/{deviceId} 纯 WebSocket 会话：每条文本消息是一条上送 JSON，每秒回一条 ACK。
+ */
+final class RawDataSession implements WebSocketProtocol.MessageSink {
+
+    private static final long ACK_INTERVAL_MS = 1_000;
+
+    private WebSocketProtocol ws;
+    private long sinceLastAck;
+    private long lastAckMs;
+
+    @Override
+    public void onOpen(Connection c, WebSocketProtocol ws) {
+        this.ws = ws;
+        this.lastAckMs = c.worker.nowMillis();
+    }
+
+    @Override
+    public void onText(Connection c, CharBuffer text, int byteLength) {
+        long timestamp = PayloadScanner.scan(text, c.worker.trace);
+        if (timestamp == PayloadScanner.MALFORMED) {
+            c.worker.stats.recordDecodeError();
+            return;
+        }
+        c.worker.stats.record(IngestStats.Source.WS, byteLength, timestamp, c.readMicros);
+        c.worker.stats.recordTrace(c.worker.trace.notifyMillis, c.readMicros);
+        sinceLastAck++;
+    }
+
+    @Override
+    public void onTick(Connection c, long nowMs) throws IOException {
+        if (nowMs - lastAckMs < ACK_INTERVAL_MS) return;
+        lastAckMs = nowMs;
+        if (sinceLastAck == 0) return;
+        ws.sendText(c, "{\"count\":" + sinceLastAck + ",\"t\":" + System.currentTimeMillis() + "}");
+        sinceLastAck = 0;
+    }
+}
@@ -0,0 +1,191 @@
+package com.devicedata.gateway;
+
+import com.devicedata.messagesend.stomp.ClockOffsetEstimator;
+import com.devicedata.messagesend.stomp.StompFrame;
+import com.devicedata.messagesend.stomp.StompFrameParser;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * /ws 上的 STOMP 1.2 会话，沿用 App 的 {@link StompFrameParser}：
+ * - CONNECT/STOMP → CONNECTED，服务端每 5 秒可发心跳，不要求客户端心跳
+ * - SEND /data/pub/{deviceId} → 计数并提取时间戳；带 receipt 头时回 RECEIPT（客户端据此测时延）
+ * - 订阅 /data/pub/response 后每秒推送一条 ACK：{"count":N,"t":毫秒}
+ * - SEND /data/time（对时探测）→ 在同一订阅上立即回 MESSAGE（头 type:time），消息体带收到、发出时刻，
+ *   供客户端 {@link ClockOffsetEstimator} 估计时钟偏差；不计入数据
+ */
+final class StompSession implements WebSocketProtocol.MessageSink, StompFrameParser.Handler {
+
+    private static final String ACK_DESTINATION = "/data/pub/response";
+    private static final String SEND_PREFIX = "/data/pub/";
+    private static final long HEART_BEAT_MS = 5_000;
+    private static final long ACK_INTERVAL_MS = 1_000;
+
+    private final StompFrameParser parser = new StompFrameParser(this);
+    private Connection connection;
+    private WebSocketProtocol ws;
+    private IOException pendingError;
+    private String ackSubscription;
+    private long heartBeatMs;
+    private long sinceLastAck;
+    private long lastAckMs;
+    private long messageSeq;
+
+    StompSession() {
+        // 只有 SEND 的消息体需要解码，其余帧跳过
+        parser.setBodyPolicy(frame -> "SEND".equals(frame.command()));
+    }
+
+    @Override
+    public void onOpen(Connection c, WebSocketProtocol ws) {
+        this.connection = c;
+        this.ws = ws;
+        this.lastAckMs = c.worker.nowMillis();
+    }
+
+    @Override
+    public void onText(Connection c, CharBuffer text, int byteLength) throws IOException {
+        try {
+            parser.feed(c.chars(), 0, text.limit());
+        } catch (IllegalStateException e) {
+            c.worker.stats.recordDecodeError();
+            ws.sendText(c, "ERROR\nmessage:malformed frame\n\n" + e.getMessage() + "\u0000");
+            c.closeAfterFlush();
+            return;
+        }
+        if (pendingError != null) {
+            IOException e = pendingError;
+            pendingError = null;
+            throw e;
+        }
+    }
+
+    @Override
+    public void onTick(Connection c, long nowMs) throws IOException {
+        if (ackSubscription != null && nowMs - lastAckMs >= ACK_INTERVAL_MS) {
+            lastAckMs = nowMs;
+            String body = "{\"count\":" + sinceLastAck + ",\"t\":" + System.currentTimeMillis() + "}";
+            sinceLastAck = 0;
+            ws.sendText(c, "MESSAGE\n"
+                    + "destination:" + ACK_DESTINATION + "\n"
+                    + "content-type:application/json\n"
+                    + "subscription:" + ackSubscription + "\n"
+                    + "message-id:" + (++messageSeq) + "\n"
+                    + "content-length:" + body.length() + "\n"
+                    + "\n" + body + "\u0000");
+        } else if (heartBeatMs > 0 && nowMs - c.lastWriteMs >= heartBeatMs) {
+            ws.sendText(c, "\n");
+        }
+    }
+
+    @Override
+    public void onFrame(StompFrame frame) {
+        try {
+            handleFrame(frame);
+        } catch (IOException e) {
+            // 解析器回调不能抛受检异常，留到 onText 返回前再抛出
+            pendingError = e;
+        }
+    }
+
+    @Override
+    public void onHeartBeat() {
+    }
+
+    private void handleFrame(StompFrame frame) throws IOException {
+        Connection c = connection;
+        switch (frame.command()) {
+            case "SEND": {
+                String destination = frame.header("destination");
+                if (ClockOffsetEstimator.DESTINATION.equals(destination)) {
+                    replyClockProbe(frame);
+                    break;
+                }
+                if (destination == null || !destination.startsWith(SEND_PREFIX)) {
+                    c.worker.stats.recordDecodeError();
+                    break;
+                }
+                long timestamp = PayloadScanner.scan(frame.bodyChars(), c.worker.trace);
+                if (timestamp == PayloadScanner.MALFORMED) {
+                    c.worker.stats.recordDecodeError();
+                } else {
+                    c.worker.stats.record(IngestStats.Source.STOMP, frame.bodyLength(), timestamp, c.readMicros);
+                    c.worker.stats.recordTrace(c.worker.trace.notifyMillis, c.readMicros);
+                    sinceLastAck++;
+                }
+                break;
+            }
+            case "CONNECT":
+            case "STOMP": {
+                long clientWantsMs = parseHeartBeatIncoming(frame.header("heart-beat"));
+                heartBeatMs = clientWantsMs == 0 ? 0 : Math.max(HEART_BEAT_MS, clientWantsMs);
+                ws.sendText(c, "CONNECTED\n"
+                        + "version:1.2\n"
+                        + "server:MessageSendGateway/1.0\n"
+                        + "heart-beat:" + HEART_BEAT_MS + ",0\n"
+                        + "\n\u0000");
+                break;
+            }
+            case "SUBSCRIBE":
+                if (ACK_DESTINATION.equals(frame.header("destination"))) {
+                    String id = frame.header("id");
+                    ackSubscription = id != null ? id : "sub-0";
+                }
+                break;
+            case "UNSUBSCRIBE": {
+                String id = frame.header("id");
+                if (id != null && id.equals(ackSubscription)) ackSubscription = null;
+                break;
+            }
+            case "DISCONNECT":
+                sendReceipt(frame);
+                c.closeAfterFlush();
+                return;
+            default:
+                break;
+        }
+        sendReceipt(frame);
+    }
+
+    private void replyClockProbe(StompFrame frame) throws IOException {
+        long t1 = System.currentTimeMillis();
+        String id = frame.header(ClockOffsetEstimator.SYNC_ID_HEADER);
+        if (ackSubscription == null || id == null) return;
+        long syncId;
+        try {
+            syncId = Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            connection.worker.stats.recordDecodeError();
+            return;
+        }
+        String body = ClockOffsetEstimator.responseBody(syncId, t1, System.currentTimeMillis());
+        ws.sendText(connection, "MESSAGE\n"
+                + "destination:" + ACK_DESTINATION + "\n"
+                + ClockOffsetEstimator.TYPE_HEADER + ":" + ClockOffsetEstimator.TYPE_TIME + "\n"
+                + "content-type:application/json\n"
+                + "subscription:" + ackSubscription + "\n"
+                + "message-id:" + (++messageSeq) + "\n"
+                + "content-length:" + body.length() + "\n"
+                + "\n" + body + "\u0000");
+    }
+
+    private void sendReceipt(StompFrame frame) throws IOException {
+        String receipt = frame.header("receipt");
+        if (receipt != null) {
+            ws.sendText(connection, "RECEIPT\nreceipt-id:" + receipt + "\n\n\u0000");
+        }
+    }
+
+    /** heart-beat:cx,cy 中的 cy（客户端希望多久收到一次服务端数据） */
+    private static long parseHeartBeatIncoming(String header) {
+        if (header == null) return 0;
+        int comma = header.indexOf(',');
+        if (comma < 0) return 0;
+        try {
+            return Math.max(0, Long.parseLong(header.substring(comma + 1).trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
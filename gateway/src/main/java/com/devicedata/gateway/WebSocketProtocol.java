@@ -0,0 +1,160 @@
+package com.devicedata.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 6455 服务端帧编解码：客户端帧带掩码，就地去掩码后解码为字符交给 {@link MessageSink}；
+ * 支持分片、Ping/Pong（OkHttp 默认每 25 秒 Ping 一次，不回 Pong 会被客户端断开）与 Close。
+ */
+final class WebSocketProtocol implements Connection.Protocol {
+
+    interface MessageSink {
+        void onOpen(Connection c, WebSocketProtocol ws) throws IOException;
+
+        /** text 为复用缓冲区的视图，回调返回后失效；byteLength 为原始 UTF-8 字节数 */
+        void onText(Connection c, CharBuffer text, int byteLength) throws IOException;
+
+        void onTick(Connection c, long nowMs) throws IOException;
+    }
+
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private final MessageSink sink;
+    // 分片消息的拼接缓冲
+    private byte[] fragments;
+    private int fragmentLength;
+    private int fragmentOpcode = -1;
+
+    WebSocketProtocol(Connection c, MessageSink sink) throws IOException {
+        this.sink = sink;
+        sink.onOpen(c, this);
+    }
+
+    @Override
+    public void onData(Connection c, ByteBuffer in) throws IOException {
+        byte[] buf = in.array();
+        int base = in.arrayOffset();
+        while (in.remaining() >= 2 && !c.isClosed()) {
+            int p = base + in.position();
+            int b0 = buf[p] & 0xFF;
+            int b1 = buf[p + 1] & 0xFF;
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            boolean masked = (b1 & 0x80) != 0;
+            long length = b1 & 0x7F;
+            int headerLength = 2;
+            if (length == 126) {
+                if (in.remaining() < 4) return;
+                length = ((buf[p + 2] & 0xFF) << 8) | (buf[p + 3] & 0xFF);
+                headerLength = 4;
+            } else if (length == 127) {
+                if (in.remaining() < 10) return;
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | (buf[p + 2 + i] & 0xFF);
+                }
+                headerLength = 10;
+            }
+            if (!masked) throw new IOException("client frame not masked");
+            if (length > Connection.MAX_READ_BYTES - 14) throw new IOException("frame too large: " + length);
+            int total = headerLength + 4 + (int) length;
+            if (in.remaining() < total) {
+                c.requireCapacity(total);
+                return;
+            }
+            int maskOffset = p + headerLength;
+            int payload = maskOffset + 4;
+            int len = (int) length;
+            for (int i = 0; i < len; i++) {
+                buf[payload + i] ^= buf[maskOffset + (i & 3)];
+            }
+            in.position(in.position() + total);
+            onFrame(c, fin, opcode, buf, payload, len);
+        }
+    }
+
+    @Override
+    public void onTick(Connection c, long nowMs) throws IOException {
+        sink.onTick(c, nowMs);
+    }
+
+    private void onFrame(Connection c, boolean fin, int opcode, byte[] buf, int off, int len) throws IOException {
+        switch (opcode) {
+            case OP_TEXT:
+            case OP_BINARY:
+                if (fin) {
+                    if (opcode == OP_TEXT) sink.onText(c, c.decodeUtf8(buf, off, len), len);
+                } else {
+                    fragmentOpcode = opcode;
+                    fragmentLength = 0;
+                    appendFragment(buf, off, len);
+                }
+                break;
+            case OP_CONTINUATION:
+                if (fragmentOpcode < 0) throw new IOException("unexpected continuation frame");
+                appendFragment(buf, off, len);
+                if (fin) {
+                    if (fragmentOpcode == OP_TEXT) {
+                        sink.onText(c, c.decodeUtf8(fragments, 0, fragmentLength), fragmentLength);
+                    }
+                    fragmentOpcode = -1;
+                }
+                break;
+            case OP_PING:
+                c.send(frame(OP_PONG, buf, off, len));
+                break;
+            case OP_PONG:
+                break;
+            case OP_CLOSE:
+                // 回显状态码后关闭
+                c.send(frame(OP_CLOSE, buf, off, Math.min(len, 2)));
+                c.closeAfterFlush();
+                break;
+            default:
+                throw new IOException("unknown opcode " + opcode);
+        }
+    }
+
+    private void appendFragment(byte[] buf, int off, int len) throws IOException {
+        if (fragmentLength + len > Connection.MAX_READ_BYTES) throw new IOException("message too large");
+        if (fragments == null || fragments.length < fragmentLength + len) {
+            byte[] grown = new byte[Math.max(fragmentLength + len, fragments == null ? 4096 : fragments.length * 2)];
+            if (fragments != null) System.arraycopy(fragments, 0, grown, 0, fragmentLength);
+            fragments = grown;
+        }
+        System.arraycopy(buf, off, fragments, fragmentLength, len);
+        fragmentLength += len;
+    }
+
+    /** 发送一条文本消息（服务端帧不加掩码） */
+    void sendText(Connection c, String text) throws IOException {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        c.send(frame(OP_TEXT, payload, 0, payload.length));
+    }
+
+    private static ByteBuffer frame(int opcode, byte[] payload, int off, int len) {
+        int header = len < 126 ? 2 : len <= 0xFFFF ? 4 : 10;
+        ByteBuffer out = ByteBuffer.allocate(header + len);
+        out.put((byte) (0x80 | opcode));
+        if (len < 126) {
+            out.put((byte) len);
+        } else if (len <= 0xFFFF) {
+            out.put((byte) 126);
+            out.putShort((short) len);
+        } else {
+            out.put((byte) 127);
+            out.putLong(len);
+        }
+        out.put(payload, off, len);
+        out.flip();
+        return out;
+    }
+}
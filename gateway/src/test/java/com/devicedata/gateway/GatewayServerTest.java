@@ -0,0 +1,141 @@
+package com.devicedata.gateway;
+
+import com.devicedata.messagesend.binary.BinaryProtocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import static org.junit.Assert.*;
+
+public class GatewayServerTest {
+
+    private GatewayServer server;
+    private final OkHttpClient http = new OkHttpClient();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new GatewayServer("127.0.0.1", 0, 0, 2);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        http.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void httpPostIsCounted() throws Exception {
+        String json = "{\"timestamp\":" + System.currentTimeMillis() + ",\"ecg\":100,\"bo\":\"98\"}";
+        Request request = new Request.Builder()
+                .url("http://127.0.0.1:" + server.httpPort() + "/data/AA:BB")
+                .post(RequestBody.create(json, MediaType.parse("application/json")))
+                .build();
+        try (Response response = http.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("{\"status\":\"ok\"}", response.body().string());
+        }
+        IngestStats total = awaitMessages(1);
+        assertEquals(1, total.messages(IngestStats.Source.HTTP));
+        assertEquals(0, total.decodeErrors());
+    }
+
+    @Test
+    public void stompSendGetsReceiptAndAck() throws Exception {
+        BlockingQueue<String> frames = new ArrayBlockingQueue<>(64);
+        Request request = new Request.Builder().url("ws://127.0.0.1:" + server.httpPort() + "/ws").build();
+        WebSocket ws = http.newWebSocket(request, new WebSocketListener() {
+            @Override public void onMessage(WebSocket webSocket, String text) {
+                if (!text.equals("\n")) frames.add(text);
+            }
+        });
+        ws.send("CONNECT\naccept-version:1.2\nheart-beat:5000,5000\n\n\u0000");
+        assertTrue(frames.poll(5, TimeUnit.SECONDS).startsWith("CONNECTED\n"));
+        ws.send("SUBSCRIBE\nid:sub-1\ndestination:/data/pub/response\n\n\u0000");
+        String body = "{\"timestamp\":" + System.currentTimeMillis() + ",\"ecg\":1}";
+        ws.send("SEND\ndestination:/data/pub/AA:BB\ncontent-type:application/json\nreceipt:probe-1\n\n"
+                + body + "\u0000");
+        assertEquals("RECEIPT\nreceipt-id:probe-1\n\n\u0000", frames.poll(5, TimeUnit.SECONDS));
+        String ack = frames.poll(5, TimeUnit.SECONDS);
+        assertTrue(ack, ack.startsWith("MESSAGE\n") && ack.contains("subscription:sub-1") && ack.contains("\"count\":1"));
+        ws.close(1000, null);
+
+        IngestStats total = awaitMessages(1);
+        assertEquals(1, total.messages(IngestStats.Source.STOMP));
+    }
+
+    @Test
+    public void rawWebSocketCountsMalformedSeparately() throws Exception {
+        Request request = new Request.Builder().url("ws://127.0.0.1:" + server.httpPort() + "/data/AA:BB").build();
+        WebSocket ws = http.newWebSocket(request, new WebSocketListener() { });
+        ws.send("{\"timestamp\":" + System.currentTimeMillis() + ",\"ecg\":1}");
+        ws.send("{\"ecg\":");
+        IngestStats total = awaitMessages(1);
+        ws.close(1000, null);
+        assertEquals(1, total.messages(IngestStats.Source.WS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (total.decodeErrors() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            server.drainInterval();
+        }
+        assertEquals(1, total.decodeErrors());
+    }
+
+    @Test
+    public void binaryTcpHandshakeSampleAndPing() throws Exception {
+        try (Socket s = new Socket("127.0.0.1", server.tcpPort())) {
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            byte[] id = "AA:BB".getBytes("UTF-8");
+            out.writeInt(1 + 3 + id.length);
+            out.writeByte(BinaryProtocol.TYPE_HELLO);
+            out.writeByte(BinaryProtocol.VERSION);
+            out.writeShort(id.length);
+            out.write(id);
+            assertEquals(2, in.readInt());
+            assertEquals(BinaryProtocol.TYPE_WELCOME, in.readByte());
+            assertEquals(BinaryProtocol.STATUS_OK, in.readByte());
+
+            // SAMPLE：时间戳 + 空位图
+            out.writeInt(1 + 10);
+            out.writeByte(BinaryProtocol.TYPE_SAMPLE);
+            out.writeLong(System.currentTimeMillis());
+            out.writeShort(0);
+            out.writeInt(1 + 8);
+            out.writeByte(BinaryProtocol.TYPE_PING);
+            out.writeLong(42L);
+            out.flush();
+            assertEquals(9, in.readInt());
+            assertEquals(BinaryProtocol.TYPE_PONG, in.readByte());
+            assertEquals(42L, in.readLong());
+        }
+        IngestStats total = awaitMessages(1);
+        assertEquals(1, total.messages(IngestStats.Source.TCP));
+    }
+
+    private IngestStats awaitMessages(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.total().totalMessages() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            server.drainInterval();
+        }
+        assertEquals(expected, server.total().totalMessages());
+        return server.total();
+    }
+}
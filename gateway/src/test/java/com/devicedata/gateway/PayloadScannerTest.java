@@ -0,0 +1,43 @@
+package com.devicedata.gateway;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PayloadScannerTest {
+
+    @Test
+    public void extractsTimestampFromAppPayload() {
+        String json = "{\"timestamp\":1731420000000,\"bo\":\"98\",\"hr\":\"76\",\"temp\":\"36.6\","
+                + "\"ecg\":2048,\"resp\":18,\"respWave\":-12,\"boWave\":90}";
+        assertEquals(1731420000000L, PayloadScanner.scan(json));
+    }
+
+    @Test
+    public void skipsNestedValuesAndEscapes() {
+        String json = " {\"note\":\"a\\\"}b\",\"wave\":[1,2,{\"x\":[3]}],\"ok\":true,\"n\":null,"
+                + "\"timestamp\":5} ";
+        assertEquals(5L, PayloadScanner.scan(json));
+        assertEquals(PayloadScanner.NO_TIMESTAMP, PayloadScanner.scan("{\"timestamp\":\"5\"}"));
+        assertEquals(PayloadScanner.NO_TIMESTAMP, PayloadScanner.scan("{}"));
+    }
+
+    @Test
+    public void extractsTraceNotifyTime() {
+        PayloadScanner.Trace trace = new PayloadScanner.Trace();
+        String traced = "{\"timestamp\":1731420000010,\"ecg\":2048,\"traceId\":7,\"tNotify\":1731420000003}";
+        assertEquals(1731420000010L, PayloadScanner.scan(traced, trace));
+        assertEquals(1731420000003L, trace.notifyMillis);
+        assertEquals(1731420000010L, PayloadScanner.scan("{\"timestamp\":1731420000010}", trace));
+        assertEquals(0, trace.notifyMillis);
+    }
+
+    @Test
+    public void rejectsMalformed() {
+        assertEquals(PayloadScanner.MALFORMED, PayloadScanner.scan(""));
+        assertEquals(PayloadScanner.MALFORMED, PayloadScanner.scan("{\"ecg\":"));
+        assertEquals(PayloadScanner.MALFORMED, PayloadScanner.scan("{\"ecg\":1,}"));
+        assertEquals(PayloadScanner.MALFORMED, PayloadScanner.scan("{\"ecg\":1} trailing"));
+        assertEquals(PayloadScanner.MALFORMED, PayloadScanner.scan("[1,2]"));
+    }
+}
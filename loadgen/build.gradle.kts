@@ -0,0 +1,47 @@
+// 设备群压测：每台模拟设备一个虚拟线程（Java 21），直接编译 app 模块中的真实客户端类
+// （PayloadFactory、StompConnection/StompWebSocketClient、BinaryTcpClient），配合 gateway 模块使用
+plugins {
+    java
+    application
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("src/main/java", "../app/src/main/java"))
+            include("com/devicedata/loadgen/**")
+            include("com/devicedata/messagesend/Transport.java")
+            include("com/devicedata/messagesend/StompConnection.java")
+            include("com/devicedata/messagesend/StompWebSocketClient.java")
+            include("com/devicedata/messagesend/SendLane.java")
+            include("com/devicedata/messagesend/SendLanes.java")
+            include("com/devicedata/messagesend/BinaryTcpClient.java")
+            include("com/devicedata/messagesend/BinaryTcpIoLoop.java")
+            include("com/devicedata/messagesend/PayloadFactory.java")
+            include("com/devicedata/messagesend/stomp/**")
+            include("com/devicedata/messagesend/binary/**")
+            include("com/devicedata/messagesend/model/**")
+            include("com/devicedata/messagesend/metrics/**")
+        }
+    }
+}
+
+dependencies {
+    compileOnly(libs.androidx.annotation)
+    implementation(libs.okhttp)
+    // Android 自带 org.json，JVM 上需要显式引入
+    implementation(libs.org.json)
+    testCompileOnly(libs.androidx.annotation)
+    testImplementation(libs.junit)
+    testImplementation(project(":gateway"))
+}
+
+application {
+    mainClass = "com.devicedata.loadgen.LoadGenMain"
+}
@@ -0,0 +1,48 @@
+package com.devicedata.loadgen;
+
+import com.devicedata.messagesend.metrics.LatencyHistogram;
+
+/**
+ * 单台模拟设备的统计，由设备线程写、报告线程定期汇总；每台一把锁，互不竞争。
+ */
+final class DeviceStats {
+
+    /** 构造 JSON + 调用 send() 的耗时（微秒） */
+    private final LatencyHistogram sendMicros = new LatencyHistogram();
+    /** 实际发送时刻相对计划时刻的滞后（微秒），反映调度与客户端锁的抖动 */
+    private final LatencyHistogram lagMicros = new LatencyHistogram();
+    private long sent;
+    private long skipped;
+    private long errors;
+    private long disconnects;
+
+    synchronized void recordSend(long sendNanos, long lagNanos) {
+        sent++;
+        sendMicros.record(sendNanos / 1000);
+        lagMicros.record(lagNanos / 1000);
+    }
+
+    synchronized void recordSkipped(long ticks) {
+        skipped += ticks;
+    }
+
+    synchronized void recordError() {
+        errors++;
+    }
+
+    synchronized void recordDisconnect() {
+        disconnects++;
+    }
+
+    /** 累加到 target 并清零本设备的区间统计 */
+    synchronized void drainTo(FleetStats target) {
+        if (sent == 0 && skipped == 0 && errors == 0 && disconnects == 0) return;
+        target.add(sent, skipped, errors, disconnects, sendMicros, lagMicros);
+        sent = 0;
+        skipped = 0;
+        errors = 0;
+        disconnects = 0;
+        sendMicros.reset();
+        lagMicros.reset();
+    }
+}
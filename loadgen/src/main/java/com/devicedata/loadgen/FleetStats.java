@@ -0,0 +1,45 @@
+package com.devicedata.loadgen;
+
+import com.devicedata.messagesend.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * 一个报告区间内全部设备的汇总；只在报告线程中使用。
+ */
+final class FleetStats {
+
+    long sent;
+    long skipped;
+    long errors;
+    long disconnects;
+    final LatencyHistogram sendMicros = new LatencyHistogram();
+    final LatencyHistogram lagMicros = new LatencyHistogram();
+    /** 各设备连接的往返时延采样（毫秒，来自 STOMP RECEIPT 或 TCP PONG） */
+    final LatencyHistogram rttMillis = new LatencyHistogram();
+
+    void add(long sent, long skipped, long errors, long disconnects,
+             LatencyHistogram sendMicros, LatencyHistogram lagMicros) {
+        this.sent += sent;
+        this.skipped += skipped;
+        this.errors += errors;
+        this.disconnects += disconnects;
+        this.sendMicros.add(sendMicros);
+        this.lagMicros.add(lagMicros);
+    }
+
+    void addAll(FleetStats other) {
+        add(other.sent, other.skipped, other.errors, other.disconnects, other.sendMicros, other.lagMicros);
+        rttMillis.add(other.rttMillis);
+    }
+
+    String format(double seconds, int started, int ready, long pending) {
+        return String.format(Locale.US,
+                "设备 %d/%d 就绪，发送 %.0f msg/s，跳过 %d，错误 %d，断线 %d，积压 %d | "
+                        + "send(us) p50=%d p99=%d max=%d | 滞后(us) p50=%d p99=%d max=%d | RTT(ms) p50=%d p99=%d",
+                ready, started, sent / seconds, skipped, errors, disconnects, pending,
+                sendMicros.valueAtPercentile(50), sendMicros.valueAtPercentile(99), sendMicros.max(),
+                lagMicros.valueAtPercentile(50), lagMicros.valueAtPercentile(99), lagMicros.max(),
+                rttMillis.valueAtPercentile(50), rttMillis.valueAtPercentile(99));
+    }
+}
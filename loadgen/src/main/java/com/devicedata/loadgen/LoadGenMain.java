@@ -0,0 +1,81 @@
+package com.devicedata.loadgen;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 命令行入口，配合 gateway 模块在单机上压测：
+ * <pre>
+ * ./gradlew :loadgen:run --args="--devices 2000 --rate 250 --ramp linear:30 --duration 120"
+ * ./gradlew :loadgen:run --args="--transport tcp --tcp 127.0.0.1:9000 --devices 500"
+ * </pre>
+ * 每个统计周期打印一行：就绪设备数、发送速率、跳过/错误/断线、积压，
+ * send() 耗时与调度滞后的百分位，以及连接往返时延。端到端时延看网关侧输出。
+ */
+public final class LoadGenMain {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final String USAGE = "用法: [--transport stomp|tcp] [--url ws://127.0.0.1:8080] [--tcp HOST:PORT]\n"
+            + "      [--devices 100] [--rate 250] [--devices-per-connection 1]\n"
+            + "      [--ramp instant|linear:SECONDS|step:COUNT:SECONDS] [--duration 60] [--report-secs 5] [--verbose]";
+
+    private LoadGenMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator.Config config = new LoadGenerator.Config();
+        int reportSecs = 5;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String flag = args[i];
+                if ("--verbose".equals(flag)) {
+                    config.verbose = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) throw new IllegalArgumentException(flag + " requires a value");
+                String value = args[++i];
+                switch (flag) {
+                    case "--transport": config.mode = LoadGenerator.Mode.valueOf(value.toUpperCase()); break;
+                    case "--url": config.wsUrl = value; break;
+                    case "--tcp": {
+                        int colon = value.lastIndexOf(':');
+                        if (colon <= 0) throw new IllegalArgumentException("--tcp expects HOST:PORT");
+                        config.tcpHost = value.substring(0, colon);
+                        config.tcpPort = Integer.parseInt(value.substring(colon + 1));
+                        break;
+                    }
+                    case "--devices": config.devices = Integer.parseInt(value); break;
+                    case "--rate": config.rateHz = Double.parseDouble(value); break;
+                    case "--devices-per-connection": config.devicesPerConnection = Integer.parseInt(value); break;
+                    case "--ramp": config.ramp = RampProfile.parse(value); break;
+                    case "--duration": config.durationMs = Math.round(Double.parseDouble(value) * 1000); break;
+                    case "--report-secs": reportSecs = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + flag);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            generator.stop();
+            System.out.println(generator.summary());
+        }, "loadgen-shutdown"));
+        generator.start();
+        System.out.println("压测开始：" + config.devices + " 台设备，" + config.rateHz + "Hz，" + config.mode);
+
+        long last = System.nanoTime();
+        while (!generator.isFinished()) {
+            Thread.sleep(reportSecs * 1000L);
+            long now = System.nanoTime();
+            System.out.println(LocalTime.now().format(TIME) + " " + generator.report((now - last) / 1e9));
+            last = now;
+        }
+        generator.report((System.nanoTime() - last) / 1e9);
+        System.exit(0); // 触发关闭钩子打印累计结果
+    }
+}
@@ -0,0 +1,198 @@
+package com.devicedata.loadgen;
+
+import com.devicedata.messagesend.BinaryTcpClient;
+import com.devicedata.messagesend.BinaryTcpIoLoop;
+import com.devicedata.messagesend.StompConnection;
+import com.devicedata.messagesend.StompWebSocketClient;
+import com.devicedata.messagesend.Transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * 设备群压测：N 台 {@link SimulatedDevice} 各占一个虚拟线程，驱动 App 中真实的客户端类。
+ * - STOMP：每 devicesPerConnection 台设备共享一条 {@link StompConnection}（1 = 每台一条，与手机一致）；
+ *   所有连接共用一个 OkHttpClient（读循环跑在虚拟线程上）与一个小的定时线程池
+ * - TCP：每台一个 {@link BinaryTcpClient}，以 SAMPLE 帧发送；连接轮流分到按核数开的几个 {@link BinaryTcpIoLoop}，
+ *   IO 线程与 Selector 数不随设备数增长
+ */
+final class LoadGenerator {
+
+    enum Mode { STOMP, TCP }
+
+    static final class Config {
+        Mode mode = Mode.STOMP;
+        String wsUrl = "ws://127.0.0.1:8080";
+        String tcpHost = "127.0.0.1";
+        int tcpPort = 9000;
+        int devices = 100;
+        double rateHz = 250;
+        int devicesPerConnection = 1;
+        RampProfile ramp = RampProfile.parse("instant");
+        long durationMs = 60_000;   // 0 表示一直运行
+        boolean verbose;
+    }
+
+    private final Config config;
+    private final List<SimulatedDevice> devices = new ArrayList<>();
+    private final List<StompConnection> connections = new ArrayList<>();
+    private final List<BinaryTcpIoLoop> tcpLoops = new ArrayList<>();
+    private final FleetStats total = new FleetStats();
+    private ExecutorService deviceThreads;
+    private ExecutorService okHttpThreads;
+    private ScheduledExecutorService stompScheduler;
+    private OkHttpClient okHttp;
+    private long startNanos;
+
+    LoadGenerator(Config config) {
+        if (config.devices <= 0) throw new IllegalArgumentException("devices must be > 0");
+        if (config.rateHz <= 0) throw new IllegalArgumentException("rate must be > 0");
+        if (config.devicesPerConnection <= 0) throw new IllegalArgumentException("devicesPerConnection must be > 0");
+        this.config = config;
+    }
+
+    synchronized void start() {
+        startNanos = System.nanoTime();
+        long endNanos = config.durationMs > 0
+                ? startNanos + TimeUnit.MILLISECONDS.toNanos(config.durationMs) : Long.MAX_VALUE;
+        deviceThreads = Executors.newVirtualThreadPerTaskExecutor();
+        if (config.mode == Mode.STOMP) {
+            okHttpThreads = Executors.newVirtualThreadPerTaskExecutor();
+            Dispatcher dispatcher = new Dispatcher(okHttpThreads);
+            // WebSocket 读循环在整个连接期间占用一个调度名额，默认每主机 5 个会卡住其余连接
+            dispatcher.setMaxRequests(Integer.MAX_VALUE);
+            dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+            okHttp = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+            stompScheduler = Executors.newScheduledThreadPool(
+                    Math.max(2, Runtime.getRuntime().availableProcessors() / 2), r -> {
+                        Thread t = new Thread(r, "loadgen-stomp-io");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        } else {
+            int loops = Math.min(config.devices, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+            for (int i = 0; i < loops; i++) {
+                tcpLoops.add(new BinaryTcpIoLoop("loadgen-tcp-io-" + i));
+            }
+        }
+
+        StompConnection connection = null;
+        for (int i = 0; i < config.devices; i++) {
+            String deviceId = String.format(Locale.US, "LG:%02X:%02X:%02X", (i >> 16) & 0xFF, (i >> 8) & 0xFF, i & 0xFF);
+            DeviceStats[] statsRef = new DeviceStats[1];
+            Transport transport;
+            if (config.mode == Mode.STOMP) {
+                if (i % config.devicesPerConnection == 0) {
+                    connection = new StompConnection(config.wsUrl, okHttp, quietListener(null));
+                    connection.setIoExecutor(stompScheduler);
+                    connections.add(connection);
+                }
+                StompWebSocketClient client = new StompWebSocketClient(connection, deviceId, deviceListener(statsRef));
+                client.setAckBodyNeeded(false);
+                transport = client;
+            } else {
+                transport = new BinaryTcpClient(config.tcpHost, config.tcpPort, deviceId, deviceListener(statsRef),
+                        tcpLoops.get(i % tcpLoops.size()));
+            }
+            long startAt = startNanos + TimeUnit.MILLISECONDS.toNanos(config.ramp.startDelayMs(i, config.devices));
+            SimulatedDevice device = new SimulatedDevice(deviceId, transport, config.rateHz, startAt, endNanos);
+            statsRef[0] = device.stats;
+            devices.add(device);
+            deviceThreads.execute(device);
+        }
+    }
+
+    /** 汇总自上次调用以来的区间统计并打印一行 */
+    synchronized String report(double intervalSecs) {
+        FleetStats interval = new FleetStats();
+        int started = 0;
+        int ready = 0;
+        long pending = 0;
+        for (SimulatedDevice d : devices) {
+            d.stats.drainTo(interval);
+            if (!d.isStarted()) continue;
+            started++;
+            if (d.transport.isReady()) ready++;
+            pending += d.transport.pendingCount();
+            long rtt = d.transport.latencyMillis();
+            if (rtt >= 0) interval.rttMillis.record(rtt);
+        }
+        total.addAll(interval);
+        return interval.format(intervalSecs, started, ready, pending);
+    }
+
+    synchronized String summary() {
+        double secs = (System.nanoTime() - startNanos) / 1e9;
+        int ready = 0;
+        for (SimulatedDevice d : devices) {
+            if (d.isStarted() && d.transport.isReady()) ready++;
+        }
+        return String.format(Locale.US, "累计 %.0fs: ", secs) + total.format(secs, devices.size(), ready, 0);
+    }
+
+    synchronized long totalSent() {
+        return total.sent;
+    }
+
+    /** 所有设备都已跑完 duration */
+    boolean isFinished() {
+        return config.durationMs > 0
+                && System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(config.durationMs);
+    }
+
+    synchronized void stop() {
+        for (SimulatedDevice d : devices) d.stop();
+        if (deviceThreads != null) {
+            deviceThreads.shutdown();
+            try {
+                deviceThreads.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SimulatedDevice d : devices) d.transport.shutdown();
+        for (StompConnection c : connections) c.shutdown();
+        for (BinaryTcpIoLoop l : tcpLoops) l.shutdown();
+        if (stompScheduler != null) stompScheduler.shutdownNow();
+        if (okHttp != null) {
+            okHttp.dispatcher().cancelAll();
+            okHttp.connectionPool().evictAll();
+        }
+        if (okHttpThreads != null) okHttpThreads.shutdownNow();
+    }
+
+    private Transport.Listener quietListener(DeviceStats[] statsRef) {
+        boolean verbose = config.verbose;
+        return new Transport.Listener() {
+            @Override public void onLog(String line) { if (verbose) System.out.println(line); }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() {
+                if (statsRef != null && statsRef[0] != null) statsRef[0].recordDisconnect();
+            }
+            @Override public void onError(String error) {
+                if (statsRef != null && statsRef[0] != null) statsRef[0].recordError();
+                if (verbose) System.err.println(error);
+            }
+        };
+    }
+
+    private StompWebSocketClient.Listener deviceListener(DeviceStats[] statsRef) {
+        Transport.Listener base = quietListener(statsRef);
+        return new StompWebSocketClient.Listener() {
+            @Override public void onLog(String line) { base.onLog(line); }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() { base.onDisconnected(); }
+            @Override public void onError(String error) { base.onError(error); }
+            @Override public void onAck(String message) { }
+            @Override public void onSendCountUpdate(long count) { }
+        };
+    }
+}
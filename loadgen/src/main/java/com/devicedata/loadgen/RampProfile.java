@@ -0,0 +1,70 @@
+package com.devicedata.loadgen;
+
+import java.util.Locale;
+
+/**
+ * 设备上线节奏：
+ * <ul>
+ *   <li>{@code instant}：全部立即启动</li>
+ *   <li>{@code linear:SECONDS}：在 SECONDS 秒内均匀启动</li>
+ *   <li>{@code step:COUNT:SECONDS}：每 SECONDS 秒启动 COUNT 台</li>
+ * </ul>
+ */
+final class RampProfile {
+
+    private enum Kind { INSTANT, LINEAR, STEP }
+
+    private final Kind kind;
+    private final long durationMs;
+    private final int stepSize;
+    private final long stepIntervalMs;
+
+    private RampProfile(Kind kind, long durationMs, int stepSize, long stepIntervalMs) {
+        this.kind = kind;
+        this.durationMs = durationMs;
+        this.stepSize = stepSize;
+        this.stepIntervalMs = stepIntervalMs;
+    }
+
+    static RampProfile parse(String spec) {
+        String[] parts = spec.toLowerCase(Locale.ROOT).split(":");
+        try {
+            switch (parts[0]) {
+                case "instant":
+                    if (parts.length == 1) return new RampProfile(Kind.INSTANT, 0, 0, 0);
+                    break;
+                case "linear":
+                    if (parts.length == 2) {
+                        long ms = Math.round(Double.parseDouble(parts[1]) * 1000);
+                        if (ms >= 0) return new RampProfile(Kind.LINEAR, ms, 0, 0);
+                    }
+                    break;
+                case "step":
+                    if (parts.length == 3) {
+                        int size = Integer.parseInt(parts[1]);
+                        long ms = Math.round(Double.parseDouble(parts[2]) * 1000);
+                        if (size > 0 && ms >= 0) return new RampProfile(Kind.STEP, 0, size, ms);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException ignored) {
+            // 落到下面统一报错
+        }
+        throw new IllegalArgumentException("invalid ramp profile: " + spec
+                + " (expected instant | linear:SECONDS | step:COUNT:SECONDS)");
+    }
+
+    /** 第 index 台（从 0 开始）设备相对压测开始的启动延迟 */
+    long startDelayMs(int index, int total) {
+        switch (kind) {
+            case LINEAR:
+                return total <= 1 ? 0 : durationMs * index / total;
+            case STEP:
+                return (index / stepSize) * stepIntervalMs;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.devicedata.loadgen;
+
+import com.devicedata.messagesend.BinaryTcpClient;
+import com.devicedata.messagesend.PayloadFactory;
+import com.devicedata.messagesend.Transport;
+import com.devicedata.messagesend.model.VitalsReading;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一台模拟监护仪：按固定频率合成采样，经真实的 PayloadFactory 与客户端发送，
+ * 节奏与 MainActivity 的 250Hz 发送循环一致（每个周期一条，低频指标沿用最近值）。
+ * 运行在虚拟线程上，按绝对时刻 park，落后超过 MAX_LAG_TICKS 个周期时跳过并计数，不补发。
+ */
+final class SimulatedDevice implements Runnable {
+
+    private static final int MAX_LAG_TICKS = 25; // 250Hz 下 100ms
+
+    final String deviceId;
+    final Transport transport;
+    final DeviceStats stats = new DeviceStats();
+    private final double rateHz;
+    private final long startAtNanos;
+    private final long endAtNanos;
+    private final double phase;
+    private volatile boolean stopped;
+    private volatile boolean started;
+
+    /**
+     * @param endAtNanos 到该时刻停止发送；Long.MAX_VALUE 表示一直运行到 {@link #stop()}
+     */
+    SimulatedDevice(String deviceId, Transport transport, double rateHz, long startAtNanos, long endAtNanos) {
+        this.deviceId = deviceId;
+        this.transport = transport;
+        this.rateHz = rateHz;
+        this.startAtNanos = startAtNanos;
+        this.endAtNanos = endAtNanos;
+        // 各设备波形错开，避免所有设备同一时刻出现 R 波
+        this.phase = (deviceId.hashCode() & 0xFFFF) / 65536.0;
+    }
+
+    boolean isStarted() {
+        return started;
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        parkUntil(startAtNanos);
+        if (stopped) return;
+        transport.connect();
+        started = true;
+        long period = Math.round(1_000_000_000L / rateHz);
+        long next = System.nanoTime();
+        long seq = 0;
+        while (!stopped) {
+            long now = System.nanoTime();
+            if (now >= endAtNanos) break;
+            long lag = now - next;
+            if (lag > MAX_LAG_TICKS * period) {
+                long skip = lag / period;
+                stats.recordSkipped(skip);
+                seq += skip;
+                next += skip * period;
+                lag = now - next;
+            }
+            long t0 = System.nanoTime();
+            VitalsReading reading = synthesize(seq);
+            Integer spo2Wave = spo2Wave(seq);
+            if (transport instanceof BinaryTcpClient) {
+                ((BinaryTcpClient) transport).sendSample(reading, spo2Wave);
+            } else {
+                transport.send(PayloadFactory.buildPayload(reading, null, deviceId, spo2Wave).toString());
+            }
+            stats.recordSend(System.nanoTime() - t0, Math.max(0, lag));
+            seq++;
+            next += period;
+            parkUntil(next);
+        }
+    }
+
+    private void parkUntil(long deadlineNanos) {
+        long remaining;
+        while (!stopped && (remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** 合成波形：72bpm 的类 ECG 尖峰、15 次/分的呼吸正弦，低频指标缓慢漂移 */
+    private VitalsReading synthesize(long seq) {
+        double t = seq / rateHz + phase;
+        double beat = (t * 1.2) % 1.0;
+        int ecg = (int) (2048 + 600 * Math.exp(-Math.pow((beat - 0.3) * 40, 2)) + 40 * Math.sin(2 * Math.PI * t));
+        int respWave = (int) (128 + 100 * Math.sin(2 * Math.PI * t / 4));
+        int drift = (int) ((seq / (long) rateHz) % 5);
+        return new VitalsReading(System.currentTimeMillis(),
+                ecg, 72 + drift, 15, 120, 80, 93,
+                97 + drift % 2, 72 + drift, 36.5 + drift / 10.0, null, respWave);
+    }
+
+    private Integer spo2Wave(long seq) {
+        double t = seq / rateHz + phase;
+        return (int) (50 + 40 * Math.sin(2 * Math.PI * t * 1.2));
+    }
+}
@@ -0,0 +1,162 @@
+package com.devicedata.loadgen;
+
+import com.devicedata.gateway.GatewayServer;
+import com.devicedata.gateway.IngestStats;
+import com.devicedata.messagesend.PayloadFactory;
+import com.devicedata.messagesend.StompConnection;
+import com.devicedata.messagesend.StompWebSocketClient;
+import com.devicedata.messagesend.Transport;
+import com.devicedata.messagesend.model.VitalsChannel;
+import com.devicedata.messagesend.stomp.ClockOffsetEstimator;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void rampProfilesSpreadStartTimes() {
+        assertEquals(0, RampProfile.parse("instant").startDelayMs(99, 100));
+        RampProfile linear = RampProfile.parse("linear:10");
+        assertEquals(0, linear.startDelayMs(0, 100));
+        assertEquals(5_000, linear.startDelayMs(50, 100));
+        RampProfile step = RampProfile.parse("step:10:2.5");
+        assertEquals(0, step.startDelayMs(9, 100));
+        assertEquals(2_500, step.startDelayMs(10, 100));
+        assertEquals(22_500, step.startDelayMs(99, 100));
+        try {
+            RampProfile.parse("step:0:1");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void stompFleetIsFullyReceivedByGateway() throws Exception {
+        assertFleetReceived(LoadGenerator.Mode.STOMP, IngestStats.Source.STOMP);
+    }
+
+    @Test
+    public void tcpFleetIsFullyReceivedByGateway() throws Exception {
+        assertFleetReceived(LoadGenerator.Mode.TCP, IngestStats.Source.TCP);
+    }
+
+    @Test
+    public void prewarmedStompSessionAcksFirstSample() throws Exception {
+        GatewayServer gateway = new GatewayServer("127.0.0.1", 0, 0, 2);
+        gateway.start();
+        StompConnection connection = new StompConnection("ws://127.0.0.1:" + gateway.httpPort(), new Transport.Listener() {
+            @Override public void onLog(String line) { }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() { }
+            @Override public void onError(String error) { }
+        });
+        try {
+            // 没有设备通道时先完成握手，相当于 BLE 扫描期间的预热
+            connection.connect();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!connection.isReady() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(connection.isReady());
+
+            CountDownLatch acked = new CountDownLatch(1);
+            long[] times = new long[2];
+            StompWebSocketClient client = new StompWebSocketClient(connection, "dev-1", new StompWebSocketClient.Listener() {
+                @Override public void onLog(String line) { }
+                @Override public void onConnected() { }
+                @Override public void onDisconnected() { }
+                @Override public void onError(String error) { }
+                @Override public void onAck(String message) { }
+                @Override public void onSendCountUpdate(long count) { }
+                @Override public void onFirstSampleAcked(long writtenNanos, long ackedNanos) {
+                    times[0] = writtenNanos;
+                    times[1] = ackedNanos;
+                    acked.countDown();
+                }
+            });
+            client.connect();
+            // 会话已就绪，绑定设备目的地后第一条直接写出
+            assertTrue(client.isReady());
+            String json = PayloadFactory.buildAlarm("spo2_low", VitalsChannel.BLOOD_OXYGEN, true, 88, 1L).toString();
+            client.send(json);
+            client.send(json);
+            assertTrue(acked.await(5, TimeUnit.SECONDS));
+            assertTrue(times[0] > 0 && times[1] >= times[0]);
+            assertTrue(client.firstSampleAckMillis() >= 0);
+        } finally {
+            connection.shutdown();
+            gateway.stop();
+        }
+    }
+
+    @Test
+    public void clockSyncAgainstGatewayResponder() throws Exception {
+        GatewayServer gateway = new GatewayServer("127.0.0.1", 0, 0, 2);
+        gateway.start();
+        StompConnection connection = new StompConnection("ws://127.0.0.1:" + gateway.httpPort(), new Transport.Listener() {
+            @Override public void onLog(String line) { }
+            @Override public void onConnected() { }
+            @Override public void onDisconnected() { }
+            @Override public void onError(String error) { }
+        });
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        connection.setClockSync(clock, 60_000);
+        try {
+            connection.connect();
+            // 首轮 4 个探测间隔 250ms
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (clock.samples() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(4, clock.samples());
+            // 同一台机器上偏差应为 0，误差不超过报告的不确定度（服务端时间戳取整到毫秒）
+            long uncertaintyMs = clock.uncertaintyMicros(System.nanoTime()) / 1000;
+            assertTrue("uncertainty " + uncertaintyMs, uncertaintyMs < 50);
+            assertTrue(Math.abs(clock.wallClockCorrectionMillis()) <= uncertaintyMs + 2);
+            assertEquals(0, gateway.total().decodeErrors());
+            assertEquals(0, gateway.total().messages(IngestStats.Source.STOMP));
+        } finally {
+            connection.shutdown();
+            gateway.stop();
+        }
+    }
+
+    private void assertFleetReceived(LoadGenerator.Mode mode, IngestStats.Source source) throws Exception {
+        GatewayServer gateway = new GatewayServer("127.0.0.1", 0, 0, 2);
+        gateway.start();
+        LoadGenerator.Config config = new LoadGenerator.Config();
+        config.mode = mode;
+        config.wsUrl = "ws://127.0.0.1:" + gateway.httpPort();
+        config.tcpPort = gateway.tcpPort();
+        config.devices = 20;
+        config.devicesPerConnection = 4;
+        config.rateHz = 100;
+        config.durationMs = 1_500;
+        LoadGenerator generator = new LoadGenerator(config);
+        try {
+            generator.start();
+            while (!generator.isFinished()) {
+                Thread.sleep(100);
+            }
+            generator.report(1.5);
+            long sent = generator.totalSent();
+            // 满速约 3000 条；单核 CI 上 JIT 预热会拖慢第一秒，这里只要求有量，重点是收发一致
+            assertTrue("sent " + sent, sent > 500);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (gateway.total().messages(source) < sent && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                gateway.drainInterval();
+            }
+            assertEquals(sent, gateway.total().messages(source));
+            assertEquals(0, gateway.total().decodeErrors());
+        } finally {
+            generator.stop();
+            gateway.stop();
+        }
+    }
+}
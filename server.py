@@ -8,18 +8,36 @@ from __future__ import annotations
 
 import argparse
 import logging
+import threading
+import time
 from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
-from typing import Tuple
+from typing import Dict, List, Optional, Tuple
 
 import json
 from json import JSONDecodeError
 
 
+def fan_decode(last: Optional[int], run: int, value: int) -> List[int]:
+	"""FAN 顶点解码：与 App 端 FanDecoder 相同的取整线性插值；run 为 0（或尚无上一顶点）时只还原该点。"""
+	if last is None or run == 0:
+		return [value]
+	points = []
+	for i in range(1, run + 1):
+		numerator = (value - last) * i
+		q = (2 * abs(numerator) + run) // (2 * run)
+		points.append(last + (q if numerator >= 0 else -q))
+	return points
+
+
 class LoggingRequestHandler(BaseHTTPRequestHandler):
 	"""HTTP handler that dumps request details to stdout."""
 
 	server_version = "MessageSendTestServer/1.0"
 
+	# 压缩波形解码状态：(设备, 字段) -> [上一顶点值, 已还原点数]，跨请求保留
+	_fan_lock = threading.Lock()
+	_fan_state: Dict[Tuple[str, str], List[int]] = {}
+
 	def log_message(self, format: str, *args) -> None:  # type: ignore[override]
 		logging.info("%s - %s", self.client_address[0], format % args)
 
@@ -48,6 +66,7 @@ class LoggingRequestHandler(BaseHTTPRequestHandler):
 		return self.rfile.read(length)
 
 	def _log_payload(self, body: bytes) -> None:
+		ingest_ms = time.time() * 1000
 		if not body:
 			logging.info("No payload received")
 			return
@@ -61,8 +80,49 @@ class LoggingRequestHandler(BaseHTTPRequestHandler):
 		except JSONDecodeError:
 			logging.info("Raw payload: %s", decoded)
 			return
+		if isinstance(data, dict) and "traceId" in data:
+			self._log_trace(data, ingest_ms)
+		if isinstance(data, dict) and "alarm" in data:
+			logging.warning(
+				"ALARM %s %s: %s=%s (timestamp=%s, ingest-timestamp=%.1f ms)",
+				data.get("alarm"),
+				"raised" if data.get("active") else "cleared",
+				data.get("channel"),
+				data.get("value"),
+				data.get("timestamp"),
+				ingest_ms - data.get("timestamp", ingest_ms),
+			)
+			return
+		if isinstance(data, dict):
+			self._decode_waves(data)
 		self._log_vitals(data)
 
+	def _log_trace(self, data: dict, ingest_ms: float) -> None:
+		notify_ms = data.get("tNotify")
+		if not isinstance(notify_ms, (int, float)):
+			return
+		logging.info(
+			"Trace %s: ingest=%d, notify->ingest=%.1f ms (timestamp->ingest=%.1f ms)",
+			data.get("traceId"),
+			int(ingest_ms),
+			ingest_ms - notify_ms,
+			ingest_ms - data.get("timestamp", ingest_ms),
+		)
+
+	def _decode_waves(self, data: dict) -> None:
+		device_id = str(data.get("deviceId", self.client_address[0]))
+		for key in ("ecgZ", "respZ"):
+			vertex = data.get(key)
+			if not (isinstance(vertex, list) and len(vertex) == 2):
+				continue
+			run, value = int(vertex[0]), int(vertex[1])
+			with self._fan_lock:
+				state = self._fan_state.get((device_id, key))
+				points = fan_decode(state[0] if state else None, run, value)
+				total = (state[1] if state and run > 0 else 0) + len(points)
+				self._fan_state[(device_id, key)] = [value, total]
+			logging.info("%s decoded: +%d samples (total %d), last=%d", key, len(points), total, value)
+
 	def _log_vitals(self, data: dict) -> None:
 		user_id = data.get("userid", "unknown")
 		device_id = data.get("deviceId", self.client_address[0])
@@ -89,11 +149,13 @@ class LoggingRequestHandler(BaseHTTPRequestHandler):
 			fmt("bo", "Blood Oxygen Saturation", "%"),
 			fmt("temp", "Body Temperature", "degC"),
 			fmt("ecg", "Electrocardiogram"),
+			fmt("hrEcg", "ECG Derived Heart Rate", "bpm"),
+			fmt("rr", "RR Interval", "ms"),
 			wave_summary,
 			fmt("respWave", "Respiration Waveform"),
 		]
 
-		known_keys = {"userid", "deviceId", "timestamp", "hr", "hr2", "bp", "bo", "temp", "ecg", "boWave", "respWave"}
+		known_keys = {"userid", "deviceId", "timestamp", "hr", "hr2", "bp", "bo", "temp", "ecg", "boWave", "respWave", "traceId", "tNotify", "rPeak", "rr", "hrEcg", "ecgZ", "respZ"}
 		known_keys.add("boWaveSamples")
 		extra_pairs = {k: v for k, v in data.items() if k not in known_keys}
 		if extra_pairs:
@@ -21,4 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "MessageSend"
 include(":app")
+include(":benchmark")
+include(":gateway")
+include(":loadgen")
  
\ No newline at end of file